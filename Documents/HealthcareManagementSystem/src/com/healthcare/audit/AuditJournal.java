@@ -0,0 +1,374 @@
+package com.healthcare.audit;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The local, append-only journal of audit events: a directory of fixed-size segment files, each memory-mapped
+ * while it is written.
+ * <p>
+ * Segment layout, big-endian: a 24-byte header (magic, format version, journal ID, segment number) followed by
+ * records and then zeros. An event record is 24 bytes: type, action, entity, a spare byte, the actor's code,
+ * the time in epoch milliseconds, the row ID and the row count. An actor record (type, spare byte, name length,
+ * code, UTF-8 name) precedes the first event of each actor in a segment, so every segment can be read on its own.
+ * A record's type byte is written last; a reader stops at the first zero type, so a record cut short by a crash
+ * is never read.
+ * <p>
+ * Appending only copies bytes into the mapping. {@link #commit()} forces everything appended since the last
+ * commit to disk in one call (group commit), and only committed bytes are handed to the shipper. When a segment
+ * is full the next one is started; a restart always starts a new segment rather than appending to an old one.
+ * <p>
+ * The application only writes through {@link AuditLog}; this class is public so it can be tested on its own.
+ */
+public final class AuditJournal {
+
+    static final int MAGIC = 0x48434155; // "HCAU"
+    static final int FORMAT_VERSION = 1;
+    public static final int HEADER_BYTES = 24;
+    static final byte EVENT = 1;
+    static final byte ACTOR = 2;
+    public static final int EVENT_BYTES = 24;
+    public static final int ACTOR_HEADER_BYTES = 8;
+    static final int MAX_ACTOR_BYTES = 256;
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String ID_FILE = "journal.id";
+
+    private final Path directory;
+    private final long journalId;
+    private final int segmentBytes;
+
+    // Guarded by this
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private final Map<String, Integer> actorCodes = new HashMap<>();
+
+    private volatile long committedSegment;
+    private volatile int committedPosition;
+
+    /**
+     * Opens the journal in the directory, creating it if needed, and starts a new segment after any left from
+     * earlier runs.
+     *
+     * @throws IOException if the directory or the new segment cannot be created.
+     */
+    public AuditJournal(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        this.journalId = readOrCreateId(directory.resolve(ID_FILE));
+        List<Long> existing = segments();
+        open(existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1);
+    }
+
+    public long getJournalId() {
+        return journalId;
+    }
+
+    /**
+     * Appends one event, starting a new segment first if this one is full.
+     *
+     * @throws IOException if a new segment was needed and could not be created.
+     */
+    public synchronized void append(byte action, byte entity, String actor, long epochMillis, int rowId, int rowCount)
+            throws IOException {
+        if (buffer == null) {
+            throw new IOException("Audit journal is closed");
+        }
+        Integer code = actorCodes.get(actor);
+        byte[] name = code == null ? actorBytes(actor) : null;
+        if (position + EVENT_BYTES + (name != null ? ACTOR_HEADER_BYTES + name.length : 0) > segmentBytes) {
+            rotate();
+            code = null;
+            name = actorBytes(actor);
+        }
+        if (code == null) {
+            code = actorCodes.size() + 1;
+            actorCodes.put(actor, code);
+            buffer.put(position + 1, (byte) 0);
+            buffer.putShort(position + 2, (short) name.length);
+            buffer.putInt(position + 4, code);
+            buffer.put(position + ACTOR_HEADER_BYTES, name);
+            buffer.put(position, ACTOR);
+            position += ACTOR_HEADER_BYTES + name.length;
+        }
+        buffer.put(position + 1, action);
+        buffer.put(position + 2, entity);
+        buffer.put(position + 3, (byte) 0);
+        buffer.putInt(position + 4, code);
+        buffer.putLong(position + 8, epochMillis);
+        buffer.putInt(position + 16, rowId);
+        buffer.putInt(position + 20, rowCount);
+        buffer.put(position, EVENT);
+        position += EVENT_BYTES;
+    }
+
+    /**
+     * Forces the events appended since the last commit to disk with one call. Appends carry on meanwhile.
+     */
+    public void commit() {
+        MappedByteBuffer toForce;
+        long forcedSegment;
+        int from;
+        int to;
+        synchronized (this) {
+            if (buffer == null) {
+                return;
+            }
+            toForce = buffer;
+            forcedSegment = segment;
+            from = committedSegment == segment ? committedPosition : 0;
+            to = position;
+        }
+        if (to > from) {
+            try {
+                toForce.force(from, to - from);
+            } catch (UncheckedIOException ex) {
+                synchronized (this) {
+                    if (segment == forcedSegment) {
+                        throw ex;
+                    }
+                }
+                return; // The segment was rotated, which forced all of it, and closed
+            }
+        }
+        synchronized (this) {
+            if (segment == forcedSegment) {
+                committedPosition = to;
+            }
+        }
+    }
+
+    /**
+     * @return The segment being written, which {@link #getCommittedPosition()} refers to.
+     */
+    public long getCommittedSegment() {
+        return committedSegment;
+    }
+
+    /**
+     * @return How far the segment being written is on disk; the shipper reads no further.
+     */
+    public int getCommittedPosition() {
+        return committedPosition;
+    }
+
+    /**
+     * @return The numbers of the segments in the directory, oldest first.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public List<Long> segments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ex) {
+                    // Not one of ours
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    public Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Commits and closes the segment being written; appends fail after this.
+     */
+    public void close() {
+        commit();
+        synchronized (this) {
+            if (buffer != null) {
+                closeSegment();
+            }
+        }
+    }
+
+    /**
+     * Writes to the given segment number instead of the one just opened, which is deleted. Only allowed before
+     * anything is appended; see {@link AuditShipper}.
+     *
+     * @throws IOException if the segment cannot be created.
+     */
+    synchronized void skipTo(long number) throws IOException {
+        if (buffer == null || position != HEADER_BYTES || number <= segment) {
+            throw new IllegalStateException("Audit journal can only skip ahead from a new, empty segment");
+        }
+        Path unused = segmentPath(segment);
+        closeSegment();
+        Files.deleteIfExists(unused);
+        open(number);
+    }
+
+    private void rotate() throws IOException {
+        buffer.force(); // The whole old segment is on disk before the shipper moves past it
+        closeSegment();
+        open(segment + 1);
+    }
+
+    // The mapping itself is released when the buffer is collected; the file can be read and deleted before that
+    private void closeSegment() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            System.err.println("Error closing audit segment " + segment + ": " + ex.getMessage());
+        }
+        buffer = null;
+        channel = null;
+    }
+
+    private void open(long number) throws IOException {
+        FileChannel newChannel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        newBuffer.putInt(0, MAGIC);
+        newBuffer.putInt(4, FORMAT_VERSION);
+        newBuffer.putLong(8, journalId);
+        newBuffer.putLong(16, number);
+        newBuffer.force(0, HEADER_BYTES);
+        channel = newChannel;
+        buffer = newBuffer;
+        segment = number;
+        position = HEADER_BYTES;
+        actorCodes.clear();
+        // Position first: a reader that sees the new segment then sees its position, not the old segment's
+        committedPosition = HEADER_BYTES;
+        committedSegment = number;
+    }
+
+    private static byte[] actorBytes(String actor) {
+        byte[] bytes = actor.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_ACTOR_BYTES) {
+            return bytes;
+        }
+        // Cut on a character boundary
+        int length = MAX_ACTOR_BYTES;
+        while ((bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    // One random ID per journal directory, so rows shipped from different workstations never share a key
+    private static long readOrCreateId(Path file) throws IOException {
+        if (Files.exists(file)) {
+            return Long.parseUnsignedLong(Files.readString(file).trim(), 16);
+        }
+        long id = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        Files.writeString(file, Long.toHexString(id));
+        return id;
+    }
+
+    /**
+     * Reads one segment's records from the start, or from a position with the actors read before it.
+     */
+    public static final class Reader {
+        private final ByteBuffer bytes;
+        private final Map<Integer, String> actors;
+        private int position;
+
+        /**
+         * @param bytes  The segment from its start, up to where it may be read.
+         * @param actors The actor codes seen so far in this segment; filled in as actor records are read.
+         */
+        public Reader(ByteBuffer bytes, Map<Integer, String> actors, int position) throws IOException {
+            if (bytes.limit() < HEADER_BYTES || bytes.getInt(0) != MAGIC) {
+                throw new IOException("Not an audit segment");
+            }
+            if (bytes.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Audit segment format " + bytes.getInt(4) + " is not supported");
+            }
+            this.bytes = bytes;
+            this.actors = actors;
+            this.position = Math.max(position, HEADER_BYTES);
+        }
+
+        public long getJournalId() {
+            return bytes.getLong(8);
+        }
+
+        public long getSegment() {
+            return bytes.getLong(16);
+        }
+
+        /**
+         * @return The position of the next record.
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Reads the next event into the given holder, reading any actor records before it.
+         *
+         * @return false at the end of what was written.
+         */
+        public boolean next(AuditRecord record) {
+            while (position < bytes.limit()) {
+                byte type = bytes.get(position);
+                if (type == ACTOR && position + ACTOR_HEADER_BYTES <= bytes.limit()) {
+                    int length = bytes.getShort(position + 2);
+                    if (position + ACTOR_HEADER_BYTES + length > bytes.limit()) {
+                        return false;
+                    }
+                    byte[] name = new byte[length];
+                    bytes.get(position + ACTOR_HEADER_BYTES, name);
+                    actors.put(bytes.getInt(position + 4), new String(name, StandardCharsets.UTF_8));
+                    position += ACTOR_HEADER_BYTES + length;
+                } else if (type == EVENT && position + EVENT_BYTES <= bytes.limit()) {
+                    record.position = position;
+                    record.action = bytes.get(position + 1);
+                    record.entity = bytes.get(position + 2);
+                    record.actor = actors.getOrDefault(bytes.getInt(position + 4), "?");
+                    record.epochMillis = bytes.getLong(position + 8);
+                    record.rowId = bytes.getInt(position + 16);
+                    record.rowCount = bytes.getInt(position + 20);
+                    position += EVENT_BYTES;
+                    return true;
+                } else {
+                    return false; // Zeros after the last record, or a record cut short
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * One event as read back; reused from record to record.
+     */
+    public static final class AuditRecord {
+        public int position;
+        public byte action;
+        public byte entity;
+        public String actor;
+        public long epochMillis;
+        public int rowId;
+        public int rowCount;
+    }
+}
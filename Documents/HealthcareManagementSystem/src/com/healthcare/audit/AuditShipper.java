@@ -0,0 +1,219 @@
+package com.healthcare.audit;
+
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.util.DaoMetrics;
+import com.healthcare.util.DatabaseConnection;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies committed journal events into the {@code Audit_Log} table in batches, and deletes each segment once all
+ * of it is in the table.
+ * <p>
+ * How far it got is kept in a small file next to the segments. Rows are keyed by journal, segment and position
+ * and inserted with INSERT IGNORE, so events shipped again after a crash are not stored twice. While the table is
+ * missing or the database is down the events simply wait in the journal. Public, like {@link AuditJournal}, only
+ * for testing.
+ */
+public final class AuditShipper {
+
+    private static final int BATCH_ROWS = 1_000;
+    private static final int ER_NO_SUCH_TABLE = 1146;
+    private static final String PROGRESS_FILE = "shipped";
+    private static final String INSERT_SQL = "INSERT IGNORE INTO Audit_Log (journal_id, segment, position, event_time, " +
+            "actor, action, entity, row_id, row_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final AuditJournal journal;
+    private final Path progressFile;
+    private final LongAdder eventsShipped = new LongAdder();
+    private volatile boolean tableMissing = false;
+
+    // Guarded by this: the next event to ship, and the actors of that segment read so far
+    private long segment;
+    private int position;
+    private final Map<Integer, String> actors = new HashMap<>();
+
+    public AuditShipper(AuditJournal journal) throws IOException {
+        this.journal = journal;
+        this.progressFile = journal.getDirectory().resolve(PROGRESS_FILE);
+        try {
+            String[] saved = Files.readString(progressFile).trim().split(" ");
+            segment = Long.parseLong(saved[0]);
+            position = Integer.parseInt(saved[1]);
+        } catch (NoSuchFileException ex) {
+            segment = 0;
+            position = AuditJournal.HEADER_BYTES;
+        } catch (RuntimeException ex) {
+            // Damaged: start over, INSERT IGNORE skips what is already in the table
+            segment = 0;
+            position = AuditJournal.HEADER_BYTES;
+        }
+        if (segment >= journal.getCommittedSegment()) {
+            // The journal always opens a segment after those on disk, so segments were removed by hand and it
+            // numbered from 1 again. Those numbers are already in Audit_Log, where INSERT IGNORE would drop the
+            // new events, and the loop below would delete them as shipped: carry on after the last one shipped
+            journal.skipTo(segment + 1);
+            moveTo(segment + 1);
+            saveProgress();
+        }
+    }
+
+    /**
+     * Ships every committed event not shipped yet.
+     *
+     * @return How many events were shipped, or -1 if the database could not take them.
+     */
+    public synchronized int ship() {
+        long startNanos = DaoMetrics.start();
+        try {
+            int shipped = shipOrThrow();
+            tableMissing = false;
+            return shipped;
+        } catch (SQLException ex) {
+            if (ex.getErrorCode() == ER_NO_SUCH_TABLE) {
+                if (!tableMissing) {
+                    System.out.println("No Audit_Log table; audit events stay in the local journal");
+                }
+                tableMissing = true;
+            } else {
+                System.err.println("Error shipping audit events: " + ex.getMessage());
+            }
+            return -1;
+        } catch (IOException ex) {
+            System.err.println("Error reading audit journal: " + ex.getMessage());
+            return -1;
+        } finally {
+            DaoMetrics.record("AuditShipper.ship", startNanos);
+        }
+    }
+
+    private int shipOrThrow() throws SQLException, IOException {
+        // Segment before position, see AuditJournal#open
+        long writing = journal.getCommittedSegment();
+        int committed = journal.getCommittedPosition();
+        int shipped = 0;
+        List<Long> segments = journal.segments();
+        for (long number : segments) {
+            if (number > writing) {
+                break;
+            }
+            if (number < segment) {
+                delete(journal.segmentPath(number)); // Shipped, but not deleted before
+                continue;
+            }
+            if (number > segment) {
+                moveTo(number);
+            }
+            // Older segments were forced in full when the journal moved on; read them to their last record
+            boolean current = number == writing;
+            shipped += shipSegment(journal.segmentPath(number), current ? committed : -1);
+            if (current) {
+                break;
+            }
+            delete(journal.segmentPath(number));
+            moveTo(number + 1);
+            saveProgress();
+        }
+        return shipped;
+    }
+
+    private int shipSegment(Path path, int limit) throws SQLException, IOException {
+        MappedByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = limit >= 0 ? Math.min(limit, channel.size()) : channel.size();
+            if (size <= position) {
+                return 0;
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        AuditJournal.AuditRecord record = new AuditJournal.AuditRecord();
+        if (actors.isEmpty() && position > AuditJournal.HEADER_BYTES) {
+            // Resumed mid-segment after a restart: learn the actors defined before the resume point
+            AuditJournal.Reader scan = new AuditJournal.Reader(bytes, actors, AuditJournal.HEADER_BYTES);
+            while (scan.getPosition() < position && scan.next(record)) {
+                // Only the actor records matter
+            }
+        }
+        AuditJournal.Reader reader = new AuditJournal.Reader(bytes, actors, position);
+        int shipped = 0;
+        try (Connection conn = DatabaseConnection.requireUnboundConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+
+            int batched = 0;
+            while (reader.next(record)) {
+                pstmt.setLong(1, reader.getJournalId());
+                pstmt.setLong(2, reader.getSegment());
+                pstmt.setInt(3, record.position);
+                pstmt.setTimestamp(4, new Timestamp(record.epochMillis));
+                pstmt.setString(5, record.actor);
+                pstmt.setString(6, name(AuditLog.Action.values(), record.action));
+                pstmt.setString(7, name(ChangeEvent.Entity.values(), record.entity));
+                pstmt.setInt(8, record.rowId);
+                pstmt.setInt(9, record.rowCount);
+                pstmt.addBatch();
+                if (++batched == BATCH_ROWS) {
+                    pstmt.executeBatch();
+                    shipped += shipped(batched, reader.getPosition());
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                pstmt.executeBatch();
+                shipped += shipped(batched, reader.getPosition());
+            }
+        }
+        return shipped;
+    }
+
+    private int shipped(int events, int nextPosition) throws IOException {
+        position = nextPosition;
+        eventsShipped.add(events);
+        saveProgress();
+        return events;
+    }
+
+    private void moveTo(long number) {
+        segment = number;
+        position = AuditJournal.HEADER_BYTES;
+        actors.clear();
+    }
+
+    // A segment still mapped cannot be deleted on some systems; it is tried again on the next pass
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            System.err.println("Could not delete shipped audit segment " + path + ": " + ex.getMessage());
+        }
+    }
+
+    private void saveProgress() throws IOException {
+        Files.writeString(progressFile, segment + " " + position);
+    }
+
+    private static String name(Enum<?>[] values, byte ordinal) {
+        return ordinal >= 0 && ordinal < values.length ? values[ordinal].name() : "UNKNOWN";
+    }
+
+    long getEventsShippedCount() {
+        return eventsShipped.sum();
+    }
+
+    boolean isTableMissing() {
+        return tableMissing;
+    }
+}
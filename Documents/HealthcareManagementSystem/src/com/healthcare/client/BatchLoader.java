@@ -0,0 +1,129 @@
+package com.healthcare.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Coalesces single-ID lookups into batched requests.
+ * <p>
+ * Lookups issued within a short window (or until {@code maxBatchSize} distinct IDs are waiting) are
+ * sent as one call to the batch function, e.g. {@code GET /api/patients?ids=1,2,3}. Concurrent
+ * lookups of the same ID share one future.
+ *
+ * @param <T> The loaded type.
+ */
+public class BatchLoader<T> {
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "batch-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Function<List<Integer>, CompletableFuture<Map<Integer, T>>> batchFunction;
+    private final long windowMicros;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private Map<Integer, CompletableFuture<T>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * @param batchFunction Loads a batch of IDs; IDs missing from the result map complete with null.
+     * @param windowMicros  How long to collect lookups before sending a batch.
+     * @param maxBatchSize  Send immediately once this many distinct IDs are waiting.
+     */
+    public BatchLoader(Function<List<Integer>, CompletableFuture<Map<Integer, T>>> batchFunction,
+                       long windowMicros, int maxBatchSize) {
+        this.batchFunction = batchFunction;
+        this.windowMicros = windowMicros;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Queues a lookup.
+     *
+     * @param id The ID to load.
+     * @return A future completed with the item, or null if it does not exist.
+     */
+    public CompletableFuture<T> load(int id) {
+        lookups.incrementAndGet();
+        Map<Integer, CompletableFuture<T>> fullBatch = null;
+        CompletableFuture<T> future;
+        synchronized (lock) {
+            future = pending.get(id);
+            if (future != null) {
+                return future; // Already requested in this window
+            }
+            future = new CompletableFuture<>();
+            pending.put(id, future);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = pending;
+                pending = new LinkedHashMap<>();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+        return future;
+    }
+
+    /**
+     * @return Number of single-ID lookups requested.
+     */
+    public long getLookupCount() {
+        return lookups.get();
+    }
+
+    /**
+     * @return Number of batched requests sent.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    private void flush() {
+        Map<Integer, CompletableFuture<T>> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    private void dispatch(Map<Integer, CompletableFuture<T>> batch) {
+        batches.incrementAndGet();
+        CompletableFuture<Map<Integer, T>> result;
+        try {
+            result = batchFunction.apply(new ArrayList<>(batch.keySet()));
+        } catch (RuntimeException ex) {
+            result = CompletableFuture.failedFuture(ex);
+        }
+        result.whenComplete((loaded, error) -> {
+            for (Map.Entry<Integer, CompletableFuture<T>> entry : batch.entrySet()) {
+                if (error != null) {
+                    entry.getValue().completeExceptionally(error);
+                } else {
+                    entry.getValue().complete(loaded.get(entry.getKey()));
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,179 @@
+package com.healthcare.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One persistent HTTP/1.1 connection on which GET requests are pipelined: each request is written
+ * as soon as it is submitted, without waiting for the responses to earlier ones, and a reader thread
+ * matches responses to requests in order. Independent lookups therefore share one TCP connection
+ * and cost one round trip between them instead of one each.
+ * <p>
+ * Only idempotent GETs are sent this way; if the connection drops, every outstanding request fails
+ * with an IOException and the next submit opens a new connection.
+ */
+class HttpPipeline implements Closeable {
+
+    private final String host;
+    private final int port;
+    private final int connectTimeoutMs;
+    private final String apiKey; // null for none
+
+    // Guards opening the connection and writing requests; a ReentrantLock so blocked virtual threads don't pin their carrier
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private Connection connection;
+    private volatile boolean closed = false;
+
+    /**
+     * @param apiKey Sent as X-Api-Key with every request, or null for none.
+     */
+    HttpPipeline(String host, int port, int connectTimeoutMs, String apiKey) {
+        this.host = host;
+        this.port = port;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * Sends a GET request on the pipeline. Gzipped responses are accepted and decoded.
+     *
+     * @param pathAndQuery The request target, e.g. "/api/patients?ids=1,2".
+     * @param ifNoneMatch  The ETag of a copy the caller already has, or null; if it is still current
+     *                     the response is 304 Not Modified with no body.
+     * @return A future completed with the response, or exceptionally if the connection fails.
+     */
+    CompletableFuture<HttpResult> get(String pathAndQuery, String ifNoneMatch) {
+        CompletableFuture<HttpResult> future = new CompletableFuture<>();
+        byte[] request = ("GET " + pathAndQuery + " HTTP/1.1\r\n"
+                + "Host: " + host + ":" + port + "\r\n"
+                + "Accept: application/json\r\n"
+                + "Accept-Encoding: gzip\r\n"
+                + (apiKey != null ? "X-Api-Key: " + apiKey + "\r\n" : "")
+                + (ifNoneMatch != null ? "If-None-Match: " + ifNoneMatch + "\r\n" : "")
+                + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        writeLock.lock();
+        Connection conn = null;
+        try {
+            if (closed) {
+                throw new IOException("Pipeline is closed");
+            }
+            if (connection == null || connection.broken) {
+                connection = new Connection(open());
+            }
+            conn = connection;
+            conn.pending.add(future); // Queued before writing so the reader can never see a response first
+            conn.out.write(request);
+            conn.out.flush();
+            if (conn.broken) {
+                // The reader failed between our check and the write; make sure this request is not left hanging
+                conn.fail(new IOException("Connection closed"));
+            }
+        } catch (IOException ex) {
+            if (conn != null) {
+                conn.fail(ex);
+            } else {
+                future.completeExceptionally(ex);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * @return The number of requests written but not yet answered.
+     */
+    int getPendingCount() {
+        Connection conn = connection;
+        return conn == null ? 0 : conn.pending.size();
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            closed = true;
+            if (connection != null) {
+                connection.fail(new IOException("Pipeline closed"));
+                connection = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Socket open() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            socket.setTcpNoDelay(true); // Small requests should leave immediately, the pipeline does the batching
+        } catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+        return socket;
+    }
+
+    /**
+     * A single TCP connection with its queue of requests awaiting a response.
+     */
+    private static class Connection {
+        final Socket socket;
+        final OutputStream out;
+        final Queue<CompletableFuture<HttpResult>> pending = new ConcurrentLinkedQueue<>();
+        volatile boolean broken = false;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            Thread.ofVirtual().name("http-pipeline-reader").start(() -> readLoop(in));
+        }
+
+        private void readLoop(InputStream in) {
+            try {
+                while (true) {
+                    HttpResult result = HttpResult.read(in);
+                    CompletableFuture<HttpResult> future = pending.poll();
+                    if (future == null) {
+                        throw new IOException("Received a response with no request outstanding");
+                    }
+                    future.complete(result);
+                    if (result.closesConnection()) {
+                        throw new IOException("Server closed the connection");
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                fail(ex instanceof IOException ? (IOException) ex : new IOException(ex));
+            }
+        }
+
+        /**
+         * Marks the connection unusable and fails every request still waiting on it.
+         */
+        void fail(IOException cause) {
+            broken = true;
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // Closing anyway
+            }
+            CompletableFuture<HttpResult> future;
+            while ((future = pending.poll()) != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+}
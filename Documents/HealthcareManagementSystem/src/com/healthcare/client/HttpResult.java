@@ -0,0 +1,195 @@
+package com.healthcare.client;
+
+import com.healthcare.json.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Status, headers and body of an HTTP response received by the remote client.
+ */
+public class HttpResult {
+
+    private final int status;
+    private final Map<String, String> headers; // Lower-case names
+    private final String body;
+
+    public HttpResult(int status, Map<String, String> headers, String body) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @param name Header name, case-insensitive.
+     * @return The header value, or null if absent.
+     */
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public boolean isSuccess() {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * @return The body parsed as a JSON object.
+     */
+    public Map<String, Object> json() {
+        return JsonParser.parseObject(body);
+    }
+
+    /**
+     * @return The "items" array of a list response.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> items() {
+        return (List<Map<String, Object>>) json().get("items");
+    }
+
+    /**
+     * @return The "current" row of a 409 answer to a conditional update, or null if the 409 had another cause.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> conflictRow() {
+        if (status != 409) {
+            return null;
+        }
+        Object current = json().get("current");
+        return current instanceof Map ? (Map<String, Object>) current : null;
+    }
+
+    /**
+     * @return The server's error message for a failed request, or the status code if there is none.
+     */
+    public String errorMessage() {
+        try {
+            Object error = json().get("error");
+            if (error != null) {
+                return "HTTP " + status + ": " + error;
+            }
+        } catch (RuntimeException ex) {
+            // Not a JSON error body
+        }
+        return "HTTP " + status;
+    }
+
+    boolean closesConnection() {
+        return "close".equalsIgnoreCase(getHeader("connection"));
+    }
+
+    /**
+     * Reads one HTTP/1.1 response from a persistent connection, decoding a gzipped body.
+     *
+     * @throws EOFException if the connection was closed before a response started.
+     */
+    static HttpResult read(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        if (statusLine == null) {
+            throw new EOFException("Connection closed by server");
+        }
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new IOException("Malformed status line: " + statusLine);
+        }
+        int status = Integer.parseInt(parts[1]);
+
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        if (line == null) {
+            throw new EOFException("Connection closed inside response headers");
+        }
+
+        byte[] body;
+        String contentLength = headers.get("content-length");
+        if (status == 204 || status == 304 || status < 200) {
+            body = new byte[0];
+        } else if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            body = readChunked(in);
+        } else if (contentLength != null) {
+            body = readFully(in, Integer.parseInt(contentLength));
+        } else {
+            body = in.readAllBytes(); // Delimited by the server closing the connection
+            headers.put("connection", "close");
+        }
+        if ("gzip".equalsIgnoreCase(headers.get("content-encoding"))) {
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = gzip.readAllBytes();
+            }
+            headers.remove("content-encoding");
+        }
+        return new HttpResult(status, headers, new String(body, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] readChunked(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(in);
+            if (sizeLine == null) {
+                throw new EOFException("Connection closed inside chunked body");
+            }
+            int semicolon = sizeLine.indexOf(';');
+            int size = Integer.parseInt((semicolon == -1 ? sizeLine : sizeLine.substring(0, semicolon)).trim(), 16);
+            if (size == 0) {
+                // Skip trailers up to the terminating blank line
+                String trailer;
+                while ((trailer = readLine(in)) != null && !trailer.isEmpty()) {
+                    // ignored
+                }
+                return out.toByteArray();
+            }
+            out.write(readFully(in, size));
+            readLine(in); // CRLF after the chunk
+        }
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Connection closed inside response body");
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads a CRLF-terminated header line as ISO-8859-1, or returns null at end of stream.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int length = sb.length();
+                if (length > 0 && sb.charAt(length - 1) == '\r') {
+                    sb.setLength(length - 1);
+                }
+                return sb.toString();
+            }
+            sb.append((char) b);
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+}
@@ -0,0 +1,227 @@
+package com.healthcare.client;
+
+import com.healthcare.dao.AppointmentDAO;
+import com.healthcare.dao.UpdateResult;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.json.JsonWriter;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.Appointment;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * {@link AppointmentDAO} that talks to a {@code HealthcareServer} instead of MySQL.
+ */
+public class RemoteAppointmentDAO extends AppointmentDAO {
+
+    private final RemoteClient client;
+
+    public RemoteAppointmentDAO(RemoteClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public int addAppointmentOrThrow(Appointment appointment) throws SQLException {
+        try {
+            HttpResult result = client.send("POST", "/api/appointments", toJson(appointment));
+            if (result.getStatus() != 201) {
+                throw RemoteClient.serverError(result);
+            }
+            int generatedId = ModelJson.getInt(result.json(), "id", -1);
+            appointment.setAppointmentId(generatedId);
+            appointment.setVersion(1);
+            ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.APPOINTMENT, generatedId, appointment));
+            return generatedId;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    /**
+     * The server has no batch endpoint; the appointments are posted one at a time.
+     */
+    @Override
+    public int addAppointmentsOrThrow(List<Appointment> appointments) throws SQLException {
+        int added = 0;
+        for (Appointment appointment : appointments) {
+            if (addAppointmentOrThrow(appointment) != -1) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public Appointment getAppointmentByIdOrThrow(int appointmentId) throws SQLException {
+        try {
+            HttpResult result = client.get("/api/appointments/" + appointmentId);
+            if (result.getStatus() == 404) {
+                return null;
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            return ModelJson.readAppointment(result.json());
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public List<Appointment> getAllAppointmentsOrThrow() throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        try {
+            Integer after = 0;
+            while (after != null) {
+                HttpResult result = client.get("/api/appointments?after=" + after + "&limit=500");
+                if (!result.isSuccess()) {
+                    throw RemoteClient.serverError(result);
+                }
+                for (Map<String, Object> item : result.items()) {
+                    appointments.add(ModelJson.readAppointment(item));
+                }
+                after = ModelJson.getInteger(result.json(), "nextAfter");
+            }
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+        System.out.println("Retrieved " + appointments.size() + " appointments.");
+        return appointments;
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsPageOrThrow(int afterId, int limit) throws SQLException {
+        return readList("/api/appointments?after=" + afterId + "&limit=" + limit);
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsByIdsOrThrow(Collection<Integer> appointmentIds) throws SQLException {
+        if (appointmentIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        StringJoiner ids = new StringJoiner(",");
+        for (Integer appointmentId : appointmentIds) {
+            ids.add(String.valueOf(appointmentId));
+        }
+        return readList("/api/appointments?ids=" + ids);
+    }
+
+    /**
+     * Filtered on the server, from its bitmap indexes.
+     */
+    @Override
+    public List<Appointment> findAppointmentsOrThrow(String status, String specialization, LocalDate from,
+                                                     LocalDate to, int afterId, int limit) throws SQLException {
+        StringBuilder path = new StringBuilder("/api/appointments?after=").append(afterId).append("&limit=").append(limit);
+        if (status != null) {
+            path.append("&status=").append(URLEncoder.encode(status, StandardCharsets.UTF_8));
+        }
+        if (specialization != null) {
+            path.append("&specialization=").append(URLEncoder.encode(specialization, StandardCharsets.UTF_8));
+        }
+        if (from != null) {
+            path.append("&from=").append(from);
+        }
+        if (to != null) {
+            path.append("&to=").append(to);
+        }
+        return readList(path.toString());
+    }
+
+    @Override
+    public boolean updateAppointmentOrThrow(Appointment appointment) throws SQLException {
+        try {
+            HttpResult result = client.send("PUT", "/api/appointments/" + appointment.getAppointmentId(), toJson(appointment));
+            if (result.getStatus() == 404) {
+                return false;
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.APPOINTMENT, appointment.getAppointmentId(), appointment));
+            return true;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public UpdateResult<Appointment> updateAppointmentOrThrow(Appointment original, Appointment edited) throws SQLException {
+        // The server works out the changed columns itself, against the row at this version
+        return updateAppointmentAtVersionOrThrow(edited, original.getVersion());
+    }
+
+    @Override
+    public UpdateResult<Appointment> updateAppointmentAtVersionOrThrow(Appointment edited, int expectedVersion) throws SQLException {
+        JsonWriter json = new JsonWriter().beginObject();
+        ModelJson.writeFields(json, edited);
+        json.name("expectedVersion").value(expectedVersion).endObject();
+        try {
+            HttpResult result = client.send("PUT", "/api/appointments/" + edited.getAppointmentId(), json.toString());
+            if (result.getStatus() == 404) {
+                return UpdateResult.notFound();
+            }
+            Map<String, Object> current = result.conflictRow();
+            if (current != null) {
+                return UpdateResult.conflict(ModelJson.readAppointment(current));
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            Appointment saved = ModelJson.readAppointment(result.json());
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.APPOINTMENT, saved.getAppointmentId(), saved));
+            return UpdateResult.updated(saved);
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public boolean deleteAppointmentOrThrow(int appointmentId) throws SQLException {
+        try {
+            HttpResult result = client.send("DELETE", "/api/appointments/" + appointmentId, null);
+            if (result.getStatus() == 404) {
+                return false;
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            ChangeEventBus.getInstance().publish(ChangeEvent.deleted(ChangeEvent.Entity.APPOINTMENT, appointmentId));
+            return true;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    private List<Appointment> readList(String pathAndQuery) throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        try {
+            HttpResult result = client.get(pathAndQuery);
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            for (Map<String, Object> item : result.items()) {
+                appointments.add(ModelJson.readAppointment(item));
+            }
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+        return appointments;
+    }
+
+    private static String toJson(Appointment appointment) {
+        JsonWriter json = new JsonWriter();
+        ModelJson.write(json, appointment);
+        return json.toString();
+    }
+}
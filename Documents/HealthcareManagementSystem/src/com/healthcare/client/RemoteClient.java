@@ -0,0 +1,308 @@
+package com.healthcare.client;
+
+import com.healthcare.dao.DuplicateValueException;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.Doctor;
+import com.healthcare.model.Patient;
+import com.healthcare.util.DaoMetrics;
+import com.healthcare.util.DatabaseBusyException;
+import com.healthcare.util.DatabaseUnavailableException;
+import com.healthcare.util.LruCache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Connection to a {@code HealthcareServer}, shared by the remote DAOs.
+ * <p>
+ * Reads go over a few persistent pipelined connections ({@link HttpPipeline}) and single-row lookups
+ * of patients and doctors are coalesced into {@code ?ids=} batch requests ({@link BatchLoader}).
+ * Writes are not pipelined; they use the JDK HttpClient, which keeps its own connections alive.
+ * Repeated GETs of the same URL are conditional, so polling an unchanged list costs a 304.
+ */
+public class RemoteClient implements Closeable {
+
+    public static final int DEFAULT_PIPELINES = 2;
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    private static final long REQUEST_TIMEOUT_MS = 10_000;
+    // Lookups issued within this window share one request
+    private static final long BATCH_WINDOW_MICROS = 2_000;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int VALIDATED_ENTRIES = 128;
+
+    private final URI baseUri;
+    private final String apiKey; // null for none
+    private final HttpPipeline[] pipelines;
+    private final AtomicInteger nextPipeline = new AtomicInteger();
+    private final HttpClient writeClient;
+    // Last response with an ETag per URL, revalidated with If-None-Match
+    private final LruCache<String, HttpResult> validated = new LruCache<>(VALIDATED_ENTRIES);
+    private final AtomicLong notModified = new AtomicLong();
+
+    private final BatchLoader<Patient> patientLoader;
+    private final BatchLoader<Doctor> doctorLoader;
+
+    /**
+     * @param baseUrl The server address, e.g. "http://records-server:8080".
+     */
+    public RemoteClient(String baseUrl) {
+        this(baseUrl, DEFAULT_PIPELINES, null);
+    }
+
+    /**
+     * @param baseUrl        The server address, e.g. "http://records-server:8080".
+     * @param pipelineCount  Number of persistent connections reads are spread over.
+     */
+    public RemoteClient(String baseUrl, int pipelineCount) {
+        this(baseUrl, pipelineCount, null);
+    }
+
+    /**
+     * @param baseUrl        The server address, e.g. "http://records-server:8080".
+     * @param pipelineCount  Number of persistent connections reads are spread over.
+     * @param apiKey         The server's {@code server.apiKey}, sent with every request, or null or empty for none.
+     */
+    public RemoteClient(String baseUrl, int pipelineCount, String apiKey) {
+        this.baseUri = URI.create(baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl);
+        this.apiKey = apiKey != null && !apiKey.isEmpty() ? apiKey : null;
+        int port = baseUri.getPort() != -1 ? baseUri.getPort() : 80;
+        this.pipelines = new HttpPipeline[pipelineCount];
+        for (int i = 0; i < pipelineCount; i++) {
+            pipelines[i] = new HttpPipeline(baseUri.getHost(), port, CONNECT_TIMEOUT_MS, this.apiKey);
+        }
+        this.writeClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MS))
+                .build();
+
+        this.patientLoader = new BatchLoader<>(ids -> loadByIds("/api/patients", ids, ModelJson::readPatient, Patient::getPatientId),
+                BATCH_WINDOW_MICROS, MAX_BATCH_SIZE);
+        this.doctorLoader = new BatchLoader<>(ids -> loadByIds("/api/doctors", ids, ModelJson::readDoctor, Doctor::getDoctorId),
+                BATCH_WINDOW_MICROS, MAX_BATCH_SIZE);
+    }
+
+    public BatchLoader<Patient> getPatientLoader() {
+        return patientLoader;
+    }
+
+    public BatchLoader<Doctor> getDoctorLoader() {
+        return doctorLoader;
+    }
+
+    /**
+     * Sends a GET on the next pipeline. A request that fails because a kept-alive connection was
+     * closed under it is retried once on a fresh connection (GETs are idempotent).
+     * <p>
+     * Responses with an ETag are remembered; asking for the same URL again sends If-None-Match, and
+     * a 304 Not Modified from the server returns the remembered response without a body transfer.
+     */
+    public CompletableFuture<HttpResult> getAsync(String pathAndQuery) {
+        long startNanos = DaoMetrics.start();
+        HttpResult remembered = validated.get(pathAndQuery);
+        String etag = remembered != null ? remembered.getHeader("etag") : null;
+        CompletableFuture<HttpResult> result = nextPipeline().get(pathAndQuery, etag)
+                .exceptionallyCompose(error -> unwrap(error) instanceof IOException
+                        ? nextPipeline().get(pathAndQuery, etag)
+                        : CompletableFuture.failedFuture(error))
+                .thenApply(response -> {
+                    if (response.getStatus() == 304 && remembered != null) {
+                        notModified.incrementAndGet();
+                        return remembered;
+                    }
+                    // Batch lookups rarely repeat the same ID list, so they would only churn the cache
+                    if (response.getStatus() == 200 && response.getHeader("etag") != null && !pathAndQuery.contains("ids=")) {
+                        validated.put(pathAndQuery, response);
+                    }
+                    return response;
+                });
+        result.whenComplete((response, error) -> DaoMetrics.record("Remote.GET " + metricPath(pathAndQuery), startNanos));
+        return result;
+    }
+
+    /**
+     * @return Number of GETs the server answered with 304 Not Modified.
+     */
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    /**
+     * Blocking GET with the request timeout.
+     */
+    public HttpResult get(String pathAndQuery) throws IOException {
+        return await(getAsync(pathAndQuery));
+    }
+
+    /**
+     * Sends a write (POST, PUT or DELETE) and waits for the response.
+     *
+     * @param method   The HTTP method.
+     * @param path     The request path.
+     * @param jsonBody The request body, or null for none.
+     */
+    public HttpResult send(String method, String path, String jsonBody) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(Duration.ofMillis(REQUEST_TIMEOUT_MS))
+                .header("Accept", "application/json");
+        if (apiKey != null) {
+            request.header("X-Api-Key", apiKey);
+        }
+        if (jsonBody != null) {
+            request.header("Content-Type", "application/json; charset=utf-8")
+                    .method(method, HttpRequest.BodyPublishers.ofString(jsonBody));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+
+        long startNanos = DaoMetrics.start();
+        try {
+            HttpResponse<String> response = writeClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            Map<String, String> headers = new HashMap<>();
+            response.headers().map().forEach((name, values) -> headers.put(name.toLowerCase(), String.join(",", values)));
+            return new HttpResult(response.statusCode(), headers, response.body());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + method + " " + path, ex);
+        } finally {
+            DaoMetrics.record("Remote." + method + " " + metricPath(path), startNanos);
+        }
+    }
+
+    /**
+     * Waits for a lookup future with the request timeout.
+     *
+     * @throws IOException if the request failed or timed out.
+     */
+    public <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the server", ex);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            throw new IOException("No response from the server within " + REQUEST_TIMEOUT_MS + " ms", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = unwrap(ex);
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Wraps a transport failure for the DAO methods, which report errors as SQLExceptions.
+     * SQLState 08S01 is the standard "communication link failure".
+     */
+    static SQLException linkFailure(IOException ex) {
+        return new SQLException("Server request failed: " + ex.getMessage(), "08S01", ex);
+    }
+
+    /**
+     * Wraps an error response from the server for the DAO methods.
+     */
+    static SQLException serverError(HttpResult result) {
+        if (result.getStatus() == 503) {
+            // The server's database is busy or down; keep the type so callers can back off
+            long retryAfterMillis = 0;
+            String retryAfter = result.getHeader("retry-after");
+            if (retryAfter != null) {
+                try {
+                    retryAfterMillis = Long.parseLong(retryAfter.trim()) * 1000;
+                } catch (NumberFormatException ex) {
+                    // An HTTP date; not worth parsing
+                }
+            }
+            String message = "Server database unavailable: " + result.errorMessage();
+            return result.errorMessage().contains("busy")
+                    ? new DatabaseBusyException(message)
+                    : new DatabaseUnavailableException(message, "08001", retryAfterMillis, null);
+        }
+        if (result.getStatus() == 409) {
+            Map<String, Object> body = errorBody(result);
+            Object field = body.get("field");
+            if (field != null) {
+                // The server's DuplicateValueException, so remote callers can handle it the same way
+                return new DuplicateValueException(result.errorMessage(), field.toString(),
+                        ModelJson.getInt(body, "existingId", -1), null);
+            }
+        }
+        return new SQLException("Server rejected the request: " + result.errorMessage());
+    }
+
+    private static Map<String, Object> errorBody(HttpResult result) {
+        try {
+            return result.json();
+        } catch (RuntimeException ex) {
+            return Map.of(); // Not a JSON error body
+        }
+    }
+
+    @Override
+    public void close() {
+        for (HttpPipeline pipeline : pipelines) {
+            pipeline.close();
+        }
+    }
+
+    private HttpPipeline nextPipeline() {
+        return pipelines[Math.floorMod(nextPipeline.getAndIncrement(), pipelines.length)];
+    }
+
+    private <T> CompletableFuture<Map<Integer, T>> loadByIds(String basePath, List<Integer> ids,
+                                                            Function<Map<String, Object>, T> reader, ToIntFunction<T> idOf) {
+        String query = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return getAsync(basePath + "?ids=" + query).thenApply(result -> {
+            if (!result.isSuccess()) {
+                throw new CompletionException(new IOException(result.errorMessage()));
+            }
+            Map<Integer, T> loaded = new HashMap<>();
+            for (Map<String, Object> item : result.items()) {
+                T value = reader.apply(item);
+                loaded.put(idOf.applyAsInt(value), value);
+            }
+            return loaded;
+        });
+    }
+
+    // Groups per-ID URLs under one metric name, e.g. "/api/patients/17?x" -> "/api/patients"
+    private static String metricPath(String pathAndQuery) {
+        String path = pathAndQuery;
+        int query = path.indexOf('?');
+        if (query != -1) {
+            path = path.substring(0, query);
+        }
+        int lastSlash = path.lastIndexOf('/');
+        if (lastSlash > 0 && !path.substring(lastSlash + 1).isEmpty() && Character.isDigit(path.charAt(lastSlash + 1))) {
+            path = path.substring(0, lastSlash);
+        }
+        return path;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException
+                || error instanceof UncheckedIOException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,157 @@
+package com.healthcare.client;
+
+import com.healthcare.dao.DoctorDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.json.JsonWriter;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.Doctor;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link DoctorDAO} that talks to a {@code HealthcareServer} instead of MySQL.
+ */
+public class RemoteDoctorDAO extends DoctorDAO {
+
+    private final RemoteClient client;
+
+    public RemoteDoctorDAO(RemoteClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public int addDoctorOrThrow(Doctor doctor) throws SQLException {
+        try {
+            HttpResult result = client.send("POST", "/api/doctors", toJson(doctor));
+            if (result.getStatus() != 201) {
+                throw RemoteClient.serverError(result);
+            }
+            int generatedId = ModelJson.getInt(result.json(), "id", -1);
+            doctor.setDoctorId(generatedId);
+            ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.DOCTOR, generatedId, doctor));
+            return generatedId;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    /**
+     * Looks up a doctor. Lookups made by several threads at about the same time are sent as one batch request.
+     */
+    @Override
+    public Doctor getDoctorByIdOrThrow(int doctorId) throws SQLException {
+        try {
+            return client.await(client.getDoctorLoader().load(doctorId));
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public List<Doctor> getDoctorsByIdsOrThrow(Collection<Integer> doctorIds) throws SQLException {
+        // Queue them all before waiting, so they go out in as few batches as possible
+        List<CompletableFuture<Doctor>> futures = new ArrayList<>();
+        for (Integer doctorId : new LinkedHashSet<>(doctorIds)) {
+            futures.add(client.getDoctorLoader().load(doctorId));
+        }
+        List<Doctor> doctors = new ArrayList<>();
+        try {
+            for (CompletableFuture<Doctor> future : futures) {
+                Doctor doctor = client.await(future);
+                if (doctor != null) {
+                    doctors.add(doctor);
+                }
+            }
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+        return doctors;
+    }
+
+    @Override
+    public List<Doctor> getAllDoctorsOrThrow() throws SQLException {
+        List<Doctor> doctors = new ArrayList<>();
+        try {
+            Integer after = 0;
+            while (after != null) {
+                HttpResult result = client.get("/api/doctors?after=" + after + "&limit=500");
+                if (!result.isSuccess()) {
+                    throw RemoteClient.serverError(result);
+                }
+                for (Map<String, Object> item : result.items()) {
+                    doctors.add(ModelJson.readDoctor(item));
+                }
+                after = ModelJson.getInteger(result.json(), "nextAfter");
+            }
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+        System.out.println("Retrieved " + doctors.size() + " doctors.");
+        return doctors;
+    }
+
+    @Override
+    public List<Doctor> getDoctorsPageOrThrow(int afterId, int limit) throws SQLException {
+        List<Doctor> doctors = new ArrayList<>();
+        try {
+            HttpResult result = client.get("/api/doctors?after=" + afterId + "&limit=" + limit);
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            for (Map<String, Object> item : result.items()) {
+                doctors.add(ModelJson.readDoctor(item));
+            }
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+        return doctors;
+    }
+
+    @Override
+    public boolean updateDoctorOrThrow(Doctor doctor) throws SQLException {
+        try {
+            HttpResult result = client.send("PUT", "/api/doctors/" + doctor.getDoctorId(), toJson(doctor));
+            if (result.getStatus() == 404) {
+                return false;
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.DOCTOR, doctor.getDoctorId(), doctor));
+            return true;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public boolean deleteDoctorOrThrow(int doctorId) throws SQLException {
+        try {
+            HttpResult result = client.send("DELETE", "/api/doctors/" + doctorId, null);
+            if (result.getStatus() == 409) {
+                return false; // Missing, or still referenced by appointments or records
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            ChangeEventBus.getInstance().publish(ChangeEvent.deleted(ChangeEvent.Entity.DOCTOR, doctorId));
+            return true;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    private static String toJson(Doctor doctor) {
+        JsonWriter json = new JsonWriter();
+        ModelJson.write(json, doctor);
+        return json.toString();
+    }
+}
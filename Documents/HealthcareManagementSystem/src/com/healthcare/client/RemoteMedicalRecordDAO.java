@@ -0,0 +1,191 @@
+package com.healthcare.client;
+
+import com.healthcare.dao.MedicalRecordDAO;
+import com.healthcare.dao.UpdateResult;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.json.JsonWriter;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.MedicalRecord;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MedicalRecordDAO} that talks to a {@code HealthcareServer} instead of MySQL.
+ */
+public class RemoteMedicalRecordDAO extends MedicalRecordDAO {
+
+    private final RemoteClient client;
+
+    public RemoteMedicalRecordDAO(RemoteClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public int addMedicalRecordOrThrow(MedicalRecord record) throws SQLException {
+        try {
+            HttpResult result = client.send("POST", "/api/medical-records", toJson(record));
+            if (result.getStatus() != 201) {
+                throw RemoteClient.serverError(result);
+            }
+            int generatedId = ModelJson.getInt(result.json(), "id", -1);
+            record.setRecordId(generatedId);
+            record.setVersion(1);
+            ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.MEDICAL_RECORD, generatedId, record));
+            return generatedId;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    /**
+     * The server has no batch endpoint; the medical records are posted one at a time.
+     */
+    @Override
+    public int addMedicalRecordsOrThrow(List<MedicalRecord> records) throws SQLException {
+        int added = 0;
+        for (MedicalRecord record : records) {
+            if (addMedicalRecordOrThrow(record) != -1) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public MedicalRecord getMedicalRecordByIdOrThrow(int recordId) throws SQLException {
+        try {
+            HttpResult result = client.get("/api/medical-records/" + recordId);
+            if (result.getStatus() == 404) {
+                return null;
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            return ModelJson.readMedicalRecord(result.json());
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public List<MedicalRecord> getMedicalRecordsByPatientIdOrThrow(int patientId) throws SQLException {
+        return readList("/api/medical-records?patientId=" + patientId);
+    }
+
+    @Override
+    public List<MedicalRecord> getMedicalRecordsPageOrThrow(int afterId, int limit) throws SQLException {
+        return readList("/api/medical-records?after=" + afterId + "&limit=" + limit);
+    }
+
+    /**
+     * Searches with the server's index; this client keeps none of its own.
+     */
+    @Override
+    public List<MedicalRecord> searchMedicalRecordsOrThrow(String query, Integer patientId, Integer doctorId, int limit)
+            throws SQLException {
+        StringBuilder path = new StringBuilder("/api/medical-records?q=")
+                .append(URLEncoder.encode(query != null ? query : "", StandardCharsets.UTF_8))
+                .append("&limit=").append(limit);
+        if (patientId != null) {
+            path.append("&patientId=").append(patientId);
+        }
+        if (doctorId != null) {
+            path.append("&doctorId=").append(doctorId);
+        }
+        return readList(path.toString());
+    }
+
+    @Override
+    public boolean updateMedicalRecordOrThrow(MedicalRecord record) throws SQLException {
+        try {
+            HttpResult result = client.send("PUT", "/api/medical-records/" + record.getRecordId(), toJson(record));
+            if (result.getStatus() == 404) {
+                return false;
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.MEDICAL_RECORD, record.getRecordId(), record));
+            return true;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public UpdateResult<MedicalRecord> updateMedicalRecordOrThrow(MedicalRecord original, MedicalRecord edited) throws SQLException {
+        // The server works out the changed columns itself, against the row at this version
+        return updateMedicalRecordAtVersionOrThrow(edited, original.getVersion());
+    }
+
+    @Override
+    public UpdateResult<MedicalRecord> updateMedicalRecordAtVersionOrThrow(MedicalRecord edited, int expectedVersion) throws SQLException {
+        JsonWriter json = new JsonWriter().beginObject();
+        ModelJson.writeFields(json, edited);
+        json.name("expectedVersion").value(expectedVersion).endObject();
+        try {
+            HttpResult result = client.send("PUT", "/api/medical-records/" + edited.getRecordId(), json.toString());
+            if (result.getStatus() == 404) {
+                return UpdateResult.notFound();
+            }
+            Map<String, Object> current = result.conflictRow();
+            if (current != null) {
+                return UpdateResult.conflict(ModelJson.readMedicalRecord(current));
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            MedicalRecord saved = ModelJson.readMedicalRecord(result.json());
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.MEDICAL_RECORD, saved.getRecordId(), saved));
+            return UpdateResult.updated(saved);
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public boolean deleteMedicalRecordOrThrow(int recordId) throws SQLException {
+        try {
+            HttpResult result = client.send("DELETE", "/api/medical-records/" + recordId, null);
+            if (result.getStatus() == 404) {
+                return false;
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            ChangeEventBus.getInstance().publish(ChangeEvent.deleted(ChangeEvent.Entity.MEDICAL_RECORD, recordId));
+            return true;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    private List<MedicalRecord> readList(String pathAndQuery) throws SQLException {
+        List<MedicalRecord> records = new ArrayList<>();
+        try {
+            HttpResult result = client.get(pathAndQuery);
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            for (Map<String, Object> item : result.items()) {
+                records.add(ModelJson.readMedicalRecord(item));
+            }
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+        return records;
+    }
+
+    private static String toJson(MedicalRecord record) {
+        JsonWriter json = new JsonWriter();
+        ModelJson.write(json, record);
+        return json.toString();
+    }
+}
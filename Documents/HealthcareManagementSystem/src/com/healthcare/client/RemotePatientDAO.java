@@ -0,0 +1,310 @@
+package com.healthcare.client;
+
+import com.healthcare.dao.ContactIndex;
+import com.healthcare.dao.PatientDAO;
+import com.healthcare.dao.UpdateResult;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.json.JsonWriter;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.Patient;
+import com.healthcare.store.CohortQuery;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link PatientDAO} that talks to a {@code HealthcareServer} instead of MySQL.
+ * Only the throwing variants are overridden; the lenient methods inherited from PatientDAO report
+ * failures the same way as for the local database.
+ */
+public class RemotePatientDAO extends PatientDAO {
+
+    private final RemoteClient client;
+
+    public RemotePatientDAO(RemoteClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public int addPatientOrThrow(Patient patient) throws SQLException {
+        try {
+            HttpResult result = client.send("POST", "/api/patients", toJson(patient));
+            if (result.getStatus() != 201) {
+                throw RemoteClient.serverError(result);
+            }
+            int generatedId = ModelJson.getInt(result.json(), "id", -1);
+            patient.setPatientId(generatedId);
+            patient.setVersion(1);
+            ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.PATIENT, generatedId, patient));
+            return generatedId;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    /**
+     * The server has no batch endpoint; the patients are posted one at a time.
+     */
+    @Override
+    public int addPatientsOrThrow(List<Patient> patients) throws SQLException {
+        int added = 0;
+        for (Patient patient : patients) {
+            if (addPatientOrThrow(patient) != -1) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Looks up a patient. Lookups made by several threads at about the same time are sent as one batch request.
+     */
+    @Override
+    public Patient getPatientByIdOrThrow(int patientId) throws SQLException {
+        try {
+            return client.await(client.getPatientLoader().load(patientId));
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public List<Patient> getPatientsByIdsOrThrow(Collection<Integer> patientIds) throws SQLException {
+        // Queue them all before waiting, so they go out in as few batches as possible
+        List<CompletableFuture<Patient>> futures = new ArrayList<>();
+        for (Integer patientId : new LinkedHashSet<>(patientIds)) {
+            futures.add(client.getPatientLoader().load(patientId));
+        }
+        List<Patient> patients = new ArrayList<>();
+        try {
+            for (CompletableFuture<Patient> future : futures) {
+                Patient patient = client.await(future);
+                if (patient != null) {
+                    patients.add(patient);
+                }
+            }
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+        return patients;
+    }
+
+    @Override
+    public List<Patient> getAllPatientsOrThrow() throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        try {
+            Integer after = 0;
+            while (after != null) {
+                HttpResult result = client.get("/api/patients?after=" + after + "&limit=500");
+                if (!result.isSuccess()) {
+                    throw RemoteClient.serverError(result);
+                }
+                for (Map<String, Object> item : result.items()) {
+                    patients.add(ModelJson.readPatient(item));
+                }
+                after = ModelJson.getInteger(result.json(), "nextAfter");
+            }
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+        System.out.println("Retrieved " + patients.size() + " patients.");
+        return patients;
+    }
+
+    @Override
+    public List<Patient> getPatientsPageOrThrow(int afterId, int limit) throws SQLException {
+        return readList("/api/patients?after=" + afterId + "&limit=" + limit);
+    }
+
+    @Override
+    public List<Patient> searchPatientsOrThrow(String searchTerm) throws SQLException {
+        return readList("/api/patients?search=" + URLEncoder.encode(searchTerm, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int findPatientIdByEmailOrThrow(String email) throws SQLException {
+        if (ContactIndex.Field.PATIENT_EMAIL.normalize(email) == null) {
+            return -1;
+        }
+        return firstId(readList("/api/patients?email=" + URLEncoder.encode(email, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public int findPatientIdByPhoneOrThrow(String phoneNumber) throws SQLException {
+        if (ContactIndex.Field.PATIENT_PHONE.normalize(phoneNumber) == null) {
+            return -1;
+        }
+        return firstId(readList("/api/patients?phone=" + URLEncoder.encode(phoneNumber, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Filtered on the server, from its bitmap indexes.
+     */
+    @Override
+    public List<Patient> findPatientsOrThrow(String gender, String city, String state, int afterId, int limit)
+            throws SQLException {
+        StringBuilder path = new StringBuilder("/api/patients?after=").append(afterId).append("&limit=").append(limit);
+        if (gender != null) {
+            path.append("&gender=").append(URLEncoder.encode(gender, StandardCharsets.UTF_8));
+        }
+        if (city != null) {
+            path.append("&city=").append(URLEncoder.encode(city, StandardCharsets.UTF_8));
+        }
+        if (state != null) {
+            path.append("&state=").append(URLEncoder.encode(state, StandardCharsets.UTF_8));
+        }
+        return readList(path.toString());
+    }
+
+    /**
+     * Counted on the server, from its cohort snapshot.
+     */
+    @Override
+    public int countPatientsInCohortOrThrow(CohortQuery query) throws SQLException {
+        try {
+            HttpResult result = client.get("/api/patients?count=true" + cohortParams(query));
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            return ModelJson.getInt(result.json(), "count", -1);
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public List<Patient> findPatientsInCohortOrThrow(CohortQuery query, int afterId, int limit) throws SQLException {
+        return readList("/api/patients?after=" + afterId + "&limit=" + limit + cohortParams(query));
+    }
+
+    // cohort=true makes the server treat the request as a cohort even with no criteria
+    private static String cohortParams(CohortQuery query) {
+        StringBuilder params = new StringBuilder("&cohort=true");
+        if (query.getBornFrom() != null) {
+            params.append("&bornFrom=").append(query.getBornFrom());
+        }
+        if (query.getBornTo() != null) {
+            params.append("&bornTo=").append(query.getBornTo());
+        }
+        if (query.getRegisteredFrom() != null) {
+            params.append("&registeredFrom=").append(query.getRegisteredFrom());
+        }
+        if (query.getRegisteredTo() != null) {
+            params.append("&registeredTo=").append(query.getRegisteredTo());
+        }
+        appendList(params, "gender", query.getGenders());
+        appendList(params, "city", query.getCities());
+        appendList(params, "state", query.getStates());
+        if (query.getZipPrefix() != null) {
+            params.append("&zip=").append(URLEncoder.encode(query.getZipPrefix(), StandardCharsets.UTF_8));
+        }
+        return params.toString();
+    }
+
+    private static void appendList(StringBuilder params, String name, List<String> values) {
+        if (!values.isEmpty()) {
+            params.append('&').append(name).append('=')
+                    .append(URLEncoder.encode(String.join(",", values), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int firstId(List<Patient> patients) {
+        return patients.isEmpty() ? -1 : patients.get(0).getPatientId();
+    }
+
+    @Override
+    public boolean updatePatientOrThrow(Patient patient) throws SQLException {
+        try {
+            HttpResult result = client.send("PUT", "/api/patients/" + patient.getPatientId(), toJson(patient));
+            if (result.getStatus() == 404) {
+                return false;
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.PATIENT, patient.getPatientId(), patient));
+            return true;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public UpdateResult<Patient> updatePatientOrThrow(Patient original, Patient edited) throws SQLException {
+        // The server works out the changed columns itself, against the row at this version
+        return updatePatientAtVersionOrThrow(edited, original.getVersion());
+    }
+
+    @Override
+    public UpdateResult<Patient> updatePatientAtVersionOrThrow(Patient edited, int expectedVersion) throws SQLException {
+        JsonWriter json = new JsonWriter().beginObject();
+        ModelJson.writeFields(json, edited);
+        json.name("expectedVersion").value(expectedVersion).endObject();
+        try {
+            HttpResult result = client.send("PUT", "/api/patients/" + edited.getPatientId(), json.toString());
+            if (result.getStatus() == 404) {
+                return UpdateResult.notFound();
+            }
+            Map<String, Object> current = result.conflictRow();
+            if (current != null) {
+                return UpdateResult.conflict(ModelJson.readPatient(current));
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            Patient saved = ModelJson.readPatient(result.json());
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.PATIENT, saved.getPatientId(), saved));
+            return UpdateResult.updated(saved);
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    @Override
+    public boolean deletePatientOrThrow(int patientId) throws SQLException {
+        try {
+            HttpResult result = client.send("DELETE", "/api/patients/" + patientId, null);
+            if (result.getStatus() == 409) {
+                return false; // Missing, or still referenced by appointments or records
+            }
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            ChangeEventBus.getInstance().publish(ChangeEvent.deleted(ChangeEvent.Entity.PATIENT, patientId));
+            return true;
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+    }
+
+    private List<Patient> readList(String pathAndQuery) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        try {
+            HttpResult result = client.get(pathAndQuery);
+            if (!result.isSuccess()) {
+                throw RemoteClient.serverError(result);
+            }
+            for (Map<String, Object> item : result.items()) {
+                patients.add(ModelJson.readPatient(item));
+            }
+        } catch (IOException ex) {
+            throw RemoteClient.linkFailure(ex);
+        }
+        return patients;
+    }
+
+    private static String toJson(Patient patient) {
+        JsonWriter json = new JsonWriter();
+        ModelJson.write(json, patient);
+        return json.toString();
+    }
+}
@@ -0,0 +1,480 @@
+package com.healthcare.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Site configuration: database credentials, JDBC driver properties, pool sizes and timeouts.
+ * <p>
+ * Values are read from {@code healthcare.properties} in the working directory (or the file named by
+ * {@code -Dhealthcare.config} / {@code HEALTHCARE_CONFIG}). Each key can be overridden by an
+ * environment variable, e.g. {@code HEALTHCARE_DB_PASSWORD} for {@code db.password}, and that again by a
+ * system property, e.g. {@code -Dhealthcare.db.password=...}. Anything not set keeps its default.
+ * <p>
+ * The whole configuration is validated when first loaded; an invalid value stops startup with a list
+ * of every problem. The file is then watched: reloadable settings take effect on the next use, the
+ * others keep their current value until restart. A reload that does not validate is ignored.
+ * <p>
+ * Keys starting with {@code db.driver.} are passed to MySQL Connector/J as connection properties,
+ * e.g. {@code db.driver.useServerPrepStmts=true}; they apply to connections opened after startup.
+ */
+public final class AppConfig {
+
+    /**
+     * A typed configuration key with its default and the values it accepts.
+     */
+    public static final class Setting<T> {
+        private final String key;
+        private final T defaultValue;
+        private final boolean reloadable;
+        private final Function<String, T> parser;
+        private final Predicate<T> check;
+        private final String rule;
+
+        private Setting(String key, T defaultValue, boolean reloadable, Function<String, T> parser, Predicate<T> check, String rule) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.reloadable = reloadable;
+            this.parser = parser;
+            this.check = check;
+            this.rule = rule;
+            SETTINGS.put(key, this);
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public boolean isReloadable() {
+            return reloadable;
+        }
+
+        /**
+         * @return The environment variable that overrides this key, e.g. HEALTHCARE_POOL_BORROW_TIMEOUT_MS.
+         */
+        public String getEnvironmentName() {
+            return environmentName(key);
+        }
+    }
+
+    /**
+     * Told after a reload changed at least one setting.
+     */
+    public interface ReloadListener {
+        void configReloaded(AppConfig config);
+    }
+
+    public static final String DRIVER_PREFIX = "db.driver.";
+    private static final String SYSTEM_PREFIX = "healthcare.";
+    private static final String ENV_PREFIX = "HEALTHCARE_";
+    private static final Map<String, Setting<?>> SETTINGS = new LinkedHashMap<>();
+
+    // --- Database ---
+    public static final Setting<String> DB_URL = new Setting<>("db.url", "jdbc:mysql://localhost:3306/healthcare_system_db", false,
+            String::trim, url -> url.startsWith("jdbc:mysql:"), "a jdbc:mysql: URL");
+    public static final Setting<String> DB_USER = new Setting<>("db.user", "root", false,
+            String::trim, user -> !user.isEmpty(), "not empty");
+    // No default: supplied through HEALTHCARE_DB_PASSWORD or -Dhealthcare.db.password, see requireDatabasePassword()
+    public static final Setting<String> DB_PASSWORD = new Setting<>("db.password", "", false,
+            Function.identity(), password -> true, "any text");
+    public static final Setting<List<String>> DB_REPLICAS = new Setting<>("db.replicas", List.of(), false,
+            AppConfig::parseList, urls -> urls.stream().allMatch(url -> url.startsWith("jdbc:mysql:")), "comma-separated jdbc:mysql: URLs");
+    public static final Setting<Long> DB_STICKY_MS = new Setting<>("db.stickyMillis", 5_000L, true,
+            Long::valueOf, ms -> ms >= 0, "0 or more");
+    public static final Setting<Integer> DB_MAX_REPLICA_LAG_SECONDS = new Setting<>("db.maxReplicaLagSeconds", 30, true,
+            Integer::valueOf, seconds -> seconds >= 0, "0 or more");
+
+    // Connections open at once without a pool (the desktop app)
+    public static final Setting<Integer> DB_MAX_CONNECTIONS = new Setting<>("db.maxConnections", 10, false,
+            Integer::valueOf, n -> n >= 1 && n <= 1_000, "between 1 and 1000");
+    public static final Setting<Integer> DB_CIRCUIT_FAILURE_THRESHOLD = new Setting<>("db.circuitFailureThreshold", 5, true,
+            Integer::valueOf, n -> n >= 1, "1 or more");
+    public static final Setting<Long> DB_CIRCUIT_OPEN_MS = new Setting<>("db.circuitOpenMs", 10_000L, true,
+            Long::valueOf, ms -> ms >= 0, "0 or more");
+    // Times a TransactionScope is run again after losing a deadlock or timing out on a lock
+    public static final Setting<Integer> DB_DEADLOCK_RETRIES = new Setting<>("db.deadlockRetries", 3, true,
+            Integer::valueOf, n -> n >= 0 && n <= 20, "between 0 and 20");
+    // IDs reserved from Id_Sequences at a time; more means fewer reservations but bigger gaps after a restart
+    public static final Setting<Integer> DB_ID_BLOCK_SIZE = new Setting<>("db.idBlockSize", 100, true,
+            Integer::valueOf, n -> n >= 1 && n <= 100_000, "between 1 and 100000");
+
+    // --- Connection pool (server mode) ---
+    public static final Setting<Integer> POOL_SIZE = new Setting<>("pool.size", 20, false,
+            Integer::valueOf, size -> size >= 1 && size <= 1_000, "between 1 and 1000");
+    public static final Setting<Long> POOL_BORROW_TIMEOUT_MS = new Setting<>("pool.borrowTimeoutMs", 5_000L, true,
+            Long::valueOf, ms -> ms >= 0, "0 or more");
+    public static final Setting<Integer> POOL_MAX_WAITING = new Setting<>("pool.maxWaiting", 50, true,
+            Integer::valueOf, n -> n >= 0, "0 or more");
+
+    // --- Async DAO facade ---
+    public static final Setting<Integer> ASYNC_MAX_CONCURRENCY = new Setting<>("async.maxConcurrency", 8, false,
+            Integer::valueOf, n -> n >= 1, "1 or more");
+    public static final Setting<Long> ASYNC_TIMEOUT_MS = new Setting<>("async.timeoutMs", 15_000L, false,
+            Long::valueOf, ms -> ms > 0, "more than 0");
+
+    // --- Server ---
+    public static final Setting<Integer> SERVER_PORT = new Setting<>("server.port", 8080, false,
+            Integer::valueOf, port -> port >= 0 && port <= 65_535, "between 0 and 65535");
+    public static final Setting<Integer> SERVER_CACHE_ENTRIES = new Setting<>("server.cacheEntries", 1_000, false,
+            Integer::valueOf, n -> n >= 1, "1 or more");
+    // Loopback by default; any other address also needs server.apiKey, since the API serves patient data
+    public static final Setting<String> SERVER_BIND_ADDRESS = new Setting<>("server.bindAddress", "127.0.0.1", false,
+            String::trim, address -> !address.isEmpty(), "a host name or IP address");
+    // Shared secret clients send as X-Api-Key; the desktop app sends it too when using -Dhealthcare.server
+    public static final Setting<String> SERVER_API_KEY = new Setting<>("server.apiKey", "", false,
+            String::trim, key -> key.chars().allMatch(c -> c > ' ' && c < 127), "printable ASCII without spaces, or empty for none");
+
+    // --- Search ---
+    // Where the medical history search index is kept between runs; empty rebuilds it from the database every start
+    public static final Setting<String> SEARCH_INDEX_FILE = new Setting<>("search.indexFile",
+            System.getProperty("user.home") + File.separator + ".healthcare" + File.separator + "medical-history.index", false,
+            String::trim, path -> true, "a file path, or empty for none");
+
+    // --- Audit ---
+    // Where the journal of who read or changed which rows is kept until shipped to Audit_Log; empty turns auditing off
+    public static final Setting<String> AUDIT_DIR = new Setting<>("audit.dir",
+            System.getProperty("user.home") + File.separator + ".healthcare" + File.separator + "audit", false,
+            String::trim, path -> true, "a directory path, or empty for none");
+    public static final Setting<Integer> AUDIT_SEGMENT_MB = new Setting<>("audit.segmentMb", 64, false,
+            Integer::valueOf, mb -> mb >= 1 && mb <= 1_024, "between 1 and 1024");
+    // Events appended meanwhile are forced to disk together; a machine crash loses at most this much
+    public static final Setting<Long> AUDIT_COMMIT_MS = new Setting<>("audit.commitMs", 100L, false,
+            Long::valueOf, ms -> ms >= 1, "1 or more");
+    public static final Setting<Long> AUDIT_SHIP_INTERVAL_MS = new Setting<>("audit.shipIntervalMs", 5_000L, false,
+            Long::valueOf, ms -> ms >= 100, "100 or more");
+
+    // --- Desktop client ---
+    public static final Setting<String> CLIENT_SNAPSHOT_FILE = new Setting<>("client.snapshotFile",
+            System.getProperty("user.home") + File.separator + ".healthcare" + File.separator + "reference-data.snapshot", false,
+            String::trim, path -> true, "a file path, or empty for none");
+    // Keep the Patients tab's rows in a ColumnarPatientStore instead of one object per patient
+    public static final Setting<Boolean> CLIENT_COLUMNAR_PATIENTS = new Setting<>("client.columnarPatients", false, false,
+            AppConfig::parseBoolean, on -> true, "true or false");
+
+    public static final Setting<Long> RELOAD_INTERVAL_MS = new Setting<>("config.reloadIntervalMs", 5_000L, false,
+            Long::valueOf, ms -> ms >= 0, "0 (no reloading) or more");
+
+    // Connector/J defaults: cache server-side prepared statements per connection and let batches
+    // go out as multi-row statements
+    private static final Map<String, String> DRIVER_DEFAULTS = Map.of(
+            "useServerPrepStmts", "true",
+            "cachePrepStmts", "true",
+            "prepStmtCacheSize", "250",
+            "prepStmtCacheSqlLimit", "2048",
+            "rewriteBatchedStatements", "true",
+            "connectTimeout", "5000");
+
+    private static volatile AppConfig current;
+    private static final List<ReloadListener> listeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService watcher;
+    private static long loadedModified;
+
+    private final Map<Setting<?>, Object> values;
+    private final Set<Setting<?>> explicit; // Set by a system property, the environment or the file
+    private final Properties driverProperties;
+    private final File source;
+
+    private AppConfig(Map<Setting<?>, Object> values, Set<Setting<?>> explicit, Properties driverProperties, File source) {
+        this.values = values;
+        this.explicit = explicit;
+        this.driverProperties = driverProperties;
+        this.source = source;
+    }
+
+    /**
+     * Returns the current configuration, loading it on first use.
+     *
+     * @throws IllegalStateException if the configuration is invalid.
+     */
+    public static AppConfig get() {
+        AppConfig config = current;
+        if (config == null) {
+            synchronized (AppConfig.class) {
+                config = current;
+                if (config == null) {
+                    File file = configFile();
+                    loadedModified = file.lastModified();
+                    config = load(file, System.getenv(), System.getProperties());
+                    current = config;
+                    startWatching(file, config.get(RELOAD_INTERVAL_MS));
+                }
+            }
+        }
+        return config;
+    }
+
+    public <T> T get(Setting<T> setting) {
+        @SuppressWarnings("unchecked")
+        T value = (T) values.get(setting);
+        return value;
+    }
+
+    /**
+     * @return Whether the setting was given a value (possibly empty) rather than left at its default.
+     */
+    public boolean isSet(Setting<?> setting) {
+        return explicit.contains(setting);
+    }
+
+    /**
+     * Checks that a database password was supplied. It has no default, so that none is ever committed with the
+     * code; an account without a password is configured with an empty value.
+     *
+     * @throws IllegalStateException with instructions if {@code db.password} is not set anywhere.
+     */
+    public void requireDatabasePassword() {
+        if (!isSet(DB_PASSWORD)) {
+            throw new IllegalStateException("No database password configured. Set the " + DB_PASSWORD.getEnvironmentName()
+                    + " environment variable or -D" + SYSTEM_PREFIX + DB_PASSWORD.key + "=... (empty for an account without one).");
+        }
+    }
+
+    /**
+     * @return A copy of the Connector/J properties, without user and password.
+     */
+    public Properties getDriverProperties() {
+        Properties copy = new Properties();
+        copy.putAll(driverProperties);
+        return copy;
+    }
+
+    /**
+     * @return The file the configuration was read from (it may not exist).
+     */
+    public File getSource() {
+        return source;
+    }
+
+    public static void addReloadListener(ReloadListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeReloadListener(ReloadListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reads the file again now instead of waiting for the watcher.
+     *
+     * @return true if the new configuration is valid and was applied.
+     */
+    public static synchronized boolean reload() {
+        AppConfig old = get();
+        AppConfig loaded;
+        try {
+            loaded = load(old.source, System.getenv(), System.getProperties());
+        } catch (IllegalStateException ex) {
+            System.err.println("Configuration not reloaded: " + ex.getMessage());
+            return false;
+        }
+
+        // Settings that cannot change while running keep their old value
+        Map<Setting<?>, Object> merged = new HashMap<>(loaded.values);
+        Set<Setting<?>> mergedExplicit = new HashSet<>();
+        boolean changed = false;
+        for (Setting<?> setting : SETTINGS.values()) {
+            if ((setting.reloadable ? loaded : old).explicit.contains(setting)) {
+                mergedExplicit.add(setting);
+            }
+            Object oldValue = old.values.get(setting);
+            Object newValue = loaded.values.get(setting);
+            if (oldValue.equals(newValue)) {
+                continue;
+            }
+            if (setting.reloadable) {
+                System.out.println("Configuration: " + setting.key + " is now " + display(setting, newValue));
+                changed = true;
+            } else {
+                System.out.println("Configuration: " + setting.key + " changed; takes effect after a restart.");
+                merged.put(setting, oldValue);
+            }
+        }
+        if (!old.driverProperties.equals(loaded.driverProperties)) {
+            System.out.println("Configuration: driver properties changed; they take effect after a restart.");
+        }
+        if (changed) {
+            AppConfig config = new AppConfig(merged, mergedExplicit, old.driverProperties, old.source);
+            current = config;
+            for (ReloadListener listener : listeners) {
+                listener.configReloaded(config);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds a configuration from a properties file (which need not exist), environment and system properties.
+     * {@link #get()} passes the process's own; this does not replace the current configuration.
+     *
+     * @throws IllegalStateException listing every invalid value.
+     */
+    public static AppConfig load(File file, Map<String, String> environment, Properties systemProperties) {
+        Properties fileProperties = new Properties();
+        List<String> problems = new ArrayList<>();
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                fileProperties.load(in);
+            } catch (IOException ex) {
+                problems.add("cannot read " + file + ": " + ex.getMessage());
+            }
+        }
+
+        Map<Setting<?>, Object> values = new HashMap<>();
+        Set<Setting<?>> explicit = new HashSet<>();
+        for (Setting<?> setting : SETTINGS.values()) {
+            String text = systemProperties.getProperty(SYSTEM_PREFIX + setting.key);
+            if (text == null) {
+                text = environment.get(setting.getEnvironmentName());
+            }
+            if (text == null) {
+                text = fileProperties.getProperty(setting.key);
+            }
+            if (text != null) {
+                explicit.add(setting);
+            }
+            values.put(setting, text == null ? setting.defaultValue : parse(setting, text, problems));
+        }
+
+        Properties driverProperties = new Properties();
+        driverProperties.putAll(DRIVER_DEFAULTS);
+        for (String name : fileProperties.stringPropertyNames()) {
+            if (name.startsWith(DRIVER_PREFIX)) {
+                driverProperties.setProperty(name.substring(DRIVER_PREFIX.length()), fileProperties.getProperty(name).trim());
+            } else if (!SETTINGS.containsKey(name)) {
+                System.err.println("Configuration: unknown key " + name + " in " + file + " (ignored)");
+            }
+        }
+        for (String name : systemProperties.stringPropertyNames()) {
+            if (name.startsWith(SYSTEM_PREFIX + DRIVER_PREFIX)) {
+                driverProperties.setProperty(name.substring((SYSTEM_PREFIX + DRIVER_PREFIX).length()), systemProperties.getProperty(name).trim());
+            }
+        }
+        for (String name : driverProperties.stringPropertyNames()) {
+            if (name.equals("user") || name.equals("password")) {
+                problems.add(DRIVER_PREFIX + name + " is not allowed; use db." + name);
+            }
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Invalid configuration (" + file + "):\n  " + String.join("\n  ", problems));
+        }
+        return new AppConfig(values, explicit, driverProperties, file);
+    }
+
+    private static <T> T parse(Setting<T> setting, String text, List<String> problems) {
+        T value;
+        try {
+            value = setting.parser.apply(text.trim());
+        } catch (IllegalArgumentException ex) {
+            problems.add(setting.key + "=" + text + " is not valid (" + setting.rule + ")");
+            return setting.defaultValue;
+        }
+        if (!setting.check.test(value)) {
+            problems.add(setting.key + "=" + text + " is not allowed (" + setting.rule + ")");
+            return setting.defaultValue;
+        }
+        return value;
+    }
+
+    private static File configFile() {
+        String path = System.getProperty(SYSTEM_PREFIX + "config");
+        if (path == null) {
+            path = System.getenv(ENV_PREFIX + "CONFIG");
+        }
+        return new File(path != null ? path : "healthcare.properties");
+    }
+
+    private static void startWatching(File file, long intervalMs) {
+        if (intervalMs == 0) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "config-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(() -> {
+            long modified = file.lastModified();
+            if (modified != loadedModified) {
+                loadedModified = modified;
+                reload();
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * "db.maxReplicaLagSeconds" -> "HEALTHCARE_DB_MAX_REPLICA_LAG_SECONDS"
+     */
+    static String environmentName(String key) {
+        StringBuilder name = new StringBuilder(ENV_PREFIX);
+        for (char c : key.toCharArray()) {
+            if (c == '.') {
+                name.append('_');
+            } else if (Character.isUpperCase(c)) {
+                name.append('_').append(c);
+            } else {
+                name.append(Character.toUpperCase(c));
+            }
+        }
+        return name.toString();
+    }
+
+    private static Boolean parseBoolean(String text) {
+        if (text.equalsIgnoreCase("true")) {
+            return Boolean.TRUE;
+        }
+        if (text.equalsIgnoreCase("false")) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("Not a boolean: " + text);
+    }
+
+    private static List<String> parseList(String text) {
+        List<String> items = new ArrayList<>();
+        for (String item : text.split(",")) {
+            if (!item.isBlank()) {
+                items.add(item.trim());
+            }
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    private static String display(Setting<?> setting, Object value) {
+        return setting == DB_PASSWORD ? "(hidden)" : String.valueOf(value);
+    }
+
+    /**
+     * @return Every known key, in declaration order.
+     */
+    public static List<Setting<?>> getSettings() {
+        return List.copyOf(SETTINGS.values());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("Configuration from ").append(source).append(':');
+        for (Setting<?> setting : SETTINGS.values()) {
+            out.append("\n  ").append(setting.key).append(" = ").append(display(setting, values.get(setting)));
+        }
+        out.append("\n  driver: ").append(Arrays.toString(driverProperties.stringPropertyNames().stream().sorted().toArray()));
+        return out.toString();
+    }
+}
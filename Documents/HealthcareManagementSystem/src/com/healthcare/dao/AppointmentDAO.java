@@ -1,15 +1,38 @@
 package com.healthcare.dao;
 
+import com.healthcare.audit.AuditLog;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
 import com.healthcare.model.Appointment;
+import com.healthcare.stats.AggregateStore;
+import com.healthcare.stats.FilterIndex;
+import com.healthcare.util.DaoMetrics;
 import com.healthcare.util.DatabaseConnection;
+import com.healthcare.util.TransactionScope;
 
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 
 public class AppointmentDAO {
+
+    private static final String INSERT_SQL = "INSERT INTO Appointments (appointment_id, patient_id, doctor_id, " +
+            "appointment_date, appointment_time, reason, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final ConditionalUpdate<Appointment> CONDITIONAL_UPDATE = new ConditionalUpdate<>(
+            "Appointments", "appointment_id", Appointment::getAppointmentId, Appointment::getVersion,
+            Appointment::setVersion, AppointmentDAO::copyOf, AppointmentDAO::readAppointment,
+            ConditionalUpdate.field("patient_id", Appointment::getPatientId, Appointment::setPatientId),
+            ConditionalUpdate.field("doctor_id", Appointment::getDoctorId, Appointment::setDoctorId),
+            ConditionalUpdate.field("appointment_date", Appointment::getAppointmentDate, Appointment::setAppointmentDate),
+            ConditionalUpdate.field("appointment_time", Appointment::getAppointmentTime, Appointment::setAppointmentTime),
+            ConditionalUpdate.field("reason", Appointment::getReason, Appointment::setReason),
+            ConditionalUpdate.field("status", Appointment::getStatus, Appointment::setStatus));
+
     /**
      * Adds a new appointment to the database.
      *
@@ -17,37 +40,114 @@ public class AppointmentDAO {
      * @return The generated appointment ID if successful, -1 otherwise.
      */
     public int addAppointment(Appointment appointment) {
-        String SQL = "INSERT INTO Appointments (patient_id, doctor_id, appointment_date, appointment_time, reason, status) VALUES (?, ?, ?, ?, ?, ?)";
+        try {
+            return addAppointmentOrThrow(appointment);
+        } catch (SQLException ex) {
+            System.err.println("Error adding appointment: " + ex.getMessage());
+            ex.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Like {@link #addAppointment(Appointment)}, but throws instead of returning -1.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public int addAppointmentOrThrow(Appointment appointment) throws SQLException {
         int generatedId = -1;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(SQL, Statement.RETURN_GENERATED_KEYS)) {
+        int newId = IdAllocator.getInstance().nextId(IdAllocator.Sequence.APPOINTMENT); // -1: AUTO_INCREMENT chooses
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, newId == -1 ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS)) {
 
-            pstmt.setInt(1, appointment.getPatientId());
-            pstmt.setInt(2, appointment.getDoctorId());
-            pstmt.setDate(3, Date.valueOf(appointment.getAppointmentDate())); // Convert LocalDate to java.sql.Date
-            pstmt.setTime(4, Time.valueOf(appointment.getAppointmentTime()));   // Convert LocalTime to java.sql.Time
-            pstmt.setString(5, appointment.getReason());
-            pstmt.setString(6, appointment.getStatus());
+            bindInsert(pstmt, newId, appointment);
 
             int affectedRows = pstmt.executeUpdate();
 
             if (affectedRows > 0) {
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        generatedId = rs.getInt(1);
-                        appointment.setAppointmentId(generatedId); // Set the ID back to the appointment object
-                        System.out.println("Appointment added with ID: " + generatedId);
-                    }
+                generatedId = IdAllocator.insertedId(pstmt, newId);
+                if (generatedId != -1) {
+                    inserted(appointment, generatedId);
+                    System.out.println("Appointment added with ID: " + generatedId);
                 }
             }
         } catch (SQLException ex) {
-            System.err.println("Error adding appointment: " + ex.getMessage());
-            ex.printStackTrace();
+            IdAllocator.getInstance().onInsertFailed(IdAllocator.Sequence.APPOINTMENT, ex);
+            throw ex;
+        } finally {
+            DaoMetrics.record("AppointmentDAO.addAppointment", startNanos);
         }
         return generatedId;
     }
 
+    /**
+     * Adds many appointments in one multi-row INSERT, e.g. for the patients just added with
+     * {@link PatientDAO#addPatientsOrThrow}. Without the {@code Id_Sequences} table they are added one at a time.
+     *
+     * @param appointments The appointments to add; each gets its ID set.
+     * @return How many appointments were added.
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public int addAppointmentsOrThrow(List<Appointment> appointments) throws SQLException {
+        if (appointments.isEmpty()) {
+            return 0;
+        }
+        int[] newIds = IdAllocator.getInstance().nextIds(IdAllocator.Sequence.APPOINTMENT, appointments.size());
+        if (newIds == null) {
+            int added = 0;
+            for (Appointment appointment : appointments) {
+                if (addAppointmentOrThrow(appointment) != -1) {
+                    added++;
+                }
+            }
+            return added;
+        }
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+
+            for (int i = 0; i < newIds.length; i++) {
+                bindInsert(pstmt, newIds[i], appointments.get(i));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch(); // Sent as multi-row INSERTs (rewriteBatchedStatements)
+
+            for (int i = 0; i < newIds.length; i++) {
+                inserted(appointments.get(i), newIds[i]);
+            }
+            System.out.println(newIds.length + " appointments added, IDs from " + newIds[0]);
+        } catch (SQLException ex) {
+            IdAllocator.getInstance().onInsertFailed(IdAllocator.Sequence.APPOINTMENT, ex);
+            throw ex;
+        } finally {
+            DaoMetrics.record("AppointmentDAO.addAppointments", startNanos);
+        }
+        return newIds.length;
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, int newId, Appointment appointment) throws SQLException {
+        IdAllocator.setId(pstmt, 1, newId);
+        pstmt.setInt(2, appointment.getPatientId());
+        pstmt.setInt(3, appointment.getDoctorId());
+        pstmt.setDate(4, Date.valueOf(appointment.getAppointmentDate())); // Convert LocalDate to java.sql.Date
+        pstmt.setTime(5, Time.valueOf(appointment.getAppointmentTime()));   // Convert LocalTime to java.sql.Time
+        pstmt.setString(6, appointment.getReason());
+        pstmt.setString(7, appointment.getStatus());
+    }
+
+    private static void inserted(Appointment appointment, int appointmentId) {
+        appointment.setAppointmentId(appointmentId); // Set the ID back to the appointment object
+        appointment.setVersion(1);
+        ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.APPOINTMENT, appointmentId, appointment));
+        int doctorId = appointment.getDoctorId();
+        LocalDate date = appointment.getAppointmentDate();
+        String status = appointment.getStatus();
+        TransactionScope.afterCommit(() -> AggregateStore.getInstance().appointmentAdded(doctorId, date, status));
+    }
+
     /**
      * Retrieves an appointment by its ID.
      *
@@ -55,10 +155,26 @@ public class AppointmentDAO {
      * @return The Appointment object if found, null otherwise.
      */
     public Appointment getAppointmentById(int appointmentId) {
+        try {
+            return getAppointmentByIdOrThrow(appointmentId);
+        } catch (SQLException ex) {
+            System.err.println("Error getting appointment by ID: " + ex.getMessage());
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #getAppointmentById(int)}, but throws on failure; null still means not found.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public Appointment getAppointmentByIdOrThrow(int appointmentId) throws SQLException {
         String SQL = "SELECT * FROM Appointments WHERE appointment_id = ?";
         Appointment appointment = null;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, appointmentId);
@@ -72,12 +188,15 @@ public class AppointmentDAO {
                     appointment.setAppointmentTime(rs.getTime("appointment_time").toLocalTime()); // Convert java.sql.Time to LocalTime
                     appointment.setReason(rs.getString("reason"));
                     appointment.setStatus(rs.getString("status"));
+                    appointment.setVersion(rs.getInt("version"));
                     System.out.println("Appointment retrieved: ID " + appointment.getAppointmentId());
                 }
             }
-        } catch (SQLException ex) {
-            System.err.println("Error getting appointment by ID: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("AppointmentDAO.getAppointmentById", startNanos);
+        }
+        if (appointment != null) {
+            AuditLog.read(ChangeEvent.Entity.APPOINTMENT, appointmentId);
         }
         return appointment;
     }
@@ -88,10 +207,26 @@ public class AppointmentDAO {
      * @return A list of all Appointment objects.
      */
     public List<Appointment> getAllAppointments() {
+        try {
+            return getAllAppointmentsOrThrow();
+        } catch (SQLException ex) {
+            System.err.println("Error getting all appointments: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getAllAppointments()}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Appointment> getAllAppointmentsOrThrow() throws SQLException {
         List<Appointment> appointments = new ArrayList<>();
         String SQL = "SELECT * FROM Appointments";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(SQL)) {
 
@@ -104,16 +239,217 @@ public class AppointmentDAO {
                 appointment.setAppointmentTime(rs.getTime("appointment_time").toLocalTime());
                 appointment.setReason(rs.getString("reason"));
                 appointment.setStatus(rs.getString("status"));
+                appointment.setVersion(rs.getInt("version"));
                 appointments.add(appointment);
             }
             System.out.println("Retrieved " + appointments.size() + " appointments.");
+        } finally {
+            DaoMetrics.record("AppointmentDAO.getAllAppointments", startNanos);
+        }
+        AuditLog.list(ChangeEvent.Entity.APPOINTMENT, appointments.size());
+        return appointments;
+    }
+
+    /**
+     * Retrieves one page of appointments ordered by ID.
+     *
+     * @param afterId The last appointment ID of the previous page, or 0 for the first page.
+     * @param limit   The maximum number of appointments to return.
+     * @return The next page of appointments, empty when there are no more.
+     */
+    public List<Appointment> getAppointmentsPage(int afterId, int limit) {
+        try {
+            return getAppointmentsPageOrThrow(afterId, limit);
         } catch (SQLException ex) {
-            System.err.println("Error getting all appointments: " + ex.getMessage());
+            System.err.println("Error getting appointments page: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getAppointmentsPage(int, int)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Appointment> getAppointmentsPageOrThrow(int afterId, int limit) throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        String SQL = "SELECT * FROM Appointments WHERE appointment_id > ? ORDER BY appointment_id LIMIT ?";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Appointment appointment = new Appointment();
+                    appointment.setAppointmentId(rs.getInt("appointment_id"));
+                    appointment.setPatientId(rs.getInt("patient_id"));
+                    appointment.setDoctorId(rs.getInt("doctor_id"));
+                    appointment.setAppointmentDate(rs.getDate("appointment_date").toLocalDate());
+                    appointment.setAppointmentTime(rs.getTime("appointment_time").toLocalTime());
+                    appointment.setReason(rs.getString("reason"));
+                    appointment.setStatus(rs.getString("status"));
+                    appointment.setVersion(rs.getInt("version"));
+                    appointments.add(appointment);
+                }
+            }
+        } finally {
+            DaoMetrics.record("AppointmentDAO.getAppointmentsPage", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.APPOINTMENT, appointments, Appointment::getAppointmentId);
+        return appointments;
+    }
+
+    /**
+     * Retrieves appointments by ID in one query.
+     *
+     * @param appointmentIds The IDs to fetch.
+     * @return The appointments found, in ID order; unknown IDs are skipped, and a database error returns an
+     * empty list.
+     */
+    public List<Appointment> getAppointmentsByIds(Collection<Integer> appointmentIds) {
+        try {
+            return getAppointmentsByIdsOrThrow(appointmentIds);
+        } catch (SQLException ex) {
+            System.err.println("Error getting appointments by IDs: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getAppointmentsByIds(Collection)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Appointment> getAppointmentsByIdsOrThrow(Collection<Integer> appointmentIds) throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        if (appointmentIds.isEmpty()) {
+            return appointments;
+        }
+        String SQL = "SELECT * FROM Appointments WHERE appointment_id IN (" + PatientDAO.placeholders(appointmentIds.size()) +
+                ") ORDER BY appointment_id";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            int index = 1;
+            for (Integer appointmentId : appointmentIds) {
+                pstmt.setInt(index++, appointmentId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(readRow(rs));
+                }
+            }
+        } finally {
+            DaoMetrics.record("AppointmentDAO.getAppointmentsByIds", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.APPOINTMENT, appointments, Appointment::getAppointmentId);
+        return appointments;
+    }
+
+    /**
+     * Finds one page of appointments matching every given filter; a null filter matches everything.
+     * <p>
+     * Once the {@link FilterIndex} is loaded the matching IDs come from its bitmaps and only that page of rows is
+     * read; before that the filters run as SQL.
+     *
+     * @param status         e.g. "Cancelled".
+     * @param specialization The doctor's specialization, e.g. "Cardiology".
+     * @param from           The first appointment date (inclusive).
+     * @param to             The last appointment date (inclusive).
+     * @param afterId        The last appointment ID of the previous page, or 0 for the first page.
+     * @param limit          The maximum number of appointments to return.
+     * @return The matching appointments in ID order, or an empty list on database error.
+     */
+    public List<Appointment> findAppointments(String status, String specialization, LocalDate from, LocalDate to,
+                                              int afterId, int limit) {
+        try {
+            return findAppointmentsOrThrow(status, specialization, from, to, afterId, limit);
+        } catch (SQLException ex) {
+            System.err.println("Error finding appointments: " + ex.getMessage());
             ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #findAppointments}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Appointment> findAppointmentsOrThrow(String status, String specialization, LocalDate from,
+                                                     LocalDate to, int afterId, int limit) throws SQLException {
+        int[] ids = FilterIndex.getInstance().findAppointmentIds(status, specialization, from, to, afterId, limit);
+        if (ids != null) {
+            List<Integer> appointmentIds = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                appointmentIds.add(id);
+            }
+            return getAppointmentsByIdsOrThrow(appointmentIds);
+        }
+
+        StringBuilder SQL = new StringBuilder("SELECT a.* FROM Appointments a");
+        List<Object> params = new ArrayList<>();
+        if (specialization != null) {
+            SQL.append(" JOIN Doctors d ON d.doctor_id = a.doctor_id AND d.specialization = ?");
+            params.add(specialization.trim());
         }
+        SQL.append(" WHERE a.appointment_id > ?");
+        params.add(afterId);
+        if (status != null) {
+            SQL.append(" AND a.status = ?");
+            params.add(status.trim());
+        }
+        if (from != null) {
+            SQL.append(" AND a.appointment_date >= ?");
+            params.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            SQL.append(" AND a.appointment_date <= ?");
+            params.add(Date.valueOf(to));
+        }
+        SQL.append(" ORDER BY a.appointment_id LIMIT ?");
+        params.add(limit);
+
+        List<Appointment> appointments = new ArrayList<>();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(readRow(rs));
+                }
+            }
+        } finally {
+            DaoMetrics.record("AppointmentDAO.findAppointments", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.APPOINTMENT, appointments, Appointment::getAppointmentId);
         return appointments;
     }
 
+    private static Appointment readRow(ResultSet rs) throws SQLException {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(rs.getInt("appointment_id"));
+        appointment.setPatientId(rs.getInt("patient_id"));
+        appointment.setDoctorId(rs.getInt("doctor_id"));
+        appointment.setAppointmentDate(rs.getDate("appointment_date").toLocalDate());
+        appointment.setAppointmentTime(rs.getTime("appointment_time").toLocalTime());
+        appointment.setReason(rs.getString("reason"));
+        appointment.setStatus(rs.getString("status"));
+        appointment.setVersion(rs.getInt("version"));
+        return appointment;
+    }
+
     /**
      * Updates an existing appointment record in the database.
      *
@@ -121,10 +457,26 @@ public class AppointmentDAO {
      * @return true if the update was successful, false otherwise.
      */
     public boolean updateAppointment(Appointment appointment) {
+        try {
+            return updateAppointmentOrThrow(appointment);
+        } catch (SQLException ex) {
+            System.err.println("Error updating appointment: " + ex.getMessage());
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #updateAppointment(Appointment)}, but throws on failure; false still means no such row.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public boolean updateAppointmentOrThrow(Appointment appointment) throws SQLException {
         String SQL = "UPDATE Appointments SET patient_id = ?, doctor_id = ?, appointment_date = ?, " +
-                "appointment_time = ?, reason = ?, status = ? WHERE appointment_id = ?";
+                "appointment_time = ?, reason = ?, status = ?, version = version + 1 WHERE appointment_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, appointment.getPatientId());
@@ -135,16 +487,134 @@ public class AppointmentDAO {
             pstmt.setString(6, appointment.getStatus());
             pstmt.setInt(7, appointment.getAppointmentId());
 
+            // The aggregate counters need the old doctor/date/status to move the count
+            Appointment previous = readCountedFields(conn, appointment.getAppointmentId());
+
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
                 System.out.println("Appointment with ID " + appointment.getAppointmentId() + " updated successfully.");
+                ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.APPOINTMENT, appointment.getAppointmentId(), appointment));
+                if (previous != null) {
+                    int doctorId = appointment.getDoctorId();
+                    LocalDate date = appointment.getAppointmentDate();
+                    String status = appointment.getStatus();
+                    TransactionScope.afterCommit(() -> AggregateStore.getInstance().appointmentChanged(
+                            previous.getDoctorId(), previous.getAppointmentDate(), previous.getStatus(), doctorId, date, status));
+                }
                 return true;
             }
+        } finally {
+            DaoMetrics.record("AppointmentDAO.updateAppointment", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Saves the fields the user changed, unless someone else updated the appointment since it was loaded.
+     * As the original already holds the old doctor, date and status, the aggregate counters are moved
+     * without reading the row first.
+     *
+     * @param original The appointment as loaded, with its version.
+     * @param edited   The same appointment with the user's changes.
+     * @return The outcome; on a conflict it holds the appointment as now stored (see {@link #mergeEdits}).
+     */
+    public UpdateResult<Appointment> updateAppointment(Appointment original, Appointment edited) {
+        try {
+            return updateAppointmentOrThrow(original, edited);
         } catch (SQLException ex) {
             System.err.println("Error updating appointment: " + ex.getMessage());
             ex.printStackTrace();
+            return UpdateResult.failed();
+        }
+    }
+
+    /**
+     * Like {@link #updateAppointment(Appointment, Appointment)}, but throws instead of returning a failed result.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public UpdateResult<Appointment> updateAppointmentOrThrow(Appointment original, Appointment edited) throws SQLException {
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            return updateAppointment(conn, original, edited);
+        } finally {
+            DaoMetrics.record("AppointmentDAO.updateAppointmentIfUnchanged", startNanos);
+        }
+    }
+
+    /**
+     * Like {@link #updateAppointmentOrThrow(Appointment, Appointment)} for callers that only know the version the user loaded,
+     * such as the server handling a client's update: the appointment is read again here to find what changed.
+     *
+     * @param edited          The appointment with the user's changes, and its ID set.
+     * @param expectedVersion The version the user's copy had.
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public UpdateResult<Appointment> updateAppointmentAtVersionOrThrow(Appointment edited, int expectedVersion) throws SQLException {
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            Appointment current = readAppointment(conn, edited.getAppointmentId());
+            if (current == null) {
+                return UpdateResult.notFound();
+            }
+            if (current.getVersion() != expectedVersion) {
+                return UpdateResult.conflict(current);
+            }
+            return updateAppointment(conn, current, edited);
+        } finally {
+            DaoMetrics.record("AppointmentDAO.updateAppointmentAtVersion", startNanos);
+        }
+    }
+
+    private UpdateResult<Appointment> updateAppointment(Connection conn, Appointment original, Appointment edited) throws SQLException {
+        UpdateResult<Appointment> result = CONDITIONAL_UPDATE.execute(conn, original, edited);
+        if (result.isUpdated() && result.getRow() != original) {
+            Appointment saved = result.getRow();
+            System.out.println("Appointment with ID " + saved.getAppointmentId() + " updated to version " + saved.getVersion() + ".");
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.APPOINTMENT, saved.getAppointmentId(), saved));
+            TransactionScope.afterCommit(() -> AggregateStore.getInstance().appointmentChanged(
+                    original.getDoctorId(), original.getAppointmentDate(), original.getStatus(),
+                    saved.getDoctorId(), saved.getAppointmentDate(), saved.getStatus()));
+        }
+        return result;
+    }
+
+    /**
+     * After a conflict, re-applies the user's changes on top of the appointment as someone else saved it.
+     *
+     * @return A new Appointment with current's version, to show the user and save again.
+     */
+    public static Appointment mergeEdits(Appointment original, Appointment edited, Appointment current) {
+        return CONDITIONAL_UPDATE.merge(original, edited, current);
+    }
+
+    private static Appointment copyOf(Appointment appointment) {
+        Appointment copy = new Appointment(appointment.getAppointmentId(), appointment.getPatientId(),
+                appointment.getDoctorId(), appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+                appointment.getReason(), appointment.getStatus());
+        copy.setVersion(appointment.getVersion());
+        return copy;
+    }
+
+    private static Appointment readAppointment(Connection conn, int appointmentId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM Appointments WHERE appointment_id = ?")) {
+            pstmt.setInt(1, appointmentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Appointment appointment = new Appointment();
+                appointment.setAppointmentId(rs.getInt("appointment_id"));
+                appointment.setPatientId(rs.getInt("patient_id"));
+                appointment.setDoctorId(rs.getInt("doctor_id"));
+                appointment.setAppointmentDate(rs.getDate("appointment_date").toLocalDate());
+                appointment.setAppointmentTime(rs.getTime("appointment_time").toLocalTime());
+                appointment.setReason(rs.getString("reason"));
+                appointment.setStatus(rs.getString("status"));
+                appointment.setVersion(rs.getInt("version"));
+                return appointment;
+            }
         }
-        return false;
     }
 
     /**
@@ -154,23 +624,68 @@ public class AppointmentDAO {
      * @return true if the deletion was successful, false otherwise.
      */
     public boolean deleteAppointment(int appointmentId) {
+        try {
+            return deleteAppointmentOrThrow(appointmentId);
+        } catch (SQLException ex) {
+            System.err.println("Error deleting appointment: " + ex.getMessage());
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #deleteAppointment(int)}, but throws on failure; false still means no such row.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public boolean deleteAppointmentOrThrow(int appointmentId) throws SQLException {
         String SQL = "DELETE FROM Appointments WHERE appointment_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, appointmentId);
 
+            Appointment previous = readCountedFields(conn, appointmentId);
+
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
                 System.out.println("Appointment with ID " + appointmentId + " deleted successfully.");
+                ChangeEventBus.getInstance().publish(ChangeEvent.deleted(ChangeEvent.Entity.APPOINTMENT, appointmentId));
+                if (previous != null) {
+                    TransactionScope.afterCommit(() -> AggregateStore.getInstance().appointmentRemoved(
+                            previous.getDoctorId(), previous.getAppointmentDate(), previous.getStatus()));
+                }
                 return true;
             }
-        } catch (SQLException ex) {
-            System.err.println("Error deleting appointment: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("AppointmentDAO.deleteAppointment", startNanos);
         }
         return false;
     }
 
+    /**
+     * Reads the fields the aggregate counters are keyed on, using the caller's connection.
+     * Skipped (returns null) while the aggregate store is not seeded, to avoid the extra query.
+     */
+    private Appointment readCountedFields(Connection conn, int appointmentId) throws SQLException {
+        if (!AggregateStore.getInstance().isSeeded()) {
+            return null;
+        }
+        String SQL = "SELECT doctor_id, appointment_date, status FROM Appointments WHERE appointment_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+            pstmt.setInt(1, appointmentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    Appointment appointment = new Appointment();
+                    appointment.setDoctorId(rs.getInt("doctor_id"));
+                    appointment.setAppointmentDate(rs.getDate("appointment_date").toLocalDate());
+                    appointment.setStatus(rs.getString("status"));
+                    return appointment;
+                }
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,263 @@
+package com.healthcare.dao;
+
+import com.healthcare.config.AppConfig;
+import com.healthcare.model.Appointment;
+import com.healthcare.model.Doctor;
+import com.healthcare.model.MedicalRecord;
+import com.healthcare.model.Patient;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous facade over the patient, doctor, appointment and medical record DAOs.
+ * <p>
+ * Every method runs the matching DAO call on a virtual thread and returns a CompletableFuture, so
+ * independent lookups can run at the same time and be combined with {@code thenCombine} or
+ * {@code allOf}. Failures complete the future exceptionally with the SQLException instead of
+ * returning null or -1.
+ * <ul>
+ *     <li>At most {@code maxConcurrency} calls run at once; the rest wait their turn, so a burst
+ *     of futures cannot open more connections than MySQL (or the pool) can take.</li>
+ *     <li>Each future fails with a TimeoutException after the configured timeout. Callers can
+ *     set a shorter one with {@code orTimeout}.</li>
+ *     <li>A future that is cancelled or times out before its call started never runs. A statement
+ *     that is already executing finishes and its result is discarded; a write that started is not undone.</li>
+ * </ul>
+ */
+public class AsyncDao implements AutoCloseable {
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int ABANDONED = 2;
+
+    /**
+     * A DAO call that reports failures as an SQLException.
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    private final PatientDAO patientDAO;
+    private final DoctorDAO doctorDAO;
+    private final AppointmentDAO appointmentDAO;
+    private final MedicalRecordDAO medicalRecordDAO;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("async-dao-", 0).factory());
+    private final Semaphore permits;
+    private final long timeoutMs;
+
+    /**
+     * Wraps the DAOs from {@link DaoFactory} with the limits from the configuration
+     * ({@code async.maxConcurrency}, {@code async.timeoutMs}).
+     */
+    public AsyncDao() {
+        this(DaoFactory.createPatientDAO(), DaoFactory.createDoctorDAO(), DaoFactory.createAppointmentDAO(),
+                DaoFactory.createMedicalRecordDAO(), AppConfig.get().get(AppConfig.ASYNC_MAX_CONCURRENCY),
+                AppConfig.get().get(AppConfig.ASYNC_TIMEOUT_MS));
+    }
+
+    /**
+     * @param maxConcurrency The maximum number of DAO calls running at once.
+     * @param timeoutMs      How long a future may take before it fails with a TimeoutException.
+     */
+    public AsyncDao(PatientDAO patientDAO, DoctorDAO doctorDAO, AppointmentDAO appointmentDAO,
+                    MedicalRecordDAO medicalRecordDAO, int maxConcurrency, long timeoutMs) {
+        this.patientDAO = patientDAO;
+        this.doctorDAO = doctorDAO;
+        this.appointmentDAO = appointmentDAO;
+        this.medicalRecordDAO = medicalRecordDAO;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.timeoutMs = timeoutMs;
+    }
+
+    // --- Patients ---
+
+    public CompletableFuture<Integer> addPatient(Patient patient) {
+        return submit(() -> patientDAO.addPatientOrThrow(patient));
+    }
+
+    /**
+     * @return A future completed with the patient, or with null if there is no such patient.
+     */
+    public CompletableFuture<Patient> getPatientById(int patientId) {
+        return submit(() -> patientDAO.getPatientByIdOrThrow(patientId));
+    }
+
+    public CompletableFuture<List<Patient>> getAllPatients() {
+        return submit(patientDAO::getAllPatientsOrThrow);
+    }
+
+    public CompletableFuture<List<Patient>> getPatientsPage(int afterId, int limit) {
+        return submit(() -> patientDAO.getPatientsPageOrThrow(afterId, limit));
+    }
+
+    public CompletableFuture<List<Patient>> getPatientsByIds(Collection<Integer> patientIds) {
+        return submit(() -> patientDAO.getPatientsByIdsOrThrow(patientIds));
+    }
+
+    public CompletableFuture<Boolean> updatePatient(Patient patient) {
+        return submit(() -> patientDAO.updatePatientOrThrow(patient));
+    }
+
+    public CompletableFuture<Boolean> deletePatient(int patientId) {
+        return submit(() -> patientDAO.deletePatientOrThrow(patientId));
+    }
+
+    public CompletableFuture<List<Patient>> searchPatients(String searchTerm) {
+        return submit(() -> patientDAO.searchPatientsOrThrow(searchTerm));
+    }
+
+    // --- Doctors ---
+
+    public CompletableFuture<Integer> addDoctor(Doctor doctor) {
+        return submit(() -> doctorDAO.addDoctorOrThrow(doctor));
+    }
+
+    /**
+     * @return A future completed with the doctor, or with null if there is no such doctor.
+     */
+    public CompletableFuture<Doctor> getDoctorById(int doctorId) {
+        return submit(() -> doctorDAO.getDoctorByIdOrThrow(doctorId));
+    }
+
+    public CompletableFuture<List<Doctor>> getAllDoctors() {
+        return submit(doctorDAO::getAllDoctorsOrThrow);
+    }
+
+    public CompletableFuture<List<Doctor>> getDoctorsPage(int afterId, int limit) {
+        return submit(() -> doctorDAO.getDoctorsPageOrThrow(afterId, limit));
+    }
+
+    public CompletableFuture<List<Doctor>> getDoctorsByIds(Collection<Integer> doctorIds) {
+        return submit(() -> doctorDAO.getDoctorsByIdsOrThrow(doctorIds));
+    }
+
+    public CompletableFuture<Boolean> updateDoctor(Doctor doctor) {
+        return submit(() -> doctorDAO.updateDoctorOrThrow(doctor));
+    }
+
+    public CompletableFuture<Boolean> deleteDoctor(int doctorId) {
+        return submit(() -> doctorDAO.deleteDoctorOrThrow(doctorId));
+    }
+
+    // --- Appointments ---
+
+    public CompletableFuture<Integer> addAppointment(Appointment appointment) {
+        return submit(() -> appointmentDAO.addAppointmentOrThrow(appointment));
+    }
+
+    /**
+     * @return A future completed with the appointment, or with null if there is no such appointment.
+     */
+    public CompletableFuture<Appointment> getAppointmentById(int appointmentId) {
+        return submit(() -> appointmentDAO.getAppointmentByIdOrThrow(appointmentId));
+    }
+
+    public CompletableFuture<List<Appointment>> getAllAppointments() {
+        return submit(appointmentDAO::getAllAppointmentsOrThrow);
+    }
+
+    public CompletableFuture<List<Appointment>> getAppointmentsPage(int afterId, int limit) {
+        return submit(() -> appointmentDAO.getAppointmentsPageOrThrow(afterId, limit));
+    }
+
+    public CompletableFuture<Boolean> updateAppointment(Appointment appointment) {
+        return submit(() -> appointmentDAO.updateAppointmentOrThrow(appointment));
+    }
+
+    public CompletableFuture<Boolean> deleteAppointment(int appointmentId) {
+        return submit(() -> appointmentDAO.deleteAppointmentOrThrow(appointmentId));
+    }
+
+    // --- Medical records ---
+
+    public CompletableFuture<Integer> addMedicalRecord(MedicalRecord record) {
+        return submit(() -> medicalRecordDAO.addMedicalRecordOrThrow(record));
+    }
+
+    /**
+     * @return A future completed with the record, or with null if there is no such record.
+     */
+    public CompletableFuture<MedicalRecord> getMedicalRecordById(int recordId) {
+        return submit(() -> medicalRecordDAO.getMedicalRecordByIdOrThrow(recordId));
+    }
+
+    public CompletableFuture<List<MedicalRecord>> getMedicalRecordsByPatientId(int patientId) {
+        return submit(() -> medicalRecordDAO.getMedicalRecordsByPatientIdOrThrow(patientId));
+    }
+
+    public CompletableFuture<List<MedicalRecord>> getMedicalRecordsPage(int afterId, int limit) {
+        return submit(() -> medicalRecordDAO.getMedicalRecordsPageOrThrow(afterId, limit));
+    }
+
+    public CompletableFuture<Boolean> updateMedicalRecord(MedicalRecord record) {
+        return submit(() -> medicalRecordDAO.updateMedicalRecordOrThrow(record));
+    }
+
+    public CompletableFuture<Boolean> deleteMedicalRecord(int recordId) {
+        return submit(() -> medicalRecordDAO.deleteMedicalRecordOrThrow(recordId));
+    }
+
+    /**
+     * @return The number of calls waiting for a free slot.
+     */
+    public int getQueuedCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Runs any DAO call under this facade's concurrency limit and timeout, e.g. one of the
+     * report or timeline DAOs.
+     */
+    public <T> CompletableFuture<T> submit(SqlCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicInteger state = new AtomicInteger(QUEUED);
+
+        Future<?> task = executor.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException ex) {
+                return; // Abandoned while waiting; the future is already completed
+            }
+            try {
+                if (!state.compareAndSet(QUEUED, RUNNING)) {
+                    return;
+                }
+                future.complete(call.call());
+            } catch (SQLException | RuntimeException ex) {
+                future.completeExceptionally(ex);
+            } finally {
+                permits.release();
+            }
+        });
+
+        // If the future is completed first (cancelled, timed out or completed by the caller) and the
+        // call has not started, stop it from ever starting. Running statements are left alone:
+        // interrupting a thread inside JDBC socket I/O would close the connection under the driver.
+        future.whenComplete((result, error) -> {
+            if (state.compareAndSet(QUEUED, ABANDONED)) {
+                task.cancel(true);
+            }
+        });
+        return future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops accepting calls. Calls already submitted still complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
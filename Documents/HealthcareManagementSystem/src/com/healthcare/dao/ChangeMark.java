@@ -0,0 +1,32 @@
+package com.healthcare.dao;
+
+import java.time.LocalDateTime;
+
+/**
+ * How many rows a table has and when the most recent one was last changed (its {@code updated_at}).
+ * A client holding a copy of the table compares this with what it has to find out whether rows were
+ * changed or deleted since.
+ */
+public final class ChangeMark {
+
+    private final int rowCount;
+    private final LocalDateTime latestChange; // null when the table is empty
+
+    public ChangeMark(int rowCount, LocalDateTime latestChange) {
+        this.rowCount = rowCount;
+        this.latestChange = latestChange;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public LocalDateTime getLatestChange() {
+        return latestChange;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeMark{rows=" + rowCount + ", latestChange=" + latestChange + "}";
+    }
+}
@@ -0,0 +1,166 @@
+package com.healthcare.dao;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Optimistic, partial updates of one table whose rows carry a {@code version} column.
+ * <p>
+ * Only the columns the user actually changed (edited vs. the row as it was loaded) are written, and only
+ * while the row still has the version it was loaded with:
+ * {@code UPDATE t SET changed = ?, version = version + 1 WHERE id = ? AND version = ?}.
+ * If no row matches, the current row is read on the same connection to tell a conflict from a deletion.
+ * Nothing is locked in between, so two users editing different patients never wait on each other.
+ *
+ * @param <T> The model type.
+ */
+final class ConditionalUpdate<T> {
+
+    /**
+     * An editable column and the model property it maps to.
+     */
+    static final class Field<T> {
+        private final String column;
+        private final Function<T, ?> getter;
+        private final BiConsumer<T, T> copier; // Copies this field from the first row to the second
+
+        private Field(String column, Function<T, ?> getter, BiConsumer<T, T> copier) {
+            this.column = column;
+            this.getter = getter;
+            this.copier = copier;
+        }
+    }
+
+    static <T, V> Field<T> field(String column, Function<T, V> getter, BiConsumer<T, V> setter) {
+        return new Field<>(column, getter, (from, to) -> setter.accept(to, getter.apply(from)));
+    }
+
+    /**
+     * Reads a row by ID with the caller's connection; null if there is none.
+     */
+    @FunctionalInterface
+    interface RowReader<T> {
+        T read(Connection conn, int id) throws SQLException;
+    }
+
+    private final String table;
+    private final String idColumn;
+    private final ToIntFunction<T> id;
+    private final ToIntFunction<T> version;
+    private final ObjIntConsumer<T> setVersion;
+    private final UnaryOperator<T> copy;
+    private final RowReader<T> reader;
+    private final List<Field<T>> fields;
+
+    @SafeVarargs
+    ConditionalUpdate(String table, String idColumn, ToIntFunction<T> id, ToIntFunction<T> version,
+                      ObjIntConsumer<T> setVersion, UnaryOperator<T> copy, RowReader<T> reader, Field<T>... fields) {
+        this.table = table;
+        this.idColumn = idColumn;
+        this.id = id;
+        this.version = version;
+        this.setVersion = setVersion;
+        this.copy = copy;
+        this.reader = reader;
+        List<Field<T>> copied = new ArrayList<>(fields.length);
+        for (Field<T> field : fields) {
+            copied.add(field);
+        }
+        this.fields = List.copyOf(copied);
+    }
+
+    /**
+     * Writes the fields that differ between {@code original} and {@code edited}, if the row still has
+     * {@code original}'s version. Nothing is written when nothing changed.
+     *
+     * @return {@link UpdateResult.Status#UPDATED} with the row as now stored, {@link UpdateResult.Status#CONFLICT}
+     * with the row someone else saved, or {@link UpdateResult.Status#NOT_FOUND}.
+     */
+    UpdateResult<T> execute(Connection conn, T original, T edited) throws SQLException {
+        List<Field<T>> changed = changedFields(original, edited);
+        if (changed.isEmpty()) {
+            return UpdateResult.updated(original);
+        }
+        int rowId = id.applyAsInt(original);
+        int expectedVersion = version.applyAsInt(original);
+
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        for (Field<T> field : changed) {
+            sql.append(field.column).append(" = ?, ");
+        }
+        sql.append("version = version + 1 WHERE ").append(idColumn).append(" = ? AND version = ?");
+
+        int affectedRows;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Field<T> field : changed) {
+                pstmt.setObject(index++, toJdbc(field.getter.apply(edited)));
+            }
+            pstmt.setInt(index++, rowId);
+            pstmt.setInt(index, expectedVersion);
+            affectedRows = pstmt.executeUpdate();
+        }
+
+        if (affectedRows > 0) {
+            // The row matched original's version, so it held original's values: apply the changes to a copy
+            T saved = copy.apply(original);
+            for (Field<T> field : changed) {
+                field.copier.accept(edited, saved);
+            }
+            setVersion.accept(saved, expectedVersion + 1);
+            return UpdateResult.updated(saved);
+        }
+        T current = reader.read(conn, rowId);
+        return current != null ? UpdateResult.conflict(current) : UpdateResult.notFound();
+    }
+
+    /**
+     * @return A copy of {@code current} (someone else's save) with the user's own changes, original vs. edited,
+     * applied on top. It carries current's version, so saving it is checked against that save.
+     */
+    T merge(T original, T edited, T current) {
+        T merged = copy.apply(current);
+        for (Field<T> field : changedFields(original, edited)) {
+            field.copier.accept(edited, merged);
+        }
+        return merged;
+    }
+
+    List<Field<T>> changedFields(T original, T edited) {
+        List<Field<T>> changed = new ArrayList<>(fields.size());
+        for (Field<T> field : fields) {
+            if (!Objects.equals(field.getter.apply(original), field.getter.apply(edited))) {
+                changed.add(field);
+            }
+        }
+        return changed;
+    }
+
+    private static Object toJdbc(Object value) {
+        if (value instanceof LocalDate) {
+            return Date.valueOf((LocalDate) value);
+        }
+        if (value instanceof LocalTime) {
+            return Time.valueOf((LocalTime) value);
+        }
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        }
+        return value;
+    }
+}
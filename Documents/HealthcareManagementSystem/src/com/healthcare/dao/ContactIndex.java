@@ -0,0 +1,348 @@
+package com.healthcare.dao;
+
+import com.healthcare.audit.AuditLog;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.model.Doctor;
+import com.healthcare.model.Patient;
+import com.healthcare.util.BloomFilter;
+import com.healthcare.util.DaoMetrics;
+import com.healthcare.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers "is this email or phone number already taken?" mostly without asking the database.
+ * <p>
+ * One {@link BloomFilter} per field holds every value in the table, read once at startup and then kept up to date
+ * from the change events of this process's writes. A value the filter has never seen is new for certain, so an
+ * import of mostly new patients makes no lookups at all; only values the filter may have seen (real duplicates
+ * plus about 1% false positives) are looked up exactly. Before the filters are loaded every value is looked up.
+ * <p>
+ * Values written by other workstations since the load are not in the filter. The UNIQUE index on email still
+ * refuses those, and {@link PatientDAO#addPatientOrThrow} reports that as the same {@link DuplicateValueException};
+ * a phone number shared that way is simply not flagged until the next load. Deleted or changed values stay in the
+ * filter and only cost a lookup.
+ * <p>
+ * Phone numbers are stored as typed, so they are looked up through the indexed {@code phone_digits} column, which
+ * MySQL computes with the same rule as {@link #normalizePhone}. Without that column (see the README's database
+ * setup) the lookup computes it for every row instead.
+ */
+public final class ContactIndex {
+
+    /**
+     * A column whose values are checked for duplicates.
+     */
+    public enum Field {
+        PATIENT_EMAIL("Patients", "patient_id", "email"),
+        PATIENT_PHONE("Patients", "patient_id", "phone_number"),
+        DOCTOR_EMAIL("Doctors", "doctor_id", "email");
+
+        final String table;
+        final String idColumn;
+        final String column;
+
+        Field(String table, String idColumn, String column) {
+            this.table = table;
+            this.idColumn = idColumn;
+            this.column = column;
+        }
+
+        /**
+         * @return The value as compared (see {@link ContactIndex#normalizeEmail} and
+         * {@link ContactIndex#normalizePhone}); null if there is nothing to compare.
+         */
+        public String normalize(String value) {
+            return this == PATIENT_PHONE ? normalizePhone(value) : normalizeEmail(value);
+        }
+    }
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long MIN_CAPACITY = 10_000;
+    private static final int MIN_PHONE_DIGITS = 7;
+    private static final int PHONE_DIGITS_KEPT = 10; // Drops a country prefix so +1 555... meets 555...
+    private static final String PHONE_DIGITS_COLUMN = "phone_digits";
+    // The column's definition, for databases that do not have it yet
+    private static final String PHONE_DIGITS_EXPRESSION = "RIGHT(REGEXP_REPLACE(phone_number, '[^0-9]', ''), " + PHONE_DIGITS_KEPT + ")";
+    private static final String MISSING_COLUMN_STATE = "42S22";
+
+    private static final ContactIndex INSTANCE = new ContactIndex();
+
+    private final Map<Field, BloomFilter> filters = new EnumMap<>(Field.class);
+    private final Map<Field, BloomFilter> building = new EnumMap<>(Field.class); // Also fed while a load runs
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder lookupsSkipped = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private volatile boolean phoneDigitsMissing = false;
+    private boolean subscribed = false;
+
+    private ContactIndex() {
+    }
+
+    public static ContactIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reads every email and phone number into fresh filters, replacing the current ones.
+     *
+     * @return true if loaded, false on database error (the previous filters, if any, stay in use).
+     */
+    public boolean load() {
+        try {
+            loadOrThrow();
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error loading contact index: " + ex.getMessage());
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #load()}, but throws instead of returning false.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public synchronized void loadOrThrow() throws SQLException {
+        if (!subscribed) {
+            ChangeEventBus.getInstance().subscribe(this::onChange);
+            subscribed = true;
+        }
+        long startNanos = DaoMetrics.start();
+        try {
+            loadTable("Patients", ChangeEvent.Entity.PATIENT, Field.PATIENT_EMAIL, Field.PATIENT_PHONE);
+            loadTable("Doctors", ChangeEvent.Entity.DOCTOR, Field.DOCTOR_EMAIL, null);
+        } finally {
+            synchronized (filters) {
+                building.clear();
+            }
+            DaoMetrics.record("ContactIndex.load", startNanos);
+        }
+    }
+
+    private void loadTable(String table, ChangeEvent.Entity entity, Field emailField, Field phoneField)
+            throws SQLException {
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement()) {
+            long rows;
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                rows = rs.next() ? rs.getLong(1) : 0;
+            }
+            // Room to double before the false-positive rate starts to climb
+            long capacity = Math.max(MIN_CAPACITY, rows * 2);
+            BloomFilter emails = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+            BloomFilter phones = phoneField != null ? new BloomFilter(capacity, FALSE_POSITIVE_RATE) : null;
+            synchronized (filters) {
+                building.put(emailField, emails);
+                if (phoneField != null) {
+                    building.put(phoneField, phones);
+                }
+            }
+
+            String columns = phoneField != null ? "email, phone_number" : "email";
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT " + columns + " FROM " + table,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(Integer.MIN_VALUE); // Stream rows instead of buffering the table
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    int read = 0;
+                    while (rs.next()) {
+                        putIfPresent(emails, emailField.normalize(rs.getString(1)));
+                        if (phones != null) {
+                            putIfPresent(phones, phoneField.normalize(rs.getString(2)));
+                        }
+                        read++;
+                    }
+                    AuditLog.list(entity, read);
+                }
+            }
+            synchronized (filters) {
+                filters.put(emailField, emails);
+                if (phoneField != null) {
+                    filters.put(phoneField, phones);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the row that already has a value, looking it up in the database only if the filter may contain it.
+     *
+     * @return The patient or doctor ID, or -1 if no row has the value (or the value is empty).
+     * @throws SQLException if the lookup fails.
+     */
+    public int findIdOrThrow(Field field, String value) throws SQLException {
+        String normalized = field.normalize(value);
+        if (normalized == null) {
+            return -1;
+        }
+        checks.increment();
+        BloomFilter filter;
+        synchronized (filters) {
+            filter = filters.get(field);
+        }
+        boolean mayExist = filter == null || filter.mightContain(normalized);
+        if (!mayExist) {
+            lookupsSkipped.increment();
+            return -1;
+        }
+        int id = lookup(field, normalized);
+        if (id == -1 && filter != null) {
+            falsePositives.increment();
+        }
+        return id;
+    }
+
+    private int lookup(Field field, String normalized) throws SQLException {
+        if (field != Field.PATIENT_PHONE) {
+            return lookup(field, field.column, normalized); // The unique index
+        }
+        if (!phoneDigitsMissing) {
+            try {
+                return lookup(field, PHONE_DIGITS_COLUMN, normalized);
+            } catch (SQLException ex) {
+                if (!MISSING_COLUMN_STATE.equals(ex.getSQLState())) {
+                    throw ex;
+                }
+                phoneDigitsMissing = true;
+                System.err.println("Phone lookups scan the Patients table: it has no phone_digits column"
+                        + " (see the README's database setup).");
+            }
+        }
+        return lookup(field, PHONE_DIGITS_EXPRESSION, normalized);
+    }
+
+    private static int lookup(Field field, String column, String normalized) throws SQLException {
+        String SQL = "SELECT " + field.idColumn + " FROM " + field.table + " WHERE " + column + " = ? LIMIT 1";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setString(1, normalized);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        } finally {
+            DaoMetrics.record("ContactIndex.lookup", startNanos);
+        }
+    }
+
+    private void add(Field field, String value) {
+        String normalized = field.normalize(value);
+        if (normalized == null) {
+            return;
+        }
+        BloomFilter filter;
+        synchronized (filters) {
+            filter = filters.get(field);
+            putIfPresent(building.get(field), normalized);
+        }
+        if (filter != null) {
+            filter.put(normalized);
+            if (filter.isOverCapacity() && reloadScheduled.compareAndSet(false, true)) {
+                // Grown past its size: rebuild larger in the background before false positives pile up
+                Thread.ofVirtual().name("contact-index-reload").start(() -> {
+                    try {
+                        load();
+                    } finally {
+                        reloadScheduled.set(false);
+                    }
+                });
+            }
+        }
+    }
+
+    private void onChange(ChangeEvent event) {
+        if (event.getOperation() == ChangeEvent.Operation.DELETE) {
+            return; // Bloom filters cannot forget; the value now only costs a lookup
+        }
+        if (event.getEntity() == ChangeEvent.Entity.PATIENT) {
+            Patient patient = event.getPayload(Patient.class);
+            if (patient != null) {
+                add(Field.PATIENT_EMAIL, patient.getEmail());
+                add(Field.PATIENT_PHONE, patient.getPhoneNumber());
+            }
+        } else if (event.getEntity() == ChangeEvent.Entity.DOCTOR) {
+            Doctor doctor = event.getPayload(Doctor.class);
+            if (doctor != null) {
+                add(Field.DOCTOR_EMAIL, doctor.getEmail());
+            }
+        }
+    }
+
+    private static void putIfPresent(BloomFilter filter, String normalized) {
+        if (filter != null && normalized != null) {
+            filter.put(normalized);
+        }
+    }
+
+    public boolean isLoaded() {
+        synchronized (filters) {
+            return filters.size() == Field.values().length;
+        }
+    }
+
+    /**
+     * @return How many values were checked for duplicates.
+     */
+    public long getCheckCount() {
+        return checks.sum();
+    }
+
+    /**
+     * @return How many checks the filters answered alone, without a database lookup.
+     */
+    public long getLookupsSkippedCount() {
+        return lookupsSkipped.sum();
+    }
+
+    /**
+     * @return How many lookups found nothing although the filter said the value might exist.
+     */
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * @return The last {@link #PHONE_DIGITS_KEPT} digits of a phone number, or null if it has too few to identify
+     * anyone.
+     */
+    public static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        if (digits.length() < MIN_PHONE_DIGITS) {
+            return null;
+        }
+        return digits.length() > PHONE_DIGITS_KEPT ? digits.substring(digits.length() - PHONE_DIGITS_KEPT) : digits.toString();
+    }
+
+    /**
+     * @return The email lower case and trimmed, as MySQL compares it, or null if it is not an address.
+     */
+    public static String normalizeEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        String normalized = email.trim().toLowerCase(Locale.ROOT);
+        return normalized.indexOf('@') > 0 ? normalized : null;
+    }
+}
@@ -0,0 +1,85 @@
+package com.healthcare.dao;
+
+import com.healthcare.client.RemoteAppointmentDAO;
+import com.healthcare.client.RemoteClient;
+import com.healthcare.client.RemoteDoctorDAO;
+import com.healthcare.client.RemoteMedicalRecordDAO;
+import com.healthcare.client.RemotePatientDAO;
+import com.healthcare.config.AppConfig;
+
+/**
+ * Creates the DAOs used by the UI panels: the MySQL-backed ones by default, or remote ones talking to a
+ * {@code HealthcareServer} after {@link #useServer(String)}.
+ */
+public class DaoFactory {
+
+    private static volatile RemoteClient remoteClient;
+    private static AsyncDao asyncDao;
+
+    private DaoFactory() {
+    }
+
+    /**
+     * Routes the panels' DAOs through a server instead of the local database.
+     * Must be called before the panels are created.
+     *
+     * @param baseUrl The server address, e.g. "http://records-server:8080".
+     */
+    public static synchronized void useServer(String baseUrl) {
+        if (remoteClient != null) {
+            remoteClient.close();
+        }
+        remoteClient = new RemoteClient(baseUrl, RemoteClient.DEFAULT_PIPELINES, AppConfig.get().get(AppConfig.SERVER_API_KEY));
+        if (asyncDao != null) {
+            asyncDao.close();
+            asyncDao = null;
+        }
+        System.out.println("Using server at " + baseUrl);
+    }
+
+    /**
+     * @return The shared remote client, or null when using the local database.
+     */
+    public static RemoteClient getRemoteClient() {
+        return remoteClient;
+    }
+
+    public static PatientDAO createPatientDAO() {
+        RemoteClient client = remoteClient;
+        return client != null ? new RemotePatientDAO(client) : new PatientDAO();
+    }
+
+    public static DoctorDAO createDoctorDAO() {
+        RemoteClient client = remoteClient;
+        return client != null ? new RemoteDoctorDAO(client) : new DoctorDAO();
+    }
+
+    public static AppointmentDAO createAppointmentDAO() {
+        RemoteClient client = remoteClient;
+        return client != null ? new RemoteAppointmentDAO(client) : new AppointmentDAO();
+    }
+
+    public static MedicalRecordDAO createMedicalRecordDAO() {
+        RemoteClient client = remoteClient;
+        return client != null ? new RemoteMedicalRecordDAO(client) : new MedicalRecordDAO();
+    }
+
+    /**
+     * @return The timeline DAO, or null when using a server: the server has no timeline endpoint, and the
+     * timeline must not fall back to opening the database the server stands in front of.
+     */
+    public static TimelineDAO createTimelineDAO() {
+        return remoteClient != null ? null : new TimelineDAO();
+    }
+
+    /**
+     * @return The shared asynchronous facade over the DAOs above. Shared so its concurrency
+     * limit applies to the whole application.
+     */
+    public static synchronized AsyncDao getAsyncDao() {
+        if (asyncDao == null) {
+            asyncDao = new AsyncDao();
+        }
+        return asyncDao;
+    }
+}
@@ -1,10 +1,17 @@
 package com.healthcare.dao;
 
+import com.healthcare.audit.AuditLog;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
 import com.healthcare.model.Doctor;
+import com.healthcare.util.DaoMetrics;
 import com.healthcare.util.DatabaseConnection;
+import com.healthcare.util.IntList;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class DoctorDAO {
@@ -12,39 +19,97 @@ public class DoctorDAO {
      * Adds a new doctor to the database.
      *
      * @param doctor The Doctor object to add.
-     * @return The generated doctor ID if successful, -1 otherwise.
+     * @return The generated doctor ID if successful, -1 otherwise (including when the email is already in use).
      */
     public int addDoctor(Doctor doctor) {
-        String SQL = "INSERT INTO Doctors (first_name, last_name, specialization, phone_number, email) VALUES (?, ?, ?, ?, ?)";
+        try {
+            return addDoctorOrThrow(doctor);
+        } catch (DuplicateValueException ex) {
+            System.err.println("Doctor not added: " + ex.getMessage());
+            return -1;
+        } catch (SQLException ex) {
+            System.err.println("Error adding doctor: " + ex.getMessage());
+            ex.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Like {@link #addDoctor(Doctor)}, but throws instead of returning -1.
+     *
+     * @throws DuplicateValueException if another doctor already has the email (checked with {@link ContactIndex}).
+     * @throws SQLException            if the database cannot be reached or the statement fails.
+     */
+    public int addDoctorOrThrow(Doctor doctor) throws SQLException {
+        String SQL = "INSERT INTO Doctors (doctor_id, first_name, last_name, specialization, phone_number, email) VALUES (?, ?, ?, ?, ?, ?)";
         int generatedId = -1;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(SQL, Statement.RETURN_GENERATED_KEYS)) {
+        int existingId = findDoctorIdByEmailOrThrow(doctor.getEmail());
+        if (existingId != -1) {
+            throw new DuplicateValueException("Email " + doctor.getEmail() + " is already used by doctor " + existingId,
+                    "email", existingId, null);
+        }
 
-            pstmt.setString(1, doctor.getFirstName());
-            pstmt.setString(2, doctor.getLastName());
-            pstmt.setString(3, doctor.getSpecialization());
-            pstmt.setString(4, doctor.getPhoneNumber());
-            pstmt.setString(5, doctor.getEmail());
+        int newId = IdAllocator.getInstance().nextId(IdAllocator.Sequence.DOCTOR); // -1: AUTO_INCREMENT chooses
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL, newId == -1 ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS)) {
+
+            IdAllocator.setId(pstmt, 1, newId);
+            pstmt.setString(2, doctor.getFirstName());
+            pstmt.setString(3, doctor.getLastName());
+            pstmt.setString(4, doctor.getSpecialization());
+            pstmt.setString(5, doctor.getPhoneNumber());
+            pstmt.setString(6, doctor.getEmail());
 
             int affectedRows = pstmt.executeUpdate();
 
             if (affectedRows > 0) {
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        generatedId = rs.getInt(1);
-                        doctor.setDoctorId(generatedId); // Set the ID back to the doctor object
-                        System.out.println("Doctor added with ID: " + generatedId);
-                    }
+                generatedId = IdAllocator.insertedId(pstmt, newId);
+                if (generatedId != -1) {
+                    doctor.setDoctorId(generatedId); // Set the ID back to the doctor object
+                    System.out.println("Doctor added with ID: " + generatedId);
+                    ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.DOCTOR, generatedId, doctor));
                 }
             }
         } catch (SQLException ex) {
-            System.err.println("Error adding doctor: " + ex.getMessage());
-            ex.printStackTrace();
+            IdAllocator.getInstance().onInsertFailed(IdAllocator.Sequence.DOCTOR, ex);
+            if (DuplicateValueException.isDuplicateKey(ex) && !IdAllocator.isIdCollision(ex)) {
+                throw new DuplicateValueException("Email " + doctor.getEmail() + " is already used by another doctor",
+                        "email", -1, ex);
+            }
+            throw ex;
+        } finally {
+            DaoMetrics.record("DoctorDAO.addDoctor", startNanos);
         }
         return generatedId;
     }
 
+    /**
+     * Finds the doctor who already has an email, usually without a database lookup (see {@link ContactIndex}).
+     *
+     * @param email The email, compared ignoring case.
+     * @return The doctor's ID, or -1 if nobody has it or on error.
+     */
+    public int findDoctorIdByEmail(String email) {
+        try {
+            return findDoctorIdByEmailOrThrow(email);
+        } catch (SQLException ex) {
+            System.err.println("Error checking doctor email: " + ex.getMessage());
+            ex.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Like {@link #findDoctorIdByEmail(String)}, but throws on failure; -1 still means nobody has it.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public int findDoctorIdByEmailOrThrow(String email) throws SQLException {
+        return ContactIndex.getInstance().findIdOrThrow(ContactIndex.Field.DOCTOR_EMAIL, email);
+    }
+
     /**
      * Retrieves a doctor by their ID.
      *
@@ -52,10 +117,26 @@ public class DoctorDAO {
      * @return The Doctor object if found, null otherwise.
      */
     public Doctor getDoctorById(int doctorId) {
+        try {
+            return getDoctorByIdOrThrow(doctorId);
+        } catch (SQLException ex) {
+            System.err.println("Error getting doctor by ID: " + ex.getMessage());
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #getDoctorById(int)}, but throws on failure; null still means not found.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public Doctor getDoctorByIdOrThrow(int doctorId) throws SQLException {
         String SQL = "SELECT * FROM Doctors WHERE doctor_id = ?";
         Doctor doctor = null;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, doctorId);
@@ -71,9 +152,11 @@ public class DoctorDAO {
                     System.out.println("Doctor retrieved: " + doctor.getFirstName() + " " + doctor.getLastName());
                 }
             }
-        } catch (SQLException ex) {
-            System.err.println("Error getting doctor by ID: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("DoctorDAO.getDoctorById", startNanos);
+        }
+        if (doctor != null) {
+            AuditLog.read(ChangeEvent.Entity.DOCTOR, doctorId);
         }
         return doctor;
     }
@@ -84,10 +167,26 @@ public class DoctorDAO {
      * @return A list of all Doctor objects.
      */
     public List<Doctor> getAllDoctors() {
+        try {
+            return getAllDoctorsOrThrow();
+        } catch (SQLException ex) {
+            System.err.println("Error getting all doctors: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getAllDoctors()}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Doctor> getAllDoctorsOrThrow() throws SQLException {
         List<Doctor> doctors = new ArrayList<>();
         String SQL = "SELECT * FROM Doctors";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(SQL)) {
 
@@ -102,13 +201,199 @@ public class DoctorDAO {
                 doctors.add(doctor);
             }
             System.out.println("Retrieved " + doctors.size() + " doctors.");
+        } finally {
+            DaoMetrics.record("DoctorDAO.getAllDoctors", startNanos);
+        }
+        AuditLog.list(ChangeEvent.Entity.DOCTOR, doctors.size());
+        return doctors;
+    }
+
+    /**
+     * Retrieves one page of doctors ordered by ID.
+     *
+     * @param afterId The last doctor ID of the previous page, or 0 for the first page.
+     * @param limit   The maximum number of doctors to return.
+     * @return The next page of doctors, empty when there are no more.
+     */
+    public List<Doctor> getDoctorsPage(int afterId, int limit) {
+        try {
+            return getDoctorsPageOrThrow(afterId, limit);
         } catch (SQLException ex) {
-            System.err.println("Error getting all doctors: " + ex.getMessage());
+            System.err.println("Error getting doctors page: " + ex.getMessage());
             ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getDoctorsPage(int, int)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Doctor> getDoctorsPageOrThrow(int afterId, int limit) throws SQLException {
+        List<Doctor> doctors = new ArrayList<>();
+        String SQL = "SELECT * FROM Doctors WHERE doctor_id > ? ORDER BY doctor_id LIMIT ?";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Doctor doctor = new Doctor();
+                    doctor.setDoctorId(rs.getInt("doctor_id"));
+                    doctor.setFirstName(rs.getString("first_name"));
+                    doctor.setLastName(rs.getString("last_name"));
+                    doctor.setSpecialization(rs.getString("specialization"));
+                    doctor.setPhoneNumber(rs.getString("phone_number"));
+                    doctor.setEmail(rs.getString("email"));
+                    doctors.add(doctor);
+                }
+            }
+        } finally {
+            DaoMetrics.record("DoctorDAO.getDoctorsPage", startNanos);
         }
+        AuditLog.read(ChangeEvent.Entity.DOCTOR, doctors, Doctor::getDoctorId);
         return doctors;
     }
 
+    /**
+     * Retrieves several doctors in one query, for callers that would otherwise call
+     * {@link #getDoctorById(int)} in a loop.
+     *
+     * @param doctorIds The IDs to look up.
+     * @return The doctors found, in no particular order. IDs that do not exist are skipped.
+     */
+    public List<Doctor> getDoctorsByIds(Collection<Integer> doctorIds) {
+        try {
+            return getDoctorsByIdsOrThrow(doctorIds);
+        } catch (SQLException ex) {
+            System.err.println("Error getting doctors by IDs: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getDoctorsByIds(Collection)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Doctor> getDoctorsByIdsOrThrow(Collection<Integer> doctorIds) throws SQLException {
+        List<Doctor> doctors = new ArrayList<>();
+        if (doctorIds.isEmpty()) {
+            return doctors;
+        }
+        String SQL = "SELECT * FROM Doctors WHERE doctor_id IN (" + PatientDAO.placeholders(doctorIds.size()) + ")";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            int index = 1;
+            for (Integer doctorId : doctorIds) {
+                pstmt.setInt(index++, doctorId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Doctor doctor = new Doctor();
+                    doctor.setDoctorId(rs.getInt("doctor_id"));
+                    doctor.setFirstName(rs.getString("first_name"));
+                    doctor.setLastName(rs.getString("last_name"));
+                    doctor.setSpecialization(rs.getString("specialization"));
+                    doctor.setPhoneNumber(rs.getString("phone_number"));
+                    doctor.setEmail(rs.getString("email"));
+                    doctors.add(doctor);
+                }
+            }
+        } finally {
+            DaoMetrics.record("DoctorDAO.getDoctorsByIds", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.DOCTOR, doctors, Doctor::getDoctorId);
+        return doctors;
+    }
+
+    /**
+     * Counts the doctors and finds the latest {@code updated_at}; see {@link PatientDAO#getPatientChangeMarkOrThrow()}.
+     *
+     * @throws SQLException if the database cannot be reached, or the updated_at column has not been added yet.
+     */
+    public ChangeMark getDoctorChangeMarkOrThrow() throws SQLException {
+        String SQL = "SELECT COUNT(*), MAX(updated_at) FROM Doctors";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL)) {
+
+            rs.next();
+            Timestamp latest = rs.getTimestamp(2);
+            return new ChangeMark(rs.getInt(1), latest != null ? latest.toLocalDateTime() : null);
+        } finally {
+            DaoMetrics.record("DoctorDAO.getDoctorChangeMark", startNanos);
+        }
+    }
+
+    /**
+     * Retrieves the doctors added or changed at or after the given time, by their {@code updated_at}.
+     *
+     * @param since The latest change the caller already has.
+     * @throws SQLException if the database cannot be reached, or the updated_at column has not been added yet.
+     */
+    public List<Doctor> getDoctorsChangedSinceOrThrow(LocalDateTime since) throws SQLException {
+        List<Doctor> doctors = new ArrayList<>();
+        String SQL = "SELECT * FROM Doctors WHERE updated_at >= ?";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setTimestamp(1, Timestamp.valueOf(since));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Doctor doctor = new Doctor();
+                    doctor.setDoctorId(rs.getInt("doctor_id"));
+                    doctor.setFirstName(rs.getString("first_name"));
+                    doctor.setLastName(rs.getString("last_name"));
+                    doctor.setSpecialization(rs.getString("specialization"));
+                    doctor.setPhoneNumber(rs.getString("phone_number"));
+                    doctor.setEmail(rs.getString("email"));
+                    doctors.add(doctor);
+                }
+            }
+        } finally {
+            DaoMetrics.record("DoctorDAO.getDoctorsChangedSince", startNanos);
+        }
+        AuditLog.list(ChangeEvent.Entity.DOCTOR, doctors.size());
+        return doctors;
+    }
+
+    /**
+     * Retrieves every doctor ID, so a client holding its own copy can drop doctors deleted since.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public IntList getDoctorIdsOrThrow() throws SQLException {
+        IntList ids = new IntList();
+        String SQL = "SELECT doctor_id FROM Doctors";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL)) {
+
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } finally {
+            DaoMetrics.record("DoctorDAO.getDoctorIds", startNanos);
+        }
+        AuditLog.list(ChangeEvent.Entity.DOCTOR, ids.size());
+        return ids;
+    }
+
     /**
      * Updates an existing doctor record in the database.
      *
@@ -116,10 +401,26 @@ public class DoctorDAO {
      * @return true if the update was successful, false otherwise.
      */
     public boolean updateDoctor(Doctor doctor) {
+        try {
+            return updateDoctorOrThrow(doctor);
+        } catch (SQLException ex) {
+            System.err.println("Error updating doctor: " + ex.getMessage());
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #updateDoctor(Doctor)}, but throws on failure; false still means no such row.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public boolean updateDoctorOrThrow(Doctor doctor) throws SQLException {
         String SQL = "UPDATE Doctors SET first_name = ?, last_name = ?, specialization = ?, " +
                 "phone_number = ?, email = ? WHERE doctor_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setString(1, doctor.getFirstName());
@@ -132,11 +433,11 @@ public class DoctorDAO {
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
                 System.out.println("Doctor with ID " + doctor.getDoctorId() + " updated successfully.");
+                ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.DOCTOR, doctor.getDoctorId(), doctor));
                 return true;
             }
-        } catch (SQLException ex) {
-            System.err.println("Error updating doctor: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("DoctorDAO.updateDoctor", startNanos);
         }
         return false;
     }
@@ -148,9 +449,25 @@ public class DoctorDAO {
      * @return true if the deletion was successful, false otherwise.
      */
     public boolean deleteDoctor(int doctorId) {
+        try {
+            return deleteDoctorOrThrow(doctorId);
+        } catch (SQLException ex) {
+            System.err.println("Error deleting doctor: " + ex.getMessage());
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #deleteDoctor(int)}, but throws on failure; false still means no such row.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public boolean deleteDoctorOrThrow(int doctorId) throws SQLException {
         String SQL = "DELETE FROM Doctors WHERE doctor_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, doctorId);
@@ -158,11 +475,11 @@ public class DoctorDAO {
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
                 System.out.println("Doctor with ID " + doctorId + " deleted successfully.");
+                ChangeEventBus.getInstance().publish(ChangeEvent.deleted(ChangeEvent.Entity.DOCTOR, doctorId));
                 return true;
             }
-        } catch (SQLException ex) {
-            System.err.println("Error deleting doctor: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("DoctorDAO.deleteDoctor", startNanos);
         }
         return false;
     }
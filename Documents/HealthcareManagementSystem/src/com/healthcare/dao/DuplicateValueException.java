@@ -0,0 +1,46 @@
+package com.healthcare.dao;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+/**
+ * An insert was refused because a unique value, such as a patient's email, is already in use. Thrown before the
+ * insert when {@link ContactIndex} finds the value, or in place of MySQL's duplicate key error (1062) otherwise.
+ */
+public class DuplicateValueException extends SQLIntegrityConstraintViolationException {
+
+    private static final String SQL_STATE = "23000"; // Integrity constraint violation
+    private static final int ER_DUP_ENTRY = 1062;
+
+    private final String field;
+    private final int existingId;
+
+    /**
+     * @param field      The column that must be unique, e.g. "email".
+     * @param existingId The ID of the row that already has the value, or -1 if not known.
+     */
+    public DuplicateValueException(String message, String field, int existingId, Throwable cause) {
+        super(message, SQL_STATE, ER_DUP_ENTRY, cause);
+        this.field = field;
+        this.existingId = existingId;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @return The ID of the patient or doctor that already has the value, or -1 if the database reported the
+     * duplicate without saying which row.
+     */
+    public int getExistingId() {
+        return existingId;
+    }
+
+    /**
+     * @return Whether ex is MySQL's duplicate key error.
+     */
+    static boolean isDuplicateKey(SQLException ex) {
+        return ex.getErrorCode() == ER_DUP_ENTRY;
+    }
+}
@@ -0,0 +1,278 @@
+package com.healthcare.dao;
+
+import com.healthcare.config.AppConfig;
+import com.healthcare.util.DaoMetrics;
+import com.healthcare.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out new row IDs from blocks reserved in the {@code Id_Sequences} table (hi/lo), so inserts know their ID
+ * before they run instead of reading AUTO_INCREMENT's back one row at a time.
+ * <p>
+ * One UPDATE reserves {@code db.idBlockSize} IDs for a table; they are then handed out from memory with an atomic
+ * counter, without a lock, until the block is used up. Because every row's ID is known up front, rows can be
+ * written as one multi-row INSERT (see {@link PatientDAO#addPatientsOrThrow}) and children can refer to parents
+ * written in the same batch. Blocks are reserved on a connection of their own and committed at once, so a rolled
+ * back transaction never hands its IDs to someone else; it only leaves a gap, as AUTO_INCREMENT does. The IDs
+ * left in a block when the app stops are skipped too.
+ * <p>
+ * A table's sequence starts after its highest existing ID. Every writer should then take IDs here: an older client
+ * still using AUTO_INCREMENT can take an ID inside someone's block, and that insert fails with a duplicate key.
+ * The DAO then moves the sequence past the existing rows ({@link #skipExisting}), so trying again succeeds.
+ * Without the table (a database not yet upgraded) {@link #nextId} returns -1 and AUTO_INCREMENT chooses as before.
+ */
+public final class IdAllocator {
+
+    /**
+     * A table whose IDs come from a sequence.
+     */
+    public enum Sequence {
+        PATIENT("Patients", "patient_id"),
+        DOCTOR("Doctors", "doctor_id"),
+        APPOINTMENT("Appointments", "appointment_id"),
+        MEDICAL_RECORD("Medical_History", "record_id");
+
+        final String table;
+        final String idColumn;
+
+        Sequence(String table, String idColumn) {
+            this.table = table;
+            this.idColumn = idColumn;
+        }
+    }
+
+    private static final int ER_NO_SUCH_TABLE = 1146;
+
+    private static final IdAllocator INSTANCE = new IdAllocator();
+
+    private final Map<Sequence, AtomicReference<Block>> blocks = new EnumMap<>(Sequence.class);
+    private final LongAdder idsHandedOut = new LongAdder();
+    private final LongAdder blocksReserved = new LongAdder();
+    private volatile boolean unavailable = false;
+
+    private IdAllocator() {
+        for (Sequence sequence : Sequence.values()) {
+            blocks.put(sequence, new AtomicReference<>());
+        }
+    }
+
+    public static IdAllocator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return A new ID for the table, or -1 if the database has no {@code Id_Sequences} table.
+     * @throws SQLException if a new block was needed and could not be reserved.
+     */
+    public int nextId(Sequence sequence) throws SQLException {
+        if (unavailable) {
+            return -1;
+        }
+        AtomicReference<Block> current = blocks.get(sequence);
+        while (true) {
+            Block block = current.get();
+            if (block != null) {
+                long id = block.next.getAndIncrement();
+                if (id < block.end) {
+                    idsHandedOut.increment();
+                    return (int) id;
+                }
+            }
+            synchronized (current) {
+                // Only the first thread to find the block used up reserves the next one
+                if (current.get() == block) {
+                    Block reserved = reserve(sequence);
+                    if (reserved == null) {
+                        return -1;
+                    }
+                    current.set(reserved);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return count new IDs for the table, or null if the database has no {@code Id_Sequences} table.
+     * @throws SQLException if a new block was needed and could not be reserved.
+     */
+    public int[] nextIds(Sequence sequence, int count) throws SQLException {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId(sequence);
+            if (ids[i] == -1) {
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Moves the sequence past the table's highest ID and drops the block in hand. Called after an insert
+     * collided with a row that was given its ID by AUTO_INCREMENT.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public void skipExisting(Sequence sequence) throws SQLException {
+        AtomicReference<Block> current = blocks.get(sequence);
+        synchronized (current) {
+            try (Connection conn = DatabaseConnection.requireUnboundConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(
+                         "UPDATE Id_Sequences SET next_id = GREATEST(next_id, ?) WHERE name = ?")) {
+                pstmt.setLong(1, highestId(conn, sequence) + 1);
+                pstmt.setString(2, sequence.table);
+                pstmt.executeUpdate();
+            }
+            current.set(null);
+        }
+        System.out.println("ID sequence for " + sequence.table + " moved past existing rows");
+    }
+
+    /**
+     * If an insert failed because its ID was already taken, moves the sequence past the existing rows so that
+     * trying again gets a free ID. A failure to do so is added to ex as suppressed.
+     */
+    void onInsertFailed(Sequence sequence, SQLException ex) {
+        if (!isIdCollision(ex)) {
+            return;
+        }
+        try {
+            skipExisting(sequence);
+        } catch (SQLException skipFailed) {
+            ex.addSuppressed(skipFailed);
+        }
+    }
+
+    private Block reserve(Sequence sequence) throws SQLException {
+        int blockSize = AppConfig.get().get(AppConfig.DB_ID_BLOCK_SIZE);
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireUnboundConnection()) {
+            long end = advance(conn, sequence, blockSize);
+            if (end == -1) {
+                start(conn, sequence);
+                end = advance(conn, sequence, blockSize);
+            }
+            if (end - 1 > Integer.MAX_VALUE) {
+                throw new SQLException("ID sequence for " + sequence.table + " is past the largest INT");
+            }
+            blocksReserved.increment();
+            return new Block(end - blockSize, end);
+        } catch (SQLException ex) {
+            if (ex.getErrorCode() != ER_NO_SUCH_TABLE) {
+                throw ex;
+            }
+            unavailable = true;
+            System.out.println("No Id_Sequences table; new rows take their IDs from AUTO_INCREMENT");
+            return null;
+        } finally {
+            DaoMetrics.record("IdAllocator.reserve", startNanos);
+        }
+    }
+
+    /**
+     * Adds count to the sequence in one atomic statement.
+     *
+     * @return The new value, one past the last ID reserved, or -1 if the sequence has no row yet.
+     */
+    private static long advance(Connection conn, Sequence sequence, int count) throws SQLException {
+        // LAST_INSERT_ID(expr) hands the updated value back to this connection without a second locking read
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE Id_Sequences SET next_id = LAST_INSERT_ID(next_id + ?) WHERE name = ?")) {
+            pstmt.setInt(1, count);
+            pstmt.setString(2, sequence.table);
+            if (pstmt.executeUpdate() == 0) {
+                return -1;
+            }
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID()")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // The first reservation for a table starts the sequence after its rows; a concurrent start is ignored
+    private static void start(Connection conn, Sequence sequence) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT IGNORE INTO Id_Sequences (name, next_id) VALUES (?, ?)")) {
+            pstmt.setString(1, sequence.table);
+            pstmt.setLong(2, highestId(conn, sequence) + 1);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // A plain read, so it never waits on rows that an open transaction is inserting
+    private static long highestId(Connection conn, Sequence sequence) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + sequence.idColumn + "), 0) FROM " + sequence.table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Binds a new row's ID; -1 binds NULL, which lets AUTO_INCREMENT choose.
+     */
+    static void setId(PreparedStatement pstmt, int index, int id) throws SQLException {
+        if (id == -1) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setInt(index, id);
+        }
+    }
+
+    /**
+     * @return The ID the row was inserted with: the one bound, or the one AUTO_INCREMENT chose if that was -1
+     * (the statement must then have been prepared with {@link Statement#RETURN_GENERATED_KEYS}).
+     */
+    static int insertedId(PreparedStatement pstmt, int id) throws SQLException {
+        if (id != -1) {
+            return id;
+        }
+        try (ResultSet rs = pstmt.getGeneratedKeys()) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    /**
+     * @return Whether ex is a duplicate primary key, i.e. an ID that AUTO_INCREMENT gave to another row.
+     */
+    static boolean isIdCollision(SQLException ex) {
+        return DuplicateValueException.isDuplicateKey(ex) && ex.getMessage() != null && ex.getMessage().contains("PRIMARY");
+    }
+
+    public boolean isAvailable() {
+        return !unavailable;
+    }
+
+    public long getIdsHandedOutCount() {
+        return idsHandedOut.sum();
+    }
+
+    /**
+     * @return How many blocks were reserved, i.e. round trips made for new IDs.
+     */
+    public long getBlocksReservedCount() {
+        return blocksReserved.sum();
+    }
+
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+        }
+    }
+}
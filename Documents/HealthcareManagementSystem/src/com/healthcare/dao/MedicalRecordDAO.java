@@ -1,14 +1,40 @@
 package com.healthcare.dao;
 
+import com.healthcare.audit.AuditLog;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
 import com.healthcare.model.MedicalRecord;
+import com.healthcare.search.MedicalRecordSearchIndex;
+import com.healthcare.search.SearchHit;
+import com.healthcare.util.DaoMetrics;
 import com.healthcare.util.DatabaseConnection;
+import com.healthcare.util.IntIntHashMap;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MedicalRecordDAO {
 
+    // How old the search index may get before a search first catches up with other workstations' writes
+    public static final long SEARCH_RESYNC_MS = 60_000;
+
+    private static final String INSERT_SQL = "INSERT INTO Medical_History (record_id, patient_id, doctor_id, diagnosis, " +
+            "treatment, notes) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // record_date is when the record was written and is never edited
+    private static final ConditionalUpdate<MedicalRecord> CONDITIONAL_UPDATE = new ConditionalUpdate<>(
+            "Medical_History", "record_id", MedicalRecord::getRecordId, MedicalRecord::getVersion,
+            MedicalRecord::setVersion, MedicalRecordDAO::copyOf, MedicalRecordDAO::readMedicalRecord,
+            ConditionalUpdate.field("patient_id", MedicalRecord::getPatientId, MedicalRecord::setPatientId),
+            ConditionalUpdate.field("doctor_id", MedicalRecord::getDoctorId, MedicalRecord::setDoctorId),
+            ConditionalUpdate.field("diagnosis", MedicalRecord::getDiagnosis, MedicalRecord::setDiagnosis),
+            ConditionalUpdate.field("treatment", MedicalRecord::getTreatment, MedicalRecord::setTreatment),
+            ConditionalUpdate.field("notes", MedicalRecord::getNotes, MedicalRecord::setNotes));
+
     /**
      * Adds a new medical record to the database.
      *
@@ -16,40 +42,113 @@ public class MedicalRecordDAO {
      * @return The generated record ID if successful, -1 otherwise.
      */
     public int addMedicalRecord(MedicalRecord record) {
-        String SQL = "INSERT INTO Medical_History (patient_id, doctor_id, diagnosis, treatment, notes) VALUES (?, ?, ?, ?, ?)";
+        try {
+            return addMedicalRecordOrThrow(record);
+        } catch (SQLException ex) {
+            System.err.println("Error adding medical record: " + ex.getMessage());
+            ex.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Like {@link #addMedicalRecord(MedicalRecord)}, but throws instead of returning -1.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public int addMedicalRecordOrThrow(MedicalRecord record) throws SQLException {
         int generatedId = -1;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(SQL, Statement.RETURN_GENERATED_KEYS)) {
+        int newId = IdAllocator.getInstance().nextId(IdAllocator.Sequence.MEDICAL_RECORD); // -1: AUTO_INCREMENT chooses
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, newId == -1 ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS)) {
 
-            pstmt.setInt(1, record.getPatientId());
-            if (record.getDoctorId() != null) {
-                pstmt.setInt(2, record.getDoctorId());
-            } else {
-                pstmt.setNull(2, Types.INTEGER); // Set to SQL NULL if doctorId is null
-            }
-            pstmt.setString(3, record.getDiagnosis());
-            pstmt.setString(4, record.getTreatment());
-            pstmt.setString(5, record.getNotes());
+            bindInsert(pstmt, newId, record);
 
             int affectedRows = pstmt.executeUpdate();
 
             if (affectedRows > 0) {
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        generatedId = rs.getInt(1);
-                        record.setRecordId(generatedId); // Set the ID back to the record object
-                        System.out.println("Medical record added with ID: " + generatedId);
-                    }
+                generatedId = IdAllocator.insertedId(pstmt, newId);
+                if (generatedId != -1) {
+                    inserted(record, generatedId);
+                    System.out.println("Medical record added with ID: " + generatedId);
                 }
             }
         } catch (SQLException ex) {
-            System.err.println("Error adding medical record: " + ex.getMessage());
-            ex.printStackTrace();
+            IdAllocator.getInstance().onInsertFailed(IdAllocator.Sequence.MEDICAL_RECORD, ex);
+            throw ex;
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.addMedicalRecord", startNanos);
         }
         return generatedId;
     }
 
+    /**
+     * Adds many medical records in one multi-row INSERT, e.g. for the patients just added with
+     * {@link PatientDAO#addPatientsOrThrow}. Without the {@code Id_Sequences} table they are added one at a time.
+     *
+     * @param records The records to add; each gets its ID set.
+     * @return How many records were added.
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public int addMedicalRecordsOrThrow(List<MedicalRecord> records) throws SQLException {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        int[] newIds = IdAllocator.getInstance().nextIds(IdAllocator.Sequence.MEDICAL_RECORD, records.size());
+        if (newIds == null) {
+            int added = 0;
+            for (MedicalRecord record : records) {
+                if (addMedicalRecordOrThrow(record) != -1) {
+                    added++;
+                }
+            }
+            return added;
+        }
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+
+            for (int i = 0; i < newIds.length; i++) {
+                bindInsert(pstmt, newIds[i], records.get(i));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch(); // Sent as multi-row INSERTs (rewriteBatchedStatements)
+
+            for (int i = 0; i < newIds.length; i++) {
+                inserted(records.get(i), newIds[i]);
+            }
+            System.out.println(newIds.length + " medical records added, IDs from " + newIds[0]);
+        } catch (SQLException ex) {
+            IdAllocator.getInstance().onInsertFailed(IdAllocator.Sequence.MEDICAL_RECORD, ex);
+            throw ex;
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.addMedicalRecords", startNanos);
+        }
+        return newIds.length;
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, int newId, MedicalRecord record) throws SQLException {
+        IdAllocator.setId(pstmt, 1, newId);
+        pstmt.setInt(2, record.getPatientId());
+        if (record.getDoctorId() != null) {
+            pstmt.setInt(3, record.getDoctorId());
+        } else {
+            pstmt.setNull(3, Types.INTEGER); // Set to SQL NULL if doctorId is null
+        }
+        pstmt.setString(4, record.getDiagnosis());
+        pstmt.setString(5, record.getTreatment());
+        pstmt.setString(6, record.getNotes());
+    }
+
+    private static void inserted(MedicalRecord record, int recordId) {
+        record.setRecordId(recordId); // Set the ID back to the record object
+        record.setVersion(1);
+        ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.MEDICAL_RECORD, recordId, record));
+    }
+
     /**
      * Retrieves a medical record by its ID.
      *
@@ -57,10 +156,26 @@ public class MedicalRecordDAO {
      * @return The MedicalRecord object if found, null otherwise.
      */
     public MedicalRecord getMedicalRecordById(int recordId) {
+        try {
+            return getMedicalRecordByIdOrThrow(recordId);
+        } catch (SQLException ex) {
+            System.err.println("Error getting medical record by ID: " + ex.getMessage());
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #getMedicalRecordById(int)}, but throws on failure; null still means not found.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public MedicalRecord getMedicalRecordByIdOrThrow(int recordId) throws SQLException {
         String SQL = "SELECT * FROM Medical_History WHERE record_id = ?";
         MedicalRecord record = null;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, recordId);
@@ -90,12 +205,15 @@ public class MedicalRecordDAO {
                     record.setDiagnosis(rs.getString("diagnosis"));
                     record.setTreatment(rs.getString("treatment"));
                     record.setNotes(rs.getString("notes"));
+                    record.setVersion(rs.getInt("version"));
                     System.out.println("Medical record retrieved: ID " + record.getRecordId());
                 }
             }
-        } catch (SQLException ex) {
-            System.err.println("Error getting medical record by ID: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.getMedicalRecordById", startNanos);
+        }
+        if (record != null) {
+            AuditLog.read(ChangeEvent.Entity.MEDICAL_RECORD, recordId);
         }
         return record;
     }
@@ -107,10 +225,26 @@ public class MedicalRecordDAO {
      * @return A list of MedicalRecord objects for the given patient.
      */
     public List<MedicalRecord> getMedicalRecordsByPatientId(int patientId) {
+        try {
+            return getMedicalRecordsByPatientIdOrThrow(patientId);
+        } catch (SQLException ex) {
+            System.err.println("Error getting medical records by patient ID: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getMedicalRecordsByPatientId(int)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<MedicalRecord> getMedicalRecordsByPatientIdOrThrow(int patientId) throws SQLException {
         List<MedicalRecord> records = new ArrayList<>();
         String SQL = "SELECT * FROM Medical_History WHERE patient_id = ? ORDER BY record_date DESC";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, patientId);
@@ -137,17 +271,218 @@ public class MedicalRecordDAO {
                     record.setDiagnosis(rs.getString("diagnosis"));
                     record.setTreatment(rs.getString("treatment"));
                     record.setNotes(rs.getString("notes"));
+                    record.setVersion(rs.getInt("version"));
                     records.add(record);
                 }
                 System.out.println("Retrieved " + records.size() + " medical records for patient ID " + patientId);
             }
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.getMedicalRecordsByPatientId", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.MEDICAL_RECORD, records, MedicalRecord::getRecordId);
+        return records;
+    }
+
+    /**
+     * Retrieves one page of medical records (for all patients) ordered by ID.
+     *
+     * @param afterId The last record ID of the previous page, or 0 for the first page.
+     * @param limit   The maximum number of records to return.
+     * @return The next page of records, empty when there are no more.
+     */
+    public List<MedicalRecord> getMedicalRecordsPage(int afterId, int limit) {
+        try {
+            return getMedicalRecordsPageOrThrow(afterId, limit);
         } catch (SQLException ex) {
-            System.err.println("Error getting medical records by patient ID: " + ex.getMessage());
+            System.err.println("Error getting medical records page: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getMedicalRecordsPage(int, int)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<MedicalRecord> getMedicalRecordsPageOrThrow(int afterId, int limit) throws SQLException {
+        List<MedicalRecord> records = new ArrayList<>();
+        String SQL = "SELECT * FROM Medical_History WHERE record_id > ? ORDER BY record_id LIMIT ?";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    MedicalRecord record = new MedicalRecord();
+                    record.setRecordId(rs.getInt("record_id"));
+                    record.setPatientId(rs.getInt("patient_id"));
+
+                    int doctorId = rs.getInt("doctor_id");
+                    record.setDoctorId(rs.wasNull() ? null : doctorId);
+
+                    Timestamp recordTimestamp = rs.getTimestamp("record_date");
+                    record.setRecordDate(recordTimestamp != null ? recordTimestamp.toLocalDateTime() : null);
+
+                    record.setDiagnosis(rs.getString("diagnosis"));
+                    record.setTreatment(rs.getString("treatment"));
+                    record.setNotes(rs.getString("notes"));
+                    record.setVersion(rs.getInt("version"));
+                    records.add(record);
+                }
+            }
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.getMedicalRecordsPage", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.MEDICAL_RECORD, records, MedicalRecord::getRecordId);
+        return records;
+    }
+
+    /**
+     * Retrieves several medical records in one query.
+     *
+     * @param recordIds The IDs to look up.
+     * @return The records found, in no particular order. IDs that do not exist are skipped.
+     */
+    public List<MedicalRecord> getMedicalRecordsByIds(Collection<Integer> recordIds) {
+        try {
+            return getMedicalRecordsByIdsOrThrow(recordIds);
+        } catch (SQLException ex) {
+            System.err.println("Error getting medical records by IDs: " + ex.getMessage());
             ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getMedicalRecordsByIds(Collection)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<MedicalRecord> getMedicalRecordsByIdsOrThrow(Collection<Integer> recordIds) throws SQLException {
+        List<MedicalRecord> records = new ArrayList<>();
+        if (recordIds.isEmpty()) {
+            return records;
         }
+        String SQL = "SELECT * FROM Medical_History WHERE record_id IN (" + PatientDAO.placeholders(recordIds.size()) + ")";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            int index = 1;
+            for (Integer recordId : recordIds) {
+                pstmt.setInt(index++, recordId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    MedicalRecord record = new MedicalRecord();
+                    record.setRecordId(rs.getInt("record_id"));
+                    record.setPatientId(rs.getInt("patient_id"));
+
+                    int doctorId = rs.getInt("doctor_id");
+                    record.setDoctorId(rs.wasNull() ? null : doctorId);
+
+                    Timestamp recordTimestamp = rs.getTimestamp("record_date");
+                    record.setRecordDate(recordTimestamp != null ? recordTimestamp.toLocalDateTime() : null);
+
+                    record.setDiagnosis(rs.getString("diagnosis"));
+                    record.setTreatment(rs.getString("treatment"));
+                    record.setNotes(rs.getString("notes"));
+                    record.setVersion(rs.getInt("version"));
+                    records.add(record);
+                }
+            }
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.getMedicalRecordsByIds", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.MEDICAL_RECORD, records, MedicalRecord::getRecordId);
         return records;
     }
 
+    /**
+     * Retrieves the version of every medical record, so the search index can tell which records changed
+     * since it was saved without reading their text.
+     *
+     * @return Record ID to version.
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public IntIntHashMap getMedicalRecordVersionsOrThrow() throws SQLException {
+        IntIntHashMap versions = new IntIntHashMap(1_024, 0);
+        String SQL = "SELECT record_id, version FROM Medical_History";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL)) {
+
+            while (rs.next()) {
+                versions.put(rs.getInt(1), rs.getInt(2));
+            }
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.getMedicalRecordVersions", startNanos);
+        }
+        return versions;
+    }
+
+    /**
+     * Finds medical records whose diagnosis, treatment or notes contain every word of the query, best matches first.
+     * Words in double quotes must appear together in that order, e.g. {@code "shortness of breath" inhaler}.
+     *
+     * @param query     The words to look for.
+     * @param patientId Only this patient's records, or null for all patients.
+     * @param doctorId  Only this doctor's records, or null for all doctors.
+     * @param limit     The maximum number of records to return.
+     * @return The matching records ranked by relevance, empty if there are none.
+     */
+    public List<MedicalRecord> searchMedicalRecords(String query, Integer patientId, Integer doctorId, int limit) {
+        try {
+            return searchMedicalRecordsOrThrow(query, patientId, doctorId, limit);
+        } catch (SQLException ex) {
+            System.err.println("Error searching medical records: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #searchMedicalRecords(String, Integer, Integer, int)}, but throws instead of returning an empty list.
+     * Records written by other workstations are picked up once the index is older than {@link #SEARCH_RESYNC_MS}.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<MedicalRecord> searchMedicalRecordsOrThrow(String query, Integer patientId, Integer doctorId, int limit)
+            throws SQLException {
+        MedicalRecordSearchIndex index = MedicalRecordSearchIndex.getInstance();
+        long startNanos = DaoMetrics.start();
+        try {
+            index.syncIfStaleOrThrow(SEARCH_RESYNC_MS);
+            List<SearchHit> hits = index.search(query, patientId, doctorId, limit);
+            List<Integer> ids = new ArrayList<>(hits.size());
+            for (SearchHit hit : hits) {
+                ids.add(hit.getRecordId());
+            }
+            Map<Integer, MedicalRecord> byId = new HashMap<>();
+            for (MedicalRecord record : getMedicalRecordsByIdsOrThrow(ids)) {
+                byId.put(record.getRecordId(), record);
+            }
+            // In rank order; a record deleted by another workstation since the last sync is left out
+            List<MedicalRecord> records = new ArrayList<>(hits.size());
+            for (Integer id : ids) {
+                MedicalRecord record = byId.get(id);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+            return records;
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.searchMedicalRecords", startNanos);
+        }
+    }
+
     /**
      * Updates an existing medical record in the database.
      *
@@ -155,10 +490,26 @@ public class MedicalRecordDAO {
      * @return true if the update was successful, false otherwise.
      */
     public boolean updateMedicalRecord(MedicalRecord record) {
+        try {
+            return updateMedicalRecordOrThrow(record);
+        } catch (SQLException ex) {
+            System.err.println("Error updating medical record: " + ex.getMessage());
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #updateMedicalRecord(MedicalRecord)}, but throws on failure; false still means no such row.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public boolean updateMedicalRecordOrThrow(MedicalRecord record) throws SQLException {
         String SQL = "UPDATE Medical_History SET patient_id = ?, doctor_id = ?, diagnosis = ?, " +
-                "treatment = ?, notes = ? WHERE record_id = ?";
+                "treatment = ?, notes = ?, version = version + 1 WHERE record_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, record.getPatientId());
@@ -175,13 +526,119 @@ public class MedicalRecordDAO {
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
                 System.out.println("Medical record with ID " + record.getRecordId() + " updated successfully.");
+                ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.MEDICAL_RECORD, record.getRecordId(), record));
                 return true;
             }
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.updateMedicalRecord", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Saves the fields the user changed, unless someone else updated the record since it was loaded.
+     *
+     * @param original The record as loaded, with its version.
+     * @param edited   The same record with the user's changes.
+     * @return The outcome; on a conflict it holds the record as now stored (see {@link #mergeEdits}).
+     */
+    public UpdateResult<MedicalRecord> updateMedicalRecord(MedicalRecord original, MedicalRecord edited) {
+        try {
+            return updateMedicalRecordOrThrow(original, edited);
         } catch (SQLException ex) {
             System.err.println("Error updating medical record: " + ex.getMessage());
             ex.printStackTrace();
+            return UpdateResult.failed();
+        }
+    }
+
+    /**
+     * Like {@link #updateMedicalRecord(MedicalRecord, MedicalRecord)}, but throws instead of returning a failed result.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public UpdateResult<MedicalRecord> updateMedicalRecordOrThrow(MedicalRecord original, MedicalRecord edited) throws SQLException {
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            return updateMedicalRecord(conn, original, edited);
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.updateMedicalRecordIfUnchanged", startNanos);
+        }
+    }
+
+    /**
+     * Like {@link #updateMedicalRecordOrThrow(MedicalRecord, MedicalRecord)} for callers that only know the version the user loaded,
+     * such as the server handling a client's update: the record is read again here to find what changed.
+     *
+     * @param edited          The record with the user's changes, and its ID set.
+     * @param expectedVersion The version the user's copy had.
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public UpdateResult<MedicalRecord> updateMedicalRecordAtVersionOrThrow(MedicalRecord edited, int expectedVersion) throws SQLException {
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            MedicalRecord current = readMedicalRecord(conn, edited.getRecordId());
+            if (current == null) {
+                return UpdateResult.notFound();
+            }
+            if (current.getVersion() != expectedVersion) {
+                return UpdateResult.conflict(current);
+            }
+            return updateMedicalRecord(conn, current, edited);
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.updateMedicalRecordAtVersion", startNanos);
+        }
+    }
+
+    private UpdateResult<MedicalRecord> updateMedicalRecord(Connection conn, MedicalRecord original, MedicalRecord edited) throws SQLException {
+        UpdateResult<MedicalRecord> result = CONDITIONAL_UPDATE.execute(conn, original, edited);
+        if (result.isUpdated() && result.getRow() != original) {
+            MedicalRecord saved = result.getRow();
+            System.out.println("Medical record with ID " + saved.getRecordId() + " updated to version " + saved.getVersion() + ".");
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.MEDICAL_RECORD, saved.getRecordId(), saved));
+        }
+        return result;
+    }
+
+    /**
+     * After a conflict, re-applies the user's changes on top of the record as someone else saved it.
+     *
+     * @return A new MedicalRecord with current's version, to show the user and save again.
+     */
+    public static MedicalRecord mergeEdits(MedicalRecord original, MedicalRecord edited, MedicalRecord current) {
+        return CONDITIONAL_UPDATE.merge(original, edited, current);
+    }
+
+    private static MedicalRecord copyOf(MedicalRecord record) {
+        MedicalRecord copy = new MedicalRecord(record.getRecordId(), record.getPatientId(), record.getDoctorId(),
+                record.getRecordDate(), record.getDiagnosis(), record.getTreatment(), record.getNotes());
+        copy.setVersion(record.getVersion());
+        return copy;
+    }
+
+    private static MedicalRecord readMedicalRecord(Connection conn, int recordId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM Medical_History WHERE record_id = ?")) {
+            pstmt.setInt(1, recordId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                MedicalRecord record = new MedicalRecord();
+                record.setRecordId(rs.getInt("record_id"));
+                record.setPatientId(rs.getInt("patient_id"));
+                int doctorId = rs.getInt("doctor_id");
+                record.setDoctorId(rs.wasNull() ? null : doctorId);
+                Timestamp recordTimestamp = rs.getTimestamp("record_date");
+                if (recordTimestamp != null) {
+                    record.setRecordDate(recordTimestamp.toLocalDateTime());
+                }
+                record.setDiagnosis(rs.getString("diagnosis"));
+                record.setTreatment(rs.getString("treatment"));
+                record.setNotes(rs.getString("notes"));
+                record.setVersion(rs.getInt("version"));
+                return record;
+            }
         }
-        return false;
     }
 
     /**
@@ -191,9 +648,25 @@ public class MedicalRecordDAO {
      * @return true if the deletion was successful, false otherwise.
      */
     public boolean deleteMedicalRecord(int recordId) {
+        try {
+            return deleteMedicalRecordOrThrow(recordId);
+        } catch (SQLException ex) {
+            System.err.println("Error deleting medical record: " + ex.getMessage());
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #deleteMedicalRecord(int)}, but throws on failure; false still means no such row.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public boolean deleteMedicalRecordOrThrow(int recordId) throws SQLException {
         String SQL = "DELETE FROM Medical_History WHERE record_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, recordId);
@@ -201,11 +674,11 @@ public class MedicalRecordDAO {
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
                 System.out.println("Medical record with ID " + recordId + " deleted successfully.");
+                ChangeEventBus.getInstance().publish(ChangeEvent.deleted(ChangeEvent.Entity.MEDICAL_RECORD, recordId));
                 return true;
             }
-        } catch (SQLException ex) {
-            System.err.println("Error deleting medical record: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("MedicalRecordDAO.deleteMedicalRecord", startNanos);
         }
         return false;
     }
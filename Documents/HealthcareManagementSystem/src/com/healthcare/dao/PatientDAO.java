@@ -1,59 +1,247 @@
 package com.healthcare.dao;
 
+import com.healthcare.audit.AuditLog;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
 import com.healthcare.model.Patient;
+import com.healthcare.stats.AggregateStore;
+import com.healthcare.stats.CohortSnapshot;
+import com.healthcare.stats.FilterIndex;
+import com.healthcare.store.CohortQuery;
+import com.healthcare.util.DaoMetrics;
 import com.healthcare.util.DatabaseConnection;
+import com.healthcare.util.IntList;
+import com.healthcare.util.TransactionScope;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 
 public class PatientDAO {
 
+    private static final String INSERT_SQL = "INSERT INTO Patients (patient_id, first_name, last_name, date_of_birth, gender, " +
+            "address, city, state, zip_code, phone_number, email) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final ConditionalUpdate<Patient> CONDITIONAL_UPDATE = new ConditionalUpdate<>(
+            "Patients", "patient_id", Patient::getPatientId, Patient::getVersion, Patient::setVersion,
+            PatientDAO::copyOf, PatientDAO::readPatient,
+            ConditionalUpdate.field("first_name", Patient::getFirstName, Patient::setFirstName),
+            ConditionalUpdate.field("last_name", Patient::getLastName, Patient::setLastName),
+            ConditionalUpdate.field("date_of_birth", Patient::getDateOfBirth, Patient::setDateOfBirth),
+            ConditionalUpdate.field("gender", Patient::getGender, Patient::setGender),
+            ConditionalUpdate.field("address", Patient::getAddress, Patient::setAddress),
+            ConditionalUpdate.field("city", Patient::getCity, Patient::setCity),
+            ConditionalUpdate.field("state", Patient::getState, Patient::setState),
+            ConditionalUpdate.field("zip_code", Patient::getZipCode, Patient::setZipCode),
+            ConditionalUpdate.field("phone_number", Patient::getPhoneNumber, Patient::setPhoneNumber),
+            ConditionalUpdate.field("email", Patient::getEmail, Patient::setEmail));
+
     /**
      * Adds a new patient to the database.
      *
      * @param patient The Patient object to add.
-     * @return The generated patient ID if successful, -1 otherwise.
+     * @return The generated patient ID if successful, -1 otherwise (including when the email is already in use).
      */
     public int addPatient(Patient patient) {
-        String SQL = "INSERT INTO Patients (first_name, last_name, date_of_birth, gender, " +
-                "address, city, state, zip_code, phone_number, email) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try {
+            return addPatientOrThrow(patient);
+        } catch (DuplicateValueException ex) {
+            System.err.println("Patient not added: " + ex.getMessage()); // Expected in imports; no stack trace
+            return -1;
+        } catch (SQLException ex) {
+            System.err.println("Error adding patient: " + ex.getMessage());
+            ex.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Like {@link #addPatient(Patient)}, but throws instead of returning -1.
+     * <p>
+     * The email is checked with {@link ContactIndex} first, so a duplicate is usually refused without trying
+     * the insert, and a value seen for the first time costs no lookup.
+     *
+     * @throws DuplicateValueException if another patient already has the email.
+     * @throws SQLException            if the database cannot be reached or the statement fails.
+     */
+    public int addPatientOrThrow(Patient patient) throws SQLException {
         int generatedId = -1;
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(SQL, Statement.RETURN_GENERATED_KEYS)) {
+        checkEmailUnused(patient);
 
-            pstmt.setString(1, patient.getFirstName());
-            pstmt.setString(2, patient.getLastName());
-            pstmt.setDate(3, Date.valueOf(patient.getDateOfBirth())); // Convert LocalDate to java.sql.Date
-            pstmt.setString(4, patient.getGender());
-            pstmt.setString(5, patient.getAddress());
-            pstmt.setString(6, patient.getCity());
-            pstmt.setString(7, patient.getState());
-            pstmt.setString(8, patient.getZipCode());
-            pstmt.setString(9, patient.getPhoneNumber());
-            pstmt.setString(10, patient.getEmail());
+        int newId = IdAllocator.getInstance().nextId(IdAllocator.Sequence.PATIENT); // -1: AUTO_INCREMENT chooses
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL, newId == -1 ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS)) {
+
+            bindInsert(pstmt, newId, patient);
 
             int affectedRows = pstmt.executeUpdate();
 
             if (affectedRows > 0) {
-                try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        generatedId = rs.getInt(1);
-                        patient.setPatientId(generatedId); // Set the ID back to the patient object
-                        System.out.println("Patient added with ID: " + generatedId);
-                    }
+                generatedId = IdAllocator.insertedId(pstmt, newId);
+                if (generatedId != -1) {
+                    inserted(patient, generatedId);
+                    System.out.println("Patient added with ID: " + generatedId);
                 }
             }
         } catch (SQLException ex) {
-            System.err.println("Error adding patient: " + ex.getMessage());
-            ex.printStackTrace();
+            throw insertFailed(ex, "Email " + patient.getEmail() + " is already used by another patient");
+        } finally {
+            DaoMetrics.record("PatientDAO.addPatient", startNanos);
         }
         return generatedId;
     }
 
+    /**
+     * Adds many patients in one multi-row INSERT, for imports. Every patient's ID is taken from
+     * {@link IdAllocator} before the statement runs, so their appointments and medical records can be batched
+     * straight after with {@link AppointmentDAO#addAppointmentsOrThrow} and
+     * {@link MedicalRecordDAO#addMedicalRecordsOrThrow}. Run the batches in a {@link TransactionScope} to add all
+     * or nothing. Without the {@code Id_Sequences} table the patients are added one at a time.
+     *
+     * @param patients The patients to add; each gets its ID set.
+     * @return How many patients were added.
+     * @throws DuplicateValueException if a patient's email is already in use; the batch is not written.
+     * @throws SQLException            if the database cannot be reached or the statement fails.
+     */
+    public int addPatientsOrThrow(List<Patient> patients) throws SQLException {
+        if (patients.isEmpty()) {
+            return 0;
+        }
+        int[] newIds = IdAllocator.getInstance().nextIds(IdAllocator.Sequence.PATIENT, patients.size());
+        if (newIds == null) {
+            int added = 0;
+            for (Patient patient : patients) {
+                if (addPatientOrThrow(patient) != -1) {
+                    added++;
+                }
+            }
+            return added;
+        }
+        for (Patient patient : patients) {
+            checkEmailUnused(patient);
+        }
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+
+            for (int i = 0; i < newIds.length; i++) {
+                bindInsert(pstmt, newIds[i], patients.get(i));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch(); // Sent as multi-row INSERTs (rewriteBatchedStatements)
+
+            for (int i = 0; i < newIds.length; i++) {
+                inserted(patients.get(i), newIds[i]);
+            }
+            System.out.println(newIds.length + " patients added, IDs from " + newIds[0]);
+        } catch (SQLException ex) {
+            throw insertFailed(ex, "An email in the batch is already used by another patient");
+        } finally {
+            DaoMetrics.record("PatientDAO.addPatients", startNanos);
+        }
+        return newIds.length;
+    }
+
+    private void checkEmailUnused(Patient patient) throws SQLException {
+        int existingId = findPatientIdByEmailOrThrow(patient.getEmail());
+        if (existingId != -1) {
+            throw new DuplicateValueException("Email " + patient.getEmail() + " is already used by patient " + existingId,
+                    "email", existingId, null);
+        }
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, int newId, Patient patient) throws SQLException {
+        IdAllocator.setId(pstmt, 1, newId);
+        pstmt.setString(2, patient.getFirstName());
+        pstmt.setString(3, patient.getLastName());
+        pstmt.setDate(4, Date.valueOf(patient.getDateOfBirth())); // Convert LocalDate to java.sql.Date
+        pstmt.setString(5, patient.getGender());
+        pstmt.setString(6, patient.getAddress());
+        pstmt.setString(7, patient.getCity());
+        pstmt.setString(8, patient.getState());
+        pstmt.setString(9, patient.getZipCode());
+        pstmt.setString(10, patient.getPhoneNumber());
+        pstmt.setString(11, patient.getEmail());
+    }
+
+    private static void inserted(Patient patient, int patientId) {
+        patient.setPatientId(patientId); // Set the ID back to the patient object
+        patient.setVersion(1);
+        // registration_date defaults to CURRENT_TIMESTAMP, so "now" matches the stored day; listeners such as the
+        // cohort snapshot need it in the payload
+        LocalDateTime registered = LocalDateTime.now();
+        patient.setRegistrationDate(registered);
+        ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.PATIENT, patientId, patient));
+        TransactionScope.afterCommit(() -> AggregateStore.getInstance().patientRegistered(registered));
+    }
+
+    private static SQLException insertFailed(SQLException ex, String duplicateMessage) {
+        IdAllocator.getInstance().onInsertFailed(IdAllocator.Sequence.PATIENT, ex);
+        if (DuplicateValueException.isDuplicateKey(ex) && !IdAllocator.isIdCollision(ex)) {
+            // Added elsewhere since the contact index was loaded; the UNIQUE index caught it
+            return new DuplicateValueException(duplicateMessage, "email", -1, ex);
+        }
+        return ex;
+    }
+
+    /**
+     * Finds the patient who already has an email, usually without a database lookup (see {@link ContactIndex}).
+     *
+     * @param email The email, compared ignoring case.
+     * @return The patient's ID, or -1 if nobody has it or on error.
+     */
+    public int findPatientIdByEmail(String email) {
+        try {
+            return findPatientIdByEmailOrThrow(email);
+        } catch (SQLException ex) {
+            System.err.println("Error checking patient email: " + ex.getMessage());
+            ex.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Like {@link #findPatientIdByEmail(String)}, but throws on failure; -1 still means nobody has it.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public int findPatientIdByEmailOrThrow(String email) throws SQLException {
+        return ContactIndex.getInstance().findIdOrThrow(ContactIndex.Field.PATIENT_EMAIL, email);
+    }
+
+    /**
+     * Finds a patient who already has a phone number, to flag a likely duplicate registration. Phone numbers need
+     * not be unique (family members may share one), so this only informs; it never blocks an insert.
+     *
+     * @param phoneNumber The number as typed; only its digits are compared.
+     * @return A patient's ID, or -1 if nobody has it or on error.
+     */
+    public int findPatientIdByPhone(String phoneNumber) {
+        try {
+            return findPatientIdByPhoneOrThrow(phoneNumber);
+        } catch (SQLException ex) {
+            System.err.println("Error checking patient phone number: " + ex.getMessage());
+            ex.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Like {@link #findPatientIdByPhone(String)}, but throws on failure; -1 still means nobody has it.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public int findPatientIdByPhoneOrThrow(String phoneNumber) throws SQLException {
+        return ContactIndex.getInstance().findIdOrThrow(ContactIndex.Field.PATIENT_PHONE, phoneNumber);
+    }
+
     /**
      * Retrieves a patient by their ID.
      *
@@ -61,40 +249,40 @@ public class PatientDAO {
      * @return The Patient object if found, null otherwise.
      */
     public Patient getPatientById(int patientId) {
+        try {
+            return getPatientByIdOrThrow(patientId);
+        } catch (SQLException ex) {
+            System.err.println("Error getting patient by ID: " + ex.getMessage());
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #getPatientById(int)}, but throws on failure; null still means not found.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public Patient getPatientByIdOrThrow(int patientId) throws SQLException {
         String SQL = "SELECT * FROM Patients WHERE patient_id = ?";
         Patient patient = null;
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, patientId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    patient = new Patient();
-                    patient.setPatientId(rs.getInt("patient_id"));
-                    patient.setFirstName(rs.getString("first_name"));
-                    patient.setLastName(rs.getString("last_name"));
-                    patient.setDateOfBirth(rs.getDate("date_of_birth").toLocalDate()); // Convert java.sql.Date to LocalDate
-                    patient.setGender(rs.getString("gender"));
-                    patient.setAddress(rs.getString("address"));
-                    patient.setCity(rs.getString("city"));
-                    patient.setState(rs.getString("state"));
-                    patient.setZipCode(rs.getString("zip_code"));
-                    patient.setPhoneNumber(rs.getString("phone_number"));
-                    patient.setEmail(rs.getString("email"));
-
-                    // Handle potential null for registration_date if it's not set
-                    Timestamp regTimestamp = rs.getTimestamp("registration_date");
-                    if (regTimestamp != null) {
-                        patient.setRegistrationDate(regTimestamp.toLocalDateTime()); // Convert Timestamp to LocalDateTime
-                    }
-
+                    patient = mapPatient(rs);
                     System.out.println("Patient retrieved: " + patient.getFirstName() + " " + patient.getLastName());
                 }
             }
-        } catch (SQLException ex) {
-            System.err.println("Error getting patient by ID: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("PatientDAO.getPatientById", startNanos);
+        }
+        if (patient != null) {
+            AuditLog.read(ChangeEvent.Entity.PATIENT, patientId);
         }
         return patient;
     }
@@ -105,42 +293,431 @@ public class PatientDAO {
      * @return A list of all Patient objects.
      */
     public List<Patient> getAllPatients() {
+        try {
+            return getAllPatientsOrThrow();
+        } catch (SQLException ex) {
+            System.err.println("Error getting all patients: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getAllPatients()}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Patient> getAllPatientsOrThrow() throws SQLException {
         List<Patient> patients = new ArrayList<>();
         String SQL = "SELECT * FROM Patients";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(SQL)) {
 
             while (rs.next()) {
-                Patient patient = new Patient();
-                patient.setPatientId(rs.getInt("patient_id"));
-                patient.setFirstName(rs.getString("first_name"));
-                patient.setLastName(rs.getString("last_name"));
-                patient.setDateOfBirth(rs.getDate("date_of_birth").toLocalDate());
-                patient.setGender(rs.getString("gender"));
-                patient.setAddress(rs.getString("address"));
-                patient.setCity(rs.getString("city"));
-                patient.setState(rs.getString("state"));
-                patient.setZipCode(rs.getString("zip_code"));
-                patient.setPhoneNumber(rs.getString("phone_number"));
-                patient.setEmail(rs.getString("email"));
-
-                Timestamp regTimestamp = rs.getTimestamp("registration_date");
-                if (regTimestamp != null) {
-                    patient.setRegistrationDate(regTimestamp.toLocalDateTime());
+                patients.add(mapPatient(rs));
+            }
+            System.out.println("Retrieved " + patients.size() + " patients.");
+        } finally {
+            DaoMetrics.record("PatientDAO.getAllPatients", startNanos);
+        }
+        AuditLog.list(ChangeEvent.Entity.PATIENT, patients.size());
+        return patients;
+    }
+
+    /**
+     * Retrieves one page of patients ordered by ID, for clients that cannot hold the whole table.
+     *
+     * @param afterId The last patient ID of the previous page, or 0 for the first page.
+     * @param limit   The maximum number of patients to return.
+     * @return The next page of patients, empty when there are no more.
+     */
+    public List<Patient> getPatientsPage(int afterId, int limit) {
+        try {
+            return getPatientsPageOrThrow(afterId, limit);
+        } catch (SQLException ex) {
+            System.err.println("Error getting patients page: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getPatientsPage(int, int)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Patient> getPatientsPageOrThrow(int afterId, int limit) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        String SQL = "SELECT * FROM Patients WHERE patient_id > ? ORDER BY patient_id LIMIT ?";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(mapPatient(rs));
                 }
+            }
+        } finally {
+            DaoMetrics.record("PatientDAO.getPatientsPage", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.PATIENT, patients, Patient::getPatientId);
+        return patients;
+    }
 
-                patients.add(patient);
+    /**
+     * Finds one page of patients matching every given filter; a null filter matches everything.
+     * <p>
+     * Once the {@link FilterIndex} is loaded the matching IDs come from its bitmaps and only that page of rows is
+     * read; before that the filters run as SQL.
+     *
+     * @param afterId The last patient ID of the previous page, or 0 for the first page.
+     * @param limit   The maximum number of patients to return.
+     * @return The matching patients in ID order, or an empty list on database error.
+     */
+    public List<Patient> findPatients(String gender, String city, String state, int afterId, int limit) {
+        try {
+            return findPatientsOrThrow(gender, city, state, afterId, limit);
+        } catch (SQLException ex) {
+            System.err.println("Error finding patients: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #findPatients}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Patient> findPatientsOrThrow(String gender, String city, String state, int afterId, int limit)
+            throws SQLException {
+        int[] ids = FilterIndex.getInstance().findPatientIds(gender, city, state, afterId, limit);
+        if (ids != null) {
+            List<Integer> patientIds = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                patientIds.add(id);
             }
-            System.out.println("Retrieved " + patients.size() + " patients.");
+            List<Patient> patients = getPatientsByIdsOrThrow(patientIds);
+            patients.sort(Comparator.comparingInt(Patient::getPatientId));
+            return patients;
+        }
+
+        StringBuilder SQL = new StringBuilder("SELECT * FROM Patients WHERE patient_id > ?");
+        List<String> values = new ArrayList<>();
+        if (gender != null) {
+            SQL.append(" AND gender = ?");
+            values.add(gender.trim());
+        }
+        if (city != null) {
+            SQL.append(" AND city = ?");
+            values.add(city.trim());
+        }
+        if (state != null) {
+            SQL.append(" AND state = ?");
+            values.add(state.trim());
+        }
+        SQL.append(" ORDER BY patient_id LIMIT ?");
+
+        List<Patient> patients = new ArrayList<>();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL.toString())) {
+
+            pstmt.setInt(1, afterId);
+            for (int i = 0; i < values.size(); i++) {
+                pstmt.setString(i + 2, values.get(i));
+            }
+            pstmt.setInt(values.size() + 2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(mapPatient(rs));
+                }
+            }
+        } finally {
+            DaoMetrics.record("PatientDAO.findPatients", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.PATIENT, patients, Patient::getPatientId);
+        return patients;
+    }
+
+    /**
+     * Counts the patients in a cohort, e.g. "aged 60 to 75 in state X registered this year".
+     * <p>
+     * Once the {@link CohortSnapshot} is loaded the count comes from scanning its columns in memory; before that
+     * the criteria run as SQL.
+     *
+     * @return The number of patients, or -1 on database error.
+     */
+    public int countPatientsInCohort(CohortQuery query) {
+        try {
+            return countPatientsInCohortOrThrow(query);
         } catch (SQLException ex) {
-            System.err.println("Error getting all patients: " + ex.getMessage());
+            System.err.println("Error counting cohort: " + ex.getMessage());
             ex.printStackTrace();
+            return -1;
         }
+    }
+
+    /**
+     * Like {@link #countPatientsInCohort(CohortQuery)}, but throws instead of returning -1.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public int countPatientsInCohortOrThrow(CohortQuery query) throws SQLException {
+        int count = CohortSnapshot.getInstance().count(query);
+        if (count != -1) {
+            return count;
+        }
+        List<Object> params = new ArrayList<>();
+        String SQL = "SELECT COUNT(*) FROM Patients WHERE " + cohortWhere(query, params);
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } finally {
+            DaoMetrics.record("PatientDAO.countPatientsInCohort", startNanos);
+        }
+    }
+
+    /**
+     * Finds one page of the patients in a cohort, from the {@link CohortSnapshot} once it is loaded.
+     *
+     * @param afterId The last patient ID of the previous page, or 0 for the first page.
+     * @param limit   The maximum number of patients to return.
+     * @return The patients in ID order, or an empty list on database error.
+     */
+    public List<Patient> findPatientsInCohort(CohortQuery query, int afterId, int limit) {
+        try {
+            return findPatientsInCohortOrThrow(query, afterId, limit);
+        } catch (SQLException ex) {
+            System.err.println("Error finding cohort: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #findPatientsInCohort}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Patient> findPatientsInCohortOrThrow(CohortQuery query, int afterId, int limit) throws SQLException {
+        int[] ids = CohortSnapshot.getInstance().findPatientIds(query, afterId, limit);
+        if (ids == null) {
+            List<Object> params = new ArrayList<>();
+            String SQL = "SELECT patient_id FROM Patients WHERE patient_id > ? AND " + cohortWhere(query, params) +
+                    " ORDER BY patient_id LIMIT ?";
+            params.add(0, afterId);
+            params.add(limit);
+
+            long startNanos = DaoMetrics.start();
+            try (Connection conn = DatabaseConnection.requireReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
+                }
+                IntList found = new IntList();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(rs.getInt(1));
+                    }
+                }
+                ids = found.toArray();
+            } finally {
+                DaoMetrics.record("PatientDAO.findPatientsInCohort", startNanos);
+            }
+        }
+        List<Integer> patientIds = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            patientIds.add(id);
+        }
+        List<Patient> patients = getPatientsByIdsOrThrow(patientIds);
+        patients.sort(Comparator.comparingInt(Patient::getPatientId));
         return patients;
     }
 
+    // The cohort criteria as SQL, for use before the snapshot is loaded; string matches rely on the column collation
+    private static String cohortWhere(CohortQuery query, List<Object> params) {
+        StringBuilder where = new StringBuilder("1 = 1");
+        if (query.getBornFrom() != null) {
+            where.append(" AND date_of_birth >= ?");
+            params.add(Date.valueOf(query.getBornFrom()));
+        }
+        if (query.getBornTo() != null) {
+            where.append(" AND date_of_birth <= ?");
+            params.add(Date.valueOf(query.getBornTo()));
+        }
+        if (query.getRegisteredFrom() != null) {
+            where.append(" AND registration_date >= ?");
+            params.add(Timestamp.valueOf(query.getRegisteredFrom()));
+        }
+        if (query.getRegisteredTo() != null) {
+            where.append(" AND registration_date <= ?");
+            params.add(Timestamp.valueOf(query.getRegisteredTo()));
+        }
+        appendIn(where, "gender", query.getGenders(), params);
+        appendIn(where, "city", query.getCities(), params);
+        appendIn(where, "state", query.getStates(), params);
+        if (query.getZipPrefix() != null) {
+            where.append(" AND zip_code LIKE ?");
+            params.add(query.getZipPrefix().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        return where.toString();
+    }
+
+    private static void appendIn(StringBuilder where, String column, List<String> values, List<Object> params) {
+        if (!values.isEmpty()) {
+            where.append(" AND ").append(column).append(" IN (").append(placeholders(values.size())).append(")");
+            params.addAll(values);
+        }
+    }
+
+    /**
+     * Retrieves several patients in one query, for callers that would otherwise call
+     * {@link #getPatientById(int)} in a loop.
+     *
+     * @param patientIds The IDs to look up.
+     * @return The patients found, in no particular order. IDs that do not exist are skipped.
+     */
+    public List<Patient> getPatientsByIds(Collection<Integer> patientIds) {
+        try {
+            return getPatientsByIdsOrThrow(patientIds);
+        } catch (SQLException ex) {
+            System.err.println("Error getting patients by IDs: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #getPatientsByIds(Collection)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Patient> getPatientsByIdsOrThrow(Collection<Integer> patientIds) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        if (patientIds.isEmpty()) {
+            return patients;
+        }
+        String SQL = "SELECT * FROM Patients WHERE patient_id IN (" + placeholders(patientIds.size()) + ")";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            int index = 1;
+            for (Integer patientId : patientIds) {
+                pstmt.setInt(index++, patientId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(mapPatient(rs));
+                }
+            }
+        } finally {
+            DaoMetrics.record("PatientDAO.getPatientsByIds", startNanos);
+        }
+        AuditLog.read(ChangeEvent.Entity.PATIENT, patients, Patient::getPatientId);
+        return patients;
+    }
+
+    /**
+     * Counts the patients and finds the latest {@code updated_at}, for clients that keep their own copy of
+     * the table (see {@link #getPatientsChangedSinceOrThrow(LocalDateTime)}). Always reads the local database.
+     *
+     * @throws SQLException if the database cannot be reached, or the updated_at column has not been added yet.
+     */
+    public ChangeMark getPatientChangeMarkOrThrow() throws SQLException {
+        String SQL = "SELECT COUNT(*), MAX(updated_at) FROM Patients";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL)) {
+
+            rs.next();
+            Timestamp latest = rs.getTimestamp(2);
+            return new ChangeMark(rs.getInt(1), latest != null ? latest.toLocalDateTime() : null);
+        } finally {
+            DaoMetrics.record("PatientDAO.getPatientChangeMark", startNanos);
+        }
+    }
+
+    /**
+     * Retrieves the patients added or changed at or after the given time, by their {@code updated_at}.
+     *
+     * @param since The latest change the caller already has.
+     * @throws SQLException if the database cannot be reached, or the updated_at column has not been added yet.
+     */
+    public List<Patient> getPatientsChangedSinceOrThrow(LocalDateTime since) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        String SQL = "SELECT * FROM Patients WHERE updated_at >= ?";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setTimestamp(1, Timestamp.valueOf(since));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(mapPatient(rs));
+                }
+            }
+        } finally {
+            DaoMetrics.record("PatientDAO.getPatientsChangedSince", startNanos);
+        }
+        AuditLog.list(ChangeEvent.Entity.PATIENT, patients.size());
+        return patients;
+    }
+
+    /**
+     * Retrieves every patient ID, so a client holding its own copy can drop patients deleted since.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public IntList getPatientIdsOrThrow() throws SQLException {
+        IntList ids = new IntList();
+        String SQL = "SELECT patient_id FROM Patients";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL)) {
+
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } finally {
+            DaoMetrics.record("PatientDAO.getPatientIds", startNanos);
+        }
+        AuditLog.list(ChangeEvent.Entity.PATIENT, ids.size());
+        return ids;
+    }
+
+    // "?, ?, ?" for an IN list of the given size
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
     /**
      * Updates an existing patient record in the database.
      *
@@ -148,11 +725,27 @@ public class PatientDAO {
      * @return true if the update was successful, false otherwise.
      */
     public boolean updatePatient(Patient patient) {
+        try {
+            return updatePatientOrThrow(patient);
+        } catch (SQLException ex) {
+            System.err.println("Error updating patient: " + ex.getMessage());
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #updatePatient(Patient)}, but throws on failure; false still means no such row.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public boolean updatePatientOrThrow(Patient patient) throws SQLException {
         String SQL = "UPDATE Patients SET first_name = ?, last_name = ?, date_of_birth = ?, " +
                 "gender = ?, address = ?, city = ?, state = ?, zip_code = ?, " +
-                "phone_number = ?, email = ? WHERE patient_id = ?";
+                "phone_number = ?, email = ?, version = version + 1 WHERE patient_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setString(1, patient.getFirstName());
@@ -170,13 +763,133 @@ public class PatientDAO {
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
                 System.out.println("Patient with ID " + patient.getPatientId() + " updated successfully.");
+                ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.PATIENT, patient.getPatientId(), patient));
                 return true;
             }
+        } finally {
+            DaoMetrics.record("PatientDAO.updatePatient", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Saves the fields the user changed, unless someone else updated the patient since it was loaded.
+     * Unchanged columns are not written, and nothing is locked while the user edits.
+     *
+     * @param original The patient as loaded, with its version.
+     * @param edited   The same patient with the user's changes.
+     * @return The outcome; on a conflict it holds the patient as now stored (see {@link #mergeEdits}).
+     */
+    public UpdateResult<Patient> updatePatient(Patient original, Patient edited) {
+        try {
+            return updatePatientOrThrow(original, edited);
         } catch (SQLException ex) {
             System.err.println("Error updating patient: " + ex.getMessage());
             ex.printStackTrace();
+            return UpdateResult.failed();
         }
-        return false;
+    }
+
+    /**
+     * Like {@link #updatePatient(Patient, Patient)}, but throws instead of returning a failed result.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public UpdateResult<Patient> updatePatientOrThrow(Patient original, Patient edited) throws SQLException {
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            return updatePatient(conn, original, edited);
+        } finally {
+            DaoMetrics.record("PatientDAO.updatePatientIfUnchanged", startNanos);
+        }
+    }
+
+    /**
+     * Like {@link #updatePatientOrThrow(Patient, Patient)} for callers that only know the version the user loaded,
+     * such as the server handling a client's update: the patient is read again here to find what changed.
+     *
+     * @param edited          The patient with the user's changes, and its ID set.
+     * @param expectedVersion The version the user's copy had.
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public UpdateResult<Patient> updatePatientAtVersionOrThrow(Patient edited, int expectedVersion) throws SQLException {
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            Patient current = readPatient(conn, edited.getPatientId());
+            if (current == null) {
+                return UpdateResult.notFound();
+            }
+            if (current.getVersion() != expectedVersion) {
+                return UpdateResult.conflict(current);
+            }
+            return updatePatient(conn, current, edited);
+        } finally {
+            DaoMetrics.record("PatientDAO.updatePatientAtVersion", startNanos);
+        }
+    }
+
+    private UpdateResult<Patient> updatePatient(Connection conn, Patient original, Patient edited) throws SQLException {
+        UpdateResult<Patient> result = CONDITIONAL_UPDATE.execute(conn, original, edited);
+        if (result.isUpdated() && result.getRow() != original) {
+            Patient saved = result.getRow();
+            System.out.println("Patient with ID " + saved.getPatientId() + " updated to version " + saved.getVersion() + ".");
+            ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.PATIENT, saved.getPatientId(), saved));
+        }
+        return result;
+    }
+
+    /**
+     * After a conflict, re-applies the user's changes on top of the patient as someone else saved it.
+     *
+     * @return A new Patient with current's version, to show the user and save again.
+     */
+    public static Patient mergeEdits(Patient original, Patient edited, Patient current) {
+        return CONDITIONAL_UPDATE.merge(original, edited, current);
+    }
+
+    private static Patient copyOf(Patient patient) {
+        Patient copy = new Patient(patient.getPatientId(), patient.getFirstName(), patient.getLastName(),
+                patient.getDateOfBirth(), patient.getGender(), patient.getAddress(), patient.getCity(),
+                patient.getState(), patient.getZipCode(), patient.getPhoneNumber(), patient.getEmail(),
+                patient.getRegistrationDate());
+        copy.setVersion(patient.getVersion());
+        return copy;
+    }
+
+    // Reads a patient on the writing connection, which sees the row a failed conditional update just missed
+    private static Patient readPatient(Connection conn, int patientId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM Patients WHERE patient_id = ?")) {
+            pstmt.setInt(1, patientId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return mapPatient(rs);
+            }
+        }
+    }
+
+    private static Patient mapPatient(ResultSet rs) throws SQLException {
+        Patient patient = new Patient();
+        patient.setPatientId(rs.getInt("patient_id"));
+        patient.setFirstName(rs.getString("first_name"));
+        patient.setLastName(rs.getString("last_name"));
+        patient.setDateOfBirth(rs.getDate("date_of_birth").toLocalDate()); // Convert java.sql.Date to LocalDate
+        patient.setGender(rs.getString("gender"));
+        patient.setAddress(rs.getString("address"));
+        patient.setCity(rs.getString("city"));
+        patient.setState(rs.getString("state"));
+        patient.setZipCode(rs.getString("zip_code"));
+        patient.setPhoneNumber(rs.getString("phone_number"));
+        patient.setEmail(rs.getString("email"));
+        patient.setVersion(rs.getInt("version"));
+
+        // Handle potential null for registration_date if it's not set
+        Timestamp regTimestamp = rs.getTimestamp("registration_date");
+        if (regTimestamp != null) {
+            patient.setRegistrationDate(regTimestamp.toLocalDateTime()); // Convert Timestamp to LocalDateTime
+        }
+        return patient;
     }
 
     /**
@@ -186,21 +899,53 @@ public class PatientDAO {
      * @return true if the deletion was successful, false otherwise.
      */
     public boolean deletePatient(int patientId) {
+        try {
+            return deletePatientOrThrow(patientId);
+        } catch (SQLException ex) {
+            System.err.println("Error deleting patient: " + ex.getMessage());
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Like {@link #deletePatient(int)}, but throws on failure; false still means no such row.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public boolean deletePatientOrThrow(int patientId) throws SQLException {
         String SQL = "DELETE FROM Patients WHERE patient_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             pstmt.setInt(1, patientId);
 
+            // The aggregate counters are keyed on the registration day of the removed patient
+            LocalDateTime registrationDate = null;
+            if (AggregateStore.getInstance().isSeeded()) {
+                try (PreparedStatement regStmt = conn.prepareStatement(
+                        "SELECT registration_date FROM Patients WHERE patient_id = ?")) {
+                    regStmt.setInt(1, patientId);
+                    try (ResultSet rs = regStmt.executeQuery()) {
+                        if (rs.next() && rs.getTimestamp(1) != null) {
+                            registrationDate = rs.getTimestamp(1).toLocalDateTime();
+                        }
+                    }
+                }
+            }
+
             int affectedRows = pstmt.executeUpdate();
             if (affectedRows > 0) {
                 System.out.println("Patient with ID " + patientId + " deleted successfully.");
+                ChangeEventBus.getInstance().publish(ChangeEvent.deleted(ChangeEvent.Entity.PATIENT, patientId));
+                LocalDateTime removedRegistration = registrationDate;
+                TransactionScope.afterCommit(() -> AggregateStore.getInstance().patientRemoved(removedRegistration));
                 return true;
             }
-        } catch (SQLException ex) {
-            System.err.println("Error deleting patient: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("PatientDAO.deletePatient", startNanos);
         }
         return false;
     }
@@ -212,11 +957,27 @@ public class PatientDAO {
      * @return A list of Patient objects matching the search criteria.
      */
     public List<Patient> searchPatients(String searchTerm) {
+        try {
+            return searchPatientsOrThrow(searchTerm);
+        } catch (SQLException ex) {
+            System.err.println("Error searching patients: " + ex.getMessage());
+            ex.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Like {@link #searchPatients(String)}, but throws instead of returning an empty list.
+     *
+     * @throws SQLException if the database cannot be reached or the statement fails.
+     */
+    public List<Patient> searchPatientsOrThrow(String searchTerm) throws SQLException {
         List<Patient> patients = new ArrayList<>();
         // Use LOWER() for case-insensitive search. % for partial matches.
         String SQL = "SELECT * FROM Patients WHERE LOWER(first_name) LIKE ? OR LOWER(last_name) LIKE ? OR LOWER(email) LIKE ? OR LOWER(phone_number) LIKE ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(SQL)) {
 
             String searchPattern = "%" + searchTerm.toLowerCase() + "%"; // Convert search term to lowercase once
@@ -227,32 +988,14 @@ public class PatientDAO {
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Patient patient = new Patient();
-                    patient.setPatientId(rs.getInt("patient_id"));
-                    patient.setFirstName(rs.getString("first_name"));
-                    patient.setLastName(rs.getString("last_name"));
-                    patient.setDateOfBirth(rs.getDate("date_of_birth").toLocalDate());
-                    patient.setGender(rs.getString("gender"));
-                    patient.setAddress(rs.getString("address"));
-                    patient.setCity(rs.getString("city"));
-                    patient.setState(rs.getString("state"));
-                    patient.setZipCode(rs.getString("zip_code"));
-                    patient.setPhoneNumber(rs.getString("phone_number"));
-                    patient.setEmail(rs.getString("email"));
-
-                    Timestamp regTimestamp = rs.getTimestamp("registration_date");
-                    if (regTimestamp != null) {
-                        patient.setRegistrationDate(regTimestamp.toLocalDateTime());
-                    }
-
-                    patients.add(patient);
+                    patients.add(mapPatient(rs));
                 }
             }
             System.out.println("Found " + patients.size() + " patients for search term: '" + searchTerm + "'");
-        } catch (SQLException ex) {
-            System.err.println("Error searching patients: " + ex.getMessage());
-            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("PatientDAO.searchPatients", startNanos);
         }
+        AuditLog.read(ChangeEvent.Entity.PATIENT, patients, Patient::getPatientId);
         return patients;
     }
 }
@@ -0,0 +1,151 @@
+package com.healthcare.dao;
+
+import com.healthcare.audit.AuditLog;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.util.DaoMetrics;
+import com.healthcare.util.DatabaseConnection;
+
+import java.sql.*;
+import java.time.LocalDate;
+
+/**
+ * Streaming reads for reports.
+ * Rows are handed to a callback as primitives while the result set is being read,
+ * so a report over years of data never materialises model objects or whole lists.
+ */
+public class ReportDAO {
+
+    // Tells MySQL Connector/J to stream rows one at a time instead of buffering the result set
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    /**
+     * Receives one appointment row.
+     */
+    public interface AppointmentRowHandler {
+        void accept(int doctorId, int patientId, String status);
+    }
+
+    /**
+     * Receives the doctor_id of one medical record.
+     */
+    public interface RecordAuthorHandler {
+        void accept(int doctorId);
+    }
+
+    /**
+     * Receives the identifying fields of one patient; any of them but the ID may be null.
+     */
+    public interface PatientIdentityHandler {
+        void accept(int patientId, String firstName, String lastName, LocalDate dateOfBirth, String phoneNumber,
+                    String email);
+    }
+
+    /**
+     * Streams the doctor, patient and status of every appointment in a date range.
+     *
+     * @param from    The first appointment date (inclusive).
+     * @param to      The last appointment date (inclusive).
+     * @param handler Called once per appointment.
+     * @return true if all rows were read, false on error.
+     */
+    public boolean streamAppointments(LocalDate from, LocalDate to, AppointmentRowHandler handler) {
+        String SQL = "SELECT doctor_id, patient_id, status FROM Appointments " +
+                "WHERE appointment_date BETWEEN ? AND ?";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            pstmt.setFetchSize(STREAMING_FETCH_SIZE);
+            pstmt.setDate(1, Date.valueOf(from));
+            pstmt.setDate(2, Date.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int rows = 0;
+                while (rs.next()) {
+                    handler.accept(rs.getInt(1), rs.getInt(2), rs.getString(3));
+                    rows++;
+                }
+                AuditLog.list(ChangeEvent.Entity.APPOINTMENT, rows);
+            }
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error streaming appointments: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("ReportDAO.streamAppointments", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Streams the author of every medical record written in a date range.
+     * Records without a doctor are skipped.
+     *
+     * @param from    The first record date (inclusive).
+     * @param to      The last record date (inclusive).
+     * @param handler Called once per record.
+     * @return true if all rows were read, false on error.
+     */
+    public boolean streamRecordAuthors(LocalDate from, LocalDate to, RecordAuthorHandler handler) {
+        String SQL = "SELECT doctor_id FROM Medical_History " +
+                "WHERE doctor_id IS NOT NULL AND record_date >= ? AND record_date < ?";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            pstmt.setFetchSize(STREAMING_FETCH_SIZE);
+            pstmt.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            pstmt.setTimestamp(2, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int rows = 0;
+                while (rs.next()) {
+                    handler.accept(rs.getInt(1));
+                    rows++;
+                }
+                AuditLog.list(ChangeEvent.Entity.MEDICAL_RECORD, rows);
+            }
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error streaming medical record authors: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("ReportDAO.streamRecordAuthors", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Streams the names, date of birth and contact details of every patient, for duplicate detection.
+     *
+     * @param handler Called once per patient.
+     * @return true if all rows were read, false on error.
+     */
+    public boolean streamPatientIdentities(PatientIdentityHandler handler) {
+        String SQL = "SELECT patient_id, first_name, last_name, date_of_birth, phone_number, email FROM Patients";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            pstmt.setFetchSize(STREAMING_FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int rows = 0;
+                while (rs.next()) {
+                    Date dateOfBirth = rs.getDate(4);
+                    handler.accept(rs.getInt(1), rs.getString(2), rs.getString(3),
+                            dateOfBirth != null ? dateOfBirth.toLocalDate() : null, rs.getString(5), rs.getString(6));
+                    rows++;
+                }
+                AuditLog.list(ChangeEvent.Entity.PATIENT, rows);
+            }
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error streaming patient identities: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("ReportDAO.streamPatientIdentities", startNanos);
+        }
+        return false;
+    }
+}
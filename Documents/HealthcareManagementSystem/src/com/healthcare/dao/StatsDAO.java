@@ -0,0 +1,309 @@
+package com.healthcare.dao;
+
+import com.healthcare.audit.AuditLog;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.model.Patient;
+import com.healthcare.util.DaoMetrics;
+import com.healthcare.util.DatabaseConnection;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cheap aggregate queries used by the dashboard and the aggregate store.
+ * Every method returns numbers computed by the database with GROUP BY/COUNT,
+ * so none of them pull whole tables into memory. The exceptions are the filter index
+ * and cohort snapshot loads, which stream a few short columns per row without buffering them.
+ */
+public class StatsDAO {
+
+    /**
+     * Receives one row of the appointment counts grouped by doctor, date and status.
+     */
+    public interface AppointmentCountHandler {
+        void accept(int doctorId, LocalDate date, String status, long count);
+    }
+
+    /**
+     * Receives one row of the patient registrations grouped by day.
+     */
+    public interface RegistrationCountHandler {
+        void accept(LocalDate date, long count);
+    }
+
+    /**
+     * Receives the filterable columns of one appointment.
+     */
+    public interface AppointmentFilterHandler {
+        void accept(int appointmentId, int doctorId, LocalDate date, String status);
+    }
+
+    /**
+     * Receives the filterable columns of one patient.
+     */
+    public interface PatientFilterHandler {
+        void accept(int patientId, String gender, String city, String state);
+    }
+
+    /**
+     * Receives the filterable columns of one doctor.
+     */
+    public interface DoctorFilterHandler {
+        void accept(int doctorId, String specialization);
+    }
+
+    /**
+     * Receives the demographic columns of one patient.
+     */
+    public interface PatientCohortHandler {
+        void accept(Patient patient);
+    }
+
+    /**
+     * Counts the appointments on a given date, grouped by status.
+     *
+     * @param date The appointment date to count.
+     * @return A map of status to count (empty if none or on error).
+     */
+    public Map<String, Integer> countAppointmentsByStatus(LocalDate date) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        String SQL = "SELECT status, COUNT(*) AS total FROM Appointments WHERE appointment_date = ? GROUP BY status";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setDate(1, Date.valueOf(date));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getString("status"), rs.getInt("total"));
+                }
+            }
+        } catch (SQLException ex) {
+            System.err.println("Error counting appointments by status: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("StatsDAO.countAppointmentsByStatus", startNanos);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the patients registered at or after the given time.
+     *
+     * @param since The lower bound (inclusive) of registration_date.
+     * @return The number of patients, or -1 on error.
+     */
+    public int countPatientsRegisteredSince(LocalDateTime since) {
+        String SQL = "SELECT COUNT(*) FROM Patients WHERE registration_date >= ?";
+        int count = -1;
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            pstmt.setTimestamp(1, Timestamp.valueOf(since));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    count = rs.getInt(1);
+                }
+            }
+        } catch (SQLException ex) {
+            System.err.println("Error counting registered patients: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("StatsDAO.countPatientsRegisteredSince", startNanos);
+        }
+        return count;
+    }
+
+    /**
+     * Streams appointment counts grouped by doctor, date and status.
+     *
+     * @param handler Called once per group.
+     * @return true if all groups were read, false on error.
+     */
+    public boolean loadAppointmentCounts(AppointmentCountHandler handler) {
+        String SQL = "SELECT doctor_id, appointment_date, status, COUNT(*) AS total FROM Appointments " +
+                "GROUP BY doctor_id, appointment_date, status";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL)) {
+
+            while (rs.next()) {
+                handler.accept(rs.getInt("doctor_id"), rs.getDate("appointment_date").toLocalDate(),
+                        rs.getString("status"), rs.getLong("total"));
+            }
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error loading appointment counts: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("StatsDAO.loadAppointmentCounts", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Streams patient registration counts grouped by registration day.
+     * Patients without a registration date are skipped.
+     *
+     * @param handler Called once per day.
+     * @return true if all groups were read, false on error.
+     */
+    public boolean loadRegistrationCounts(RegistrationCountHandler handler) {
+        String SQL = "SELECT DATE(registration_date) AS reg_day, COUNT(*) AS total FROM Patients " +
+                "WHERE registration_date IS NOT NULL GROUP BY DATE(registration_date)";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL)) {
+
+            while (rs.next()) {
+                handler.accept(rs.getDate("reg_day").toLocalDate(), rs.getLong("total"));
+            }
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error loading registration counts: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("StatsDAO.loadRegistrationCounts", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Streams the ID, doctor, date and status of every appointment.
+     *
+     * @return true if all rows were read, false on error.
+     */
+    public boolean streamAppointmentFilters(AppointmentFilterHandler handler) {
+        String SQL = "SELECT appointment_id, doctor_id, appointment_date, status FROM Appointments";
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = streaming(conn, SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            int rows = 0;
+            while (rs.next()) {
+                handler.accept(rs.getInt(1), rs.getInt(2), rs.getDate(3).toLocalDate(), rs.getString(4));
+                rows++;
+            }
+            AuditLog.list(ChangeEvent.Entity.APPOINTMENT, rows);
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error streaming appointment filters: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("StatsDAO.streamAppointmentFilters", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Streams the ID, gender, city and state of every patient.
+     *
+     * @return true if all rows were read, false on error.
+     */
+    public boolean streamPatientFilters(PatientFilterHandler handler) {
+        String SQL = "SELECT patient_id, gender, city, state FROM Patients";
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = streaming(conn, SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            int rows = 0;
+            while (rs.next()) {
+                handler.accept(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4));
+                rows++;
+            }
+            AuditLog.list(ChangeEvent.Entity.PATIENT, rows);
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error streaming patient filters: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("StatsDAO.streamPatientFilters", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Streams the ID and specialization of every doctor.
+     *
+     * @return true if all rows were read, false on error.
+     */
+    public boolean streamDoctorFilters(DoctorFilterHandler handler) {
+        String SQL = "SELECT doctor_id, specialization FROM Doctors";
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = streaming(conn, SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            int rows = 0;
+            while (rs.next()) {
+                handler.accept(rs.getInt(1), rs.getString(2));
+                rows++;
+            }
+            AuditLog.list(ChangeEvent.Entity.DOCTOR, rows);
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error streaming doctor filters: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("StatsDAO.streamDoctorFilters", startNanos);
+        }
+        return false;
+    }
+
+    /**
+     * Streams the demographic columns of every patient: ID, date of birth, gender, city, state, zip code and
+     * registration date. The handler gets a Patient with only those fields set, which it may keep.
+     *
+     * @return true if all rows were read, false on error.
+     */
+    public boolean streamPatientCohortColumns(PatientCohortHandler handler) {
+        String SQL = "SELECT patient_id, date_of_birth, gender, city, state, zip_code, registration_date FROM Patients";
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = streaming(conn, SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            int rows = 0;
+            while (rs.next()) {
+                Patient patient = new Patient();
+                patient.setPatientId(rs.getInt(1));
+                Date dateOfBirth = rs.getDate(2);
+                patient.setDateOfBirth(dateOfBirth != null ? dateOfBirth.toLocalDate() : null);
+                patient.setGender(rs.getString(3));
+                patient.setCity(rs.getString(4));
+                patient.setState(rs.getString(5));
+                patient.setZipCode(rs.getString(6));
+                Timestamp registered = rs.getTimestamp(7);
+                patient.setRegistrationDate(registered != null ? registered.toLocalDateTime() : null);
+                handler.accept(patient);
+                rows++;
+            }
+            AuditLog.list(ChangeEvent.Entity.PATIENT, rows);
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Error streaming patient cohort columns: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("StatsDAO.streamPatientCohortColumns", startNanos);
+        }
+        return false;
+    }
+
+    private static PreparedStatement streaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pstmt.setFetchSize(Integer.MIN_VALUE); // Stream rows instead of buffering the table
+        return pstmt;
+    }
+}
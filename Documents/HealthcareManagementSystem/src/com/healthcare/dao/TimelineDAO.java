@@ -0,0 +1,125 @@
+package com.healthcare.dao;
+
+import com.healthcare.audit.AuditLog;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.model.TimelineEntry;
+import com.healthcare.util.DaoMetrics;
+import com.healthcare.util.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a patient's appointments and medical records as one chronological timeline.
+ * <p>
+ * Each page is a single UNION ALL query. Paging is keyset based: the caller passes the last
+ * entry it has, and each branch only reads the rows that sort after it (newest first),
+ * limited to the page size, so scrolling back in time never re-reads earlier pages.
+ */
+public class TimelineDAO {
+
+    private static final String APPOINTMENT_TIME = "TIMESTAMP(appointment_date, appointment_time)";
+
+    /**
+     * Retrieves one page of a patient's timeline, newest entries first.
+     *
+     * @param patientId The ID of the patient.
+     * @param after     The last entry of the previous page, or null for the first page.
+     * @param pageSize  The maximum number of entries to return.
+     * @return The entries of the page (empty at the end of the timeline or on error).
+     */
+    public List<TimelineEntry> getTimelinePage(int patientId, TimelineEntry after, int pageSize) {
+        List<TimelineEntry> entries = new ArrayList<>();
+        String SQL = "SELECT kind, id, doctor_id, event_time, title, detail FROM (" +
+                "(SELECT '" + TimelineEntry.TYPE_APPOINTMENT + "' AS kind, appointment_id AS id, doctor_id, " +
+                APPOINTMENT_TIME + " AS event_time, status AS title, reason AS detail " +
+                "FROM Appointments WHERE patient_id = ?" +
+                keysetCondition(after, TimelineEntry.TYPE_APPOINTMENT, APPOINTMENT_TIME, "appointment_id") +
+                " ORDER BY appointment_date DESC, appointment_time DESC, appointment_id DESC LIMIT ?)" +
+                " UNION ALL " +
+                "(SELECT '" + TimelineEntry.TYPE_MEDICAL_RECORD + "', record_id, doctor_id, " +
+                "record_date, diagnosis, treatment " +
+                "FROM Medical_History WHERE patient_id = ?" +
+                keysetCondition(after, TimelineEntry.TYPE_MEDICAL_RECORD, "record_date", "record_id") +
+                " ORDER BY record_date DESC, record_id DESC LIMIT ?)" +
+                ") timeline ORDER BY event_time DESC, kind DESC, id DESC LIMIT ?";
+
+        long startNanos = DaoMetrics.start();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+            int index = 1;
+            pstmt.setInt(index++, patientId);
+            index = bindKeyset(pstmt, index, after, TimelineEntry.TYPE_APPOINTMENT);
+            pstmt.setInt(index++, pageSize);
+            pstmt.setInt(index++, patientId);
+            index = bindKeyset(pstmt, index, after, TimelineEntry.TYPE_MEDICAL_RECORD);
+            pstmt.setInt(index++, pageSize);
+            pstmt.setInt(index, pageSize);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    TimelineEntry entry = new TimelineEntry();
+                    entry.setType(rs.getString("kind"));
+                    entry.setId(rs.getInt("id"));
+                    entry.setPatientId(patientId);
+
+                    int doctorId = rs.getInt("doctor_id");
+                    entry.setDoctorId(rs.wasNull() ? null : doctorId);
+
+                    Timestamp eventTimestamp = rs.getTimestamp("event_time");
+                    if (eventTimestamp != null) {
+                        entry.setEventTime(eventTimestamp.toLocalDateTime());
+                    }
+                    entry.setTitle(rs.getString("title"));
+                    entry.setDetail(rs.getString("detail"));
+                    entries.add(entry);
+                }
+            }
+        } catch (SQLException ex) {
+            System.err.println("Error getting patient timeline: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            DaoMetrics.record("TimelineDAO.getTimelinePage", startNanos);
+        }
+        for (TimelineEntry entry : entries) {
+            AuditLog.read(TimelineEntry.TYPE_APPOINTMENT.equals(entry.getType())
+                    ? ChangeEvent.Entity.APPOINTMENT : ChangeEvent.Entity.MEDICAL_RECORD, entry.getId());
+        }
+        return entries;
+    }
+
+    /**
+     * Builds the "sorts after the cursor" condition for one branch of the UNION.
+     * Entries are ordered by (event_time DESC, kind DESC, id DESC); since the kind is constant
+     * within a branch, the kind comparison is resolved here instead of in SQL.
+     */
+    private static String keysetCondition(TimelineEntry after, String branchType, String timeColumn, String idColumn) {
+        if (after == null) {
+            return "";
+        }
+        int kindComparison = branchType.compareTo(after.getType());
+        if (kindComparison < 0) {
+            // Every row of this branch at the cursor's time sorts after the cursor
+            return " AND " + timeColumn + " <= ?";
+        } else if (kindComparison > 0) {
+            // Every row of this branch at the cursor's time sorts before the cursor
+            return " AND " + timeColumn + " < ?";
+        }
+        return " AND (" + timeColumn + " < ? OR (" + timeColumn + " = ? AND " + idColumn + " < ?))";
+    }
+
+    private static int bindKeyset(PreparedStatement pstmt, int index, TimelineEntry after, String branchType) throws SQLException {
+        if (after == null) {
+            return index;
+        }
+        Timestamp cursorTime = Timestamp.valueOf(after.getEventTime());
+        pstmt.setTimestamp(index++, cursorTime);
+        if (branchType.equals(after.getType())) {
+            pstmt.setTimestamp(index++, cursorTime);
+            pstmt.setInt(index++, after.getId());
+        }
+        return index;
+    }
+}
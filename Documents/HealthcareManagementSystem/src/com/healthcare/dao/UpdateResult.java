@@ -0,0 +1,68 @@
+package com.healthcare.dao;
+
+/**
+ * The outcome of a conditional update (e.g. {@link PatientDAO#updatePatient(com.healthcare.model.Patient,
+ * com.healthcare.model.Patient)}), which only writes if nobody changed the row since it was read.
+ * On a conflict it carries the row as it is now, so the caller can merge without reading it again.
+ *
+ * @param <T> The model type.
+ */
+public final class UpdateResult<T> {
+
+    public enum Status {
+        UPDATED,   // The changes were saved
+        CONFLICT,  // Someone else saved the row first; getRow() is their version
+        NOT_FOUND, // The row has been deleted
+        FAILED     // The database could not be reached or the statement failed
+    }
+
+    private final Status status;
+    private final T row;
+
+    private UpdateResult(Status status, T row) {
+        this.status = status;
+        this.row = row;
+    }
+
+    /**
+     * @param saved The row as now stored, with its new version.
+     */
+    public static <T> UpdateResult<T> updated(T saved) {
+        return new UpdateResult<>(Status.UPDATED, saved);
+    }
+
+    /**
+     * @param current The row as now stored, changed by someone else.
+     */
+    public static <T> UpdateResult<T> conflict(T current) {
+        return new UpdateResult<>(Status.CONFLICT, current);
+    }
+
+    public static <T> UpdateResult<T> notFound() {
+        return new UpdateResult<>(Status.NOT_FOUND, null);
+    }
+
+    public static <T> UpdateResult<T> failed() {
+        return new UpdateResult<>(Status.FAILED, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isUpdated() {
+        return status == Status.UPDATED;
+    }
+
+    /**
+     * @return The saved row after {@link Status#UPDATED}, the current row after {@link Status#CONFLICT}, otherwise null.
+     */
+    public T getRow() {
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateResult{" + status + ", row=" + row + "}";
+    }
+}
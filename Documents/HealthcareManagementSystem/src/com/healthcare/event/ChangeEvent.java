@@ -0,0 +1,76 @@
+package com.healthcare.event;
+
+/**
+ * Describes a single row-level change made through a DAO.
+ */
+public class ChangeEvent {
+
+    public enum Entity {
+        PATIENT, DOCTOR, APPOINTMENT, MEDICAL_RECORD
+    }
+
+    public enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final Entity entity;
+    private final int id;
+    private final Operation operation;
+    private final Object payload; // The written model object for INSERT/UPDATE, null for DELETE
+
+    public ChangeEvent(Entity entity, int id, Operation operation, Object payload) {
+        this.entity = entity;
+        this.id = id;
+        this.operation = operation;
+        this.payload = payload;
+    }
+
+    public static ChangeEvent inserted(Entity entity, int id, Object payload) {
+        return new ChangeEvent(entity, id, Operation.INSERT, payload);
+    }
+
+    public static ChangeEvent updated(Entity entity, int id, Object payload) {
+        return new ChangeEvent(entity, id, Operation.UPDATE, payload);
+    }
+
+    public static ChangeEvent deleted(Entity entity, int id) {
+        return new ChangeEvent(entity, id, Operation.DELETE, null);
+    }
+
+    public Entity getEntity() {
+        return entity;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return The model object as written (e.g. a Patient), or null for deletes.
+     */
+    public Object getPayload() {
+        return payload;
+    }
+
+    /**
+     * Returns the payload cast to the given model type.
+     *
+     * @return The payload, or null if there is none or it is of another type.
+     */
+    public <T> T getPayload(Class<T> type) {
+        return type.isInstance(payload) ? type.cast(payload) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "entity=" + entity +
+                ", id=" + id +
+                ", operation=" + operation +
+                '}';
+    }
+}
@@ -0,0 +1,193 @@
+package com.healthcare.event;
+
+import com.healthcare.util.TransactionScope;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process bus that the DAOs publish row-level change events to.
+ * <p>
+ * There are two kinds of subscribers:
+ * <ul>
+ *     <li>Immediate listeners run on the publishing thread, right after the write.
+ *     Caches and indexes use these so they are never behind the database.</li>
+ *     <li>Batch listeners receive coalesced batches a short time after a write,
+ *     optionally on the Swing EDT. Panels use these so a burst of writes causes
+ *     one model update per row instead of one per write.</li>
+ * </ul>
+ * Events published inside a {@link TransactionScope} are held until it commits, and dropped if it rolls back.
+ */
+public class ChangeEventBus {
+
+    /**
+     * Receives each event as it is published.
+     */
+    public interface ChangeListener {
+        void onChange(ChangeEvent event);
+    }
+
+    /**
+     * Receives coalesced batches of events.
+     */
+    public interface BatchListener {
+        void onChanges(List<ChangeEvent> events);
+    }
+
+    // How long to collect events before delivering a batch
+    private static final long COALESCE_WINDOW_MS = 50;
+
+    private static final ChangeEventBus INSTANCE = new ChangeEventBus();
+
+    private final List<ChangeListener> immediateListeners = new CopyOnWriteArrayList<>();
+    private final List<BatchSubscription> batchListeners = new CopyOnWriteArrayList<>();
+
+    // Pending events keyed by (entity, id), in order of first change
+    private final Map<Long, ChangeEvent> pending = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-event-bus");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ChangeEventBus() {
+    }
+
+    public static ChangeEventBus getInstance() {
+        return INSTANCE;
+    }
+
+    public void subscribe(ChangeListener listener) {
+        immediateListeners.add(listener);
+    }
+
+    public void unsubscribe(ChangeListener listener) {
+        immediateListeners.remove(listener);
+    }
+
+    /**
+     * Subscribes to coalesced batches of events.
+     *
+     * @param listener The listener.
+     * @param onEdt    true to deliver batches on the Swing event dispatch thread.
+     */
+    public void subscribeBatches(BatchListener listener, boolean onEdt) {
+        batchListeners.add(new BatchSubscription(listener, onEdt));
+    }
+
+    public void unsubscribeBatches(BatchListener listener) {
+        batchListeners.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    /**
+     * Publishes a change. Immediate listeners run before this method returns, or when the enclosing
+     * transaction commits; batch listeners are notified after the coalescing window.
+     *
+     * @param event The change that was made.
+     */
+    public void publish(ChangeEvent event) {
+        TransactionScope.afterCommit(() -> deliver(event));
+    }
+
+    private void deliver(ChangeEvent event) {
+        for (ChangeListener listener : immediateListeners) {
+            try {
+                listener.onChange(event);
+            } catch (RuntimeException ex) {
+                // A failing subscriber must not fail the write that already happened
+                System.err.println("Change listener failed for " + event + ": " + ex.getMessage());
+                ex.printStackTrace();
+            }
+        }
+
+        if (batchListeners.isEmpty()) {
+            return;
+        }
+        synchronized (pending) {
+            long key = ((long) event.getEntity().ordinal() << 32) | (event.getId() & 0xFFFFFFFFL);
+            ChangeEvent merged = coalesce(pending.get(key), event);
+            if (merged == null) {
+                pending.remove(key);
+            } else {
+                pending.put(key, merged);
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                flusher.schedule(this::flush, COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Merges a new event into the pending one for the same row.
+     *
+     * @return The event to deliver, or null if the changes cancel out (inserted then deleted).
+     */
+    private static ChangeEvent coalesce(ChangeEvent previous, ChangeEvent next) {
+        if (previous == null) {
+            return next;
+        }
+        ChangeEvent.Operation before = previous.getOperation();
+        ChangeEvent.Operation after = next.getOperation();
+
+        if (before == ChangeEvent.Operation.INSERT) {
+            if (after == ChangeEvent.Operation.DELETE) {
+                return null; // Subscribers never saw the row
+            }
+            return ChangeEvent.inserted(next.getEntity(), next.getId(), next.getPayload());
+        }
+        if (before == ChangeEvent.Operation.DELETE && after == ChangeEvent.Operation.INSERT) {
+            return ChangeEvent.updated(next.getEntity(), next.getId(), next.getPayload());
+        }
+        return next;
+    }
+
+    private void flush() {
+        List<ChangeEvent> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<ChangeEvent> readOnlyBatch = Collections.unmodifiableList(batch);
+        for (BatchSubscription subscription : batchListeners) {
+            if (subscription.onEdt) {
+                SwingUtilities.invokeLater(() -> deliver(subscription.listener, readOnlyBatch));
+            } else {
+                deliver(subscription.listener, readOnlyBatch);
+            }
+        }
+    }
+
+    private static void deliver(BatchListener listener, List<ChangeEvent> batch) {
+        try {
+            listener.onChanges(batch);
+        } catch (RuntimeException ex) {
+            System.err.println("Change batch listener failed: " + ex.getMessage());
+            ex.printStackTrace();
+        }
+    }
+
+    private static class BatchSubscription {
+        final BatchListener listener;
+        final boolean onEdt;
+
+        BatchSubscription(BatchListener listener, boolean onEdt) {
+            this.listener = listener;
+            this.onEdt = onEdt;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.healthcare.json;
+
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Minimal streaming JSON encoder that writes compact output (no whitespace) into a StringBuilder.
+ * Commas are inserted automatically, so callers only describe the structure:
+ * <pre>
+ *     new JsonWriter().beginObject().name("id").value(7).name("name").value("Ann").endObject().toString()
+ * </pre>
+ */
+public class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder out;
+    private boolean needsComma = false;
+
+    public JsonWriter() {
+        this(new StringBuilder(256));
+    }
+
+    public JsonWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        out.append('}');
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        separate();
+        out.append('[');
+        needsComma = false;
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        out.append(']');
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Writes an object member name. Must be followed by exactly one value, object or array.
+     */
+    public JsonWriter name(String name) {
+        separate();
+        writeString(name);
+        out.append(':');
+        needsComma = false;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            writeString(value);
+        }
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        separate();
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        separate();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null"); // Not representable in JSON
+        } else {
+            out.append(value);
+        }
+        needsComma = true;
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        separate();
+        out.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Writes a nullable number, e.g. an optional foreign key.
+     */
+    public JsonWriter value(Integer value) {
+        if (value == null) {
+            return nullValue();
+        }
+        return value(value.longValue());
+    }
+
+    /**
+     * Writes a date/time value using its ISO-8601 string form, or null.
+     */
+    public JsonWriter value(TemporalAccessor value) {
+        return value(value == null ? null : value.toString());
+    }
+
+    public JsonWriter nullValue() {
+        separate();
+        out.append("null");
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Appends an already encoded JSON value as-is, e.g. a cached fragment.
+     */
+    public JsonWriter rawValue(String json) {
+        separate();
+        out.append(json);
+        needsComma = true;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void separate() {
+        if (needsComma) {
+            out.append(',');
+            needsComma = false;
+        }
+    }
+
+    private void writeString(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,184 @@
+package com.healthcare.json;
+
+import com.healthcare.model.Appointment;
+import com.healthcare.model.Doctor;
+import com.healthcare.model.MedicalRecord;
+import com.healthcare.model.Patient;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+
+/**
+ * Converts the model objects to and from JSON. Field names follow the Java property names,
+ * dates and times use their ISO-8601 string form.
+ */
+public class ModelJson {
+
+    private ModelJson() {
+    }
+
+    // --- Encoding ---
+
+    public static void write(JsonWriter json, Patient patient) {
+        json.beginObject();
+        writeFields(json, patient);
+        json.endObject();
+    }
+
+    /**
+     * Writes the patient's fields into an object the caller has begun, so it can add fields of its own.
+     */
+    public static void writeFields(JsonWriter json, Patient patient) {
+        json.name("patientId").value(patient.getPatientId())
+                .name("firstName").value(patient.getFirstName())
+                .name("lastName").value(patient.getLastName())
+                .name("dateOfBirth").value(patient.getDateOfBirth())
+                .name("gender").value(patient.getGender())
+                .name("address").value(patient.getAddress())
+                .name("city").value(patient.getCity())
+                .name("state").value(patient.getState())
+                .name("zipCode").value(patient.getZipCode())
+                .name("phoneNumber").value(patient.getPhoneNumber())
+                .name("email").value(patient.getEmail())
+                .name("registrationDate").value(patient.getRegistrationDate())
+                .name("version").value(patient.getVersion());
+    }
+
+    public static void write(JsonWriter json, Doctor doctor) {
+        json.beginObject()
+                .name("doctorId").value(doctor.getDoctorId())
+                .name("firstName").value(doctor.getFirstName())
+                .name("lastName").value(doctor.getLastName())
+                .name("specialization").value(doctor.getSpecialization())
+                .name("phoneNumber").value(doctor.getPhoneNumber())
+                .name("email").value(doctor.getEmail())
+                .endObject();
+    }
+
+    public static void write(JsonWriter json, Appointment appointment) {
+        json.beginObject();
+        writeFields(json, appointment);
+        json.endObject();
+    }
+
+    /**
+     * Writes the appointment's fields into an object the caller has begun, so it can add fields of its own.
+     */
+    public static void writeFields(JsonWriter json, Appointment appointment) {
+        json.name("appointmentId").value(appointment.getAppointmentId())
+                .name("patientId").value(appointment.getPatientId())
+                .name("doctorId").value(appointment.getDoctorId())
+                .name("appointmentDate").value(appointment.getAppointmentDate())
+                .name("appointmentTime").value(appointment.getAppointmentTime())
+                .name("reason").value(appointment.getReason())
+                .name("status").value(appointment.getStatus())
+                .name("version").value(appointment.getVersion());
+    }
+
+    public static void write(JsonWriter json, MedicalRecord record) {
+        json.beginObject();
+        writeFields(json, record);
+        json.endObject();
+    }
+
+    /**
+     * Writes the record's fields into an object the caller has begun, so it can add fields of its own.
+     */
+    public static void writeFields(JsonWriter json, MedicalRecord record) {
+        json.name("recordId").value(record.getRecordId())
+                .name("patientId").value(record.getPatientId())
+                .name("doctorId").value(record.getDoctorId())
+                .name("recordDate").value(record.getRecordDate())
+                .name("diagnosis").value(record.getDiagnosis())
+                .name("treatment").value(record.getTreatment())
+                .name("notes").value(record.getNotes())
+                .name("version").value(record.getVersion());
+    }
+
+    // --- Decoding ---
+
+    public static Patient readPatient(Map<String, Object> map) {
+        Patient patient = new Patient();
+        patient.setPatientId(getInt(map, "patientId", 0));
+        patient.setFirstName(getString(map, "firstName"));
+        patient.setLastName(getString(map, "lastName"));
+        String dob = getString(map, "dateOfBirth");
+        patient.setDateOfBirth(dob != null ? LocalDate.parse(dob) : null);
+        patient.setGender(getString(map, "gender"));
+        patient.setAddress(getString(map, "address"));
+        patient.setCity(getString(map, "city"));
+        patient.setState(getString(map, "state"));
+        patient.setZipCode(getString(map, "zipCode"));
+        patient.setPhoneNumber(getString(map, "phoneNumber"));
+        patient.setEmail(getString(map, "email"));
+        String registered = getString(map, "registrationDate");
+        patient.setRegistrationDate(registered != null ? LocalDateTime.parse(registered) : null);
+        patient.setVersion(getInt(map, "version", 0));
+        return patient;
+    }
+
+    public static Doctor readDoctor(Map<String, Object> map) {
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(getInt(map, "doctorId", 0));
+        doctor.setFirstName(getString(map, "firstName"));
+        doctor.setLastName(getString(map, "lastName"));
+        doctor.setSpecialization(getString(map, "specialization"));
+        doctor.setPhoneNumber(getString(map, "phoneNumber"));
+        doctor.setEmail(getString(map, "email"));
+        return doctor;
+    }
+
+    public static Appointment readAppointment(Map<String, Object> map) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(getInt(map, "appointmentId", 0));
+        appointment.setPatientId(getInt(map, "patientId", 0));
+        appointment.setDoctorId(getInt(map, "doctorId", 0));
+        String date = getString(map, "appointmentDate");
+        appointment.setAppointmentDate(date != null ? LocalDate.parse(date) : null);
+        String time = getString(map, "appointmentTime");
+        appointment.setAppointmentTime(time != null ? LocalTime.parse(time) : null);
+        appointment.setReason(getString(map, "reason"));
+        appointment.setStatus(getString(map, "status"));
+        appointment.setVersion(getInt(map, "version", 0));
+        return appointment;
+    }
+
+    public static MedicalRecord readMedicalRecord(Map<String, Object> map) {
+        MedicalRecord record = new MedicalRecord();
+        record.setRecordId(getInt(map, "recordId", 0));
+        record.setPatientId(getInt(map, "patientId", 0));
+        record.setDoctorId(getInteger(map, "doctorId"));
+        String recordDate = getString(map, "recordDate");
+        record.setRecordDate(recordDate != null ? LocalDateTime.parse(recordDate) : null);
+        record.setDiagnosis(getString(map, "diagnosis"));
+        record.setTreatment(getString(map, "treatment"));
+        record.setNotes(getString(map, "notes"));
+        record.setVersion(getInt(map, "version", 0));
+        return record;
+    }
+
+    // --- Field helpers ---
+
+    public static String getString(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    public static int getInt(Map<String, Object> map, String key, int defaultValue) {
+        Integer value = getInteger(map, key);
+        return value != null ? value : defaultValue;
+    }
+
+    public static Integer getInteger(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String) {
+            return Integer.valueOf((String) value);
+        }
+        return null;
+    }
+}
@@ -11,6 +11,7 @@ public class Appointment {
     private LocalTime appointmentTime;
     private String reason;
     private String status; // e.g., "Scheduled", "Completed", "Cancelled"
+    private int version; // Row version, bumped on every update
 
     // Constructors
     public Appointment() {
@@ -96,6 +97,14 @@ public class Appointment {
         this.status = status;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Appointment{" +
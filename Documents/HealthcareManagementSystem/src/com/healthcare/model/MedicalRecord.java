@@ -10,6 +10,7 @@ public class MedicalRecord {
     private String diagnosis;
     private String treatment;
     private String notes;
+    private int version; // Row version, bumped on every update
 
     // Constructors
     public MedicalRecord() {
@@ -94,6 +95,14 @@ public class MedicalRecord {
         this.notes = notes;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "MedicalRecord{" +
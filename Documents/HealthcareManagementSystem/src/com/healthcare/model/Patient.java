@@ -17,6 +17,7 @@ public class Patient {
     private String phoneNumber;
     private String email;
     private LocalDateTime registrationDate; // Using java.time.LocalDateTime for date and time
+    private int version; // Bumped by the database on every update, for optimistic concurrency control
 
     // Constructors
     public Patient() {
@@ -154,6 +155,14 @@ public class Patient {
         this.registrationDate = registrationDate;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Patient{" +
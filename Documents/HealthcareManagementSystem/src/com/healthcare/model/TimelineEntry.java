@@ -0,0 +1,108 @@
+package com.healthcare.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of a patient's timeline: either an appointment or a medical record.
+ * Entries are ordered newest first by (eventTime, type, id).
+ */
+public class TimelineEntry {
+
+    public static final String TYPE_APPOINTMENT = "A";
+    public static final String TYPE_MEDICAL_RECORD = "R";
+
+    private String type; // TYPE_APPOINTMENT or TYPE_MEDICAL_RECORD
+    private int id; // appointment_id or record_id, depending on the type
+    private int patientId;
+    private Integer doctorId; // Can be null for medical records
+    private LocalDateTime eventTime;
+    private String title; // Appointment status or diagnosis
+    private String detail; // Appointment reason or treatment
+
+    // Constructors
+    public TimelineEntry() {
+    }
+
+    public TimelineEntry(String type, int id, int patientId, Integer doctorId,
+                         LocalDateTime eventTime, String title, String detail) {
+        this.type = type;
+        this.id = id;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.eventTime = eventTime;
+        this.title = title;
+        this.detail = detail;
+    }
+
+    // Getters and Setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public boolean isAppointment() {
+        return TYPE_APPOINTMENT.equals(type);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(int patientId) {
+        this.patientId = patientId;
+    }
+
+    public Integer getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Integer doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public LocalDateTime getEventTime() {
+        return eventTime;
+    }
+
+    public void setEventTime(LocalDateTime eventTime) {
+        this.eventTime = eventTime;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public void setDetail(String detail) {
+        this.detail = detail;
+    }
+
+    @Override
+    public String toString() {
+        return "TimelineEntry{" +
+                "type='" + type + '\'' +
+                ", id=" + id +
+                ", patientId=" + patientId +
+                ", eventTime=" + eventTime +
+                ", title='" + title + '\'' +
+                '}';
+    }
+}
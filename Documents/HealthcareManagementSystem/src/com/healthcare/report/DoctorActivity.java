@@ -0,0 +1,85 @@
+package com.healthcare.report;
+
+/**
+ * One row of the doctor activity report.
+ */
+public class DoctorActivity {
+
+    private final int doctorId;
+    private final String doctorName;
+    private final String specialization;
+    private final int appointments;
+    private final int completed;
+    private final int cancelled;
+    private final int distinctPatients;
+    private final int recordsAuthored;
+
+    public DoctorActivity(int doctorId, String doctorName, String specialization, int appointments,
+                          int completed, int cancelled, int distinctPatients, int recordsAuthored) {
+        this.doctorId = doctorId;
+        this.doctorName = doctorName;
+        this.specialization = specialization;
+        this.appointments = appointments;
+        this.completed = completed;
+        this.cancelled = cancelled;
+        this.distinctPatients = distinctPatients;
+        this.recordsAuthored = recordsAuthored;
+    }
+
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    public String getDoctorName() {
+        return doctorName;
+    }
+
+    public String getSpecialization() {
+        return specialization;
+    }
+
+    public int getAppointments() {
+        return appointments;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public int getCancelled() {
+        return cancelled;
+    }
+
+    public int getDistinctPatients() {
+        return distinctPatients;
+    }
+
+    public int getRecordsAuthored() {
+        return recordsAuthored;
+    }
+
+    /**
+     * @return The share of appointments that were completed, between 0 and 1.
+     */
+    public double getCompletionRate() {
+        return appointments == 0 ? 0 : (double) completed / appointments;
+    }
+
+    /**
+     * @return The share of appointments that were cancelled, between 0 and 1.
+     */
+    public double getCancellationRate() {
+        return appointments == 0 ? 0 : (double) cancelled / appointments;
+    }
+
+    @Override
+    public String toString() {
+        return "DoctorActivity{" +
+                "doctorId=" + doctorId +
+                ", doctorName='" + doctorName + '\'' +
+                ", appointments=" + appointments +
+                ", distinctPatients=" + distinctPatients +
+                ", recordsAuthored=" + recordsAuthored +
+                '}';
+    }
+}
@@ -0,0 +1,82 @@
+package com.healthcare.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The result of a doctor activity report over a date range.
+ */
+public class DoctorActivityReport {
+
+    private static final String[] CSV_HEADER = {
+            "doctor_id", "doctor_name", "specialization", "appointments", "completed", "cancelled",
+            "completion_rate", "cancellation_rate", "distinct_patients", "records_authored"
+    };
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final List<DoctorActivity> rows;
+    private final long elapsedMillis;
+
+    public DoctorActivityReport(LocalDate from, LocalDate to, List<DoctorActivity> rows, long elapsedMillis) {
+        this.from = from;
+        this.to = to;
+        this.rows = Collections.unmodifiableList(rows);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public List<DoctorActivity> getRows() {
+        return rows;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Writes the report as CSV with a header row.
+     *
+     * @param out The writer to write to. It is not closed.
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write(String.join(",", CSV_HEADER));
+        out.write('\n');
+        for (DoctorActivity row : rows) {
+            out.write(row.getDoctorId() + ","
+                    + csvField(row.getDoctorName()) + ","
+                    + csvField(row.getSpecialization()) + ","
+                    + row.getAppointments() + ","
+                    + row.getCompleted() + ","
+                    + row.getCancelled() + ","
+                    + String.format(Locale.ROOT, "%.4f", row.getCompletionRate()) + ","
+                    + String.format(Locale.ROOT, "%.4f", row.getCancellationRate()) + ","
+                    + row.getDistinctPatients() + ","
+                    + row.getRecordsAuthored());
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    // Quotes a value if it contains a comma, quote or line break (RFC 4180)
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
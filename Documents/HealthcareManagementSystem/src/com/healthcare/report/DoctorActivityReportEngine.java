@@ -0,0 +1,232 @@
+package com.healthcare.report;
+
+import com.healthcare.dao.DoctorDAO;
+import com.healthcare.dao.ReportDAO;
+import com.healthcare.model.Doctor;
+import com.healthcare.util.IntIntHashMap;
+import com.healthcare.util.IntList;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes per-doctor activity over a date range: appointment volume, completion and
+ * cancellation rates, distinct patients seen and medical records authored.
+ * <p>
+ * Rows are streamed from the database into primitive arrays (three ints per appointment),
+ * then aggregated in parallel with fork/join into {@link IntIntHashMap}s keyed by doctor ID.
+ * Distinct patients are counted by sorting packed (doctor, patient) longs with a parallel sort.
+ */
+public class DoctorActivityReportEngine {
+
+    // Below this many rows a task counts directly instead of splitting further
+    private static final int SEQUENTIAL_THRESHOLD = 32 * 1024;
+
+    private static final int STATUS_OTHER = 0;
+    private static final int STATUS_COMPLETED = 1;
+    private static final int STATUS_CANCELLED = 2;
+
+    private final ReportDAO reportDAO;
+    private final DoctorDAO doctorDAO;
+    private final ForkJoinPool pool;
+
+    public DoctorActivityReportEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public DoctorActivityReportEngine(ForkJoinPool pool) {
+        this.reportDAO = new ReportDAO();
+        this.doctorDAO = new DoctorDAO();
+        this.pool = pool;
+    }
+
+    /**
+     * Generates the report for a date range.
+     *
+     * @param from The first day of the range (inclusive).
+     * @param to   The last day of the range (inclusive).
+     * @return The report, with one row per doctor sorted by appointment volume, or null on database error.
+     */
+    public DoctorActivityReport generate(LocalDate from, LocalDate to) {
+        long startNanos = System.nanoTime();
+
+        // Stream the medical record authors on a second connection while the appointments stream here
+        CompletableFuture<IntList> authorsFuture = CompletableFuture.supplyAsync(() -> {
+            IntList authors = new IntList(4096);
+            return reportDAO.streamRecordAuthors(from, to, authors::add) ? authors : null;
+        }, runnable -> new Thread(runnable, "report-record-authors").start());
+
+        IntList doctorIds = new IntList(16 * 1024);
+        IntList patientIds = new IntList(16 * 1024);
+        IntList statuses = new IntList(16 * 1024);
+        boolean appointmentsRead = reportDAO.streamAppointments(from, to, (doctorId, patientId, status) -> {
+            doctorIds.add(doctorId);
+            patientIds.add(patientId);
+            statuses.add(statusCode(status));
+        });
+
+        IntList authors = authorsFuture.join();
+        if (!appointmentsRead || authors == null) {
+            System.err.println("Doctor activity report failed: could not read activity rows.");
+            return null;
+        }
+
+        int[] doctorArray = doctorIds.rawArray();
+        int[] statusArray = statuses.rawArray();
+        int count = doctorIds.size();
+
+        AppointmentCounts appointmentCounts = pool.invoke(new AppointmentCountTask(doctorArray, statusArray, 0, count));
+        IntIntHashMap distinctPatients = countDistinctPatients(doctorArray, patientIds.rawArray(), count);
+        IntIntHashMap recordsAuthored = pool.invoke(new OccurrenceCountTask(authors.rawArray(), 0, authors.size()));
+
+        List<DoctorActivity> rows = new ArrayList<>();
+        IntIntHashMap seenDoctors = new IntIntHashMap();
+        for (Doctor doctor : doctorDAO.getAllDoctors()) {
+            int id = doctor.getDoctorId();
+            seenDoctors.put(id, 1);
+            rows.add(buildRow(id, doctor.getFirstName() + " " + doctor.getLastName(), doctor.getSpecialization(),
+                    appointmentCounts, distinctPatients, recordsAuthored));
+        }
+        // Activity can reference doctors deleted since; keep their numbers rather than dropping them
+        appointmentCounts.total.forEach((id, total) -> {
+            if (!seenDoctors.containsKey(id)) {
+                seenDoctors.put(id, 1);
+                rows.add(buildRow(id, "Unknown doctor", "", appointmentCounts, distinctPatients, recordsAuthored));
+            }
+        });
+        recordsAuthored.forEach((id, total) -> {
+            if (!seenDoctors.containsKey(id)) {
+                seenDoctors.put(id, 1);
+                rows.add(buildRow(id, "Unknown doctor", "", appointmentCounts, distinctPatients, recordsAuthored));
+            }
+        });
+
+        rows.sort(Comparator.comparingInt(DoctorActivity::getAppointments).reversed()
+                .thenComparingInt(DoctorActivity::getDoctorId));
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        System.out.println("Doctor activity report: " + count + " appointments, " + authors.size()
+                + " records, " + rows.size() + " doctors in " + elapsedMillis + " ms");
+        return new DoctorActivityReport(from, to, rows, elapsedMillis);
+    }
+
+    private static DoctorActivity buildRow(int doctorId, String name, String specialization, AppointmentCounts counts,
+                                           IntIntHashMap distinctPatients, IntIntHashMap recordsAuthored) {
+        return new DoctorActivity(doctorId, name, specialization,
+                counts.total.get(doctorId), counts.completed.get(doctorId), counts.cancelled.get(doctorId),
+                distinctPatients.get(doctorId), recordsAuthored.get(doctorId));
+    }
+
+    /**
+     * Counts distinct patients per doctor by sorting (doctor, patient) pairs packed into longs.
+     */
+    private static IntIntHashMap countDistinctPatients(int[] doctorIds, int[] patientIds, int count) {
+        long[] pairs = new long[count];
+        for (int i = 0; i < count; i++) {
+            pairs[i] = ((long) doctorIds[i] << 32) | (patientIds[i] & 0xFFFFFFFFL);
+        }
+        Arrays.parallelSort(pairs);
+
+        IntIntHashMap distinct = new IntIntHashMap();
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || pairs[i] != pairs[i - 1]) {
+                distinct.addTo((int) (pairs[i] >>> 32), 1);
+            }
+        }
+        return distinct;
+    }
+
+    private static int statusCode(String status) {
+        if ("Completed".equals(status)) return STATUS_COMPLETED;
+        if ("Cancelled".equals(status)) return STATUS_CANCELLED;
+        return STATUS_OTHER;
+    }
+
+    /**
+     * Per-doctor appointment totals for one slice of the rows.
+     */
+    private static class AppointmentCounts {
+        final IntIntHashMap total = new IntIntHashMap();
+        final IntIntHashMap completed = new IntIntHashMap();
+        final IntIntHashMap cancelled = new IntIntHashMap();
+
+        AppointmentCounts merge(AppointmentCounts other) {
+            total.addAll(other.total);
+            completed.addAll(other.completed);
+            cancelled.addAll(other.cancelled);
+            return this;
+        }
+    }
+
+    private static class AppointmentCountTask extends RecursiveTask<AppointmentCounts> {
+        private final int[] doctorIds;
+        private final int[] statuses;
+        private final int from;
+        private final int to;
+
+        AppointmentCountTask(int[] doctorIds, int[] statuses, int from, int to) {
+            this.doctorIds = doctorIds;
+            this.statuses = statuses;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected AppointmentCounts compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                AppointmentCounts counts = new AppointmentCounts();
+                for (int i = from; i < to; i++) {
+                    int doctorId = doctorIds[i];
+                    counts.total.addTo(doctorId, 1);
+                    if (statuses[i] == STATUS_COMPLETED) {
+                        counts.completed.addTo(doctorId, 1);
+                    } else if (statuses[i] == STATUS_CANCELLED) {
+                        counts.cancelled.addTo(doctorId, 1);
+                    }
+                }
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            AppointmentCountTask left = new AppointmentCountTask(doctorIds, statuses, from, middle);
+            left.fork();
+            AppointmentCounts right = new AppointmentCountTask(doctorIds, statuses, middle, to).compute();
+            return right.merge(left.join());
+        }
+    }
+
+    private static class OccurrenceCountTask extends RecursiveTask<IntIntHashMap> {
+        private final int[] values;
+        private final int from;
+        private final int to;
+
+        OccurrenceCountTask(int[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntIntHashMap compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                IntIntHashMap counts = new IntIntHashMap();
+                for (int i = from; i < to; i++) {
+                    counts.addTo(values[i], 1);
+                }
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            OccurrenceCountTask left = new OccurrenceCountTask(values, from, middle);
+            left.fork();
+            IntIntHashMap right = new OccurrenceCountTask(values, middle, to).compute();
+            right.addAll(left.join());
+            return right;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.healthcare.report;
+
+/**
+ * Two patient records that may be the same person, with how strongly they match.
+ */
+public class DuplicateCandidate {
+
+    private final int patientIdA;
+    private final String nameA;
+    private final int patientIdB;
+    private final String nameB;
+    private final double score;
+    private final String matchedOn;
+
+    public DuplicateCandidate(int patientIdA, String nameA, int patientIdB, String nameB, double score,
+                              String matchedOn) {
+        this.patientIdA = patientIdA;
+        this.nameA = nameA;
+        this.patientIdB = patientIdB;
+        this.nameB = nameB;
+        this.score = score;
+        this.matchedOn = matchedOn;
+    }
+
+    /**
+     * @return The lower of the two patient IDs, usually the record to keep.
+     */
+    public int getPatientIdA() {
+        return patientIdA;
+    }
+
+    public String getNameA() {
+        return nameA;
+    }
+
+    public int getPatientIdB() {
+        return patientIdB;
+    }
+
+    public String getNameB() {
+        return nameB;
+    }
+
+    /**
+     * @return From 0 to 1; see {@link DuplicatePatientFinder} for how it is made up.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * @return The fields that agree, e.g. "name, date of birth, phone".
+     */
+    public String getMatchedOn() {
+        return matchedOn;
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateCandidate{" +
+                "patientIdA=" + patientIdA +
+                ", patientIdB=" + patientIdB +
+                ", score=" + score +
+                ", matchedOn='" + matchedOn + '\'' +
+                '}';
+    }
+}
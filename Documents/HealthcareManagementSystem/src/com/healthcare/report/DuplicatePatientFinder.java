@@ -0,0 +1,366 @@
+package com.healthcare.report;
+
+import com.healthcare.config.AppConfig;
+import com.healthcare.dao.ContactIndex;
+import com.healthcare.dao.ReportDAO;
+import com.healthcare.search.PatientNameIndex;
+import com.healthcare.util.IntList;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds patients registered more than once and lists them as ranked merge candidates.
+ * <p>
+ * Comparing every pair of a million patients is out of the question, so patients are only compared within blocks
+ * that share a key: date of birth with the sound of the last name or of the first name (so a changed last name or
+ * swapped names are still caught), the normalised phone number, or the email address. Block keys are hashed and packed
+ * with the row number into longs, which a parallel sort brings together; the pairs from each block are then
+ * deduplicated the same way and scored with fork/join.
+ * <p>
+ * A pair's score is a weighted sum: first name 0.25 and last name 0.3 (by {@link PatientNameIndex#nameSimilarity},
+ * or a little less with first and last swapped), date of birth 0.25 (half for a likely typo), phone 0.1 and
+ * email 0.1. Keys shared by more than {@link #MAX_BLOCK_SIZE} patients, such as a clinic's own phone number, say
+ * nothing about identity and are skipped.
+ */
+public class DuplicatePatientFinder {
+
+    public static final double DEFAULT_MIN_SCORE = 0.75;
+
+    static final int MAX_BLOCK_SIZE = 100;
+
+    // Below this many pairs a task scores directly instead of splitting further
+    private static final int SEQUENTIAL_THRESHOLD = 8 * 1024;
+    private static final int KEYS_PER_PATIENT = 4;
+    private static final long NO_KEY = Long.MAX_VALUE; // Sorts after every real key
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final double FIRST_NAME_WEIGHT = 0.25;
+    private static final double LAST_NAME_WEIGHT = 0.3;
+    private static final double DATE_OF_BIRTH_WEIGHT = 0.25;
+    private static final double PHONE_WEIGHT = 0.1;
+    private static final double EMAIL_WEIGHT = 0.1;
+    private static final double SWAPPED_NAMES_FACTOR = 0.95;
+
+    private final ReportDAO reportDAO;
+    private final ForkJoinPool pool;
+
+    public DuplicatePatientFinder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public DuplicatePatientFinder(ForkJoinPool pool) {
+        this.reportDAO = new ReportDAO();
+        this.pool = pool;
+    }
+
+    /**
+     * Scans all patients for likely duplicates.
+     *
+     * @param minScore The lowest score to report, from 0 to 1.
+     * @return The candidates, highest score first, or null on database error.
+     */
+    public DuplicatePatientReport find(double minScore) {
+        long startNanos = System.nanoTime();
+
+        Patients patients = new Patients();
+        if (!reportDAO.streamPatientIdentities(patients::add)) {
+            System.err.println("Duplicate patient scan failed: could not read patients.");
+            return null;
+        }
+        return scan(patients, minScore, startNanos);
+    }
+
+    DuplicatePatientReport scan(Patients patients, double minScore, long startNanos) {
+        int count = patients.ids.size();
+
+        long[] keys = new long[count * KEYS_PER_PATIENT];
+        pool.invoke(new BlockKeyTask(patients, keys, 0, count));
+        Arrays.parallelSort(keys);
+
+        int[] blocksSkipped = new int[1];
+        long[] pairs = candidatePairs(keys, blocksSkipped);
+        Arrays.parallelSort(pairs);
+        int pairCount = removeDuplicates(pairs);
+
+        List<DuplicateCandidate> candidates = pool.invoke(new ScoreTask(patients, pairs, 0, pairCount, minScore));
+        candidates.sort(Comparator.comparingDouble(DuplicateCandidate::getScore).reversed()
+                .thenComparingInt(DuplicateCandidate::getPatientIdA)
+                .thenComparingInt(DuplicateCandidate::getPatientIdB));
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        System.out.println("Duplicate patient scan: " + count + " patients, " + pairCount + " pairs compared, "
+                + candidates.size() + " candidates, " + blocksSkipped[0] + " oversized blocks skipped in "
+                + elapsedMillis + " ms");
+        return new DuplicatePatientReport(candidates, count, pairCount, blocksSkipped[0], minScore, elapsedMillis);
+    }
+
+    /**
+     * Pairs up the rows of every block of equal keys, each pair packed as (lower row, higher row).
+     */
+    private static long[] candidatePairs(long[] keys, int[] blocksSkipped) {
+        long[] pairs = new long[1024];
+        int pairCount = 0;
+        int start = 0;
+        while (start < keys.length && keys[start] != NO_KEY) {
+            int hash = (int) (keys[start] >>> 32);
+            int end = start + 1;
+            while (end < keys.length && keys[end] != NO_KEY && (int) (keys[end] >>> 32) == hash) {
+                end++;
+            }
+            int size = end - start;
+            if (size > MAX_BLOCK_SIZE) {
+                blocksSkipped[0]++;
+            } else if (size > 1) {
+                long needed = pairCount + (long) size * (size - 1) / 2;
+                if (needed > pairs.length) {
+                    pairs = Arrays.copyOf(pairs, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, pairs.length * 2L)));
+                }
+                for (int i = start; i < end; i++) {
+                    for (int j = i + 1; j < end; j++) {
+                        int a = (int) keys[i];
+                        int b = (int) keys[j];
+                        if (a != b) {
+                            pairs[pairCount++] = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+                        }
+                    }
+                }
+            }
+            start = end;
+        }
+        return Arrays.copyOf(pairs, pairCount);
+    }
+
+    // Compacts a sorted array so each value appears once; returns the new length
+    private static int removeDuplicates(long[] sorted) {
+        int length = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[length++] = sorted[i];
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Scores one pair of rows; null if below minScore.
+     */
+    private static DuplicateCandidate score(Patients patients, int a, int b, double minScore) {
+        double first = PatientNameIndex.nameSimilarity(patients.firstNames.get(a), patients.firstNames.get(b));
+        double last = PatientNameIndex.nameSimilarity(patients.lastNames.get(a), patients.lastNames.get(b));
+        double names = FIRST_NAME_WEIGHT * first + LAST_NAME_WEIGHT * last;
+        double swapped = SWAPPED_NAMES_FACTOR * (FIRST_NAME_WEIGHT
+                * PatientNameIndex.nameSimilarity(patients.firstNames.get(a), patients.lastNames.get(b))
+                + LAST_NAME_WEIGHT * PatientNameIndex.nameSimilarity(patients.lastNames.get(a), patients.firstNames.get(b)));
+        double dateOfBirth = dateOfBirthSimilarity(patients.datesOfBirth.get(a), patients.datesOfBirth.get(b));
+        boolean samePhone = patients.phones.get(a) != null && patients.phones.get(a).equals(patients.phones.get(b));
+        boolean sameEmail = patients.emails.get(a) != null && patients.emails.get(a).equals(patients.emails.get(b));
+
+        double score = Math.max(names, swapped) + DATE_OF_BIRTH_WEIGHT * dateOfBirth
+                + (samePhone ? PHONE_WEIGHT : 0) + (sameEmail ? EMAIL_WEIGHT : 0);
+        if (score < minScore) {
+            return null;
+        }
+
+        List<String> matchedOn = new ArrayList<>();
+        if (swapped > names) {
+            matchedOn.add("name (first and last swapped)");
+        } else if (first == 1.0 && last == 1.0) {
+            matchedOn.add("name");
+        } else if (names > 0) {
+            matchedOn.add("similar name");
+        }
+        if (dateOfBirth == 1.0) {
+            matchedOn.add("date of birth");
+        } else if (dateOfBirth > 0) {
+            matchedOn.add("date of birth (one part differs)");
+        }
+        if (samePhone) {
+            matchedOn.add("phone");
+        }
+        if (sameEmail) {
+            matchedOn.add("email");
+        }
+        int idA = patients.ids.get(a);
+        int idB = patients.ids.get(b);
+        int rowA = idA <= idB ? a : b;
+        int rowB = idA <= idB ? b : a;
+        return new DuplicateCandidate(patients.ids.get(rowA), patients.displayName(rowA), patients.ids.get(rowB),
+                patients.displayName(rowB), Math.min(1.0, score), String.join(", ", matchedOn));
+    }
+
+    // 1 for the same date, 0.5 when only the year, month or day differs or day and month are swapped, else 0
+    private static double dateOfBirthSimilarity(int epochDayA, int epochDayB) {
+        if (epochDayA == NO_DATE || epochDayB == NO_DATE) {
+            return 0;
+        }
+        if (epochDayA == epochDayB) {
+            return 1;
+        }
+        LocalDate a = LocalDate.ofEpochDay(epochDayA);
+        LocalDate b = LocalDate.ofEpochDay(epochDayB);
+        int sameParts = (a.getYear() == b.getYear() ? 1 : 0) + (a.getMonthValue() == b.getMonthValue() ? 1 : 0)
+                + (a.getDayOfMonth() == b.getDayOfMonth() ? 1 : 0);
+        boolean swappedDayMonth = a.getYear() == b.getYear() && a.getMonthValue() == b.getDayOfMonth()
+                && a.getDayOfMonth() == b.getMonthValue();
+        return sameParts == 2 || swappedDayMonth ? 0.5 : 0;
+    }
+
+    /**
+     * The patients' identifying fields in columns, indexed by row; contact details are kept normalised.
+     */
+    static class Patients {
+        final IntList ids = new IntList(16 * 1024);
+        final List<String> firstNames = new ArrayList<>();
+        final List<String> lastNames = new ArrayList<>();
+        final IntList datesOfBirth = new IntList(16 * 1024); // Epoch days
+        final List<String> phones = new ArrayList<>();
+        final List<String> emails = new ArrayList<>();
+
+        void add(int patientId, String firstName, String lastName, LocalDate dateOfBirth, String phone, String email) {
+            ids.add(patientId);
+            firstNames.add(firstName);
+            lastNames.add(lastName);
+            datesOfBirth.add(dateOfBirth != null ? (int) dateOfBirth.toEpochDay() : NO_DATE);
+            phones.add(ContactIndex.normalizePhone(phone));
+            emails.add(ContactIndex.normalizeEmail(email));
+        }
+
+        String displayName(int row) {
+            String first = firstNames.get(row);
+            String last = lastNames.get(row);
+            return ((first != null ? first : "") + " " + (last != null ? last : "")).trim();
+        }
+    }
+
+    /**
+     * Fills the block keys of a range of rows: {@link #KEYS_PER_PATIENT} slots per row, each the key's hash in the
+     * high half and the row in the low half, or {@link #NO_KEY} when the row lacks that field.
+     */
+    private static class BlockKeyTask extends RecursiveAction {
+        private final Patients patients;
+        private final long[] keys;
+        private final int from;
+        private final int to;
+
+        BlockKeyTask(Patients patients, long[] keys, int from, int to) {
+            this.patients = patients;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int row = from; row < to; row++) {
+                    int slot = row * KEYS_PER_PATIENT;
+                    int dateOfBirth = patients.datesOfBirth.get(row);
+                    keys[slot] = dateOfBirth == NO_DATE ? NO_KEY
+                            : key("d" + dateOfBirth + soundOf(patients.lastNames.get(row)), row);
+                    keys[slot + 1] = dateOfBirth == NO_DATE ? NO_KEY
+                            : key("d" + dateOfBirth + soundOf(patients.firstNames.get(row)), row);
+                    String phone = patients.phones.get(row);
+                    keys[slot + 2] = phone == null ? NO_KEY : key("p" + phone, row);
+                    String email = patients.emails.get(row);
+                    keys[slot + 3] = email == null ? NO_KEY : key("e" + email, row);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BlockKeyTask(patients, keys, from, middle), new BlockKeyTask(patients, keys, middle, to));
+        }
+
+        // The primary Double Metaphone key, so "Smith" and "Smyth" share a block. First and last names share the
+        // key space, so a patient registered with the two swapped still meets the original
+        private static String soundOf(String name) {
+            List<String> keys = PatientNameIndex.phoneticKeys(name);
+            return keys.isEmpty() ? "" : ":" + keys.get(0);
+        }
+
+        // A hash collision only adds pairs to score, so 32 bits are plenty
+        private static long key(String value, int row) {
+            return ((long) value.hashCode() << 32) | row;
+        }
+    }
+
+    private static class ScoreTask extends RecursiveTask<List<DuplicateCandidate>> {
+        private final Patients patients;
+        private final long[] pairs;
+        private final int from;
+        private final int to;
+        private final double minScore;
+
+        ScoreTask(Patients patients, long[] pairs, int from, int to, double minScore) {
+            this.patients = patients;
+            this.pairs = pairs;
+            this.from = from;
+            this.to = to;
+            this.minScore = minScore;
+        }
+
+        @Override
+        protected List<DuplicateCandidate> compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                List<DuplicateCandidate> found = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    DuplicateCandidate candidate = score(patients, (int) (pairs[i] >>> 32), (int) pairs[i], minScore);
+                    if (candidate != null) {
+                        found.add(candidate);
+                    }
+                }
+                return found;
+            }
+            int middle = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(patients, pairs, from, middle, minScore);
+            left.fork();
+            List<DuplicateCandidate> right = new ScoreTask(patients, pairs, middle, to, minScore).compute();
+            right.addAll(left.join());
+            return right;
+        }
+    }
+
+    /**
+     * Runs the scan as a batch job and writes the merge candidates as CSV.
+     * <p>
+     * Usage: {@code DuplicatePatientFinder <output.csv> [minScore]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: DuplicatePatientFinder <output.csv> [minScore]");
+            System.exit(2);
+            return;
+        }
+        try {
+            AppConfig.get().requireDatabasePassword();
+        } catch (IllegalStateException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+            return;
+        }
+        double minScore = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_MIN_SCORE;
+
+        DuplicatePatientReport report = new DuplicatePatientFinder().find(minScore);
+        if (report == null) {
+            System.exit(1);
+            return;
+        }
+        Path output = Path.of(args[0]);
+        try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            report.writeCsv(writer);
+        }
+        System.out.println("Wrote " + report.getCandidates().size() + " merge candidates to " + output.toAbsolutePath());
+    }
+}
@@ -0,0 +1,95 @@
+package com.healthcare.report;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The result of a duplicate patient scan: merge candidates, most likely duplicates first.
+ */
+public class DuplicatePatientReport {
+
+    private static final String[] CSV_HEADER = {
+            "patient_id_a", "name_a", "patient_id_b", "name_b", "score", "matched_on"
+    };
+
+    private final List<DuplicateCandidate> candidates;
+    private final int patientsScanned;
+    private final long pairsCompared;
+    private final int blocksSkipped;
+    private final double minScore;
+    private final long elapsedMillis;
+
+    public DuplicatePatientReport(List<DuplicateCandidate> candidates, int patientsScanned, long pairsCompared,
+                                  int blocksSkipped, double minScore, long elapsedMillis) {
+        this.candidates = Collections.unmodifiableList(candidates);
+        this.patientsScanned = patientsScanned;
+        this.pairsCompared = pairsCompared;
+        this.blocksSkipped = blocksSkipped;
+        this.minScore = minScore;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<DuplicateCandidate> getCandidates() {
+        return candidates;
+    }
+
+    public int getPatientsScanned() {
+        return patientsScanned;
+    }
+
+    /**
+     * @return How many pairs shared a blocking key and were scored.
+     */
+    public long getPairsCompared() {
+        return pairsCompared;
+    }
+
+    /**
+     * @return How many blocking keys were shared by too many patients to compare (e.g. a clinic's phone number).
+     */
+    public int getBlocksSkipped() {
+        return blocksSkipped;
+    }
+
+    public double getMinScore() {
+        return minScore;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Writes the candidates as CSV with a header row.
+     *
+     * @param out The writer to write to. It is not closed.
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write(String.join(",", CSV_HEADER));
+        out.write('\n');
+        for (DuplicateCandidate candidate : candidates) {
+            out.write(candidate.getPatientIdA() + ","
+                    + csvField(candidate.getNameA()) + ","
+                    + candidate.getPatientIdB() + ","
+                    + csvField(candidate.getNameB()) + ","
+                    + String.format(Locale.ROOT, "%.4f", candidate.getScore()) + ","
+                    + csvField(candidate.getMatchedOn()));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    // Quotes a value if it contains a comma, quote or line break (RFC 4180)
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,585 @@
+package com.healthcare.search;
+
+/**
+ * Lawrence Philips' Double Metaphone: a phonetic key for a name, plus an alternate key where the name has a
+ * second common pronunciation ("Schmidt" is XMT and SMT, so it meets "Smith", SM0 and XMT).
+ * <p>
+ * Follows the original algorithm, and the rules are in the same order so they can be checked against it.
+ * Input is expected upper case, A-Z and spaces (see {@link PatientNameIndex}); keys are at most
+ * {@link #MAX_LENGTH} characters, with '0' standing for "th".
+ */
+final class DoubleMetaphone {
+
+    static final int MAX_LENGTH = 4;
+
+    private static final String VOWELS = "AEIOUY";
+    private static final String[] SILENT_START = {"GN", "KN", "PN", "WR", "PS"};
+    private static final String[] L_R_N_M_B_H_F_V_W_SPACE = {"L", "R", "N", "M", "B", "H", "F", "V", "W", " "};
+    private static final String[] ES_EP_EB_EL_EY_IB_IL_IN_IE_EI_ER =
+            {"ES", "EP", "EB", "EL", "EY", "IB", "IL", "IN", "IE", "EI", "ER"};
+    private static final String[] L_T_K_S_N_M_B_Z = {"L", "T", "K", "S", "N", "M", "B", "Z"};
+
+    private DoubleMetaphone() {
+    }
+
+    /**
+     * @return The primary and the alternate key; the same key twice when there is no alternate.
+     */
+    static String[] encode(String value) {
+        Keys keys = new Keys();
+        if (value == null || value.isEmpty()) {
+            return new String[]{"", ""};
+        }
+        boolean slavoGermanic = value.contains("W") || value.contains("K") || value.contains("CZ") || value.contains("WITZ");
+
+        int index = contains(value, 0, 2, SILENT_START) ? 1 : 0;
+        if (charAt(value, 0) == 'X') {
+            keys.append('S'); // "Xavier"
+            index = 1;
+        }
+
+        while (!keys.isComplete() && index < value.length()) {
+            switch (value.charAt(index)) {
+                case 'A':
+                case 'E':
+                case 'I':
+                case 'O':
+                case 'U':
+                case 'Y':
+                    if (index == 0) {
+                        keys.append('A'); // Only a leading vowel counts
+                    }
+                    index++;
+                    break;
+                case 'B':
+                    keys.append('P');
+                    index = charAt(value, index + 1) == 'B' ? index + 2 : index + 1;
+                    break;
+                case 'C':
+                    index = handleC(value, keys, index);
+                    break;
+                case 'D':
+                    index = handleD(value, keys, index);
+                    break;
+                case 'F':
+                    keys.append('F');
+                    index = charAt(value, index + 1) == 'F' ? index + 2 : index + 1;
+                    break;
+                case 'G':
+                    index = handleG(value, keys, index, slavoGermanic);
+                    break;
+                case 'H':
+                    index = handleH(value, keys, index);
+                    break;
+                case 'J':
+                    index = handleJ(value, keys, index, slavoGermanic);
+                    break;
+                case 'K':
+                    keys.append('K');
+                    index = charAt(value, index + 1) == 'K' ? index + 2 : index + 1;
+                    break;
+                case 'L':
+                    index = handleL(value, keys, index);
+                    break;
+                case 'M':
+                    keys.append('M');
+                    index = conditionM0(value, index) ? index + 2 : index + 1;
+                    break;
+                case 'N':
+                    keys.append('N');
+                    index = charAt(value, index + 1) == 'N' ? index + 2 : index + 1;
+                    break;
+                case 'P':
+                    index = handleP(value, keys, index);
+                    break;
+                case 'Q':
+                    keys.append('K');
+                    index = charAt(value, index + 1) == 'Q' ? index + 2 : index + 1;
+                    break;
+                case 'R':
+                    index = handleR(value, keys, index, slavoGermanic);
+                    break;
+                case 'S':
+                    index = handleS(value, keys, index, slavoGermanic);
+                    break;
+                case 'T':
+                    index = handleT(value, keys, index);
+                    break;
+                case 'V':
+                    keys.append('F');
+                    index = charAt(value, index + 1) == 'V' ? index + 2 : index + 1;
+                    break;
+                case 'W':
+                    index = handleW(value, keys, index);
+                    break;
+                case 'X':
+                    index = handleX(value, keys, index);
+                    break;
+                case 'Z':
+                    index = handleZ(value, keys, index, slavoGermanic);
+                    break;
+                default:
+                    index++;
+                    break;
+            }
+        }
+        return new String[]{keys.primary.toString(), keys.alternate.toString()};
+    }
+
+    private static int handleC(String value, Keys keys, int index) {
+        if (conditionC0(value, index)) { // Germanic "ach", e.g. "Bacher", "Macher"
+            keys.append('K');
+            index += 2;
+        } else if (index == 0 && contains(value, index, 6, "CAESAR")) {
+            keys.append('S');
+            index += 2;
+        } else if (contains(value, index, 2, "CH")) {
+            index = handleCH(value, keys, index);
+        } else if (contains(value, index, 2, "CZ") && !contains(value, index - 2, 4, "WICZ")) {
+            keys.append('S', 'X'); // "Czerny"
+            index += 2;
+        } else if (contains(value, index + 1, 3, "CIA")) {
+            keys.append('X'); // "Focaccia"
+            index += 3;
+        } else if (contains(value, index, 2, "CC") && !(index == 1 && charAt(value, 0) == 'M')) {
+            return handleCC(value, keys, index); // Double "cc", but not "McClelland"
+        } else if (contains(value, index, 2, "CK", "CG", "CQ")) {
+            keys.append('K');
+            index += 2;
+        } else if (contains(value, index, 2, "CI", "CE", "CY")) {
+            if (contains(value, index, 3, "CIO", "CIE", "CIA")) {
+                keys.append('S', 'X'); // Italian vs. English
+            } else {
+                keys.append('S');
+            }
+            index += 2;
+        } else {
+            keys.append('K');
+            if (contains(value, index + 1, 2, " C", " Q", " G")) {
+                index += 3; // "Mac Caffrey", "Mac Gregor"
+            } else if (contains(value, index + 1, 1, "C", "K", "Q") && !contains(value, index + 1, 2, "CE", "CI")) {
+                index += 2;
+            } else {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    private static int handleCC(String value, Keys keys, int index) {
+        if (contains(value, index + 2, 1, "I", "E", "H") && !contains(value, index + 2, 2, "HU")) {
+            if ((index == 1 && charAt(value, index - 1) == 'A') || contains(value, index - 1, 5, "UCCEE", "UCCES")) {
+                keys.append("KS"); // "Accident", "accede", "succeed"
+            } else {
+                keys.append('X'); // "Bacci", "Bertucci", other Italian
+            }
+            index += 3;
+        } else {
+            keys.append('K'); // Pierce's rule
+            index += 2;
+        }
+        return index;
+    }
+
+    private static int handleCH(String value, Keys keys, int index) {
+        if (index > 0 && contains(value, index, 4, "CHAE")) {
+            keys.append('K', 'X'); // "Michael"
+        } else if (conditionCH0(value, index) || conditionCH1(value, index)) {
+            keys.append('K'); // Greek roots ("chorus"), or Germanic "ch" for "kh"
+        } else if (index > 0) {
+            if (contains(value, 0, 2, "MC")) {
+                keys.append('K'); // "McHugh"
+            } else {
+                keys.append('X', 'K');
+            }
+        } else {
+            keys.append('X');
+        }
+        return index + 2;
+    }
+
+    private static int handleD(String value, Keys keys, int index) {
+        if (contains(value, index, 2, "DG")) {
+            if (contains(value, index + 2, 1, "I", "E", "Y")) {
+                keys.append('J'); // "Edge"
+                index += 3;
+            } else {
+                keys.append("TK"); // "Edgar"
+                index += 2;
+            }
+        } else if (contains(value, index, 2, "DT", "DD")) {
+            keys.append('T');
+            index += 2;
+        } else {
+            keys.append('T');
+            index++;
+        }
+        return index;
+    }
+
+    private static int handleG(String value, Keys keys, int index, boolean slavoGermanic) {
+        if (charAt(value, index + 1) == 'H') {
+            index = handleGH(value, keys, index);
+        } else if (charAt(value, index + 1) == 'N') {
+            if (index == 1 && isVowel(charAt(value, 0)) && !slavoGermanic) {
+                keys.append("KN", "N");
+            } else if (!contains(value, index + 2, 2, "EY") && charAt(value, index + 1) != 'Y' && !slavoGermanic) {
+                keys.append("N", "KN");
+            } else {
+                keys.append("KN");
+            }
+            index += 2;
+        } else if (contains(value, index + 1, 2, "LI") && !slavoGermanic) {
+            keys.append("KL", "L"); // "Tagliaro"
+            index += 2;
+        } else if (index == 0 && (charAt(value, index + 1) == 'Y'
+                || contains(value, index + 1, 2, ES_EP_EB_EL_EY_IB_IL_IN_IE_EI_ER))) {
+            keys.append('K', 'J'); // -ges-, -gep-, -gel-, -gie- at the start
+            index += 2;
+        } else if ((contains(value, index + 1, 2, "ER") || charAt(value, index + 1) == 'Y')
+                && !contains(value, 0, 6, "DANGER", "RANGER", "MANGER")
+                && !contains(value, index - 1, 1, "E", "I")
+                && !contains(value, index - 1, 3, "RGY", "OGY")) {
+            keys.append('K', 'J'); // -ger-, -gy-
+            index += 2;
+        } else if (contains(value, index + 1, 1, "E", "I", "Y") || contains(value, index - 1, 4, "AGGI", "OGGI")) {
+            if (contains(value, 0, 4, "VAN ", "VON ") || contains(value, 0, 3, "SCH") || contains(value, index + 1, 2, "ET")) {
+                keys.append('K'); // Obviously Germanic
+            } else if (contains(value, index + 1, 3, "IER")) {
+                keys.append('J');
+            } else {
+                keys.append('J', 'K');
+            }
+            index += 2;
+        } else if (charAt(value, index + 1) == 'G') {
+            keys.append('K');
+            index += 2;
+        } else {
+            keys.append('K');
+            index++;
+        }
+        return index;
+    }
+
+    private static int handleGH(String value, Keys keys, int index) {
+        if (index > 0 && !isVowel(charAt(value, index - 1))) {
+            keys.append('K');
+        } else if (index == 0) {
+            keys.append(charAt(value, index + 2) == 'I' ? 'J' : 'K'); // "Ghislane", "Ghiradelli"
+        } else if ((index > 1 && contains(value, index - 2, 1, "B", "H", "D"))
+                || (index > 2 && contains(value, index - 3, 1, "B", "H", "D"))
+                || (index > 3 && contains(value, index - 4, 1, "B", "H"))) {
+            // Parker's rule, e.g. "Hugh": silent
+        } else if (index > 2 && charAt(value, index - 1) == 'U' && contains(value, index - 3, 1, "C", "G", "L", "R", "T")) {
+            keys.append('F'); // "Laugh", "McLaughlin", "cough", "rough"
+        } else if (index > 0 && charAt(value, index - 1) != 'I') {
+            keys.append('K');
+        }
+        return index + 2;
+    }
+
+    private static int handleH(String value, Keys keys, int index) {
+        // Only kept first or between vowels, and before a vowel
+        if ((index == 0 || isVowel(charAt(value, index - 1))) && isVowel(charAt(value, index + 1))) {
+            keys.append('H');
+            return index + 2;
+        }
+        return index + 1;
+    }
+
+    private static int handleJ(String value, Keys keys, int index, boolean slavoGermanic) {
+        if (contains(value, index, 4, "JOSE") || contains(value, 0, 4, "SAN ")) {
+            // Obviously Spanish, "Jose", "San Jacinto"
+            if ((index == 0 && (charAt(value, index + 4) == ' ' || value.length() == 4)) || contains(value, 0, 4, "SAN ")) {
+                keys.append('H');
+            } else {
+                keys.append('J', 'H');
+            }
+            return index + 1;
+        }
+        if (index == 0) {
+            keys.append('J', 'A'); // "Jankelowicz" / "Yankelovich"
+        } else if (isVowel(charAt(value, index - 1)) && !slavoGermanic
+                && (charAt(value, index + 1) == 'A' || charAt(value, index + 1) == 'O')) {
+            keys.append('J', 'H'); // Spanish pronunciation of e.g. "bajador"
+        } else if (index == value.length() - 1) {
+            keys.append('J', ' ');
+        } else if (!contains(value, index + 1, 1, L_T_K_S_N_M_B_Z) && !contains(value, index - 1, 1, "S", "K", "L")) {
+            keys.append('J');
+        }
+        return charAt(value, index + 1) == 'J' ? index + 2 : index + 1;
+    }
+
+    private static int handleL(String value, Keys keys, int index) {
+        if (charAt(value, index + 1) == 'L') {
+            if (conditionL0(value, index)) {
+                keys.appendPrimary('L'); // Spanish "-illo", "-illa": silent in the alternate
+            } else {
+                keys.append('L');
+            }
+            return index + 2;
+        }
+        keys.append('L');
+        return index + 1;
+    }
+
+    private static int handleP(String value, Keys keys, int index) {
+        if (charAt(value, index + 1) == 'H') {
+            keys.append('F');
+            return index + 2;
+        }
+        keys.append('P');
+        return contains(value, index + 1, 1, "P", "B") ? index + 2 : index + 1; // Also "Campbell", "raspberry"
+    }
+
+    private static int handleR(String value, Keys keys, int index, boolean slavoGermanic) {
+        if (index == value.length() - 1 && !slavoGermanic
+                && contains(value, index - 2, 2, "IE") && !contains(value, index - 4, 2, "ME", "MA")) {
+            keys.appendAlternate('R'); // French, e.g. "Rogier"
+        } else {
+            keys.append('R');
+        }
+        return charAt(value, index + 1) == 'R' ? index + 2 : index + 1;
+    }
+
+    private static int handleS(String value, Keys keys, int index, boolean slavoGermanic) {
+        if (contains(value, index - 1, 3, "ISL", "YSL")) {
+            return index + 1; // "Island", "isle", "Carlisle", "Carlysle"
+        }
+        if (index == 0 && contains(value, index, 5, "SUGAR")) {
+            keys.append('X', 'S');
+            return index + 1;
+        }
+        if (contains(value, index, 2, "SH")) {
+            if (contains(value, index + 1, 4, "HEIM", "HOEK", "HOLM", "HOLZ")) {
+                keys.append('S'); // Germanic
+            } else {
+                keys.append('X');
+            }
+            return index + 2;
+        }
+        if (contains(value, index, 3, "SIO", "SIA") || contains(value, index, 4, "SIAN")) {
+            if (slavoGermanic) {
+                keys.append('S');
+            } else {
+                keys.append('S', 'X'); // Italian and Armenian
+            }
+            return index + 3;
+        }
+        if ((index == 0 && contains(value, index + 1, 1, "M", "N", "L", "W")) || contains(value, index + 1, 1, "Z")) {
+            // German and anglicised: "Smith" meets "Schmidt", "Snider" meets "Schneider"; Slavic -sz-
+            keys.append('S', 'X');
+            return contains(value, index + 1, 1, "Z") ? index + 2 : index + 1;
+        }
+        if (contains(value, index, 2, "SC")) {
+            return handleSC(value, keys, index);
+        }
+        if (index == value.length() - 1 && contains(value, index - 2, 2, "AI", "OI")) {
+            keys.appendAlternate('S'); // French, e.g. "Resnais", "Artois"
+        } else {
+            keys.append('S');
+        }
+        return contains(value, index + 1, 1, "S", "Z") ? index + 2 : index + 1;
+    }
+
+    private static int handleSC(String value, Keys keys, int index) {
+        if (charAt(value, index + 2) == 'H') {
+            // Schlesinger's rule
+            if (contains(value, index + 3, 2, "OO", "ER", "EN", "UY", "ED", "EM")) {
+                if (contains(value, index + 3, 2, "ER", "EN")) {
+                    keys.append("X", "SK"); // "Schermerhorn", "Schenker"
+                } else {
+                    keys.append("SK"); // Dutch, e.g. "school", "schooner"
+                }
+            } else if (index == 0 && !isVowel(charAt(value, 3)) && charAt(value, 3) != 'W') {
+                keys.append('X', 'S');
+            } else {
+                keys.append('X');
+            }
+        } else if (contains(value, index + 2, 1, "I", "E", "Y")) {
+            keys.append('S');
+        } else {
+            keys.append("SK");
+        }
+        return index + 3;
+    }
+
+    private static int handleT(String value, Keys keys, int index) {
+        if (contains(value, index, 4, "TION") || contains(value, index, 3, "TIA", "TCH")) {
+            keys.append('X');
+            return index + 3;
+        }
+        if (contains(value, index, 2, "TH") || contains(value, index, 3, "TTH")) {
+            if (contains(value, index + 2, 2, "OM", "AM") || contains(value, 0, 4, "VAN ", "VON ") || contains(value, 0, 3, "SCH")) {
+                keys.append('T'); // "Thomas", "Thames", or Germanic
+            } else {
+                keys.append('0', 'T');
+            }
+            return index + 2;
+        }
+        keys.append('T');
+        return contains(value, index + 1, 1, "T", "D") ? index + 2 : index + 1;
+    }
+
+    private static int handleW(String value, Keys keys, int index) {
+        if (contains(value, index, 2, "WR")) {
+            keys.append('R');
+            return index + 2;
+        }
+        if (index == 0 && (isVowel(charAt(value, index + 1)) || contains(value, index, 2, "WH"))) {
+            if (isVowel(charAt(value, index + 1))) {
+                keys.append('A', 'F'); // "Wasserman" meets "Vasserman"
+            } else {
+                keys.append('A'); // "Uomo" meets "Womo"
+            }
+            return index + 1;
+        }
+        if ((index == value.length() - 1 && isVowel(charAt(value, index - 1)))
+                || contains(value, index - 1, 5, "EWSKI", "EWSKY", "OWSKI", "OWSKY")
+                || contains(value, 0, 3, "SCH")) {
+            keys.appendAlternate('F'); // "Arnow" meets "Arnoff"
+            return index + 1;
+        }
+        if (contains(value, index, 4, "WICZ", "WITZ")) {
+            keys.append("TS", "FX"); // Polish, e.g. "Filipowicz"
+            return index + 4;
+        }
+        return index + 1;
+    }
+
+    private static int handleX(String value, Keys keys, int index) {
+        if (index == 0) {
+            keys.append('S');
+            return index + 1;
+        }
+        if (!(index == value.length() - 1
+                && (contains(value, index - 3, 3, "IAU", "EAU") || contains(value, index - 2, 2, "AU", "OU")))) {
+            keys.append("KS"); // Not French, e.g. "Breaux"
+        }
+        return contains(value, index + 1, 1, "C", "X") ? index + 2 : index + 1;
+    }
+
+    private static int handleZ(String value, Keys keys, int index, boolean slavoGermanic) {
+        if (charAt(value, index + 1) == 'H') {
+            keys.append('J'); // Chinese pinyin, e.g. "Zhao"
+            return index + 2;
+        }
+        if (contains(value, index + 1, 2, "ZO", "ZI", "ZA") || (slavoGermanic && index > 0 && charAt(value, index - 1) != 'T')) {
+            keys.append("S", "TS");
+        } else {
+            keys.append('S');
+        }
+        return charAt(value, index + 1) == 'Z' ? index + 2 : index + 1;
+    }
+
+    private static boolean conditionC0(String value, int index) {
+        if (contains(value, index, 4, "CHIA")) {
+            return true;
+        }
+        if (index <= 1 || isVowel(charAt(value, index - 2)) || !contains(value, index - 1, 3, "ACH")) {
+            return false;
+        }
+        char c = charAt(value, index + 2);
+        return (c != 'I' && c != 'E') || contains(value, index - 2, 6, "BACHER", "MACHER");
+    }
+
+    private static boolean conditionCH0(String value, int index) {
+        if (index != 0) {
+            return false;
+        }
+        if (!contains(value, index + 1, 5, "HARAC", "HARIS") && !contains(value, index + 1, 3, "HOR", "HYM", "HIA", "HEM")) {
+            return false;
+        }
+        return !contains(value, 0, 5, "CHORE");
+    }
+
+    private static boolean conditionCH1(String value, int index) {
+        return contains(value, 0, 4, "VAN ", "VON ") || contains(value, 0, 3, "SCH")
+                || contains(value, index - 2, 6, "ORCHES", "ARCHIT", "ORCHID")
+                || contains(value, index + 2, 1, "T", "S")
+                || ((contains(value, index - 1, 1, "A", "O", "U", "E") || index == 0)
+                && (contains(value, index + 2, 1, L_R_N_M_B_H_F_V_W_SPACE) || index + 1 == value.length() - 1));
+    }
+
+    private static boolean conditionL0(String value, int index) {
+        if (index == value.length() - 3 && contains(value, index - 1, 4, "ILLO", "ILLA", "ALLE")) {
+            return true;
+        }
+        return (contains(value, value.length() - 2, 2, "AS", "OS") || contains(value, value.length() - 1, 1, "A", "O"))
+                && contains(value, index - 1, 4, "ALLE");
+    }
+
+    private static boolean conditionM0(String value, int index) {
+        if (charAt(value, index + 1) == 'M') {
+            return true;
+        }
+        // "Dumb", "thumb", "Plumber"
+        return contains(value, index - 1, 3, "UMB")
+                && (index + 1 == value.length() - 1 || contains(value, index + 2, 2, "ER"));
+    }
+
+    private static boolean isVowel(char c) {
+        return c != 0 && VOWELS.indexOf(c) >= 0;
+    }
+
+    // The character at index, or 0 outside the value
+    private static char charAt(String value, int index) {
+        return index >= 0 && index < value.length() ? value.charAt(index) : 0;
+    }
+
+    private static boolean contains(String value, int start, int length, String... candidates) {
+        if (start < 0 || start + length > value.length()) {
+            return false;
+        }
+        String part = value.substring(start, start + length);
+        for (String candidate : candidates) {
+            if (part.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The two keys being built, each cut off at {@link #MAX_LENGTH}.
+     */
+    private static final class Keys {
+        final StringBuilder primary = new StringBuilder(MAX_LENGTH);
+        final StringBuilder alternate = new StringBuilder(MAX_LENGTH);
+
+        void append(char value) {
+            appendPrimary(value);
+            appendAlternate(value);
+        }
+
+        void append(char primaryValue, char alternateValue) {
+            appendPrimary(primaryValue);
+            appendAlternate(alternateValue);
+        }
+
+        void appendPrimary(char value) {
+            if (primary.length() < MAX_LENGTH) {
+                primary.append(value);
+            }
+        }
+
+        void appendAlternate(char value) {
+            if (alternate.length() < MAX_LENGTH) {
+                alternate.append(value);
+            }
+        }
+
+        void append(String value) {
+            append(value, value);
+        }
+
+        void append(String primaryValue, String alternateValue) {
+            primary.append(primaryValue, 0, Math.min(primaryValue.length(), MAX_LENGTH - primary.length()));
+            alternate.append(alternateValue, 0, Math.min(alternateValue.length(), MAX_LENGTH - alternate.length()));
+        }
+
+        boolean isComplete() {
+            return primary.length() >= MAX_LENGTH && alternate.length() >= MAX_LENGTH;
+        }
+    }
+}
@@ -0,0 +1,686 @@
+package com.healthcare.search;
+
+import com.healthcare.config.AppConfig;
+import com.healthcare.dao.MedicalRecordDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.model.MedicalRecord;
+import com.healthcare.util.IntIntHashMap;
+import com.healthcare.util.IntList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over the diagnosis, treatment and notes of the medical records, for ranked full-text search.
+ * <p>
+ * Each term maps to the records containing it and how often (its postings); each record keeps its own term list,
+ * which is used to check phrases and to take the record out of the postings when it changes. Search returns the
+ * records containing every query term, ranked by BM25, optionally for one patient or doctor.
+ * <p>
+ * {@link #sync()} loads the index from the local file ({@code search.indexFile}) and then compares each record's
+ * {@code version} with the database, so only records written since the file was saved are read and re-indexed.
+ * After that, writes made through this JVM's DAOs update the index as they happen (via the {@link ChangeEventBus})
+ * and the file is saved a few seconds later. Writes from other workstations are picked up by the next sync
+ * (see {@link #syncIfStaleOrThrow(long)}).
+ */
+public class MedicalRecordSearchIndex {
+
+    private static final MedicalRecordSearchIndex INSTANCE = new MedicalRecordSearchIndex();
+
+    // The usual BM25 defaults: how fast repeated terms stop adding to the score, and how much long records are damped
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Term list entries that are not terms
+    private static final int STOP = -1;      // A stop word, kept so phrases line up
+    private static final int FIELD_END = -2; // Between diagnosis, treatment and notes, so a phrase never spans two
+
+    private static final int FETCH_BATCH = 500;
+    private static final long SAVE_DELAY_MS = 10_000;
+
+    // Best first; among equal scores, newer records first
+    private static final Comparator<SearchHit> RANKING = Comparator.comparingDouble(SearchHit::getScore).reversed()
+            .thenComparing(Comparator.comparingInt(SearchHit::getRecordId).reversed());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private final Map<Integer, IndexedRecord> records = new HashMap<>();
+    private long totalLength; // Terms in all records, for the average record length
+    private Set<Integer> changedDuringSync; // Records the event bus touched while a sync was reading, so it leaves them alone
+
+    private final MedicalRecordDAO medicalRecordDAO = new MedicalRecordDAO();
+    private final ChangeEventBus.ChangeListener listener = this::onChange;
+    private boolean opened = false; // The saved index has been read and the listener subscribed
+    private SearchIndexFile file;
+    private String database;
+    private volatile boolean loaded = false;
+    private volatile long syncedAtNanos;
+
+    private final Object saveLock = new Object();
+    private boolean saveScheduled = false;
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-index-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    MedicalRecordSearchIndex() {
+    }
+
+    /**
+     * An index of its own, outside the application's, e.g. for tests without a database: it has no saved file,
+     * is not subscribed to the event bus, and tags its payloads with the given database.
+     */
+    public MedicalRecordSearchIndex(String database) {
+        this.database = database;
+    }
+
+    public static MedicalRecordSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true once the index has been synced with the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return The number of records indexed.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return records.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the index up to date with the database, loading the saved index first if this is the first sync.
+     *
+     * @return true if the index is synced, false if the database could not be read.
+     */
+    public boolean sync() {
+        try {
+            syncOrThrow();
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Search index could not be synced: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Syncs the index if it never has been or the last sync is older than the given age.
+     *
+     * @throws SQLException if a sync was needed and the database could not be read.
+     */
+    public void syncIfStaleOrThrow(long maxAgeMillis) throws SQLException {
+        if (!loaded || System.nanoTime() - syncedAtNanos > TimeUnit.MILLISECONDS.toNanos(maxAgeMillis)) {
+            syncOrThrow();
+        }
+    }
+
+    /**
+     * Like {@link #sync()}, but throws.
+     *
+     * @throws SQLException if the database could not be read.
+     */
+    public synchronized void syncOrThrow() throws SQLException {
+        long startNanos = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changedDuringSync = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!opened) {
+            loadFile();
+            ChangeEventBus.getInstance().subscribe(listener);
+            opened = true;
+        }
+        int reindexed = 0;
+        int removed = 0;
+        try {
+            IntIntHashMap versions = medicalRecordDAO.getMedicalRecordVersionsOrThrow();
+            List<Integer> stale = new ArrayList<>();
+            IntList gone = new IntList();
+            lock.readLock().lock();
+            try {
+                versions.forEach((recordId, version) -> {
+                    IndexedRecord indexed = records.get(recordId);
+                    if (indexed == null || indexed.version != version) {
+                        stale.add(recordId);
+                    }
+                });
+                for (Integer recordId : records.keySet()) {
+                    if (!versions.containsKey(recordId)) {
+                        gone.add(recordId);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            if (stale.size() > versions.size() / 2) {
+                // Most of the table (e.g. no saved index): reading it page by page beats long IN lists
+                int afterId = 0;
+                List<MedicalRecord> page;
+                while (!(page = medicalRecordDAO.getMedicalRecordsPageOrThrow(afterId, FETCH_BATCH)).isEmpty()) {
+                    reindexed += putAll(page);
+                    afterId = page.get(page.size() - 1).getRecordId();
+                }
+            } else {
+                for (int from = 0; from < stale.size(); from += FETCH_BATCH) {
+                    List<Integer> batch = stale.subList(from, Math.min(from + FETCH_BATCH, stale.size()));
+                    reindexed += putAll(medicalRecordDAO.getMedicalRecordsByIdsOrThrow(batch));
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < gone.size(); i++) {
+                    if (!changedDuringSync.contains(gone.get(i))) {
+                        remove(gone.get(i));
+                        removed++;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringSync = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        loaded = true;
+        syncedAtNanos = System.nanoTime();
+        if (reindexed > 0 || removed > 0) {
+            save();
+        }
+        System.out.println("Search index: " + size() + " medical records (" + reindexed + " re-indexed, " + removed
+                + " removed) in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms");
+    }
+
+    /**
+     * Finds the records that contain every word of the query, best first. Words in double quotes must appear
+     * next to each other in that order, within one of the three fields.
+     *
+     * @param query     E.g. {@code asthma "inhaled steroids"}.
+     * @param patientId Only this patient's records, or null.
+     * @param doctorId  Only this doctor's records, or null.
+     * @param limit     The maximum number of hits.
+     * @return The hits ranked by BM25 score; empty for a query without searchable words.
+     */
+    public List<SearchHit> search(String query, Integer patientId, Integer doctorId, int limit) {
+        List<List<String>> clauses = parse(query);
+        if (clauses.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Term IDs per clause; a word no record contains means nothing matches
+            List<int[]> phrases = new ArrayList<>();
+            IntList queryTerms = new IntList();
+            for (List<String> clause : clauses) {
+                int[] phrase = new int[clause.size()];
+                for (int i = 0; i < phrase.length; i++) {
+                    String term = clause.get(i);
+                    if (term.equals(TextTokenizer.STOP_WORD)) {
+                        phrase[i] = STOP;
+                        continue;
+                    }
+                    Integer termId = termIds.get(term);
+                    if (termId == null || postings.get(termId).size == 0) {
+                        return new ArrayList<>();
+                    }
+                    phrase[i] = termId;
+                    if (!contains(queryTerms, termId)) {
+                        queryTerms.add(termId);
+                    }
+                }
+                if (phrase.length > 1) {
+                    phrases.add(phrase);
+                }
+            }
+
+            // Walk the rarest term's postings and look the other terms up in theirs
+            Postings driver = postings.get(queryTerms.get(0));
+            for (int i = 1; i < queryTerms.size(); i++) {
+                Postings candidate = postings.get(queryTerms.get(i));
+                if (candidate.size < driver.size) {
+                    driver = candidate;
+                }
+            }
+            int recordCount = records.size();
+            double averageLength = recordCount > 0 ? (double) totalLength / recordCount : 1;
+            double[] idf = new double[queryTerms.size()];
+            for (int i = 0; i < idf.length; i++) {
+                int df = postings.get(queryTerms.get(i)).size;
+                idf[i] = Math.log(1 + (recordCount - df + 0.5) / (df + 0.5));
+            }
+
+            PriorityQueue<SearchHit> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            for (int p = 0; p < driver.size; p++) {
+                int recordId = driver.recordIds[p];
+                IndexedRecord record = records.get(recordId);
+                if ((patientId != null && record.patientId != patientId)
+                        || (doctorId != null && record.doctorId != doctorId)) {
+                    continue;
+                }
+                double lengthNorm = K1 * (1 - B + B * record.length / averageLength);
+                double score = 0;
+                boolean matches = true;
+                for (int i = 0; i < idf.length && matches; i++) {
+                    int tf = postings.get(queryTerms.get(i)).frequency(recordId);
+                    matches = tf > 0;
+                    score += idf[i] * tf * (K1 + 1) / (tf + lengthNorm);
+                }
+                for (int i = 0; i < phrases.size() && matches; i++) {
+                    matches = containsPhrase(record.terms, phrases.get(i));
+                }
+                if (matches) {
+                    best.add(new SearchHit(recordId, score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            List<SearchHit> hits = new ArrayList<>(best);
+            hits.sort(RANKING);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits a query into clauses: a quoted phrase is one clause, every other word its own.
+     * Stop words outside phrases, and at the ends of phrases, are dropped.
+     */
+    static List<List<String>> parse(String query) {
+        List<List<String>> clauses = new ArrayList<>();
+        if (query == null) {
+            return clauses;
+        }
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            List<String> tokens = TextTokenizer.tokenize(parts[i]);
+            if (i % 2 == 1) {
+                int from = 0;
+                int to = tokens.size();
+                while (from < to && tokens.get(from).equals(TextTokenizer.STOP_WORD)) {
+                    from++;
+                }
+                while (to > from && tokens.get(to - 1).equals(TextTokenizer.STOP_WORD)) {
+                    to--;
+                }
+                if (from < to) {
+                    clauses.add(new ArrayList<>(tokens.subList(from, to)));
+                }
+            } else {
+                for (String token : tokens) {
+                    if (!token.equals(TextTokenizer.STOP_WORD)) {
+                        clauses.add(List.of(token));
+                    }
+                }
+            }
+        }
+        return clauses;
+    }
+
+    /**
+     * Applies a medical record write; other entities are ignored.
+     */
+    public void onChange(ChangeEvent event) {
+        if (event.getEntity() != ChangeEvent.Entity.MEDICAL_RECORD) {
+            return;
+        }
+        MedicalRecord record = event.getPayload(MedicalRecord.class);
+        lock.writeLock().lock();
+        try {
+            if (event.getOperation() == ChangeEvent.Operation.DELETE) {
+                remove(event.getId());
+            } else if (record != null) {
+                put(record);
+            }
+            if (changedDuringSync != null) {
+                changedDuringSync.add(event.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleSave();
+    }
+
+    // Indexes rows read by a sync, except those the event bus changed meanwhile (they are newer)
+    private int putAll(List<MedicalRecord> rows) {
+        int count = 0;
+        lock.writeLock().lock();
+        try {
+            for (MedicalRecord row : rows) {
+                IndexedRecord indexed = records.get(row.getRecordId());
+                if (!changedDuringSync.contains(row.getRecordId())
+                        && (indexed == null || indexed.version != row.getVersion())) {
+                    put(row);
+                    count++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return count;
+    }
+
+    // Callers hold the write lock
+    private void put(MedicalRecord record) {
+        IntList termList = new IntList(64);
+        addField(termList, record.getDiagnosis());
+        termList.add(FIELD_END);
+        addField(termList, record.getTreatment());
+        termList.add(FIELD_END);
+        addField(termList, record.getNotes());
+        Integer doctorId = record.getDoctorId();
+        put(record.getRecordId(), record.getVersion(), record.getPatientId(), doctorId != null ? doctorId : 0, termList.toArray());
+    }
+
+    private void put(int recordId, int version, int patientId, int doctorId, int[] termList) {
+        remove(recordId);
+        IntIntHashMap frequencies = new IntIntHashMap(termList.length, 0);
+        int length = 0;
+        for (int termId : termList) {
+            if (termId >= 0) {
+                frequencies.addTo(termId, 1);
+                length++;
+            }
+        }
+        frequencies.forEach((termId, frequency) -> postings.get(termId).put(recordId, frequency));
+        records.put(recordId, new IndexedRecord(version, patientId, doctorId, termList, length));
+        totalLength += length;
+    }
+
+    private void remove(int recordId) {
+        IndexedRecord record = records.remove(recordId);
+        if (record == null) {
+            return;
+        }
+        for (int termId : record.terms) {
+            if (termId >= 0) {
+                postings.get(termId).remove(recordId);
+            }
+        }
+        totalLength -= record.length;
+    }
+
+    private void addField(IntList termList, String text) {
+        for (String token : TextTokenizer.tokenize(text)) {
+            termList.add(token.equals(TextTokenizer.STOP_WORD) ? STOP : termId(token));
+        }
+    }
+
+    private int termId(String term) {
+        Integer termId = termIds.get(term);
+        if (termId == null) {
+            termId = terms.size();
+            termIds.put(term, termId);
+            terms.add(term);
+            postings.add(new Postings());
+        }
+        return termId;
+    }
+
+    private static boolean containsPhrase(int[] termList, int[] phrase) {
+        outer:
+        for (int start = 0; start + phrase.length <= termList.length; start++) {
+            for (int i = 0; i < phrase.length; i++) {
+                if (termList[start + i] != phrase[i]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean contains(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // --- Saved index ---
+
+    private void loadFile() {
+        AppConfig config = AppConfig.get();
+        database = config.get(AppConfig.DB_URL);
+        String path = config.get(AppConfig.SEARCH_INDEX_FILE);
+        file = path.isEmpty() ? null : new SearchIndexFile(Paths.get(path));
+        if (file == null) {
+            return;
+        }
+        try {
+            byte[] payload = file.load();
+            if (payload != null && !decode(payload)) {
+                System.out.println("Search index at " + file.getPath() + " is for another database, rebuilding");
+            }
+        } catch (IOException ex) {
+            System.err.println("Ignoring search index: " + ex.getMessage());
+            lock.writeLock().lock();
+            try {
+                clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void scheduleSave() {
+        if (file == null) {
+            return;
+        }
+        synchronized (saveLock) {
+            if (!saveScheduled) {
+                saveScheduled = true;
+                saver.schedule(() -> {
+                    synchronized (saveLock) {
+                        saveScheduled = false;
+                    }
+                    save();
+                }, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.save(encode());
+        } catch (IOException ex) {
+            // Not fatal: the next start re-indexes what the file is missing
+            System.err.println("Could not save search index to " + file.getPath() + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Payload: database URL, the terms in use, then per record its ID, version, patient, doctor (0 for none)
+     * and term list, with term IDs renumbered to the saved terms.
+     */
+    public byte[] encode() throws IOException {
+        lock.readLock().lock();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + records.size() * 256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(database);
+
+            int[] savedIds = new int[terms.size()];
+            int savedTerms = 0;
+            for (int termId = 0; termId < terms.size(); termId++) {
+                savedIds[termId] = postings.get(termId).size > 0 ? savedTerms++ : -1;
+            }
+            out.writeInt(savedTerms);
+            for (int termId = 0; termId < terms.size(); termId++) {
+                if (savedIds[termId] >= 0) {
+                    out.writeUTF(terms.get(termId));
+                }
+            }
+
+            out.writeInt(records.size());
+            for (Map.Entry<Integer, IndexedRecord> entry : records.entrySet()) {
+                IndexedRecord record = entry.getValue();
+                out.writeInt(entry.getKey());
+                out.writeInt(record.version);
+                out.writeInt(record.patientId);
+                out.writeInt(record.doctorId);
+                out.writeInt(record.terms.length);
+                for (int termId : record.terms) {
+                    out.writeInt(termId >= 0 ? savedIds[termId] : termId);
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return false if the payload is for another database (the index is left empty).
+     */
+    public boolean decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        if (!database.equals(in.readUTF())) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            clear();
+            int termCount = in.readInt();
+            int[] termIdsBySaved = new int[termCount];
+            for (int i = 0; i < termCount; i++) {
+                termIdsBySaved[i] = termId(in.readUTF());
+            }
+            int recordCount = in.readInt();
+            for (int r = 0; r < recordCount; r++) {
+                int recordId = in.readInt();
+                int version = in.readInt();
+                int patientId = in.readInt();
+                int doctorId = in.readInt();
+                int[] termList = new int[in.readInt()];
+                for (int i = 0; i < termList.length; i++) {
+                    int saved = in.readInt();
+                    termList[i] = saved >= 0 ? termIdsBySaved[saved] : saved;
+                }
+                put(recordId, version, patientId, doctorId, termList);
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            // A bad term number or length: the checksum matched, so the writer was broken
+            throw new IOException("Search index could not be decoded", ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void clear() {
+        termIds.clear();
+        terms.clear();
+        postings.clear();
+        records.clear();
+        totalLength = 0;
+    }
+
+    /**
+     * What the index keeps per record.
+     */
+    private static final class IndexedRecord {
+        final int version;
+        final int patientId;
+        final int doctorId;
+        final int[] terms; // Term IDs in text order, with STOP and FIELD_END
+        final int length;  // Terms, not counting STOP and FIELD_END
+
+        IndexedRecord(int version, int patientId, int doctorId, int[] terms, int length) {
+            this.version = version;
+            this.patientId = patientId;
+            this.doctorId = doctorId;
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The records containing one term and how often, ordered by record ID.
+     */
+    private static final class Postings {
+        int[] recordIds = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+
+        void put(int recordId, int frequency) {
+            int at = Arrays.binarySearch(recordIds, 0, size, recordId);
+            if (at >= 0) {
+                frequencies[at] = frequency;
+                return;
+            }
+            at = -at - 1;
+            if (size == recordIds.length) {
+                recordIds = Arrays.copyOf(recordIds, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            // New records have the highest IDs, so this is nearly always an append
+            System.arraycopy(recordIds, at, recordIds, at + 1, size - at);
+            System.arraycopy(frequencies, at, frequencies, at + 1, size - at);
+            recordIds[at] = recordId;
+            frequencies[at] = frequency;
+            size++;
+        }
+
+        void remove(int recordId) {
+            int at = Arrays.binarySearch(recordIds, 0, size, recordId);
+            if (at >= 0) {
+                System.arraycopy(recordIds, at + 1, recordIds, at, size - at - 1);
+                System.arraycopy(frequencies, at + 1, frequencies, at, size - at - 1);
+                size--;
+            }
+        }
+
+        int frequency(int recordId) {
+            int at = Arrays.binarySearch(recordIds, 0, size, recordId);
+            return at >= 0 ? frequencies[at] : 0;
+        }
+    }
+}
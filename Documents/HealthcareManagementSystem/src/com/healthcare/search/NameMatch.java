@@ -0,0 +1,31 @@
+package com.healthcare.search;
+
+/**
+ * One patient found by {@link PatientNameIndex#search}, with how closely their name matched.
+ */
+public final class NameMatch {
+
+    private final int patientId;
+    private final double score;
+
+    NameMatch(int patientId, double score) {
+        this.patientId = patientId;
+        this.score = score;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * @return From 0 to 1, where 1 is the exact first and last name.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "NameMatch{patientId=" + patientId + ", score=" + score + "}";
+    }
+}
@@ -0,0 +1,431 @@
+package com.healthcare.search;
+
+import com.healthcare.model.Patient;
+import com.healthcare.util.IntIntHashMap;
+import com.healthcare.util.IntList;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Finds patients by a name that is misspelled or spelled differently: "Jon Smyth" finds John Smith, and "Smiht"
+ * finds Smith.
+ * <p>
+ * Each distinct first or last name is kept once, with the patients that have it. A query word is matched against
+ * them two ways: names with the same {@link DoubleMetaphone} key (sounds alike), and names within a small edit
+ * distance (typos), found through a BK-tree rather than by comparing with every name. Either way the candidate's
+ * edit distance decides its score, so an exact name ranks above a phonetic one and a close typo above a distant
+ * one. Work per query depends on the number of distinct names near the query, not on the number of patients.
+ * <p>
+ * Not thread-safe; {@code PatientPanel} builds and queries it on the event dispatch thread, like its
+ * {@link com.healthcare.store.ColumnarPatientStore}.
+ */
+public class PatientNameIndex {
+
+    private static final double PHONETIC_BONUS = 0.25;
+    private static final double MIN_SPELLING_SIMILARITY = 0.5; // For names found only by edit distance
+    private static final double MIN_PHONETIC_SIMILARITY = 0.25; // A short key can match very different long names
+    private static final double FIRST_NAME_WEIGHT = 0.9; // A lone word is more likely a last name
+    private static final double SWAPPED_WEIGHT = 0.95; // "Smith John" is less likely than "John Smith"
+    private static final int NO_NAME = -1;
+
+    private static final Comparator<NameMatch> RANKING = Comparator.comparingDouble(NameMatch::getScore)
+            .thenComparing(Comparator.comparingInt(NameMatch::getPatientId).reversed());
+
+    private final Map<String, Integer> nameCodes = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<IntList> firstNamePatients = new ArrayList<>(); // By name code
+    private final List<IntList> lastNamePatients = new ArrayList<>();
+    private final Map<String, IntList> phoneticNames = new HashMap<>(); // Metaphone key -> name codes
+    private final IntIntHashMap firstNameOf = new IntIntHashMap(1024, NO_NAME); // Patient -> name code
+    private final IntIntHashMap lastNameOf = new IntIntHashMap(1024, NO_NAME);
+    private BkNode root;
+
+    /**
+     * Replaces the contents with the given patients.
+     */
+    public void rebuild(List<Patient> patients) {
+        nameCodes.clear();
+        names.clear();
+        firstNamePatients.clear();
+        lastNamePatients.clear();
+        phoneticNames.clear();
+        firstNameOf.clear();
+        lastNameOf.clear();
+        root = null;
+        for (Patient patient : patients) {
+            put(patient);
+        }
+    }
+
+    /**
+     * Adds the patient, or updates their names if already present.
+     */
+    public void put(Patient patient) {
+        int patientId = patient.getPatientId();
+        remove(patientId);
+        int first = intern(fold(patient.getFirstName()));
+        int last = intern(fold(patient.getLastName()));
+        if (first != NO_NAME) {
+            firstNamePatients.get(first).add(patientId);
+            firstNameOf.put(patientId, first);
+        }
+        if (last != NO_NAME) {
+            lastNamePatients.get(last).add(patientId);
+            lastNameOf.put(patientId, last);
+        }
+    }
+
+    public void remove(int patientId) {
+        int first = firstNameOf.remove(patientId);
+        if (first != NO_NAME) {
+            removeValue(firstNamePatients.get(first), patientId);
+        }
+        int last = lastNameOf.remove(patientId);
+        if (last != NO_NAME) {
+            removeValue(lastNamePatients.get(last), patientId);
+        }
+    }
+
+    public int size() {
+        return Math.max(firstNameOf.size(), lastNameOf.size());
+    }
+
+    /**
+     * Finds the patients whose names best match the query, best first.
+     * <p>
+     * One word is matched against last and first names. With more words, the first is taken as the first name and
+     * the last as the last name (or the other way round, ranked a little lower); a patient matching only one of them
+     * still appears, below those matching both.
+     *
+     * @param query Free text, e.g. "jon smyth"; accents, case and punctuation are ignored.
+     * @param limit The maximum number of matches.
+     * @return The matches, highest score first; empty if the query has no letters.
+     */
+    public List<NameMatch> search(String query, int limit) {
+        List<String> words = new ArrayList<>();
+        if (query != null) {
+            for (String word : query.split("[\\s,]+")) {
+                String folded = fold(word);
+                if (!folded.isEmpty()) {
+                    words.add(folded);
+                }
+            }
+        }
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        Map<Integer, Double> scores = new HashMap<>();
+        if (words.size() == 1) {
+            Map<Integer, Double> matches = matchWord(words.get(0));
+            for (Map.Entry<Integer, Double> match : matches.entrySet()) {
+                addAll(scores, lastNamePatients.get(match.getKey()), match.getValue());
+                addAll(scores, firstNamePatients.get(match.getKey()), match.getValue() * FIRST_NAME_WEIGHT);
+            }
+        } else {
+            Map<Integer, Double> firstWord = matchWord(words.get(0));
+            Map<Integer, Double> lastWord = matchWord(words.get(words.size() - 1));
+            int fullMatches = combine(scores, firstWord, lastWord, 1.0);
+            combine(scores, lastWord, firstWord, SWAPPED_WEIGHT);
+            if (fullMatches < limit) {
+                // Every word match scores at least 0.5, so these (at most 0.5) cannot beat that many full matches;
+                // skipping them saves walking every patient with a common first name
+                addFirstNameOnly(scores, firstWord, lastWord, 1.0);
+                addFirstNameOnly(scores, lastWord, firstWord, SWAPPED_WEIGHT);
+            }
+        }
+
+        PriorityQueue<NameMatch> top = new PriorityQueue<>(limit + 1, RANKING);
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            NameMatch match = new NameMatch(entry.getKey(), entry.getValue());
+            if (top.size() < limit) {
+                top.add(match);
+            } else if (RANKING.compare(match, top.peek()) > 0) {
+                top.poll();
+                top.add(match);
+            }
+        }
+        List<NameMatch> result = new ArrayList<>(top);
+        result.sort(RANKING.reversed());
+        return result;
+    }
+
+    /**
+     * Scores patients whose last name matched asLast, as the mean of that and how well their first name matched
+     * asFirst (0 if it did not).
+     *
+     * @return How many of them matched on both names.
+     */
+    private int combine(Map<Integer, Double> scores, Map<Integer, Double> asFirst, Map<Integer, Double> asLast,
+                        double weight) {
+        int fullMatches = 0;
+        for (Map.Entry<Integer, Double> match : asLast.entrySet()) {
+            IntList patients = lastNamePatients.get(match.getKey());
+            for (int i = 0; i < patients.size(); i++) {
+                int patientId = patients.get(i);
+                Double first = asFirst.get(firstNameOf.get(patientId));
+                if (first != null) {
+                    fullMatches++;
+                }
+                scores.merge(patientId, weight * (match.getValue() + (first != null ? first : 0.0)) / 2, Math::max);
+            }
+        }
+        return fullMatches;
+    }
+
+    // Scores patients whose first name matched but last name did not, which combine() has not seen
+    private void addFirstNameOnly(Map<Integer, Double> scores, Map<Integer, Double> asFirst,
+                                  Map<Integer, Double> asLast, double weight) {
+        for (Map.Entry<Integer, Double> match : asFirst.entrySet()) {
+            IntList patients = firstNamePatients.get(match.getKey());
+            for (int i = 0; i < patients.size(); i++) {
+                int patientId = patients.get(i);
+                if (!asLast.containsKey(lastNameOf.get(patientId))) {
+                    scores.merge(patientId, weight * match.getValue() / 2, Math::max);
+                }
+            }
+        }
+    }
+
+    private static void addAll(Map<Integer, Double> scores, IntList patients, double score) {
+        for (int i = 0; i < patients.size(); i++) {
+            scores.merge(patients.get(i), score, Math::max);
+        }
+    }
+
+    /**
+     * @return Name code -> how well the name matches the word, from 0 to 1.
+     */
+    private Map<Integer, Double> matchWord(String word) {
+        Map<Integer, Double> matches = new HashMap<>();
+        for (String key : DoubleMetaphone.encode(word)) {
+            IntList codes = phoneticNames.get(key);
+            if (codes == null) {
+                continue;
+            }
+            for (int i = 0; i < codes.size(); i++) {
+                int code = codes.get(i);
+                double similarity = similarity(word, names.get(code), editDistance(word, names.get(code)));
+                if (similarity >= MIN_PHONETIC_SIMILARITY) {
+                    matches.put(code, similarity == 1.0 ? 1.0 : Math.min(0.95, similarity + PHONETIC_BONUS));
+                }
+            }
+        }
+
+        int maxDistance = maxDistance(word);
+        IntList nearby = new IntList();
+        // Levenshtein (a metric, as the tree needs) counts a swap of two letters as 2, so look one further
+        // and check the real distance, with swaps counted as 1, afterwards
+        findWithin(root, word, maxDistance + 1, nearby);
+        for (int i = 0; i < nearby.size(); i++) {
+            int code = nearby.get(i);
+            if (matches.containsKey(code)) {
+                continue;
+            }
+            int distance = editDistance(word, names.get(code));
+            double similarity = similarity(word, names.get(code), distance);
+            if (distance <= maxDistance && similarity >= MIN_SPELLING_SIMILARITY) {
+                matches.put(code, similarity);
+            }
+        }
+        return matches;
+    }
+
+    // More typos are allowed in longer names
+    private static int maxDistance(String word) {
+        if (word.length() <= 4) {
+            return 1;
+        }
+        return word.length() <= 7 ? 2 : 3;
+    }
+
+    private static double similarity(String a, String b, int distance) {
+        return 1.0 - (double) distance / Math.max(a.length(), b.length());
+    }
+
+    private int intern(String name) {
+        if (name.isEmpty()) {
+            return NO_NAME;
+        }
+        Integer code = nameCodes.get(name);
+        if (code != null) {
+            return code;
+        }
+        int newCode = names.size();
+        nameCodes.put(name, newCode);
+        names.add(name);
+        firstNamePatients.add(new IntList(2));
+        lastNamePatients.add(new IntList(2));
+        String[] keys = DoubleMetaphone.encode(name);
+        phoneticNames.computeIfAbsent(keys[0], k -> new IntList(4)).add(newCode);
+        if (!keys[1].equals(keys[0])) {
+            phoneticNames.computeIfAbsent(keys[1], k -> new IntList(4)).add(newCode);
+        }
+        insert(newCode);
+        return newCode;
+    }
+
+    private static void removeValue(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                list.set(i, list.get(list.size() - 1));
+                list.removeLast();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The Double Metaphone keys of a name, primary first; a single key when there is no alternate, and none
+     * for a name without letters.
+     */
+    public static List<String> phoneticKeys(String name) {
+        String folded = fold(name);
+        if (folded.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String[] keys = DoubleMetaphone.encode(folded);
+        return keys[0].equals(keys[1]) ? List.of(keys[0]) : List.of(keys[0], keys[1]);
+    }
+
+    /**
+     * How alike two names are, scored the way {@link #search} scores a query word against a name.
+     *
+     * @return 1 for the same name ignoring case, accents and punctuation, down to 0; 0 if either has no letters.
+     */
+    public static double nameSimilarity(String a, String b) {
+        String first = fold(a);
+        String second = fold(b);
+        if (first.isEmpty() || second.isEmpty()) {
+            return 0.0;
+        }
+        double similarity = similarity(first, second, editDistance(first, second));
+        if (similarity < 1.0 && similarity >= MIN_PHONETIC_SIMILARITY) {
+            String[] firstKeys = DoubleMetaphone.encode(first);
+            String[] secondKeys = DoubleMetaphone.encode(second);
+            for (String key : firstKeys) {
+                if (key.equals(secondKeys[0]) || key.equals(secondKeys[1])) {
+                    return Math.min(0.95, similarity + PHONETIC_BONUS);
+                }
+            }
+        }
+        return similarity;
+    }
+
+    /**
+     * Upper-case A-Z only, so "O'Brien" is "OBRIEN" and "Zoë" is "ZOE".
+     */
+    static String fold(String name) {
+        if (name == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = Character.toUpperCase(decomposed.charAt(i));
+            if (c >= 'A' && c <= 'Z') {
+                folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+
+    // --- BK-tree of distinct names, keyed by Levenshtein distance ---
+
+    private void insert(int code) {
+        if (root == null) {
+            root = new BkNode(code);
+            return;
+        }
+        String name = names.get(code);
+        BkNode node = root;
+        while (true) {
+            int distance = levenshtein(name, names.get(node.code));
+            BkNode child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new BkNode(code));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    private void findWithin(BkNode start, String word, int maxDistance, IntList found) {
+        if (start == null) {
+            return;
+        }
+        List<BkNode> pending = new ArrayList<>();
+        pending.add(start);
+        while (!pending.isEmpty()) {
+            BkNode node = pending.remove(pending.size() - 1);
+            int distance = levenshtein(word, names.get(node.code));
+            if (distance <= maxDistance) {
+                found.add(node.code);
+            }
+            // By the triangle inequality only children this far from the node can be close enough
+            for (Map.Entry<Integer, BkNode> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.add(child.getValue());
+                }
+            }
+        }
+    }
+
+    private static final class BkNode {
+        final int code;
+        final Map<Integer, BkNode> children = new HashMap<>(4);
+
+        BkNode(int code) {
+            this.code = code;
+        }
+    }
+
+    static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Edit distance where swapping two adjacent letters counts as one edit ("Smiht" is 1 from "Smith").
+     */
+    static int editDistance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
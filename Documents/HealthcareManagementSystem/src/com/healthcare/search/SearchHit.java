@@ -0,0 +1,31 @@
+package com.healthcare.search;
+
+/**
+ * One medical record found by {@link MedicalRecordSearchIndex#search}, with its BM25 score.
+ */
+public final class SearchHit {
+
+    private final int recordId;
+    private final double score;
+
+    SearchHit(int recordId, double score) {
+        this.recordId = recordId;
+        this.score = score;
+    }
+
+    public int getRecordId() {
+        return recordId;
+    }
+
+    /**
+     * @return How well the record matches; only comparable with other hits of the same search.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchHit{recordId=" + recordId + ", score=" + score + "}";
+    }
+}
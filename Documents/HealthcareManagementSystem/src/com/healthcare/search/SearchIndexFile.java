@@ -0,0 +1,100 @@
+package com.healthcare.search;
+
+import com.healthcare.util.PrivateFiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the search index's contents in a local file between runs.
+ * <p>
+ * Layout, big-endian: a 20-byte header (magic, format version, payload length, CRC-32 of the payload) followed by
+ * the payload, which {@link MedicalRecordSearchIndex} writes and reads. Saves go to a temporary file that then
+ * replaces this one, so a crash mid-save leaves the previous index in place.
+ */
+public class SearchIndexFile {
+
+    private static final int MAGIC = 0x48434d49; // "HCMI"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+
+    private final Path path;
+
+    public SearchIndexFile(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return The saved payload, or null if there is no file or it was written by another format version.
+     * @throws IOException if the file cannot be read or is damaged.
+     */
+    public synchronized byte[] load() throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Search index " + path + " is not an index file");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            return null;
+        }
+        int payloadLength = buffer.getInt(8);
+        if (payloadLength < 0 || HEADER_BYTES + (long) payloadLength > bytes.length) {
+            throw new IOException("Search index " + path + " is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, HEADER_BYTES, payloadLength);
+        if (crc.getValue() != buffer.getLong(12)) {
+            throw new IOException("Search index " + path + " is corrupt (checksum mismatch)");
+        }
+        byte[] payload = new byte[payloadLength];
+        System.arraycopy(bytes, HEADER_BYTES, payload, 0, payloadLength);
+        return payload;
+    }
+
+    /**
+     * Replaces the file with the payload, atomically where the file system allows.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void save(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(payload.length).putLong(crc.getValue());
+
+        // The positional term lists are enough to rebuild the records' text: owner-only, like the patient snapshot
+        PrivateFiles.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = PrivateFiles.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            header.flip();
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, body});
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.healthcare.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits medical history text into search terms: runs of letters and digits, lower-cased and with accents
+ * removed, so "Ménière's" is found by "meniere". Common English words are kept as {@link #STOP_WORD}
+ * placeholders rather than terms: they are not worth an index entry, but a phrase like "shortness of breath"
+ * still needs a word between its two terms.
+ */
+final class TextTokenizer {
+
+    /**
+     * Stands for a stop word in the token list.
+     */
+    static final String STOP_WORD = "";
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "has", "have", "he", "her",
+            "his", "in", "is", "it", "its", "of", "on", "or", "she", "that", "the", "their", "they", "this",
+            "to", "was", "were", "with");
+
+    private static final Pattern POSSESSIVE = Pattern.compile("'s\\b");
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * @return The terms of the text in order, with {@link #STOP_WORD} in place of stop words; empty for null.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = folded.substring(start, i);
+                tokens.add(STOP_WORDS.contains(word) ? STOP_WORD : word);
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Lower case without diacritics; a possessive 's is dropped and other apostrophes joined ("don't" is "dont")
+    private static String fold(String text) {
+        String lower = text.toLowerCase(Locale.ROOT).replace('’', '\'');
+        if (lower.indexOf('\'') >= 0) {
+            lower = POSSESSIVE.matcher(lower).replaceAll("").replace("'", "");
+        }
+        if (isAscii(lower)) {
+            return lower;
+        }
+        return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
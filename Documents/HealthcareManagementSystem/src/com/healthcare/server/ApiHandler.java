@@ -0,0 +1,434 @@
+package com.healthcare.server;
+
+import com.healthcare.audit.AuditLog;
+import com.healthcare.dao.DuplicateValueException;
+import com.healthcare.dao.UpdateResult;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.json.JsonParser;
+import com.healthcare.json.JsonWriter;
+import com.healthcare.util.DatabaseBusyException;
+import com.healthcare.util.DatabaseConnection;
+import com.healthcare.util.DatabaseUnavailableException;
+import com.healthcare.util.LruCache;
+import com.healthcare.util.ReplicaRouter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Base class for the REST endpoints of one entity, e.g. {@code /api/patients}.
+ * <p>
+ * Routes {@code GET /base}, {@code GET /base/{id}}, {@code POST /base}, {@code PUT /base/{id}} and
+ * {@code DELETE /base/{id}} to the abstract methods, and caches successful GET responses until
+ * {@link #invalidate()} is called for a write to the entity. Batch lookups ({@code GET /base?ids=1,2,3})
+ * are handled by the subclasses that support them.
+ * <p>
+ * GET responses carry an ETag and Last-Modified taken from the {@link VersionTracker}; a request whose
+ * {@code If-None-Match} or {@code If-Modified-Since} still matches gets 304 Not Modified without a cache
+ * or database lookup. Bodies of {@link CachedResponse#GZIP_MIN_BYTES} or more are gzipped for clients that accept it.
+ * <p>
+ * A {@code PUT} body with an {@code expectedVersion} is a conditional update: it is only applied if the row still
+ * has that version, otherwise the answer is 409 with the current row (see {@link #updateResponse}).
+ */
+abstract class ApiHandler implements HttpHandler {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 500;
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final String basePath;
+    private final ChangeEvent.Entity entity;
+    private final VersionTracker versions;
+    private final LruCache<String, CachedResponse> cache;
+    // Bumped on every invalidation so a response read before a write is not cached after it
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    ApiHandler(String basePath, ChangeEvent.Entity entity, int cacheEntries, VersionTracker versions) {
+        this.basePath = basePath;
+        this.entity = entity;
+        this.versions = versions;
+        this.cache = new LruCache<>(cacheEntries);
+    }
+
+    String getBasePath() {
+        return basePath;
+    }
+
+    LruCache<String, CachedResponse> getCache() {
+        return cache;
+    }
+
+    VersionTracker getVersions() {
+        return versions;
+    }
+
+    /**
+     * @return Number of GETs answered with 304 Not Modified.
+     */
+    long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    /**
+     * Drops all cached responses. Called when the entity changes.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    abstract ApiResponse list(Map<String, String> query) throws SQLException;
+
+    abstract ApiResponse get(int id) throws SQLException;
+
+    abstract ApiResponse create(Map<String, Object> body) throws SQLException;
+
+    abstract ApiResponse update(int id, Map<String, Object> body) throws SQLException;
+
+    abstract ApiResponse delete(int id) throws SQLException;
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        // Read-your-writes per client rather than for the whole server
+        String client = exchange.getRemoteAddress().getAddress().getHostAddress();
+        ReplicaRouter.bindSession(client);
+        AuditLog.setActor("api " + client);
+        try {
+            String rest = exchange.getRequestURI().getPath().substring(basePath.length());
+            Integer id = null;
+            if (!rest.isEmpty() && !rest.equals("/")) {
+                try {
+                    id = Integer.parseInt(rest.substring(1));
+                } catch (NumberFormatException ex) {
+                    send(exchange, ApiResponse.notFound("Unknown path"), null);
+                    return;
+                }
+            }
+
+            String method = exchange.getRequestMethod();
+            if (method.equals("GET")) {
+                handleGet(exchange, id);
+            } else if (method.equals("POST") && id == null) {
+                send(exchange, create(readBody(exchange)), null);
+            } else if (method.equals("PUT") && id != null) {
+                send(exchange, update(id, readBody(exchange)), null);
+            } else if (method.equals("DELETE") && id != null) {
+                send(exchange, delete(id), null);
+            } else {
+                send(exchange, ApiResponse.error(405, "Method not allowed"), null);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            // Malformed JSON, bad numbers or dates in the request
+            send(exchange, ApiResponse.badRequest(ex.getMessage()), null);
+        } catch (DuplicateValueException ex) {
+            send(exchange, ApiResponse.duplicate(ex.getMessage(), ex.getField(), ex.getExistingId()), null);
+        } catch (SQLIntegrityConstraintViolationException ex) {
+            // e.g. deleting a patient that still has appointments
+            send(exchange, ApiResponse.error(409, "Conflicts with existing data: " + ex.getMessage()), null);
+        } catch (DatabaseUnavailableException ex) {
+            // Overloaded or down: tell the client when to come back instead of logging a stack trace per request
+            System.err.println("Database unavailable for " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + ex.getMessage());
+            long retryAfterSeconds = Math.max(1, (ex.getRetryAfterMillis() + 999) / 1000);
+            exchange.getResponseHeaders().set("Retry-After", Long.toString(retryAfterSeconds));
+            send(exchange, ApiResponse.error(503, ex instanceof DatabaseBusyException ? "Database busy" : "Database unavailable"), null);
+        } catch (SQLException ex) {
+            System.err.println("Database error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + ex.getMessage());
+            ex.printStackTrace();
+            // SQLState class 08 is a connection problem, which is worth retrying later
+            boolean unavailable = ex.getSQLState() != null && ex.getSQLState().startsWith("08");
+            send(exchange, ApiResponse.error(unavailable ? 503 : 500, unavailable ? "Database unavailable" : "Database error"), null);
+        } catch (Exception ex) {
+            System.err.println("Error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + ex.getMessage());
+            ex.printStackTrace();
+            send(exchange, ApiResponse.error(500, "Internal server error"), null);
+        } finally {
+            ReplicaRouter.clearSession();
+            AuditLog.clearActor();
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the version a GET response depends on: the row for {@code /base/{id}}, otherwise the
+     * whole collection. Subclasses narrow this for lists scoped to one owner.
+     */
+    VersionTracker.Version versionOf(Integer id, Map<String, String> query) {
+        return id != null ? versions.row(entity, id) : versions.collection(entity);
+    }
+
+    private void handleGet(HttpExchange exchange, Integer id) throws IOException, SQLException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        // Read the version before the data, so a write racing with this request can only make the tag older
+        VersionTracker.Version version = versionOf(id, query);
+        String etag = versions.etag(version);
+        if (isNotModified(exchange, etag, version.modifiedMillis)) {
+            notModified.incrementAndGet();
+            setValidators(exchange, etag, version.modifiedMillis);
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        String key = exchange.getRequestURI().toString();
+        CachedResponse cached = cache.get(key);
+        if (cached != null && !cached.etag.equals(etag)) {
+            // Put by a GET that raced with a write's invalidate(): read before the write, so not served after it
+            cache.remove(key);
+            cached = null;
+        }
+        if (cached != null) {
+            // The DAOs record what they read; a cached response is a read they never see
+            if (id != null) {
+                AuditLog.read(entity, id);
+            } else {
+                AuditLog.getInstance().record(AuditLog.Action.LIST, entity, -1, -1);
+            }
+            sendCached(exchange, cached, "HIT");
+            return;
+        }
+
+        // The response is cached and tagged for every client, so right after a write it must not
+        // come from a replica that may not have the write yet
+        ReplicaRouter router = DatabaseConnection.getReplicaRouter();
+        if (router != null && System.currentTimeMillis() - version.modifiedMillis < router.getStickyMillis()) {
+            ReplicaRouter.usePrimaryForReads();
+        }
+
+        long generationBefore = generation.get();
+        ApiResponse response = id == null ? list(query) : get(id);
+        if (response.status != 200) {
+            send(exchange, response, "MISS");
+            return;
+        }
+        CachedResponse fresh = new CachedResponse(response.body, etag, version.modifiedMillis);
+        if (generation.get() == generationBefore) {
+            cache.put(key, fresh);
+        }
+        sendCached(exchange, fresh, "MISS");
+    }
+
+    private static boolean isNotModified(HttpExchange exchange, String etag, long lastModifiedMillis) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            // Takes precedence over If-Modified-Since; weak comparison, so W/ prefixes are ignored
+            String opaque = opaqueTag(etag);
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || opaqueTag(tag).equals(opaque)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, HTTP_DATE).toInstant().toEpochMilli();
+                return lastModifiedMillis / 1000 <= since / 1000;
+            } catch (DateTimeParseException ex) {
+                return false; // Invalid dates are ignored
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static void setValidators(HttpExchange exchange, String etag, long lastModifiedMillis) {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        // A change in the current second could be followed by another one in the same second that a
+        // second-precision date cannot tell apart, so only send dates for changes in a past second
+        if (lastModifiedMillis / 1000 < System.currentTimeMillis() / 1000) {
+            headers.set("Last-Modified", HTTP_DATE.format(Instant.ofEpochMilli(lastModifiedMillis)));
+        }
+        headers.set("Cache-Control", "no-cache"); // Clients may keep it but must revalidate
+        headers.set("Vary", "Accept-Encoding");
+    }
+
+    private static void sendCached(HttpExchange exchange, CachedResponse response, String cacheStatus) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("X-Cache", cacheStatus);
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        setValidators(exchange, response.etag, response.lastModifiedMillis);
+
+        byte[] bytes = response.body;
+        if (response.isCompressible() && acceptsGzip(exchange)) {
+            bytes = response.gzipped();
+            headers.set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    // --- Helpers for subclasses ---
+
+    /**
+     * @return The "after" query parameter (last ID of the previous page), 0 if absent.
+     */
+    static int afterParam(Map<String, String> query) {
+        String after = query.get("after");
+        return after == null ? 0 : Integer.parseInt(after);
+    }
+
+    /**
+     * @return The "limit" query parameter clamped to 1..MAX_PAGE_SIZE, DEFAULT_PAGE_SIZE if absent.
+     */
+    static int limitParam(Map<String, String> query) {
+        String limit = query.get("limit");
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(limit)));
+    }
+
+    /**
+     * Parses the "ids" query parameter of a batch lookup, e.g. {@code ?ids=3,5,8}.
+     *
+     * @return The distinct IDs, or null if the parameter is absent.
+     * @throws IllegalArgumentException if an ID is not a number or there are more than MAX_PAGE_SIZE.
+     */
+    static Set<Integer> idsParam(Map<String, String> query) {
+        String ids = query.get("ids");
+        if (ids == null) {
+            return null;
+        }
+        Set<Integer> result = new LinkedHashSet<>();
+        for (String id : ids.split(",")) {
+            if (!id.isEmpty()) {
+                result.add(Integer.parseInt(id.trim()));
+            }
+        }
+        if (result.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_PAGE_SIZE + " ids per request");
+        }
+        return result;
+    }
+
+    /**
+     * Encodes a page as {@code {"items":[...],"nextAfter":id}}. nextAfter is null on the last page.
+     *
+     * @param items  The items in the page.
+     * @param limit  The requested page size; a full page means there may be more.
+     * @param idOf   Returns an item's ID.
+     * @param writer Encodes one item.
+     */
+    static <T> String page(List<T> items, int limit, ToIntFunction<T> idOf, BiConsumer<JsonWriter, T> writer) {
+        JsonWriter json = new JsonWriter(new StringBuilder(128 + items.size() * 160));
+        json.beginObject().name("items").beginArray();
+        for (T item : items) {
+            writer.accept(json, item);
+        }
+        json.endArray().name("nextAfter");
+        if (items.size() == limit && !items.isEmpty()) {
+            json.value(idOf.applyAsInt(items.get(items.size() - 1)));
+        } else {
+            json.nullValue();
+        }
+        return json.endObject().toString();
+    }
+
+    /**
+     * Encodes a single item.
+     */
+    static <T> String single(T item, BiConsumer<JsonWriter, T> writer) {
+        JsonWriter json = new JsonWriter();
+        writer.accept(json, item);
+        return json.toString();
+    }
+
+    /**
+     * Answers a conditional update ({@code PUT} with {@code expectedVersion}): 200 with the saved row,
+     * 409 with the row someone else saved as {@code current}, or 404.
+     *
+     * @param what E.g. "Patient 12", for the error messages.
+     */
+    static <T> ApiResponse updateResponse(UpdateResult<T> result, String what, BiConsumer<JsonWriter, T> writer) {
+        switch (result.getStatus()) {
+            case UPDATED:
+                return ApiResponse.ok(single(result.getRow(), writer));
+            case CONFLICT:
+                return ApiResponse.conflict(what + " was changed by someone else", single(result.getRow(), writer));
+            case NOT_FOUND:
+                return ApiResponse.notFound(what + " not found");
+            default:
+                return ApiResponse.error(500, what + " not updated");
+        }
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq == -1 ? pair : pair.substring(0, eq);
+            String value = eq == -1 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return JsonParser.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    static void send(HttpExchange exchange, ApiResponse response, String cacheStatus) throws IOException {
+        if (cacheStatus != null) {
+            exchange.getResponseHeaders().set("X-Cache", cacheStatus);
+        }
+        if (response.body == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
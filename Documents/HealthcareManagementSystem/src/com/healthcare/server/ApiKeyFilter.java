@@ -0,0 +1,43 @@
+package com.healthcare.server;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Rejects requests that do not carry the shared secret ({@code server.apiKey}) in an {@code X-Api-Key} header,
+ * with 401 and no body read.
+ */
+class ApiKeyFilter extends Filter {
+
+    static final String HEADER = "X-Api-Key";
+
+    private final byte[] apiKey;
+
+    ApiKeyFilter(String apiKey) {
+        this.apiKey = apiKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String presented = exchange.getRequestHeaders().getFirst(HEADER);
+        // Constant-time, so the key cannot be guessed a character at a time from response times
+        if (presented == null || !MessageDigest.isEqual(apiKey, presented.getBytes(StandardCharsets.UTF_8))) {
+            try {
+                ApiHandler.send(exchange, ApiResponse.error(401, "Missing or wrong " + HEADER), null);
+            } finally {
+                exchange.close();
+            }
+            return;
+        }
+        chain.doFilter(exchange);
+    }
+
+    @Override
+    public String description() {
+        return "Requires the " + HEADER + " header";
+    }
+}
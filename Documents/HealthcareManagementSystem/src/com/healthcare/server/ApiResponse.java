@@ -0,0 +1,58 @@
+package com.healthcare.server;
+
+import com.healthcare.json.JsonWriter;
+
+/**
+ * Status code and JSON body produced by an {@link ApiHandler}.
+ */
+class ApiResponse {
+
+    final int status;
+    final String body; // null for 204 No Content
+
+    private ApiResponse(int status, String body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    static ApiResponse ok(String json) {
+        return new ApiResponse(200, json);
+    }
+
+    static ApiResponse created(int id) {
+        return new ApiResponse(201, new JsonWriter().beginObject().name("id").value(id).endObject().toString());
+    }
+
+    static ApiResponse noContent() {
+        return new ApiResponse(204, null);
+    }
+
+    static ApiResponse error(int status, String message) {
+        return new ApiResponse(status, new JsonWriter().beginObject().name("error").value(message).endObject().toString());
+    }
+
+    /**
+     * 409 for a conditional update that lost to someone else's, with their row as {@code current}.
+     */
+    static ApiResponse conflict(String message, String currentJson) {
+        return new ApiResponse(409, new JsonWriter().beginObject().name("error").value(message)
+                .name("current").rawValue(currentJson).endObject().toString());
+    }
+
+    /**
+     * 409 for an insert refused because a unique value is taken, with the {@code field} and the {@code existingId}
+     * that has it (-1 if unknown).
+     */
+    static ApiResponse duplicate(String message, String field, int existingId) {
+        return new ApiResponse(409, new JsonWriter().beginObject().name("error").value(message)
+                .name("field").value(field).name("existingId").value(existingId).endObject().toString());
+    }
+
+    static ApiResponse badRequest(String message) {
+        return error(400, message);
+    }
+
+    static ApiResponse notFound(String message) {
+        return error(404, message);
+    }
+}
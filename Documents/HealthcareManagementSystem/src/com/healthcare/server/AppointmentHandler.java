@@ -0,0 +1,125 @@
+package com.healthcare.server;
+
+import com.healthcare.dao.AppointmentDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.Appointment;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code /api/appointments} endpoints.
+ */
+class AppointmentHandler extends ApiHandler {
+
+    private final AppointmentDAO appointmentDAO = new AppointmentDAO();
+
+    AppointmentHandler(int cacheEntries, VersionTracker versions) {
+        super("/api/appointments", ChangeEvent.Entity.APPOINTMENT, cacheEntries, versions);
+    }
+
+    @Override
+    ApiResponse list(Map<String, String> query) throws SQLException {
+        Set<Integer> ids = idsParam(query);
+        if (ids != null) {
+            List<Appointment> appointments = appointmentDAO.getAppointmentsByIdsOrThrow(ids);
+            return ApiResponse.ok(page(appointments, -1, Appointment::getAppointmentId, ModelJson::write));
+        }
+        int limit = limitParam(query);
+        String status = query.get("status");
+        String specialization = query.get("specialization");
+        String from = query.get("from");
+        String to = query.get("to");
+        if (status != null || specialization != null || from != null || to != null) {
+            // e.g. ?status=Cancelled&specialization=Cardiology&from=2025-03-01&to=2025-03-31
+            List<Appointment> appointments = appointmentDAO.findAppointmentsOrThrow(status, specialization,
+                    from != null ? LocalDate.parse(from) : null, to != null ? LocalDate.parse(to) : null,
+                    afterParam(query), limit);
+            return ApiResponse.ok(page(appointments, limit, Appointment::getAppointmentId, ModelJson::write));
+        }
+        List<Appointment> appointments = appointmentDAO.getAppointmentsPageOrThrow(afterParam(query), limit);
+        return ApiResponse.ok(page(appointments, limit, Appointment::getAppointmentId, ModelJson::write));
+    }
+
+    /**
+     * A list filtered by specialization joins the doctors, so a doctor's write changes it as well.
+     */
+    @Override
+    VersionTracker.Version versionOf(Integer id, Map<String, String> query) {
+        VersionTracker.Version version = super.versionOf(id, query);
+        if (id == null && query.get("specialization") != null) {
+            VersionTracker.Version doctors = getVersions().collection(ChangeEvent.Entity.DOCTOR);
+            return doctors.number > version.number ? doctors : version;
+        }
+        return version;
+    }
+
+    @Override
+    ApiResponse get(int id) throws SQLException {
+        Appointment appointment = appointmentDAO.getAppointmentByIdOrThrow(id);
+        if (appointment == null) {
+            return ApiResponse.notFound("Appointment " + id + " not found");
+        }
+        return ApiResponse.ok(single(appointment, ModelJson::write));
+    }
+
+    @Override
+    ApiResponse create(Map<String, Object> body) throws SQLException {
+        Appointment appointment = ModelJson.readAppointment(body);
+        String error = validate(appointment);
+        if (error != null) {
+            return ApiResponse.badRequest(error);
+        }
+        if (appointment.getStatus() == null) {
+            appointment.setStatus("Scheduled");
+        }
+        int appointmentId = appointmentDAO.addAppointmentOrThrow(appointment);
+        if (appointmentId == -1) {
+            return ApiResponse.error(500, "Failed to schedule appointment");
+        }
+        return ApiResponse.created(appointmentId);
+    }
+
+    @Override
+    ApiResponse update(int id, Map<String, Object> body) throws SQLException {
+        Appointment appointment = ModelJson.readAppointment(body);
+        appointment.setAppointmentId(id);
+        String error = validate(appointment);
+        if (error != null) {
+            return ApiResponse.badRequest(error);
+        }
+        if (appointment.getStatus() == null) {
+            return ApiResponse.badRequest("status is required.");
+        }
+        Integer expectedVersion = ModelJson.getInteger(body, "expectedVersion");
+        if (expectedVersion != null) {
+            return updateResponse(appointmentDAO.updateAppointmentAtVersionOrThrow(appointment, expectedVersion), "Appointment " + id, ModelJson::write);
+        }
+        if (!appointmentDAO.updateAppointmentOrThrow(appointment)) {
+            return ApiResponse.notFound("Appointment " + id + " not updated");
+        }
+        return ApiResponse.noContent();
+    }
+
+    @Override
+    ApiResponse delete(int id) throws SQLException {
+        if (!appointmentDAO.deleteAppointmentOrThrow(id)) {
+            return ApiResponse.notFound("Appointment " + id + " not deleted");
+        }
+        return ApiResponse.noContent();
+    }
+
+    // Same required fields as the Appointments form
+    private static String validate(Appointment appointment) {
+        if (appointment.getPatientId() <= 0 || appointment.getDoctorId() <= 0
+                || appointment.getAppointmentDate() == null || appointment.getAppointmentTime() == null
+                || appointment.getReason() == null || appointment.getReason().trim().isEmpty()) {
+            return "patientId, doctorId, appointmentDate, appointmentTime and reason are required.";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.healthcare.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A successful GET response body with the version it was read at, as kept in an {@link ApiHandler}'s cache.
+ * The gzipped form is built on first use and then reused for every client that accepts it.
+ */
+class CachedResponse {
+
+    // Below about one packet compression saves nothing worth the CPU
+    static final int GZIP_MIN_BYTES = 1024;
+
+    final byte[] body;
+    final String etag;
+    final long lastModifiedMillis;
+    private volatile byte[] gzipped;
+
+    CachedResponse(String body, String etag, long lastModifiedMillis) {
+        this.body = body.getBytes(StandardCharsets.UTF_8);
+        this.etag = etag;
+        this.lastModifiedMillis = lastModifiedMillis;
+    }
+
+    boolean isCompressible() {
+        return body.length >= GZIP_MIN_BYTES;
+    }
+
+    byte[] gzipped() {
+        byte[] result = gzipped;
+        if (result == null) {
+            // Racing threads may both compress; either result is fine
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(body);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            result = out.toByteArray();
+            gzipped = result;
+        }
+        return result;
+    }
+}
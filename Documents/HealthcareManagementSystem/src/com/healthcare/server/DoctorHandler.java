@@ -0,0 +1,93 @@
+package com.healthcare.server;
+
+import com.healthcare.dao.DoctorDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.Doctor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code /api/doctors} endpoints. {@code GET /api/doctors?ids=1,2,3} looks up several doctors at once.
+ */
+class DoctorHandler extends ApiHandler {
+
+    private final DoctorDAO doctorDAO = new DoctorDAO();
+
+    DoctorHandler(int cacheEntries, VersionTracker versions) {
+        super("/api/doctors", ChangeEvent.Entity.DOCTOR, cacheEntries, versions);
+    }
+
+    @Override
+    ApiResponse list(Map<String, String> query) throws SQLException {
+        Set<Integer> ids = idsParam(query);
+        if (ids != null) {
+            // Batch lookup used by the remote client instead of one request per doctor
+            List<Doctor> doctors = doctorDAO.getDoctorsByIdsOrThrow(ids);
+            return ApiResponse.ok(page(doctors, -1, Doctor::getDoctorId, ModelJson::write));
+        }
+        int limit = limitParam(query);
+        List<Doctor> doctors = doctorDAO.getDoctorsPageOrThrow(afterParam(query), limit);
+        return ApiResponse.ok(page(doctors, limit, Doctor::getDoctorId, ModelJson::write));
+    }
+
+    @Override
+    ApiResponse get(int id) throws SQLException {
+        Doctor doctor = doctorDAO.getDoctorByIdOrThrow(id);
+        if (doctor == null) {
+            return ApiResponse.notFound("Doctor " + id + " not found");
+        }
+        return ApiResponse.ok(single(doctor, ModelJson::write));
+    }
+
+    @Override
+    ApiResponse create(Map<String, Object> body) throws SQLException {
+        Doctor doctor = ModelJson.readDoctor(body);
+        String error = validate(doctor);
+        if (error != null) {
+            return ApiResponse.badRequest(error);
+        }
+        int doctorId = doctorDAO.addDoctorOrThrow(doctor);
+        if (doctorId == -1) {
+            return ApiResponse.error(500, "Failed to add doctor");
+        }
+        return ApiResponse.created(doctorId);
+    }
+
+    @Override
+    ApiResponse update(int id, Map<String, Object> body) throws SQLException {
+        Doctor doctor = ModelJson.readDoctor(body);
+        doctor.setDoctorId(id);
+        String error = validate(doctor);
+        if (error != null) {
+            return ApiResponse.badRequest(error);
+        }
+        if (!doctorDAO.updateDoctorOrThrow(doctor)) {
+            return ApiResponse.notFound("Doctor " + id + " not updated");
+        }
+        return ApiResponse.noContent();
+    }
+
+    @Override
+    ApiResponse delete(int id) throws SQLException {
+        if (!doctorDAO.deleteDoctorOrThrow(id)) {
+            return ApiResponse.error(409, "Doctor " + id + " not deleted. Ensure it exists and has no related appointments or medical records.");
+        }
+        return ApiResponse.noContent();
+    }
+
+    // Same required fields as the Doctors form
+    private static String validate(Doctor doctor) {
+        if (isBlank(doctor.getFirstName()) || isBlank(doctor.getLastName()) || isBlank(doctor.getSpecialization())) {
+            return "firstName, lastName and specialization are required.";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
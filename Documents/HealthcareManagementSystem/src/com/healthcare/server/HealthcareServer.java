@@ -0,0 +1,302 @@
+package com.healthcare.server;
+
+import com.healthcare.audit.AuditLog;
+import com.healthcare.config.AppConfig;
+import com.healthcare.dao.ContactIndex;
+import com.healthcare.dao.IdAllocator;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.json.JsonWriter;
+import com.healthcare.search.MedicalRecordSearchIndex;
+import com.healthcare.stats.CohortSnapshot;
+import com.healthcare.stats.FilterIndex;
+import com.healthcare.util.CircuitBreaker;
+import com.healthcare.util.ConnectionPool;
+import com.healthcare.util.DaoMetrics;
+import com.healthcare.util.DatabaseConnection;
+import com.healthcare.util.LatencyHistogram;
+import com.healthcare.util.LruCache;
+import com.healthcare.util.ReplicaRouter;
+import com.healthcare.util.TransactionScope;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless server mode: exposes the DAOs as a JSON API so many clients can share
+ * one connection pool and one response cache instead of each opening their own DB sessions.
+ * <p>
+ * Endpoints (all under {@code /api}):
+ * <ul>
+ *     <li>{@code /patients}, {@code /doctors}, {@code /appointments}, {@code /medical-records}:
+ *     {@code GET} (paged with {@code ?after=<lastId>&limit=<n>}), {@code GET /{id}}, {@code POST},
+ *     {@code PUT /{id}} and {@code DELETE /{id}}</li>
+ *     <li>{@code /stats}: pool, circuit breaker, replica, cache and DAO latency statistics</li>
+ *     <li>{@code /health}: liveness check</li>
+ * </ul>
+ * Each request runs on its own virtual thread; the pool size bounds how many reach MySQL at once.
+ * GET responses support conditional requests (ETag / Last-Modified, 304) and gzip.
+ * <p>
+ * Listens on loopback unless {@code server.bindAddress} says otherwise, which also requires {@code server.apiKey}:
+ * every request except {@code /health} must then carry it in an {@code X-Api-Key} header.
+ * <p>
+ * Usage: {@code java com.healthcare.server.HealthcareServer [port] [poolSize]}; without arguments
+ * {@code server.port} and {@code pool.size} from the configuration are used.
+ */
+public class HealthcareServer {
+
+    private final int port;
+    private final int poolSize;
+    private final Map<ChangeEvent.Entity, ApiHandler> handlers = new EnumMap<>(ChangeEvent.Entity.class);
+    private final VersionTracker versions = new VersionTracker();
+    private final ChangeEventBus.ChangeListener invalidator = event -> {
+        versions.recordChange(event); // Before invalidating, see VersionTracker#recordChange
+        ApiHandler handler = handlers.get(event.getEntity());
+        if (handler != null) {
+            handler.invalidate();
+        }
+        if (event.getEntity() == ChangeEvent.Entity.DOCTOR) {
+            // Appointment lists filtered by specialization depend on the doctors' rows
+            handlers.get(ChangeEvent.Entity.APPOINTMENT).invalidate();
+        }
+    };
+    private HttpServer httpServer;
+    private ExecutorService executor;
+
+    /**
+     * @param port     The port to listen on, or 0 to pick a free one (see {@link #getPort()}).
+     * @param poolSize The maximum number of database connections.
+     */
+    public HealthcareServer(int port, int poolSize) {
+        this.port = port;
+        this.poolSize = poolSize;
+        int cacheEntries = AppConfig.get().get(AppConfig.SERVER_CACHE_ENTRIES);
+        handlers.put(ChangeEvent.Entity.PATIENT, new PatientHandler(cacheEntries, versions));
+        handlers.put(ChangeEvent.Entity.DOCTOR, new DoctorHandler(cacheEntries, versions));
+        handlers.put(ChangeEvent.Entity.APPOINTMENT, new AppointmentHandler(cacheEntries, versions));
+        handlers.put(ChangeEvent.Entity.MEDICAL_RECORD, new MedicalRecordHandler(cacheEntries, versions));
+    }
+
+    /**
+     * Starts listening on {@code server.bindAddress}.
+     *
+     * @throws IOException if the address cannot be bound, or is not loopback and no {@code server.apiKey} is set.
+     */
+    public void start() throws IOException {
+        AppConfig config = AppConfig.get();
+        InetAddress bindAddress = InetAddress.getByName(config.get(AppConfig.SERVER_BIND_ADDRESS));
+        String apiKey = config.get(AppConfig.SERVER_API_KEY);
+        if (apiKey.isEmpty() && !bindAddress.isLoopbackAddress()) {
+            // Unauthenticated patient data must not be reachable from other machines
+            throw new IOException("server.apiKey must be set to listen on " + bindAddress.getHostAddress()
+                    + " (or set server.bindAddress=127.0.0.1)");
+        }
+
+        DatabaseConnection.enablePooling(poolSize, config.get(AppConfig.POOL_BORROW_TIMEOUT_MS));
+        // Writes (from this server's handlers) bump the entity's versions and drop its cached responses
+        ChangeEventBus.getInstance().subscribe(invalidator);
+        // Before the first request, so every read and write through the API is recorded
+        AuditLog.getInstance().start();
+
+        httpServer = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        List<HttpContext> protectedContexts = new ArrayList<>();
+        for (ApiHandler handler : handlers.values()) {
+            protectedContexts.add(httpServer.createContext(handler.getBasePath(), handler));
+        }
+        protectedContexts.add(httpServer.createContext("/api/stats", this::handleStats));
+        // Left open for load balancers; it says nothing but "ok"
+        httpServer.createContext("/api/health", this::handleHealth);
+        if (!apiKey.isEmpty()) {
+            for (HttpContext context : protectedContexts) {
+                context.getFilters().add(new ApiKeyFilter(apiKey));
+            }
+        }
+
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        // Loaded in the background; a search arriving first waits for it
+        Thread.ofVirtual().name("search-index").start(() -> MedicalRecordSearchIndex.getInstance().sync());
+        // Until loaded, duplicate checks simply ask the database
+        Thread.ofVirtual().name("contact-index").start(() -> ContactIndex.getInstance().load());
+        // Until loaded, filtered lists and cohorts run as SQL
+        FilterIndex.getInstance().loadIfStale(0);
+        CohortSnapshot.getInstance().loadIfStale(0);
+        System.out.println("Healthcare server listening on " + bindAddress.getHostAddress() + ":" + getPort()
+                + " (pool size " + poolSize + (apiKey.isEmpty() ? ", no API key" : "") + ")");
+    }
+
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(1);
+            executor.shutdown();
+            httpServer = null;
+        }
+        ChangeEventBus.getInstance().unsubscribe(invalidator);
+        DatabaseConnection.disablePooling();
+        System.out.println("Healthcare server stopped.");
+    }
+
+    /**
+     * @return The port actually bound, useful when started with port 0.
+     */
+    public int getPort() {
+        return httpServer != null ? httpServer.getAddress().getPort() : port;
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            ApiHandler.send(exchange, ApiResponse.ok("{\"status\":\"ok\"}"), null);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            JsonWriter json = new JsonWriter().beginObject();
+
+            ConnectionPool pool = DatabaseConnection.getPool();
+            json.name("pool").beginObject();
+            if (pool != null) {
+                json.name("maxSize").value(pool.getMaxSize())
+                        .name("inUse").value(pool.getInUseCount())
+                        .name("idle").value(pool.getIdleCount())
+                        .name("waiting").value(pool.getWaitingCount())
+                        .name("borrows").value(pool.getBorrowCount())
+                        .name("waits").value(pool.getWaitCount())
+                        .name("timeouts").value(pool.getTimeoutCount())
+                        .name("rejected").value(pool.getRejectedCount());
+            }
+            json.name("connectionsOpened").value(DatabaseConnection.getConnectionsOpened()).endObject();
+
+            CircuitBreaker breaker = DatabaseConnection.getCircuitBreaker();
+            json.name("circuit").beginObject()
+                    .name("state").value(breaker.getState().name())
+                    .name("trips").value(breaker.getTripCount())
+                    .name("rejected").value(breaker.getRejectedCount())
+                    .endObject();
+            ContactIndex contacts = ContactIndex.getInstance();
+            json.name("contactIndex").beginObject()
+                    .name("loaded").value(contacts.isLoaded())
+                    .name("checks").value(contacts.getCheckCount())
+                    .name("lookupsSkipped").value(contacts.getLookupsSkippedCount())
+                    .name("falsePositives").value(contacts.getFalsePositiveCount())
+                    .endObject();
+            FilterIndex filters = FilterIndex.getInstance();
+            json.name("filterIndex").beginObject()
+                    .name("loaded").value(filters.isLoaded())
+                    .name("bytes").value(filters.getSizeInBytes())
+                    .endObject();
+            CohortSnapshot cohorts = CohortSnapshot.getInstance();
+            json.name("cohortSnapshot").beginObject()
+                    .name("loaded").value(cohorts.isLoaded())
+                    .name("bytes").value(cohorts.getEstimatedBytes())
+                    .endObject();
+            AuditLog audit = AuditLog.getInstance();
+            json.name("audit").beginObject()
+                    .name("started").value(audit.isStarted())
+                    .name("recorded").value(audit.getEventsRecordedCount())
+                    .name("lost").value(audit.getEventsLostCount())
+                    .name("shipped").value(audit.getEventsShippedCount())
+                    .name("tableMissing").value(audit.isTableMissing())
+                    .endObject();
+            IdAllocator ids = IdAllocator.getInstance();
+            json.name("idAllocator").beginObject()
+                    .name("available").value(ids.isAvailable())
+                    .name("idsHandedOut").value(ids.getIdsHandedOutCount())
+                    .name("blocksReserved").value(ids.getBlocksReservedCount())
+                    .endObject();
+            json.name("transactions").beginObject()
+                    .name("commits").value(TransactionScope.getCommitCount())
+                    .name("rollbacks").value(TransactionScope.getRollbackCount())
+                    .name("deadlockRetries").value(TransactionScope.getRetryCount())
+                    .endObject();
+
+            ReplicaRouter router = DatabaseConnection.getReplicaRouter();
+            json.name("replicas").beginObject();
+            if (router != null) {
+                json.name("replicaReads").value(router.getReplicaReadCount())
+                        .name("stickyReads").value(router.getStickyReadCount())
+                        .name("fallbackReads").value(router.getFallbackReadCount())
+                        .name("servers").beginArray();
+                for (ReplicaRouter.Replica replica : router.getReplicas()) {
+                    json.beginObject()
+                            .name("url").value(replica.getUrl())
+                            .name("healthy").value(replica.isHealthy())
+                            .name("reads").value(replica.getReadCount())
+                            .name("lagSeconds");
+                    if (replica.getLagSeconds() != null) {
+                        json.value(replica.getLagSeconds().longValue());
+                    } else {
+                        json.nullValue();
+                    }
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+
+            json.name("cache").beginObject();
+            for (Map.Entry<ChangeEvent.Entity, ApiHandler> entry : handlers.entrySet()) {
+                LruCache<String, CachedResponse> cache = entry.getValue().getCache();
+                json.name(entry.getKey().name().toLowerCase()).beginObject()
+                        .name("size").value(cache.size())
+                        .name("hits").value(cache.getHits())
+                        .name("misses").value(cache.getMisses())
+                        .name("evictions").value(cache.getEvictions())
+                        .name("hitRatio").value(cache.getHitRatio())
+                        .name("notModified").value(entry.getValue().getNotModifiedCount())
+                        .endObject();
+            }
+            json.endObject();
+
+            LatencyHistogram overall = DaoMetrics.getOverall();
+            json.name("dao").beginObject()
+                    .name("inFlight").value(DaoMetrics.getInFlight())
+                    .name("calls").value(overall.getCount())
+                    .name("meanMicros").value(overall.getMeanMicros())
+                    .name("p50Micros").value(overall.getPercentileMicros(50))
+                    .name("p99Micros").value(overall.getPercentileMicros(99))
+                    .endObject();
+
+            ApiHandler.send(exchange, ApiResponse.ok(json.endObject().toString()), null);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        AppConfig config;
+        try {
+            config = AppConfig.get();
+            config.requireDatabasePassword();
+        } catch (IllegalStateException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+            return;
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : config.get(AppConfig.SERVER_PORT);
+        int poolSize = args.length > 1 ? Integer.parseInt(args[1]) : config.get(AppConfig.POOL_SIZE);
+
+        HealthcareServer server = new HealthcareServer(port, poolSize);
+        try {
+            server.start();
+        } catch (IOException ex) {
+            System.err.println("Could not start server: " + ex.getMessage());
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+}
@@ -0,0 +1,118 @@
+package com.healthcare.server;
+
+import com.healthcare.dao.MedicalRecordDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.MedicalRecord;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /api/medical-records} endpoints. {@code GET /api/medical-records?patientId=n} returns one patient's history,
+ * versioned per patient so polling it stays cheap while other patients' records change.
+ * {@code GET /api/medical-records?q=words} searches the diagnosis, treatment and notes (see
+ * {@link MedicalRecordDAO#searchMedicalRecords}), optionally with {@code patientId}, {@code doctorId} and {@code limit}.
+ */
+class MedicalRecordHandler extends ApiHandler {
+
+    private final MedicalRecordDAO medicalRecordDAO = new MedicalRecordDAO();
+
+    MedicalRecordHandler(int cacheEntries, VersionTracker versions) {
+        super("/api/medical-records", ChangeEvent.Entity.MEDICAL_RECORD, cacheEntries, versions);
+    }
+
+    @Override
+    ApiResponse list(Map<String, String> query) throws SQLException {
+        String patientId = query.get("patientId");
+        String text = query.get("q");
+        if (text != null) {
+            String doctorId = query.get("doctorId");
+            List<MedicalRecord> found = medicalRecordDAO.searchMedicalRecordsOrThrow(text,
+                    patientId != null ? Integer.valueOf(patientId) : null,
+                    doctorId != null ? Integer.valueOf(doctorId) : null, limitParam(query));
+            return ApiResponse.ok(page(found, -1, MedicalRecord::getRecordId, ModelJson::write));
+        }
+        if (patientId != null) {
+            List<MedicalRecord> history = medicalRecordDAO.getMedicalRecordsByPatientIdOrThrow(Integer.parseInt(patientId));
+            for (MedicalRecord record : history) {
+                getVersions().rememberRecordOwner(record.getRecordId(), record.getPatientId());
+            }
+            return ApiResponse.ok(page(history, -1, MedicalRecord::getRecordId, ModelJson::write));
+        }
+        int limit = limitParam(query);
+        List<MedicalRecord> records = medicalRecordDAO.getMedicalRecordsPageOrThrow(afterParam(query), limit);
+        return ApiResponse.ok(page(records, limit, MedicalRecord::getRecordId, ModelJson::write));
+    }
+
+    /**
+     * A patient's history only changes when one of their records is written.
+     */
+    @Override
+    VersionTracker.Version versionOf(Integer id, Map<String, String> query) {
+        String patientId = query.get("patientId");
+        if (id == null && patientId != null) {
+            return getVersions().scope(ChangeEvent.Entity.MEDICAL_RECORD, Integer.parseInt(patientId));
+        }
+        return super.versionOf(id, query);
+    }
+
+    @Override
+    ApiResponse get(int id) throws SQLException {
+        MedicalRecord record = medicalRecordDAO.getMedicalRecordByIdOrThrow(id);
+        if (record == null) {
+            return ApiResponse.notFound("Medical record " + id + " not found");
+        }
+        getVersions().rememberRecordOwner(record.getRecordId(), record.getPatientId());
+        return ApiResponse.ok(single(record, ModelJson::write));
+    }
+
+    @Override
+    ApiResponse create(Map<String, Object> body) throws SQLException {
+        MedicalRecord record = ModelJson.readMedicalRecord(body);
+        String error = validate(record);
+        if (error != null) {
+            return ApiResponse.badRequest(error);
+        }
+        int recordId = medicalRecordDAO.addMedicalRecordOrThrow(record);
+        if (recordId == -1) {
+            return ApiResponse.error(500, "Failed to add medical record");
+        }
+        return ApiResponse.created(recordId);
+    }
+
+    @Override
+    ApiResponse update(int id, Map<String, Object> body) throws SQLException {
+        MedicalRecord record = ModelJson.readMedicalRecord(body);
+        record.setRecordId(id);
+        String error = validate(record);
+        if (error != null) {
+            return ApiResponse.badRequest(error);
+        }
+        Integer expectedVersion = ModelJson.getInteger(body, "expectedVersion");
+        if (expectedVersion != null) {
+            return updateResponse(medicalRecordDAO.updateMedicalRecordAtVersionOrThrow(record, expectedVersion), "Medical record " + id, ModelJson::write);
+        }
+        if (!medicalRecordDAO.updateMedicalRecordOrThrow(record)) {
+            return ApiResponse.notFound("Medical record " + id + " not updated");
+        }
+        return ApiResponse.noContent();
+    }
+
+    @Override
+    ApiResponse delete(int id) throws SQLException {
+        if (!medicalRecordDAO.deleteMedicalRecordOrThrow(id)) {
+            return ApiResponse.notFound("Medical record " + id + " not deleted");
+        }
+        return ApiResponse.noContent();
+    }
+
+    // Same required fields as the Medical Records form
+    private static String validate(MedicalRecord record) {
+        if (record.getPatientId() <= 0 || record.getDiagnosis() == null || record.getDiagnosis().trim().isEmpty()) {
+            return "patientId and diagnosis are required.";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,186 @@
+package com.healthcare.server;
+
+import com.healthcare.dao.PatientDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.json.JsonWriter;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.Patient;
+import com.healthcare.store.CohortQuery;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code /api/patients} endpoints. {@code GET /api/patients?search=term} searches by name, email or phone,
+ * {@code GET /api/patients?ids=1,2,3} looks up several patients at once, and {@code ?email=} or {@code ?phone=}
+ * returns the patient (if any) who already has that email or phone number. Cohort parameters such as
+ * {@code ?minAge=60&maxAge=75&state=X} select patients by demographics, and {@code &count=true} returns only
+ * {@code {"count":n}}.
+ */
+class PatientHandler extends ApiHandler {
+
+    private final PatientDAO patientDAO = new PatientDAO();
+
+    PatientHandler(int cacheEntries, VersionTracker versions) {
+        super("/api/patients", ChangeEvent.Entity.PATIENT, cacheEntries, versions);
+    }
+
+    @Override
+    ApiResponse list(Map<String, String> query) throws SQLException {
+        Set<Integer> ids = idsParam(query);
+        if (ids != null) {
+            // Batch lookup used by the remote client instead of one request per patient
+            List<Patient> patients = patientDAO.getPatientsByIdsOrThrow(ids);
+            return ApiResponse.ok(page(patients, -1, Patient::getPatientId, ModelJson::write));
+        }
+        String email = query.get("email");
+        String phone = query.get("phone");
+        if (email != null || phone != null) {
+            int existingId = email != null
+                    ? patientDAO.findPatientIdByEmailOrThrow(email)
+                    : patientDAO.findPatientIdByPhoneOrThrow(phone);
+            Patient existing = existingId != -1 ? patientDAO.getPatientByIdOrThrow(existingId) : null;
+            return ApiResponse.ok(page(existing != null ? List.of(existing) : List.of(), -1, Patient::getPatientId, ModelJson::write));
+        }
+        String search = query.get("search");
+        if (search != null) {
+            List<Patient> results = patientDAO.searchPatientsOrThrow(search);
+            return ApiResponse.ok(page(results, -1, Patient::getPatientId, ModelJson::write));
+        }
+        int limit = limitParam(query);
+        CohortQuery cohort = cohortParams(query);
+        if (cohort != null) {
+            if ("true".equals(query.get("count"))) {
+                int count = patientDAO.countPatientsInCohortOrThrow(cohort);
+                return ApiResponse.ok(new JsonWriter().beginObject().name("count").value(count).endObject().toString());
+            }
+            List<Patient> patients = patientDAO.findPatientsInCohortOrThrow(cohort, afterParam(query), limit);
+            return ApiResponse.ok(page(patients, limit, Patient::getPatientId, ModelJson::write));
+        }
+        String gender = query.get("gender");
+        String city = query.get("city");
+        String state = query.get("state");
+        if (gender != null || city != null || state != null) {
+            List<Patient> patients = patientDAO.findPatientsOrThrow(gender, city, state, afterParam(query), limit);
+            return ApiResponse.ok(page(patients, limit, Patient::getPatientId, ModelJson::write));
+        }
+        List<Patient> patients = patientDAO.getPatientsPageOrThrow(afterParam(query), limit);
+        return ApiResponse.ok(page(patients, limit, Patient::getPatientId, ModelJson::write));
+    }
+
+    @Override
+    ApiResponse get(int id) throws SQLException {
+        Patient patient = patientDAO.getPatientByIdOrThrow(id);
+        if (patient == null) {
+            return ApiResponse.notFound("Patient " + id + " not found");
+        }
+        return ApiResponse.ok(single(patient, ModelJson::write));
+    }
+
+    @Override
+    ApiResponse create(Map<String, Object> body) throws SQLException {
+        Patient patient = ModelJson.readPatient(body);
+        String error = validate(patient);
+        if (error != null) {
+            return ApiResponse.badRequest(error);
+        }
+        int patientId = patientDAO.addPatientOrThrow(patient);
+        if (patientId == -1) {
+            return ApiResponse.error(500, "Failed to add patient");
+        }
+        return ApiResponse.created(patientId);
+    }
+
+    @Override
+    ApiResponse update(int id, Map<String, Object> body) throws SQLException {
+        Patient patient = ModelJson.readPatient(body);
+        patient.setPatientId(id);
+        String error = validate(patient);
+        if (error != null) {
+            return ApiResponse.badRequest(error);
+        }
+        Integer expectedVersion = ModelJson.getInteger(body, "expectedVersion");
+        if (expectedVersion != null) {
+            return updateResponse(patientDAO.updatePatientAtVersionOrThrow(patient, expectedVersion), "Patient " + id, ModelJson::write);
+        }
+        if (!patientDAO.updatePatientOrThrow(patient)) {
+            return ApiResponse.notFound("Patient " + id + " not updated");
+        }
+        return ApiResponse.noContent();
+    }
+
+    @Override
+    ApiResponse delete(int id) throws SQLException {
+        if (!patientDAO.deletePatientOrThrow(id)) {
+            return ApiResponse.error(409, "Patient " + id + " not deleted. Ensure it exists and has no related appointments or medical records.");
+        }
+        return ApiResponse.noContent();
+    }
+
+    // Same required fields as the Patients form
+    private static String validate(Patient patient) {
+        if (isBlank(patient.getFirstName()) || isBlank(patient.getLastName())
+                || patient.getDateOfBirth() == null || isBlank(patient.getEmail())) {
+            return "firstName, lastName, dateOfBirth and email are required.";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * Reads a cohort from {@code minAge}, {@code maxAge}, {@code bornFrom}, {@code bornTo},
+     * {@code registeredFrom}, {@code registeredTo} (dates or date-times, inclusive) and {@code zip} (a prefix), together with
+     * {@code gender}, {@code city} and {@code state}, which may list several values separated by commas.
+     *
+     * {@code cohort=true} marks a cohort without any of the cohort-only criteria.
+     *
+     * @return The cohort, or null if none of the cohort-only parameters is present.
+     */
+    private static CohortQuery cohortParams(Map<String, String> query) {
+        String minAge = query.get("minAge");
+        String maxAge = query.get("maxAge");
+        String bornFrom = query.get("bornFrom");
+        String bornTo = query.get("bornTo");
+        String registeredFrom = query.get("registeredFrom");
+        String registeredTo = query.get("registeredTo");
+        String zip = query.get("zip");
+        if (minAge == null && maxAge == null && bornFrom == null && bornTo == null && registeredFrom == null
+                && registeredTo == null && zip == null && !"true".equals(query.get("cohort"))) {
+            return null;
+        }
+        CohortQuery cohort = new CohortQuery();
+        if (minAge != null || maxAge != null) {
+            cohort.ageBetween(minAge != null ? Integer.parseInt(minAge) : 0,
+                    maxAge != null ? Integer.parseInt(maxAge) : 200, LocalDate.now());
+        } else {
+            cohort.bornBetween(bornFrom != null ? LocalDate.parse(bornFrom) : null,
+                    bornTo != null ? LocalDate.parse(bornTo) : null);
+        }
+        cohort.registeredBetween(registeredFrom != null ? dateTimeParam(registeredFrom, LocalTime.MIN) : null,
+                registeredTo != null ? dateTimeParam(registeredTo, LocalTime.MAX) : null);
+        cohort.zipPrefix(zip);
+        if (query.get("gender") != null) {
+            cohort.gender(query.get("gender").split(","));
+        }
+        if (query.get("city") != null) {
+            cohort.city(query.get("city").split(","));
+        }
+        if (query.get("state") != null) {
+            cohort.state(query.get("state").split(","));
+        }
+        return cohort;
+    }
+
+    // A date alone stands for the given time on that day
+    private static LocalDateTime dateTimeParam(String value, LocalTime timeOfDay) {
+        return value.indexOf('T') > 0 ? LocalDateTime.parse(value) : LocalDate.parse(value).atTime(timeOfDay);
+    }
+}
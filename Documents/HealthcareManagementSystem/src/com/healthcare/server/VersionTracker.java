@@ -0,0 +1,139 @@
+package com.healthcare.server;
+
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.model.MedicalRecord;
+import com.healthcare.util.IntIntHashMap;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of what the server has served, bumped by the change events the DAOs publish after each write.
+ * Used to answer conditional GETs ({@code If-None-Match}, {@code If-Modified-Since}) without touching the database.
+ * <p>
+ * Three granularities are tracked:
+ * <ul>
+ *     <li>per entity collection: changes on any write to the entity (list and search responses)</li>
+ *     <li>per row: changes only when that row is written ({@code GET /base/{id}})</li>
+ *     <li>per patient, for medical records: changes when one of the patient's records is written
+ *     ({@code GET /api/medical-records?patientId=n})</li>
+ * </ul>
+ * Versions start over when the server restarts; the start time is part of every ETag so old tags never match.
+ * Writes made directly against MySQL (not through the server) are not seen.
+ */
+class VersionTracker {
+
+    /**
+     * A version number and the time it was reached.
+     */
+    static final class Version {
+        final long number;
+        final long modifiedMillis;
+
+        Version(long number, long modifiedMillis) {
+            this.number = number;
+            this.modifiedMillis = modifiedMillis;
+        }
+    }
+
+    private static final int UNKNOWN_OWNER = -1;
+
+    private final String epoch;
+    private final Version initial;
+    private final AtomicLong counter = new AtomicLong();
+    private final Map<ChangeEvent.Entity, EntityVersions> entities = new EnumMap<>(ChangeEvent.Entity.class);
+
+    // Medical record ID -> patient ID, so an update or delete knows whose history it changes
+    private final IntIntHashMap recordOwners = new IntIntHashMap(1024, UNKNOWN_OWNER);
+
+    VersionTracker() {
+        long startMillis = System.currentTimeMillis();
+        this.epoch = Long.toString(startMillis, 36);
+        this.initial = new Version(0, startMillis);
+        for (ChangeEvent.Entity entity : ChangeEvent.Entity.values()) {
+            entities.put(entity, new EntityVersions(initial));
+        }
+    }
+
+    /**
+     * Records a write. Must be called before the response caches are invalidated for it.
+     */
+    void recordChange(ChangeEvent event) {
+        Version version = new Version(counter.incrementAndGet(), System.currentTimeMillis());
+        EntityVersions versions = entities.get(event.getEntity());
+        versions.collection = version;
+        versions.rows.put(event.getId(), version);
+
+        if (event.getEntity() == ChangeEvent.Entity.MEDICAL_RECORD) {
+            MedicalRecord record = event.getPayload(MedicalRecord.class);
+            int previousOwner;
+            synchronized (recordOwners) {
+                previousOwner = recordOwners.get(event.getId());
+                if (record != null) {
+                    recordOwners.put(event.getId(), record.getPatientId());
+                } else {
+                    recordOwners.remove(event.getId());
+                }
+            }
+            if (record != null) {
+                versions.scopes.put(record.getPatientId(), version);
+            }
+            if (previousOwner != UNKNOWN_OWNER) {
+                versions.scopes.put(previousOwner, version);
+            } else if (event.getOperation() != ChangeEvent.Operation.INSERT) {
+                // Never seen this record, so its old patient is unknown: treat every history as changed
+                versions.scopeFloor = version;
+            }
+        }
+    }
+
+    /**
+     * Notes which patient a served medical record belongs to, so a later update of it only
+     * invalidates that patient's history.
+     */
+    void rememberRecordOwner(int recordId, int patientId) {
+        synchronized (recordOwners) {
+            recordOwners.put(recordId, patientId);
+        }
+    }
+
+    Version collection(ChangeEvent.Entity entity) {
+        return entities.get(entity).collection;
+    }
+
+    Version row(ChangeEvent.Entity entity, int id) {
+        return entities.get(entity).rows.getOrDefault(id, initial);
+    }
+
+    /**
+     * @return The version of the rows belonging to one owner, e.g. one patient's medical records.
+     */
+    Version scope(ChangeEvent.Entity entity, int ownerId) {
+        EntityVersions versions = entities.get(entity);
+        Version scoped = versions.scopes.getOrDefault(ownerId, initial);
+        Version floor = versions.scopeFloor;
+        return floor.number > scoped.number ? floor : scoped;
+    }
+
+    /**
+     * @return A weak ETag for a version, e.g. {@code W/"lq3x9k2-17"}. Weak because the same
+     * version may be sent gzipped or not.
+     */
+    String etag(Version version) {
+        return "W/\"" + epoch + "-" + version.number + "\"";
+    }
+
+    private static final class EntityVersions {
+        volatile Version collection;
+        volatile Version scopeFloor;
+        final Map<Integer, Version> rows = new ConcurrentHashMap<>();
+        final Map<Integer, Version> scopes = new ConcurrentHashMap<>();
+
+        EntityVersions(Version initial) {
+            this.collection = initial;
+            this.scopeFloor = initial;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.healthcare.snapshot;
+
+import com.healthcare.dao.ChangeMark;
+import com.healthcare.dao.DoctorDAO;
+import com.healthcare.dao.PatientDAO;
+import com.healthcare.model.Doctor;
+import com.healthcare.model.Patient;
+import com.healthcare.util.IntList;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Brings the patient and doctor lists up to date from the local snapshot instead of reading the whole tables.
+ * <p>
+ * Per table, startup asks MySQL for its row count and latest {@code updated_at}, then only for the rows
+ * changed since the snapshot was taken. Deletions don't leave an {@code updated_at} behind, so when the row
+ * count doesn't add up, the table's IDs are read to find the deleted rows. The refreshed snapshot is saved
+ * for the next launch. Without a usable snapshot (first run, another database, a damaged file) both tables
+ * are read in full, as before.
+ */
+public class ReferenceDataSync {
+
+    // Changes this close before the snapshot's latest one are read again: a transaction that started
+    // earlier can commit after the snapshot was taken with an updated_at older than that latest change
+    private static final long OVERLAP_SECONDS = 60;
+    private static final String MISSING_COLUMN_STATE = "42S22";
+
+    private final SnapshotFile file;
+    private final String database;
+    private final PatientDAO patientDAO;
+    private final DoctorDAO doctorDAO;
+
+    /**
+     * @param file     Where the snapshot is kept.
+     * @param database The JDBC URL of the database, so a snapshot from another database is not used.
+     */
+    public ReferenceDataSync(SnapshotFile file, String database, PatientDAO patientDAO, DoctorDAO doctorDAO) {
+        this.file = file;
+        this.database = database;
+        this.patientDAO = patientDAO;
+        this.doctorDAO = doctorDAO;
+    }
+
+    /**
+     * Loads the snapshot, applies the changes made since and saves the result.
+     *
+     * @return The current patients and doctors, ordered by ID.
+     * @throws SQLException if the database cannot be reached.
+     */
+    public ReferenceSnapshot sync() throws SQLException {
+        ReferenceSnapshot cached = loadCached();
+
+        ChangeMark patientMark;
+        ChangeMark doctorMark;
+        try {
+            // Marks first, so rows changed while the lists are read are picked up again next time
+            patientMark = patientDAO.getPatientChangeMarkOrThrow();
+            doctorMark = doctorDAO.getDoctorChangeMarkOrThrow();
+        } catch (SQLException ex) {
+            if (!MISSING_COLUMN_STATE.equals(ex.getSQLState())) {
+                throw ex;
+            }
+            System.err.println("Reference snapshot disabled: the Patients and Doctors tables have no updated_at column"
+                    + " (see the README's database setup).");
+            return new ReferenceSnapshot(database, patientDAO.getAllPatientsOrThrow(), null,
+                    doctorDAO.getAllDoctorsOrThrow(), null);
+        }
+
+        List<Patient> patients;
+        List<Doctor> doctors;
+        if (cached == null || cached.getPatientsChangedUpTo() == null) {
+            patients = patientDAO.getAllPatientsOrThrow();
+        } else {
+            List<Patient> changed = patientDAO.getPatientsChangedSinceOrThrow(cached.getPatientsChangedUpTo().minusSeconds(OVERLAP_SECONDS));
+            patients = merge(cached.getPatients(), changed, Patient::getPatientId, patientMark.getRowCount(), patientDAO::getPatientIdsOrThrow);
+            System.out.println("Reference snapshot: " + changed.size() + " patients changed since " + cached.getPatientsChangedUpTo());
+        }
+        if (cached == null || cached.getDoctorsChangedUpTo() == null) {
+            doctors = doctorDAO.getAllDoctorsOrThrow();
+        } else {
+            List<Doctor> changed = doctorDAO.getDoctorsChangedSinceOrThrow(cached.getDoctorsChangedUpTo().minusSeconds(OVERLAP_SECONDS));
+            doctors = merge(cached.getDoctors(), changed, Doctor::getDoctorId, doctorMark.getRowCount(), doctorDAO::getDoctorIdsOrThrow);
+        }
+
+        ReferenceSnapshot fresh = new ReferenceSnapshot(database, patients, patientMark.getLatestChange(),
+                doctors, doctorMark.getLatestChange());
+        if (cached == null
+                || cached.getPatients().size() != patients.size() || cached.getDoctors().size() != doctors.size()
+                || !Objects.equals(cached.getPatientsChangedUpTo(), fresh.getPatientsChangedUpTo())
+                || !Objects.equals(cached.getDoctorsChangedUpTo(), fresh.getDoctorsChangedUpTo())) {
+            save(fresh);
+        }
+        return fresh;
+    }
+
+    private ReferenceSnapshot loadCached() {
+        try {
+            ReferenceSnapshot cached = file.load();
+            if (cached != null && !database.equals(cached.getDatabase())) {
+                System.out.println("Reference snapshot is for " + cached.getDatabase() + ", reloading from " + database);
+                return null;
+            }
+            return cached;
+        } catch (IOException ex) {
+            System.err.println("Ignoring reference snapshot: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private void save(ReferenceSnapshot snapshot) {
+        try {
+            file.save(snapshot);
+        } catch (IOException ex) {
+            // Not fatal: the next launch just has more to catch up on
+            System.err.println("Could not save reference snapshot to " + file.getPath() + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Reads every ID of a table.
+     */
+    @FunctionalInterface
+    interface IdQuery {
+        IntList ids() throws SQLException;
+    }
+
+    /**
+     * Applies changed rows to the cached ones and, if the count shows rows were deleted, drops those.
+     */
+    static <T> List<T> merge(List<T> cached, List<T> changed, ToIntFunction<T> id, int expectedCount, IdQuery allIds)
+            throws SQLException {
+        Map<Integer, T> byId = new HashMap<>(cached.size() * 2);
+        for (T row : cached) {
+            byId.put(id.applyAsInt(row), row);
+        }
+        for (T row : changed) {
+            byId.put(id.applyAsInt(row), row);
+        }
+
+        List<T> merged;
+        if (byId.size() == expectedCount) {
+            merged = new ArrayList<>(byId.values());
+        } else {
+            IntList ids = allIds.ids();
+            BitSet present = new BitSet();
+            for (int i = 0; i < ids.size(); i++) {
+                present.set(ids.get(i));
+            }
+            merged = new ArrayList<>(ids.size());
+            for (T row : byId.values()) {
+                if (present.get(id.applyAsInt(row))) {
+                    merged.add(row);
+                }
+            }
+        }
+        merged.sort(Comparator.comparingInt(id));
+        return merged;
+    }
+}
@@ -0,0 +1,57 @@
+package com.healthcare.snapshot;
+
+import com.healthcare.model.Doctor;
+import com.healthcare.model.Patient;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The patients and doctors as of some point in time, plus how far each list is up to date
+ * (the latest {@code updated_at} it includes). Saved on local disk by {@link SnapshotFile}.
+ */
+public final class ReferenceSnapshot {
+
+    private final String database;
+    private final List<Patient> patients;
+    private final LocalDateTime patientsChangedUpTo;
+    private final List<Doctor> doctors;
+    private final LocalDateTime doctorsChangedUpTo;
+
+    /**
+     * @param database            The JDBC URL the data came from; a snapshot of another database is never used.
+     * @param patients            The patients, ordered by ID.
+     * @param patientsChangedUpTo The latest patient change included, or null if unknown (the list is then reloaded in full next time).
+     * @param doctors             The doctors, ordered by ID.
+     * @param doctorsChangedUpTo  The latest doctor change included, or null if unknown.
+     */
+    public ReferenceSnapshot(String database, List<Patient> patients, LocalDateTime patientsChangedUpTo,
+                             List<Doctor> doctors, LocalDateTime doctorsChangedUpTo) {
+        this.database = database;
+        this.patients = Collections.unmodifiableList(patients);
+        this.patientsChangedUpTo = patientsChangedUpTo;
+        this.doctors = Collections.unmodifiableList(doctors);
+        this.doctorsChangedUpTo = doctorsChangedUpTo;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public List<Patient> getPatients() {
+        return patients;
+    }
+
+    public LocalDateTime getPatientsChangedUpTo() {
+        return patientsChangedUpTo;
+    }
+
+    public List<Doctor> getDoctors() {
+        return doctors;
+    }
+
+    public LocalDateTime getDoctorsChangedUpTo() {
+        return doctorsChangedUpTo;
+    }
+}
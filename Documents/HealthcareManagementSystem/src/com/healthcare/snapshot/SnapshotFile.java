@@ -0,0 +1,286 @@
+package com.healthcare.snapshot;
+
+import com.healthcare.model.Doctor;
+import com.healthcare.model.Patient;
+import com.healthcare.util.PrivateFiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Stores a {@link ReferenceSnapshot} in a compact binary file and reads it back through a memory mapping.
+ * <p>
+ * There are two slots, the configured file and a sibling ending in ".alt"; each save goes to the slot that was
+ * not loaded, and loading picks the valid slot with the higher generation. The mapped file is therefore never
+ * the one being replaced (Windows refuses that while the mapping is alive), and a crash mid-save leaves the
+ * previous snapshot intact.
+ * <p>
+ * Layout, big-endian: a 24-byte header (magic, format version, generation, payload length, CRC-32 of the payload)
+ * followed by the payload: the database URL, then the patients and the doctors, each as
+ * "changed up to" time, row count and rows. Strings are a length plus UTF-8 bytes, with length -1 for null.
+ */
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x48435253; // "HCRS"
+    private static final int FORMAT_VERSION = 2; // 2: patients carry their row version
+    private static final int HEADER_BYTES = 24;
+    private static final int NULL_LENGTH = -1;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final int NULL_DATE = Integer.MIN_VALUE;
+
+    private final Path[] slots;
+    private int loadedSlot = -1;
+    private int loadedGeneration = 0;
+
+    public SnapshotFile(Path file) {
+        this.slots = new Path[]{file, file.resolveSibling(file.getFileName() + ".alt")};
+    }
+
+    public Path getPath() {
+        return slots[0];
+    }
+
+    /**
+     * Reads the newest valid snapshot, falling back to the older slot if the newer one is damaged.
+     *
+     * @return The snapshot, or null if neither slot holds one.
+     * @throws IOException if no slot could be read and at least one exists but is damaged or unreadable.
+     */
+    public synchronized ReferenceSnapshot load() throws IOException {
+        int[] generations = new int[slots.length];
+        for (int slot = 0; slot < slots.length; slot++) {
+            generations[slot] = readGeneration(slots[slot]);
+        }
+        int newer = generations[1] > generations[0] ? 1 : 0;
+
+        IOException failure = null;
+        for (int slot : new int[]{newer, 1 - newer}) {
+            if (generations[slot] == 0) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(slots[slot], StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                ReferenceSnapshot snapshot = decode(mapped, slots[slot]);
+                loadedSlot = slot;
+                loadedGeneration = Math.max(generations[0], generations[1]);
+                return snapshot;
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return null;
+    }
+
+    /**
+     * Writes the snapshot to the slot that was not loaded, replacing it atomically where the file system allows.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void save(ReferenceSnapshot snapshot) throws IOException {
+        int slot = loadedSlot == 0 ? 1 : 0;
+        int generation = loadedGeneration + 1;
+        byte[] payload = encode(snapshot);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(generation).putInt(payload.length).putLong(crc.getValue());
+
+        Path target = slots[slot];
+        // Names, dates of birth and contact details: owner-only before any byte is written
+        PrivateFiles.createDirectories(target.toAbsolutePath().getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = PrivateFiles.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            header.flip();
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, body});
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        loadedSlot = slot;
+        loadedGeneration = generation;
+    }
+
+    // The slot's generation if its header is ours, otherwise 0
+    private static int readGeneration(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the header is complete or the file ends
+            }
+        } catch (NoSuchFileException ex) {
+            return 0;
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+            return 0;
+        }
+        return header.getInt(8);
+    }
+
+    private static ReferenceSnapshot decode(ByteBuffer buffer, Path file) throws IOException {
+        int payloadLength = buffer.getInt(12);
+        long expectedCrc = buffer.getLong(16);
+        if (payloadLength < 0 || HEADER_BYTES + (long) payloadLength > buffer.capacity()) {
+            throw new IOException("Snapshot " + file + " is truncated");
+        }
+        ByteBuffer payload = buffer.slice(HEADER_BYTES, payloadLength);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException("Snapshot " + file + " is corrupt (checksum mismatch)");
+        }
+
+        try {
+            String database = readString(payload);
+
+            LocalDateTime patientsChangedUpTo = readDateTime(payload);
+            int patientCount = payload.getInt();
+            List<Patient> patients = new ArrayList<>(patientCount);
+            for (int i = 0; i < patientCount; i++) {
+                Patient patient = new Patient();
+                patient.setPatientId(payload.getInt());
+                patient.setFirstName(readString(payload));
+                patient.setLastName(readString(payload));
+                patient.setDateOfBirth(readDate(payload));
+                patient.setGender(readString(payload));
+                patient.setAddress(readString(payload));
+                patient.setCity(readString(payload));
+                patient.setState(readString(payload));
+                patient.setZipCode(readString(payload));
+                patient.setPhoneNumber(readString(payload));
+                patient.setEmail(readString(payload));
+                patient.setRegistrationDate(readDateTime(payload));
+                patient.setVersion(payload.getInt());
+                patients.add(patient);
+            }
+
+            LocalDateTime doctorsChangedUpTo = readDateTime(payload);
+            int doctorCount = payload.getInt();
+            List<Doctor> doctors = new ArrayList<>(doctorCount);
+            for (int i = 0; i < doctorCount; i++) {
+                Doctor doctor = new Doctor();
+                doctor.setDoctorId(payload.getInt());
+                doctor.setFirstName(readString(payload));
+                doctor.setLastName(readString(payload));
+                doctor.setSpecialization(readString(payload));
+                doctor.setPhoneNumber(readString(payload));
+                doctor.setEmail(readString(payload));
+                doctors.add(doctor);
+            }
+            return new ReferenceSnapshot(database, patients, patientsChangedUpTo, doctors, doctorsChangedUpTo);
+        } catch (RuntimeException ex) {
+            // Buffer underflow or a bad length: the checksum matched, so the writer was broken
+            throw new IOException("Snapshot " + file + " could not be decoded", ex);
+        }
+    }
+
+    private static byte[] encode(ReferenceSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + snapshot.getPatients().size() * 160);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, snapshot.getDatabase());
+
+        writeDateTime(out, snapshot.getPatientsChangedUpTo());
+        out.writeInt(snapshot.getPatients().size());
+        for (Patient patient : snapshot.getPatients()) {
+            out.writeInt(patient.getPatientId());
+            writeString(out, patient.getFirstName());
+            writeString(out, patient.getLastName());
+            writeDate(out, patient.getDateOfBirth());
+            writeString(out, patient.getGender());
+            writeString(out, patient.getAddress());
+            writeString(out, patient.getCity());
+            writeString(out, patient.getState());
+            writeString(out, patient.getZipCode());
+            writeString(out, patient.getPhoneNumber());
+            writeString(out, patient.getEmail());
+            writeDateTime(out, patient.getRegistrationDate());
+            out.writeInt(patient.getVersion());
+        }
+
+        writeDateTime(out, snapshot.getDoctorsChangedUpTo());
+        out.writeInt(snapshot.getDoctors().size());
+        for (Doctor doctor : snapshot.getDoctors()) {
+            out.writeInt(doctor.getDoctorId());
+            writeString(out, doctor.getFirstName());
+            writeString(out, doctor.getLastName());
+            writeString(out, doctor.getSpecialization());
+            writeString(out, doctor.getPhoneNumber());
+            writeString(out, doctor.getEmail());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate value) throws IOException {
+        out.writeInt(value != null ? (int) value.toEpochDay() : NULL_DATE);
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        int epochDay = in.getInt();
+        return epochDay != NULL_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    // Local date-times are stored as if they were UTC, which round-trips them unchanged
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        if (value == null) {
+            out.writeLong(NULL_TIME);
+            out.writeInt(0);
+        } else {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in) {
+        long epochSecond = in.getLong();
+        int nano = in.getInt();
+        return epochSecond != NULL_TIME ? LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC) : null;
+    }
+}
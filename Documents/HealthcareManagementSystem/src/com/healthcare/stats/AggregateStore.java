@@ -0,0 +1,252 @@
+package com.healthcare.stats;
+
+import com.healthcare.dao.StatsDAO;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory aggregate counters for appointment and patient statistics.
+ * <p>
+ * The store is seeded once from GROUP BY queries and then kept up to date by the
+ * DAO write hooks, so reports read O(1) values instead of rescanning tables.
+ * Counters are {@link LongAdder}s, which stripe concurrent updates across cells.
+ * <p>
+ * Writes made by other workstations do not pass through this JVM's DAOs, so callers
+ * that need to pick those up should use {@link #seedIfStale(long)} to re-seed periodically.
+ */
+public class AggregateStore {
+
+    private static final AggregateStore INSTANCE = new AggregateStore();
+
+    // Status codes packed into the low bits of the appointment keys
+    private static final int STATUS_SCHEDULED = 0;
+    private static final int STATUS_COMPLETED = 1;
+    private static final int STATUS_CANCELLED = 2;
+    private static final int STATUS_OTHER = 3;
+
+    private final StatsDAO statsDAO = new StatsDAO();
+
+    // Appointment counts keyed by (epochDay, status) and (doctorId, epochDay, status)
+    private volatile ConcurrentHashMap<Long, LongAdder> appointmentsByDay = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<Long, LongAdder> appointmentsByDoctorDay = new ConcurrentHashMap<>();
+
+    // Patient registrations keyed by epochDay and by epoch month (year * 12 + month - 1)
+    private volatile ConcurrentHashMap<Long, LongAdder> registrationsByDay = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<Long, LongAdder> registrationsByMonth = new ConcurrentHashMap<>();
+
+    private volatile boolean seeded = false;
+    private volatile long seededAtNanos;
+
+    private AggregateStore() {
+    }
+
+    public static AggregateStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true once the store has been seeded from the database.
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Rebuilds all counters from GROUP BY queries and swaps them in.
+     * Hooks that run while seeding are applied to the old counters and may be lost,
+     * which the next re-seed corrects.
+     *
+     * @return true if the store was seeded successfully, false otherwise.
+     */
+    public synchronized boolean seed() {
+        ConcurrentHashMap<Long, LongAdder> newByDay = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Long, LongAdder> newByDoctorDay = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Long, LongAdder> newRegByDay = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Long, LongAdder> newRegByMonth = new ConcurrentHashMap<>();
+
+        boolean appointmentsLoaded = statsDAO.loadAppointmentCounts((doctorId, date, status, count) -> {
+            int code = statusCode(status);
+            add(newByDay, dayKey(date, code), count);
+            add(newByDoctorDay, doctorDayKey(doctorId, date, code), count);
+        });
+        boolean registrationsLoaded = statsDAO.loadRegistrationCounts((date, count) -> {
+            add(newRegByDay, date.toEpochDay(), count);
+            add(newRegByMonth, monthKey(YearMonth.from(date)), count);
+        });
+
+        if (!appointmentsLoaded || !registrationsLoaded) {
+            System.err.println("Aggregate store could not be seeded.");
+            return false;
+        }
+
+        appointmentsByDay = newByDay;
+        appointmentsByDoctorDay = newByDoctorDay;
+        registrationsByDay = newRegByDay;
+        registrationsByMonth = newRegByMonth;
+        seededAtNanos = System.nanoTime();
+        seeded = true;
+        System.out.println("Aggregate store seeded.");
+        return true;
+    }
+
+    /**
+     * Seeds the store if it has never been seeded or the last seed is older than the given age.
+     *
+     * @param maxAgeMillis The maximum age of the counters before a re-seed.
+     * @return true if the store is seeded after the call.
+     */
+    public boolean seedIfStale(long maxAgeMillis) {
+        if (!seeded || System.nanoTime() - seededAtNanos > TimeUnit.MILLISECONDS.toNanos(maxAgeMillis)) {
+            return seed();
+        }
+        return true;
+    }
+
+    // --- Write hooks (called by the DAOs after a successful write) ---
+
+    public void appointmentAdded(int doctorId, LocalDate date, String status) {
+        applyAppointment(doctorId, date, status, 1);
+    }
+
+    public void appointmentRemoved(int doctorId, LocalDate date, String status) {
+        applyAppointment(doctorId, date, status, -1);
+    }
+
+    public void appointmentChanged(int oldDoctorId, LocalDate oldDate, String oldStatus,
+                                   int newDoctorId, LocalDate newDate, String newStatus) {
+        if (oldDoctorId == newDoctorId && oldDate.equals(newDate) && statusCode(oldStatus) == statusCode(newStatus)) {
+            return; // Nothing counted has changed (e.g. only the reason was edited)
+        }
+        applyAppointment(oldDoctorId, oldDate, oldStatus, -1);
+        applyAppointment(newDoctorId, newDate, newStatus, 1);
+    }
+
+    public void patientRegistered(LocalDateTime registrationDate) {
+        applyRegistration(registrationDate, 1);
+    }
+
+    public void patientRemoved(LocalDateTime registrationDate) {
+        applyRegistration(registrationDate, -1);
+    }
+
+    private void applyAppointment(int doctorId, LocalDate date, String status, long delta) {
+        if (!seeded || date == null) {
+            return; // The seed query will pick this row up
+        }
+        int code = statusCode(status);
+        add(appointmentsByDay, dayKey(date, code), delta);
+        add(appointmentsByDoctorDay, doctorDayKey(doctorId, date, code), delta);
+    }
+
+    private void applyRegistration(LocalDateTime registrationDate, long delta) {
+        if (!seeded || registrationDate == null) {
+            return;
+        }
+        LocalDate date = registrationDate.toLocalDate();
+        add(registrationsByDay, date.toEpochDay(), delta);
+        add(registrationsByMonth, monthKey(YearMonth.from(date)), delta);
+    }
+
+    // --- Reads ---
+
+    /**
+     * @return The number of appointments on the given date with the given status.
+     */
+    public long getAppointmentCount(LocalDate date, String status) {
+        return get(appointmentsByDay, dayKey(date, statusCode(status)));
+    }
+
+    /**
+     * @return The number of appointments on the given date across all statuses.
+     */
+    public long getAppointmentCount(LocalDate date) {
+        long total = 0;
+        for (int code = STATUS_SCHEDULED; code <= STATUS_OTHER; code++) {
+            total += get(appointmentsByDay, dayKey(date, code));
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of appointments a doctor has on the given date with the given status.
+     */
+    public long getDoctorAppointmentCount(int doctorId, LocalDate date, String status) {
+        return get(appointmentsByDoctorDay, doctorDayKey(doctorId, date, statusCode(status)));
+    }
+
+    /**
+     * @return The number of appointments a doctor has on the given date across all statuses.
+     */
+    public long getDoctorAppointmentCount(int doctorId, LocalDate date) {
+        long total = 0;
+        for (int code = STATUS_SCHEDULED; code <= STATUS_OTHER; code++) {
+            total += get(appointmentsByDoctorDay, doctorDayKey(doctorId, date, code));
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of patients registered on the given day.
+     */
+    public long getRegistrationCount(LocalDate date) {
+        return get(registrationsByDay, date.toEpochDay());
+    }
+
+    /**
+     * @return The number of patients registered in the given month.
+     */
+    public long getRegistrationCount(YearMonth month) {
+        return get(registrationsByMonth, monthKey(month));
+    }
+
+    /**
+     * Sums the daily registration counters in a date range.
+     * Cost is proportional to the number of days, not the number of patients.
+     *
+     * @param from The first day (inclusive).
+     * @param to   The last day (inclusive).
+     * @return The number of patients registered in the range.
+     */
+    public long getRegistrationCount(LocalDate from, LocalDate to) {
+        long total = 0;
+        for (long day = from.toEpochDay(); day <= to.toEpochDay(); day++) {
+            total += get(registrationsByDay, day);
+        }
+        return total;
+    }
+
+    // --- Key packing helpers ---
+
+    private static int statusCode(String status) {
+        if ("Scheduled".equals(status)) return STATUS_SCHEDULED;
+        if ("Completed".equals(status)) return STATUS_COMPLETED;
+        if ("Cancelled".equals(status)) return STATUS_CANCELLED;
+        return STATUS_OTHER;
+    }
+
+    private static long dayKey(LocalDate date, int statusCode) {
+        return (date.toEpochDay() << 2) | statusCode;
+    }
+
+    private static long doctorDayKey(int doctorId, LocalDate date, int statusCode) {
+        return ((long) doctorId << 32) | (dayKey(date, statusCode) & 0xFFFFFFFFL);
+    }
+
+    private static long monthKey(YearMonth month) {
+        return month.getYear() * 12L + month.getMonthValue() - 1;
+    }
+
+    private static void add(ConcurrentHashMap<Long, LongAdder> counters, long key, long delta) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+    }
+
+    private static long get(ConcurrentHashMap<Long, LongAdder> counters, long key) {
+        LongAdder adder = counters.get(key);
+        return adder == null ? 0 : adder.sum();
+    }
+}
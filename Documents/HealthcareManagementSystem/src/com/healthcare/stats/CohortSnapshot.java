@@ -0,0 +1,162 @@
+package com.healthcare.stats;
+
+import com.healthcare.dao.StatsDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.model.Patient;
+import com.healthcare.store.CohortQuery;
+import com.healthcare.store.ColumnarPatientStore;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link ColumnarPatientStore} of every patient's demographics (date of birth, gender, city, state, zip code and
+ * registration date), for answering {@link CohortQuery}s with column scans instead of exporting the table.
+ * <p>
+ * Loaded once with {@link #load()} and then kept up to date from the change events of this process's writes, like
+ * {@link FilterIndex}; {@link #loadIfStale(long)} reloads it in the background to pick up other workstations'
+ * writes. The store holds only the demographic columns, so a million patients take a few tens of MB.
+ */
+public final class CohortSnapshot {
+
+    private static final CohortSnapshot INSTANCE = new CohortSnapshot();
+
+    private final StatsDAO statsDAO = new StatsDAO();
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final EventFedCopy<Snapshot> copy = new EventFedCopy<>(CohortSnapshot::apply);
+
+    private CohortSnapshot() {
+    }
+
+    public static CohortSnapshot getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isLoaded() {
+        return copy.get() != null;
+    }
+
+    /**
+     * Reads every patient's demographics into a fresh store and swaps it in.
+     *
+     * @return true if loaded, false on database error (the previous store, if any, stays in use).
+     */
+    public boolean load() {
+        Snapshot fresh = new Snapshot();
+        if (!copy.load(fresh, snapshot -> statsDAO.streamPatientCohortColumns(snapshot::upsert))) {
+            System.err.println("Cohort snapshot could not be loaded.");
+            return false;
+        }
+        System.out.println("Cohort snapshot loaded: " + fresh.store.size() + " patients.");
+        return true;
+    }
+
+    /**
+     * Starts a reload on a background thread if the snapshot is older than the given age, and returns at once;
+     * queries keep using the current snapshot until the new one is ready.
+     */
+    public void loadIfStale(long maxAgeMillis) {
+        if (copy.isFresh(maxAgeMillis)) {
+            return;
+        }
+        if (loading.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("cohort-snapshot-load").start(() -> {
+                try {
+                    load();
+                } finally {
+                    loading.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return How many patients are in the cohort, or -1 if the snapshot is not loaded.
+     */
+    public int count(CohortQuery query) {
+        Snapshot snapshot = copy.get();
+        if (snapshot == null) {
+            return -1;
+        }
+        snapshot.lock.readLock().lock();
+        try {
+            return snapshot.store.count(query);
+        } finally {
+            snapshot.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return One page of the cohort's patient IDs in ascending order, or null if the snapshot is not loaded.
+     * @see ColumnarPatientStore#findPatientIds
+     */
+    public int[] findPatientIds(CohortQuery query, int afterId, int limit) {
+        Snapshot snapshot = copy.get();
+        if (snapshot == null) {
+            return null;
+        }
+        snapshot.lock.readLock().lock();
+        try {
+            return snapshot.store.findPatientIds(query, afterId, limit);
+        } finally {
+            snapshot.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Roughly how many bytes the store takes, or 0 if not loaded.
+     */
+    public long getEstimatedBytes() {
+        Snapshot snapshot = copy.get();
+        if (snapshot == null) {
+            return 0;
+        }
+        snapshot.lock.readLock().lock();
+        try {
+            return snapshot.store.estimatedBytes();
+        } finally {
+            snapshot.lock.readLock().unlock();
+        }
+    }
+
+    private static void apply(Snapshot snapshot, ChangeEvent event) {
+        if (event.getEntity() != ChangeEvent.Entity.PATIENT) {
+            return;
+        }
+        if (event.getOperation() == ChangeEvent.Operation.DELETE) {
+            snapshot.remove(event.getId());
+        } else {
+            Patient patient = event.getPayload(Patient.class);
+            if (patient != null) {
+                snapshot.upsert(patient);
+            }
+        }
+    }
+
+    /**
+     * One store and the lock guarding it: scans share the read lock, changes take the write lock.
+     */
+    private static final class Snapshot {
+        final ColumnarPatientStore store = new ColumnarPatientStore(1024);
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void upsert(Patient patient) {
+            lock.writeLock().lock();
+            try {
+                store.upsert(patient);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(int patientId) {
+            lock.writeLock().lock();
+            try {
+                store.remove(patientId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
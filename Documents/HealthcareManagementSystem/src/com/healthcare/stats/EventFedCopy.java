@@ -0,0 +1,99 @@
+package com.healthcare.stats;
+
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory copy of some tables' rows, loaded from the database and then kept up to date from this process's
+ * change events; the part {@link FilterIndex} and {@link CohortSnapshot} share.
+ * <p>
+ * A load streams into a fresh copy while the current one keeps answering queries and receiving events. Events that
+ * arrive during the load are also kept and applied to the fresh copy once streaming ends, because the stream may
+ * have read a row before the event's write (a patient deleted mid-load would otherwise come back). The fresh copy
+ * is swapped in under the same lock that stops collecting events, so every event reaches the copy in use.
+ *
+ * @param <T> The copy, e.g. a set of indexes; it must accept the stream and the events from different threads.
+ */
+final class EventFedCopy<T> {
+
+    private final BiConsumer<T, ChangeEvent> apply;
+    private final Object loadLock = new Object(); // One load at a time
+    private volatile T current; // null until loaded
+    private List<ChangeEvent> changedDuringLoad; // Non-null while a load runs; guarded by this
+    private boolean subscribed = false;
+    private volatile long loadedAtNanos;
+
+    /**
+     * @param apply Applies one change event to a copy, ignoring the entities the copy does not hold.
+     */
+    EventFedCopy(BiConsumer<T, ChangeEvent> apply) {
+        this.apply = apply;
+    }
+
+    /**
+     * @return The copy in use, or null if none has been loaded.
+     */
+    T get() {
+        return current;
+    }
+
+    /**
+     * @return true if a copy is loaded and no older than the given age.
+     */
+    boolean isFresh(long maxAgeMillis) {
+        return current != null && System.nanoTime() - loadedAtNanos <= TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+    /**
+     * Fills the fresh copy from the database and swaps it in.
+     *
+     * @param fresh  An empty copy.
+     * @param stream Reads the rows into the copy; returns false on a database error.
+     * @return true if swapped in, false if the stream failed (the current copy, if any, stays in use).
+     */
+    boolean load(T fresh, Predicate<T> stream) {
+        synchronized (loadLock) {
+            return loadLocked(fresh, stream);
+        }
+    }
+
+    private boolean loadLocked(T fresh, Predicate<T> stream) {
+        synchronized (this) {
+            if (!subscribed) {
+                ChangeEventBus.getInstance().subscribe(this::onChange);
+                subscribed = true;
+            }
+            changedDuringLoad = new ArrayList<>();
+        }
+        boolean loaded = stream.test(fresh);
+        synchronized (this) {
+            List<ChangeEvent> changed = changedDuringLoad;
+            changedDuringLoad = null;
+            if (!loaded) {
+                return false;
+            }
+            for (ChangeEvent event : changed) {
+                apply.accept(fresh, event);
+            }
+            current = fresh;
+            loadedAtNanos = System.nanoTime();
+        }
+        return true;
+    }
+
+    // Under the lock, so an event is either kept for the load in progress or applied to the copy it swapped in
+    private synchronized void onChange(ChangeEvent event) {
+        if (current != null) {
+            apply.accept(current, event);
+        }
+        if (changedDuringLoad != null) {
+            changedDuringLoad.add(event);
+        }
+    }
+}
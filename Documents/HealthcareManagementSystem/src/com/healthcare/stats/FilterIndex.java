@@ -0,0 +1,426 @@
+package com.healthcare.stats;
+
+import com.healthcare.dao.StatsDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.model.Appointment;
+import com.healthcare.model.Doctor;
+import com.healthcare.model.Patient;
+import com.healthcare.util.IntIntHashMap;
+import com.healthcare.util.RoaringBitmap;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bitmap indexes over the low-cardinality columns: appointment status, date and doctor, patient gender,
+ * city and state, and doctor specialization.
+ * <p>
+ * Each distinct value has a {@link RoaringBitmap} of the IDs that have it, so a combined filter such as
+ * "cancelled appointments with a cardiologist in March" is a few bitmap intersections instead of a table scan:
+ * the cardiologists' bitmap selects doctors, the union of their appointment bitmaps is intersected with the
+ * "Cancelled" bitmap and with the union of the day bitmaps for March. Text values match ignoring case and
+ * surrounding spaces.
+ * <p>
+ * The index is loaded once with {@link #load()} and then kept up to date from the change events of this process's
+ * writes. Like {@link AggregateStore}, it does not see other workstations' writes; {@link #loadIfStale(long)}
+ * reloads it in the background after a while.
+ */
+public final class FilterIndex {
+
+    private static final FilterIndex INSTANCE = new FilterIndex();
+
+    private final StatsDAO statsDAO = new StatsDAO();
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final EventFedCopy<Indexes> copy = new EventFedCopy<>(FilterIndex::apply);
+
+    private FilterIndex() {
+    }
+
+    public static FilterIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isLoaded() {
+        return copy.get() != null;
+    }
+
+    /**
+     * Reads the indexed columns of every appointment, patient and doctor into fresh indexes and swaps them in.
+     *
+     * @return true if loaded, false on database error (the previous indexes, if any, stay in use).
+     */
+    public boolean load() {
+        Indexes fresh = new Indexes();
+        boolean loaded = copy.load(fresh, indexes -> statsDAO.streamAppointmentFilters(indexes::putAppointment)
+                && statsDAO.streamPatientFilters(indexes::putPatient)
+                && statsDAO.streamDoctorFilters(indexes::putDoctor));
+        if (!loaded) {
+            System.err.println("Filter index could not be loaded.");
+            return false;
+        }
+        System.out.println("Filter index loaded: " + fresh.appointments.getCardinality() + " appointments, "
+                + fresh.patients.getCardinality() + " patients, " + fresh.doctors.getCardinality() + " doctors.");
+        return true;
+    }
+
+    /**
+     * Starts a reload on a background thread if the index is older than the given age, and returns at once;
+     * queries keep using the current index until the new one is ready.
+     */
+    public void loadIfStale(long maxAgeMillis) {
+        if (copy.isFresh(maxAgeMillis)) {
+            return;
+        }
+        if (loading.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("filter-index-load").start(() -> {
+                try {
+                    load();
+                } finally {
+                    loading.set(false);
+                }
+            });
+        }
+    }
+
+    // --- Queries ---
+
+    /**
+     * Finds appointments matching every given filter; a null filter matches everything.
+     *
+     * @param status         e.g. "Cancelled".
+     * @param specialization The doctor's specialization, e.g. "Cardiology".
+     * @param from           The first appointment date (inclusive).
+     * @param to             The last appointment date (inclusive).
+     * @param afterId        Only IDs above this are returned, for paging (0 for the first page).
+     * @param limit          The most IDs to return.
+     * @return Matching appointment IDs in ascending order, or null if the index is not loaded.
+     */
+    public int[] findAppointmentIds(String status, String specialization, LocalDate from, LocalDate to,
+                                    int afterId, int limit) {
+        Indexes indexes = copy.get();
+        if (indexes == null) {
+            return null;
+        }
+        indexes.lock.readLock().lock();
+        try {
+            RoaringBitmap result = indexes.appointments;
+            if (status != null) {
+                result = RoaringBitmap.and(result, indexes.appointmentStatus.get(status));
+            }
+            if (specialization != null) {
+                RoaringBitmap doctors = indexes.doctorSpecialization.get(specialization);
+                result = RoaringBitmap.and(result, indexes.appointmentDoctor.union(doctors));
+            }
+            if (from != null || to != null) {
+                int fromDay = from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE;
+                int toDay = to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE;
+                result = RoaringBitmap.and(result, indexes.appointmentDay.range(fromDay, toDay));
+            }
+            return result.toArray(afterId, limit);
+        } finally {
+            indexes.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds patients matching every given filter; a null filter matches everything.
+     *
+     * @return Matching patient IDs in ascending order, or null if the index is not loaded.
+     */
+    public int[] findPatientIds(String gender, String city, String state, int afterId, int limit) {
+        Indexes indexes = copy.get();
+        if (indexes == null) {
+            return null;
+        }
+        indexes.lock.readLock().lock();
+        try {
+            RoaringBitmap result = indexes.patients;
+            if (gender != null) {
+                result = RoaringBitmap.and(result, indexes.patientGender.get(gender));
+            }
+            if (city != null) {
+                result = RoaringBitmap.and(result, indexes.patientCity.get(city));
+            }
+            if (state != null) {
+                result = RoaringBitmap.and(result, indexes.patientState.get(state));
+            }
+            return result.toArray(afterId, limit);
+        } finally {
+            indexes.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The IDs of the doctors with the specialization in ascending order, or null if the index is not loaded.
+     */
+    public int[] findDoctorIds(String specialization) {
+        Indexes indexes = copy.get();
+        if (indexes == null) {
+            return null;
+        }
+        indexes.lock.readLock().lock();
+        try {
+            return indexes.doctorSpecialization.get(specialization).toArray();
+        } finally {
+            indexes.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Approximate heap bytes used by the bitmaps (not the ID-to-value maps), or 0 if not loaded.
+     */
+    public long getSizeInBytes() {
+        Indexes indexes = copy.get();
+        if (indexes == null) {
+            return 0;
+        }
+        indexes.lock.readLock().lock();
+        try {
+            return indexes.sizeInBytes();
+        } finally {
+            indexes.lock.readLock().unlock();
+        }
+    }
+
+    // --- Maintenance from change events ---
+
+    private static void apply(Indexes indexes, ChangeEvent event) {
+        int id = event.getId();
+        boolean deleted = event.getOperation() == ChangeEvent.Operation.DELETE;
+        switch (event.getEntity()) {
+            case APPOINTMENT -> {
+                Appointment appointment = event.getPayload(Appointment.class);
+                if (deleted) {
+                    indexes.removeAppointment(id);
+                } else if (appointment != null && appointment.getAppointmentDate() != null) {
+                    indexes.putAppointment(id, appointment.getDoctorId(), appointment.getAppointmentDate(),
+                            appointment.getStatus());
+                }
+            }
+            case PATIENT -> {
+                Patient patient = event.getPayload(Patient.class);
+                if (deleted) {
+                    indexes.removePatient(id);
+                } else if (patient != null) {
+                    indexes.putPatient(id, patient.getGender(), patient.getCity(), patient.getState());
+                }
+            }
+            case DOCTOR -> {
+                Doctor doctor = event.getPayload(Doctor.class);
+                if (deleted) {
+                    indexes.removeDoctor(id);
+                } else if (doctor != null) {
+                    indexes.putDoctor(id, doctor.getSpecialization());
+                }
+            }
+            default -> {
+                // Medical records have no indexed columns
+            }
+        }
+    }
+
+    /**
+     * One complete set of indexes. Writers take the write lock for each row, queries the read lock.
+     */
+    private static final class Indexes {
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        final RoaringBitmap appointments = new RoaringBitmap();
+        final TextColumn appointmentStatus = new TextColumn();
+        final Column appointmentDay = new Column();
+        final Column appointmentDoctor = new Column();
+
+        final RoaringBitmap patients = new RoaringBitmap();
+        final TextColumn patientGender = new TextColumn();
+        final TextColumn patientCity = new TextColumn();
+        final TextColumn patientState = new TextColumn();
+
+        final RoaringBitmap doctors = new RoaringBitmap();
+        final TextColumn doctorSpecialization = new TextColumn();
+
+        void putAppointment(int appointmentId, int doctorId, LocalDate date, String status) {
+            lock.writeLock().lock();
+            try {
+                appointments.add(appointmentId);
+                appointmentStatus.set(appointmentId, status);
+                appointmentDay.set(appointmentId, (int) date.toEpochDay());
+                appointmentDoctor.set(appointmentId, doctorId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removeAppointment(int appointmentId) {
+            lock.writeLock().lock();
+            try {
+                appointments.remove(appointmentId);
+                appointmentStatus.remove(appointmentId);
+                appointmentDay.remove(appointmentId);
+                appointmentDoctor.remove(appointmentId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void putPatient(int patientId, String gender, String city, String state) {
+            lock.writeLock().lock();
+            try {
+                patients.add(patientId);
+                patientGender.set(patientId, gender);
+                patientCity.set(patientId, city);
+                patientState.set(patientId, state);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removePatient(int patientId) {
+            lock.writeLock().lock();
+            try {
+                patients.remove(patientId);
+                patientGender.remove(patientId);
+                patientCity.remove(patientId);
+                patientState.remove(patientId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void putDoctor(int doctorId, String specialization) {
+            lock.writeLock().lock();
+            try {
+                doctors.add(doctorId);
+                doctorSpecialization.set(doctorId, specialization);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removeDoctor(int doctorId) {
+            lock.writeLock().lock();
+            try {
+                doctors.remove(doctorId);
+                doctorSpecialization.remove(doctorId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        long sizeInBytes() {
+            long bytes = appointments.getSizeInBytes() + patients.getSizeInBytes() + doctors.getSizeInBytes();
+            for (Column column : List.of(appointmentStatus, appointmentDay, appointmentDoctor, patientGender,
+                    patientCity, patientState, doctorSpecialization)) {
+                bytes += column.sizeInBytes();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * A bitmap of IDs per int value, plus each ID's value so an update can take the ID out of its old bitmap.
+     */
+    private static class Column {
+        private static final int NONE = Integer.MIN_VALUE;
+
+        private final NavigableMap<Integer, RoaringBitmap> bitmaps = new TreeMap<>();
+        private final IntIntHashMap valueOf = new IntIntHashMap(1024, NONE);
+
+        void set(int id, int value) {
+            int old = valueOf.get(id);
+            if (old == value) {
+                return;
+            }
+            if (old != NONE) {
+                removeFrom(old, id);
+            }
+            valueOf.put(id, value);
+            bitmaps.computeIfAbsent(value, v -> new RoaringBitmap()).add(id);
+        }
+
+        void remove(int id) {
+            int old = valueOf.remove(id);
+            if (old != NONE) {
+                removeFrom(old, id);
+            }
+        }
+
+        private void removeFrom(int value, int id) {
+            RoaringBitmap bitmap = bitmaps.get(value);
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(value);
+            }
+        }
+
+        RoaringBitmap get(int value) {
+            RoaringBitmap bitmap = bitmaps.get(value);
+            return bitmap != null ? bitmap : new RoaringBitmap();
+        }
+
+        /**
+         * @return The IDs whose value is between from and to (inclusive).
+         */
+        RoaringBitmap range(int from, int to) {
+            return RoaringBitmap.or(bitmaps.subMap(from, true, to, true).values());
+        }
+
+        /**
+         * @return The IDs whose value is one of the given values.
+         */
+        RoaringBitmap union(RoaringBitmap values) {
+            List<RoaringBitmap> matching = new ArrayList<>();
+            values.forEach(value -> {
+                RoaringBitmap bitmap = bitmaps.get(value);
+                if (bitmap != null) {
+                    matching.add(bitmap);
+                }
+            });
+            return RoaringBitmap.or(matching);
+        }
+
+        long sizeInBytes() {
+            long bytes = 0;
+            for (RoaringBitmap bitmap : bitmaps.values()) {
+                bytes += bitmap.getSizeInBytes();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * A {@link Column} over text, compared ignoring case and surrounding spaces; blank values are not indexed.
+     */
+    private static final class TextColumn extends Column {
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        void set(int id, String value) {
+            String key = normalize(value);
+            if (key == null) {
+                remove(id);
+            } else {
+                set(id, codes.computeIfAbsent(key, k -> codes.size()));
+            }
+        }
+
+        RoaringBitmap get(String value) {
+            Integer code = codes.get(normalize(value));
+            return code != null ? get(code) : new RoaringBitmap();
+        }
+
+        private static String normalize(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            return value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.healthcare.store;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Criteria selecting a group of patients by demographics, e.g. "aged 60 to 75 in state X registered this year":
+ * <pre>
+ * new CohortQuery().ageBetween(60, 75, LocalDate.now()).state("X").registeredBetween(firstOfYear, null)
+ * </pre>
+ * Every criterion set must match; one left unset matches everyone. Gender, city and state match any of the
+ * values given, ignoring case and surrounding spaces. Date bounds are inclusive and exclude patients whose date
+ * is unknown. Evaluated by {@link ColumnarPatientStore#count} and {@link ColumnarPatientStore#findPatientIds}.
+ */
+public class CohortQuery {
+
+    private LocalDate bornFrom;
+    private LocalDate bornTo;
+    private LocalDateTime registeredFrom;
+    private LocalDateTime registeredTo;
+    private final List<String> genders = new ArrayList<>();
+    private final List<String> cities = new ArrayList<>();
+    private final List<String> states = new ArrayList<>();
+    private String zipPrefix;
+
+    /**
+     * Patients born between the two dates; either may be null for an open end.
+     */
+    public CohortQuery bornBetween(LocalDate from, LocalDate to) {
+        this.bornFrom = from;
+        this.bornTo = to;
+        return this;
+    }
+
+    /**
+     * Patients whose age on the given day is between minAge and maxAge (inclusive).
+     */
+    public CohortQuery ageBetween(int minAge, int maxAge, LocalDate asOf) {
+        // Aged maxAge until the day before turning maxAge + 1
+        return bornBetween(asOf.minusYears(maxAge + 1L).plusDays(1), asOf.minusYears(minAge));
+    }
+
+    /**
+     * Patients registered between the two times; either may be null for an open end.
+     */
+    public CohortQuery registeredBetween(LocalDateTime from, LocalDateTime to) {
+        this.registeredFrom = from;
+        this.registeredTo = to;
+        return this;
+    }
+
+    public CohortQuery gender(String... values) {
+        addAll(genders, values);
+        return this;
+    }
+
+    public CohortQuery city(String... values) {
+        addAll(cities, values);
+        return this;
+    }
+
+    public CohortQuery state(String... values) {
+        addAll(states, values);
+        return this;
+    }
+
+    /**
+     * Patients whose zip code starts with the prefix, e.g. "021".
+     */
+    public CohortQuery zipPrefix(String prefix) {
+        this.zipPrefix = prefix == null || prefix.isBlank() ? null : prefix.trim();
+        return this;
+    }
+
+    private static void addAll(List<String> list, String[] values) {
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                list.add(value.trim());
+            }
+        }
+    }
+
+    public LocalDate getBornFrom() {
+        return bornFrom;
+    }
+
+    public LocalDate getBornTo() {
+        return bornTo;
+    }
+
+    public LocalDateTime getRegisteredFrom() {
+        return registeredFrom;
+    }
+
+    public LocalDateTime getRegisteredTo() {
+        return registeredTo;
+    }
+
+    public List<String> getGenders() {
+        return Collections.unmodifiableList(genders);
+    }
+
+    public List<String> getCities() {
+        return Collections.unmodifiableList(cities);
+    }
+
+    public List<String> getStates() {
+        return Collections.unmodifiableList(states);
+    }
+
+    public String getZipPrefix() {
+        return zipPrefix;
+    }
+
+    @Override
+    public String toString() {
+        return "CohortQuery{born " + bornFrom + ".." + bornTo + ", registered " + registeredFrom + ".." + registeredTo
+                + ", genders " + genders + ", cities " + cities + ", states " + states + ", zip " + zipPrefix + "}";
+    }
+}
@@ -0,0 +1,117 @@
+package com.healthcare.store;
+
+/**
+ * Scan kernels for {@link CohortQuery}: each narrows a selection mask (one bit per row, 64 rows per long) to the
+ * rows whose column value passes a test.
+ * <p>
+ * The inner loops read one primitive array front to back and turn each comparison into a bit without a branch,
+ * so they run at memory speed whatever the selectivity. Words already zero are skipped, which makes the later,
+ * narrower criteria cheaper. Not thread-safe per mask; the columns are only read.
+ */
+final class CohortScan {
+
+    private CohortScan() {
+    }
+
+    /**
+     * @return A mask selecting rows 0 to rows - 1.
+     */
+    static long[] all(int rows) {
+        long[] mask = new long[(rows + 63) >>> 6];
+        for (int word = 0; word < rows >>> 6; word++) {
+            mask[word] = -1L;
+        }
+        if ((rows & 63) != 0) {
+            mask[mask.length - 1] = (1L << rows) - 1; // Shift counts are taken mod 64
+        }
+        return mask;
+    }
+
+    /**
+     * Keeps the rows whose value is between min and max (inclusive).
+     */
+    static void intRange(long[] mask, int[] values, int rows, int min, int max) {
+        for (int word = 0; word < mask.length; word++) {
+            long selected = mask[word];
+            if (selected == 0) {
+                continue;
+            }
+            int base = word << 6;
+            int end = Math.min(64, rows - base);
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                int value = values[base + i];
+                // Negative if either bound fails; computed in long so the null sentinel cannot overflow
+                long outside = ((long) value - min) | ((long) max - value);
+                bits |= (~outside >>> 63) << i;
+            }
+            mask[word] = selected & bits;
+        }
+    }
+
+    /**
+     * Keeps the rows whose value is between min and max (inclusive).
+     */
+    static void longRange(long[] mask, long[] values, int rows, long min, long max) {
+        for (int word = 0; word < mask.length; word++) {
+            long selected = mask[word];
+            if (selected == 0) {
+                continue;
+            }
+            int base = word << 6;
+            int end = Math.min(64, rows - base);
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                long value = values[base + i];
+                bits |= (value >= min & value <= max ? 1L : 0L) << i;
+            }
+            mask[word] = selected & bits;
+        }
+    }
+
+    /**
+     * Keeps the rows whose dictionary code is accepted; accepted[code + 1] holds the answer for each code,
+     * accepted[0] the one for {@link StringDictionary#NULL_CODE}.
+     */
+    static void codeIn(long[] mask, int[] codes, int rows, boolean[] accepted) {
+        for (int word = 0; word < mask.length; word++) {
+            long selected = mask[word];
+            if (selected == 0) {
+                continue;
+            }
+            int base = word << 6;
+            int end = Math.min(64, rows - base);
+            long bits = 0;
+            for (int i = 0; i < end; i++) {
+                bits |= (accepted[codes[base + i] + 1] ? 1L : 0L) << i;
+            }
+            mask[word] = selected & bits;
+        }
+    }
+
+    /**
+     * Keeps the rows whose text starts with the prefix. Only rows still selected are compared.
+     */
+    static void startsWith(long[] mask, Utf8Column column, byte[] prefix) {
+        for (int word = 0; word < mask.length; word++) {
+            long selected = mask[word];
+            long remaining = selected;
+            while (remaining != 0) {
+                int bit = Long.numberOfTrailingZeros(remaining);
+                if (!column.startsWith((word << 6) + bit, prefix)) {
+                    selected &= ~(1L << bit);
+                }
+                remaining &= remaining - 1;
+            }
+            mask[word] = selected;
+        }
+    }
+
+    static int count(long[] mask) {
+        int count = 0;
+        for (long word : mask) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,425 @@
+package com.healthcare.store;
+
+import com.healthcare.model.Patient;
+import com.healthcare.util.IntIntHashMap;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-optimized, in-memory copy of the patients, one array per field instead of one object per patient.
+ * <p>
+ * IDs and dates are primitive arrays, city, state and gender are dictionary codes, and the other text fields
+ * are UTF-8 bytes in a shared array per column. That is a few hundred bytes less per patient than a
+ * {@link Patient} with its Strings and dates, which matters once the list reaches hundreds of thousands.
+ * <p>
+ * Rows stay in the order patients were added (ID order when loaded from the database); an ID-to-row map
+ * finds a patient's row. {@link #cursor()} reads fields in place without creating a Patient per row.
+ * {@link #count(CohortQuery)} and {@link #findPatientIds} scan the columns directly, see {@link CohortScan}.
+ * Not thread-safe: the Patients tab only touches it on the event dispatch thread.
+ */
+public class ColumnarPatientStore {
+
+    public static final int NO_ROW = -1;
+    private static final int NULL_DAY = Integer.MIN_VALUE;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private int size;
+    private int[] ids;
+    private int[] birthDays; // Epoch days
+    private long[] registeredAt; // Epoch seconds, local time taken as UTC
+    private int[] genders;
+    private int[] cities;
+    private int[] states;
+    private int[] versions;
+
+    private final StringDictionary genderDictionary = new StringDictionary();
+    private final StringDictionary cityDictionary = new StringDictionary();
+    private final StringDictionary stateDictionary = new StringDictionary();
+    private final Utf8Column firstNames;
+    private final Utf8Column lastNames;
+    private final Utf8Column addresses;
+    private final Utf8Column zipCodes;
+    private final Utf8Column phoneNumbers;
+    private final Utf8Column emails;
+
+    private final IntIntHashMap rowsById;
+
+    public ColumnarPatientStore(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        ids = new int[capacity];
+        birthDays = new int[capacity];
+        registeredAt = new long[capacity];
+        genders = new int[capacity];
+        cities = new int[capacity];
+        states = new int[capacity];
+        versions = new int[capacity];
+        firstNames = new Utf8Column(capacity);
+        lastNames = new Utf8Column(capacity);
+        addresses = new Utf8Column(capacity);
+        zipCodes = new Utf8Column(capacity);
+        phoneNumbers = new Utf8Column(capacity);
+        emails = new Utf8Column(capacity);
+        rowsById = new IntIntHashMap(capacity, NO_ROW);
+    }
+
+    /**
+     * @return A store holding the given patients, in the same order.
+     */
+    public static ColumnarPatientStore of(Collection<Patient> patients) {
+        ColumnarPatientStore store = new ColumnarPatientStore(patients.size());
+        for (Patient patient : patients) {
+            store.upsert(patient);
+        }
+        return store;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The patient's row, or {@link #NO_ROW} if the store does not hold them.
+     */
+    public int rowOf(int patientId) {
+        return rowsById.get(patientId);
+    }
+
+    public boolean contains(int patientId) {
+        return rowsById.containsKey(patientId);
+    }
+
+    /**
+     * Adds the patient at the end, or overwrites their row if the store already holds them. A null registration
+     * date keeps the stored one: it never changes, and updates made from a form do not carry it.
+     *
+     * @return The patient's row.
+     */
+    public int upsert(Patient patient) {
+        int row = rowsById.get(patient.getPatientId());
+        if (row == NO_ROW) {
+            row = size;
+            ensureCapacity(size + 1);
+            size++;
+            ids[row] = patient.getPatientId();
+            rowsById.put(patient.getPatientId(), row);
+            registeredAt[row] = NULL_TIME;
+        }
+        LocalDate dateOfBirth = patient.getDateOfBirth();
+        birthDays[row] = dateOfBirth != null ? (int) dateOfBirth.toEpochDay() : NULL_DAY;
+        LocalDateTime registrationDate = patient.getRegistrationDate();
+        if (registrationDate != null) {
+            registeredAt[row] = registrationDate.toEpochSecond(ZoneOffset.UTC);
+        }
+        genders[row] = genderDictionary.encode(patient.getGender());
+        cities[row] = cityDictionary.encode(patient.getCity());
+        states[row] = stateDictionary.encode(patient.getState());
+        versions[row] = patient.getVersion();
+        firstNames.set(row, patient.getFirstName(), size);
+        lastNames.set(row, patient.getLastName(), size);
+        addresses.set(row, patient.getAddress(), size);
+        zipCodes.set(row, patient.getZipCode(), size);
+        phoneNumbers.set(row, patient.getPhoneNumber(), size);
+        emails.set(row, patient.getEmail(), size);
+        return row;
+    }
+
+    /**
+     * Removes a patient; the rows after theirs move up by one.
+     *
+     * @return The row they had, or {@link #NO_ROW} if the store did not hold them.
+     */
+    public int remove(int patientId) {
+        int row = rowsById.remove(patientId);
+        if (row == NO_ROW) {
+            return NO_ROW;
+        }
+        int moved = size - row - 1;
+        System.arraycopy(ids, row + 1, ids, row, moved);
+        System.arraycopy(birthDays, row + 1, birthDays, row, moved);
+        System.arraycopy(registeredAt, row + 1, registeredAt, row, moved);
+        System.arraycopy(genders, row + 1, genders, row, moved);
+        System.arraycopy(cities, row + 1, cities, row, moved);
+        System.arraycopy(states, row + 1, states, row, moved);
+        System.arraycopy(versions, row + 1, versions, row, moved);
+        firstNames.removeRow(row, size);
+        lastNames.removeRow(row, size);
+        addresses.removeRow(row, size);
+        zipCodes.removeRow(row, size);
+        phoneNumbers.removeRow(row, size);
+        emails.removeRow(row, size);
+        size--;
+        for (int later = row; later < size; later++) {
+            rowsById.put(ids[later], later);
+        }
+        return row;
+    }
+
+    public int getPatientId(int row) {
+        return ids[row];
+    }
+
+    public String getFirstName(int row) {
+        return firstNames.get(row);
+    }
+
+    public String getLastName(int row) {
+        return lastNames.get(row);
+    }
+
+    public LocalDate getDateOfBirth(int row) {
+        return birthDays[row] != NULL_DAY ? LocalDate.ofEpochDay(birthDays[row]) : null;
+    }
+
+    /**
+     * @return The date of birth as an epoch day, or {@link Integer#MIN_VALUE} if unknown, without creating a LocalDate.
+     */
+    public int getBirthEpochDay(int row) {
+        return birthDays[row];
+    }
+
+    public String getGender(int row) {
+        return genderDictionary.decode(genders[row]);
+    }
+
+    public String getAddress(int row) {
+        return addresses.get(row);
+    }
+
+    public String getCity(int row) {
+        return cityDictionary.decode(cities[row]);
+    }
+
+    public String getState(int row) {
+        return stateDictionary.decode(states[row]);
+    }
+
+    public String getZipCode(int row) {
+        return zipCodes.get(row);
+    }
+
+    public String getPhoneNumber(int row) {
+        return phoneNumbers.get(row);
+    }
+
+    public String getEmail(int row) {
+        return emails.get(row);
+    }
+
+    public LocalDateTime getRegistrationDate(int row) {
+        return registeredAt[row] != NULL_TIME ? LocalDateTime.ofEpochSecond(registeredAt[row], 0, ZoneOffset.UTC) : null;
+    }
+
+    public int getVersion(int row) {
+        return versions[row];
+    }
+
+    /**
+     * @return A new Patient with the row's values, for code that needs one to keep or edit.
+     */
+    public Patient toPatient(int row) {
+        Patient patient = new Patient(ids[row], getFirstName(row), getLastName(row), getDateOfBirth(row), getGender(row),
+                getAddress(row), getCity(row), getState(row), getZipCode(row), getPhoneNumber(row), getEmail(row),
+                getRegistrationDate(row));
+        patient.setVersion(versions[row]);
+        return patient;
+    }
+
+    /**
+     * @return How many patients match the cohort.
+     */
+    public int count(CohortQuery query) {
+        return CohortScan.count(select(query));
+    }
+
+    /**
+     * @param afterId The last patient ID of the previous page, or 0 for the first page.
+     * @param limit   The maximum number of IDs to return.
+     * @return The IDs of the patients in the cohort, ascending.
+     */
+    public int[] findPatientIds(CohortQuery query, int afterId, int limit) {
+        long[] mask = select(query);
+        int[] matches = new int[CohortScan.count(mask)];
+        int count = 0;
+        for (int word = 0; word < mask.length; word++) {
+            long bits = mask[word];
+            while (bits != 0) {
+                int id = ids[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                if (id > afterId) {
+                    matches[count++] = id;
+                }
+                bits &= bits - 1;
+            }
+        }
+        Arrays.sort(matches, 0, count); // Rows are in ID order unless patients were added out of order
+        return Arrays.copyOf(matches, Math.min(count, limit));
+    }
+
+    /**
+     * @return A mask with one bit set per row in the cohort. The cheap range criteria run first so the zip code
+     * comparison only sees the rows left.
+     */
+    private long[] select(CohortQuery query) {
+        long[] mask = CohortScan.all(size);
+        if (query.getBornFrom() != null || query.getBornTo() != null) {
+            int from = query.getBornFrom() != null ? (int) query.getBornFrom().toEpochDay() : NULL_DAY + 1;
+            int to = query.getBornTo() != null ? (int) query.getBornTo().toEpochDay() : Integer.MAX_VALUE;
+            CohortScan.intRange(mask, birthDays, size, from, to);
+        }
+        if (query.getRegisteredFrom() != null || query.getRegisteredTo() != null) {
+            long from = query.getRegisteredFrom() != null ? query.getRegisteredFrom().toEpochSecond(ZoneOffset.UTC) : NULL_TIME + 1;
+            long to = query.getRegisteredTo() != null ? query.getRegisteredTo().toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE;
+            CohortScan.longRange(mask, registeredAt, size, from, to);
+        }
+        if (!query.getGenders().isEmpty()) {
+            CohortScan.codeIn(mask, genders, size, accepted(genderDictionary, query.getGenders()));
+        }
+        if (!query.getStates().isEmpty()) {
+            CohortScan.codeIn(mask, states, size, accepted(stateDictionary, query.getStates()));
+        }
+        if (!query.getCities().isEmpty()) {
+            CohortScan.codeIn(mask, cities, size, accepted(cityDictionary, query.getCities()));
+        }
+        if (query.getZipPrefix() != null) {
+            CohortScan.startsWith(mask, zipCodes, query.getZipPrefix().getBytes(StandardCharsets.UTF_8));
+        }
+        return mask;
+    }
+
+    // The dictionary holds values as entered, so each distinct one is compared once here rather than per row
+    private static boolean[] accepted(StringDictionary dictionary, List<String> values) {
+        boolean[] accepted = new boolean[dictionary.size() + 1];
+        for (int code = 0; code < dictionary.size(); code++) {
+            String value = dictionary.decode(code).trim();
+            for (String wanted : values) {
+                if (value.equalsIgnoreCase(wanted)) {
+                    accepted[code + 1] = true;
+                    break;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * @return A reusable view of one row at a time; move it with {@link Cursor#moveTo(int)}.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return Roughly how many bytes the store's arrays take.
+     */
+    public long estimatedBytes() {
+        long primitives = (long) ids.length * (4 + 4 + 8 + 4 + 4 + 4 + 4);
+        return primitives + firstNames.estimatedBytes() + lastNames.estimatedBytes() + addresses.estimatedBytes()
+                + zipCodes.estimatedBytes() + phoneNumbers.estimatedBytes() + emails.estimatedBytes()
+                + genderDictionary.estimatedBytes() + cityDictionary.estimatedBytes() + stateDictionary.estimatedBytes()
+                + 8L * ids.length; // ID-to-row map at its load factor
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, newCapacity);
+        birthDays = Arrays.copyOf(birthDays, newCapacity);
+        registeredAt = Arrays.copyOf(registeredAt, newCapacity);
+        genders = Arrays.copyOf(genders, newCapacity);
+        cities = Arrays.copyOf(cities, newCapacity);
+        states = Arrays.copyOf(states, newCapacity);
+        versions = Arrays.copyOf(versions, newCapacity);
+        firstNames.ensureCapacity(newCapacity);
+        lastNames.ensureCapacity(newCapacity);
+        addresses.ensureCapacity(newCapacity);
+        zipCodes.ensureCapacity(newCapacity);
+        phoneNumbers.ensureCapacity(newCapacity);
+        emails.ensureCapacity(newCapacity);
+    }
+
+    /**
+     * A flyweight over one row of the store: the same object is moved from row to row,
+     * and each getter reads the store directly.
+     */
+    public final class Cursor {
+        private int row = NO_ROW;
+
+        private Cursor() {
+        }
+
+        public Cursor moveTo(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+            }
+            this.row = row;
+            return this;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getPatientId() {
+            return ids[row];
+        }
+
+        public String getFirstName() {
+            return ColumnarPatientStore.this.getFirstName(row);
+        }
+
+        public String getLastName() {
+            return ColumnarPatientStore.this.getLastName(row);
+        }
+
+        public LocalDate getDateOfBirth() {
+            return ColumnarPatientStore.this.getDateOfBirth(row);
+        }
+
+        public String getGender() {
+            return ColumnarPatientStore.this.getGender(row);
+        }
+
+        public String getAddress() {
+            return ColumnarPatientStore.this.getAddress(row);
+        }
+
+        public String getCity() {
+            return ColumnarPatientStore.this.getCity(row);
+        }
+
+        public String getState() {
+            return ColumnarPatientStore.this.getState(row);
+        }
+
+        public String getZipCode() {
+            return ColumnarPatientStore.this.getZipCode(row);
+        }
+
+        public String getPhoneNumber() {
+            return ColumnarPatientStore.this.getPhoneNumber(row);
+        }
+
+        public String getEmail() {
+            return ColumnarPatientStore.this.getEmail(row);
+        }
+
+        public LocalDateTime getRegistrationDate() {
+            return ColumnarPatientStore.this.getRegistrationDate(row);
+        }
+
+        public int getVersion() {
+            return versions[row];
+        }
+
+        public Patient toPatient() {
+            return ColumnarPatientStore.this.toPatient(row);
+        }
+    }
+}
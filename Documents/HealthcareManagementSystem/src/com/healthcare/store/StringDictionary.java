@@ -0,0 +1,47 @@
+package com.healthcare.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the distinct values of a low-cardinality column (city, state, gender) to small int codes,
+ * so each row stores a code instead of its own String. Codes are never reused. Not thread-safe.
+ */
+final class StringDictionary {
+
+    static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    long estimatedBytes() {
+        long bytes = 0;
+        for (String value : values) {
+            bytes += 64 + 2L * value.length(); // The String, its array and the map entry
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,123 @@
+package com.healthcare.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A column of strings kept as UTF-8 bytes in one shared array, with an offset and length per row.
+ * A changed value is written over the old bytes when it fits, otherwise appended; the space left behind
+ * is reclaimed once it outgrows the live data. Not thread-safe.
+ */
+final class Utf8Column {
+
+    private static final int NULL_LENGTH = -1;
+    private static final int MIN_COMPACT_BYTES = 64 * 1024;
+
+    private byte[] heap;
+    private int heapUsed;
+    private int garbage; // Bytes in the heap no row points to any more
+    private int[] offsets;
+    private int[] lengths;
+
+    Utf8Column(int capacity) {
+        heap = new byte[Math.max(256, capacity * 12)];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        Arrays.fill(lengths, NULL_LENGTH);
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > offsets.length) {
+            int oldCapacity = offsets.length;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            Arrays.fill(lengths, oldCapacity, capacity, NULL_LENGTH);
+        }
+    }
+
+    /**
+     * @param rows The number of rows in use, for compaction.
+     */
+    void set(int row, String value, int rows) {
+        int oldLength = lengths[row];
+        if (value == null) {
+            release(row);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (oldLength >= utf8.length) {
+            System.arraycopy(utf8, 0, heap, offsets[row], utf8.length); // Fits where the old value was
+            garbage += oldLength - utf8.length;
+            lengths[row] = utf8.length;
+            return;
+        }
+        release(row);
+        if (garbage > MIN_COMPACT_BYTES && garbage > heapUsed / 2) {
+            compact(rows);
+        }
+        if (heapUsed + utf8.length > heap.length) {
+            heap = Arrays.copyOf(heap, Math.max(heapUsed + utf8.length, heap.length + (heap.length >> 1)));
+        }
+        System.arraycopy(utf8, 0, heap, heapUsed, utf8.length);
+        offsets[row] = heapUsed;
+        lengths[row] = utf8.length;
+        heapUsed += utf8.length;
+    }
+
+    String get(int row) {
+        int length = lengths[row];
+        return length == NULL_LENGTH ? null : new String(heap, offsets[row], length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Whether the row's value starts with the given UTF-8 bytes, compared in place.
+     */
+    boolean startsWith(int row, byte[] prefix) {
+        int length = lengths[row];
+        if (length < prefix.length) {
+            return false; // Also a null value
+        }
+        return Arrays.equals(heap, offsets[row], offsets[row] + prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * Drops a row's value; its bytes become garbage.
+     */
+    void release(int row) {
+        if (lengths[row] > 0) {
+            garbage += lengths[row];
+        }
+        lengths[row] = NULL_LENGTH;
+    }
+
+    /**
+     * Removes a row, moving the rows after it up by one.
+     */
+    void removeRow(int row, int rows) {
+        release(row);
+        System.arraycopy(offsets, row + 1, offsets, row, rows - row - 1);
+        System.arraycopy(lengths, row + 1, lengths, row, rows - row - 1);
+        lengths[rows - 1] = NULL_LENGTH;
+    }
+
+    long estimatedBytes() {
+        return heap.length + 8L * offsets.length;
+    }
+
+    // Rewrites the heap with only the bytes rows still point to, in row order
+    private void compact(int rows) {
+        byte[] compacted = new byte[Math.max(256, heapUsed - garbage + (heapUsed >> 2))];
+        int used = 0;
+        for (int row = 0; row < rows; row++) {
+            int length = lengths[row];
+            if (length > 0) {
+                System.arraycopy(heap, offsets[row], compacted, used, length);
+                offsets[row] = used;
+                used += length;
+            }
+        }
+        heap = compacted;
+        heapUsed = used;
+        garbage = 0;
+    }
+}
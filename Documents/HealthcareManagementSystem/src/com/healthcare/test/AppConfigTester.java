@@ -0,0 +1,118 @@
+package com.healthcare.test;
+
+import com.healthcare.config.AppConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks how {@link AppConfig} reads its settings, no database needed: system properties win over the
+ * environment, which wins over the file, which wins over the defaults; invalid values are all reported at
+ * once; and a reload applies only the reloadable settings. Works on a temporary file and leaves no trace.
+ */
+public class AppConfigTester {
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting AppConfig Tests ---");
+        File file = File.createTempFile("healthcare", ".properties");
+        try {
+            // --- Precedence ---
+            System.out.println("\n--- Testing precedence ---");
+            write(file, "db.user=file\npool.size=7\nserver.port=9000\ndb.deadlockRetries=4\n");
+            Map<String, String> environment = Map.of(
+                    AppConfig.POOL_SIZE.getEnvironmentName(), "8",
+                    AppConfig.SERVER_PORT.getEnvironmentName(), "9001");
+            Properties system = new Properties();
+            system.setProperty("healthcare.server.port", "9002");
+            AppConfig config = AppConfig.load(file, environment, system);
+            check("system property wins over environment and file", config.get(AppConfig.SERVER_PORT) == 9002);
+            check("environment wins over file", config.get(AppConfig.POOL_SIZE) == 8);
+            check("file wins over default", config.get(AppConfig.DB_USER).equals("file")
+                    && config.get(AppConfig.DB_DEADLOCK_RETRIES) == 4);
+            check("default used when nothing sets it", config.get(AppConfig.DB_MAX_CONNECTIONS) == 10
+                    && !config.isSet(AppConfig.DB_MAX_CONNECTIONS));
+            check("values from any source count as set", config.isSet(AppConfig.SERVER_PORT)
+                    && config.isSet(AppConfig.POOL_SIZE) && config.isSet(AppConfig.DB_USER));
+            check("environment name derived from the key",
+                    AppConfig.DB_MAX_REPLICA_LAG_SECONDS.getEnvironmentName().equals("HEALTHCARE_DB_MAX_REPLICA_LAG_SECONDS"));
+            check("missing file gives the defaults", AppConfig.load(new File(file.getPath() + ".missing"), Map.of(),
+                    new Properties()).get(AppConfig.POOL_SIZE) == 20);
+
+            // --- Database password ---
+            System.out.println("\n--- Testing the database password requirement ---");
+            check("unset password is refused", throwsIllegalState(() -> config.requireDatabasePassword()));
+            Properties emptyPassword = new Properties();
+            emptyPassword.setProperty("healthcare.db.password", "");
+            check("empty password counts as set", !throwsIllegalState(
+                    () -> AppConfig.load(file, Map.of(), emptyPassword).requireDatabasePassword()));
+            check("password from the environment counts as set", !throwsIllegalState(() -> AppConfig.load(file,
+                    Map.of(AppConfig.DB_PASSWORD.getEnvironmentName(), "secret"), new Properties()).requireDatabasePassword()));
+
+            // --- Validation ---
+            System.out.println("\n--- Testing validation ---");
+            write(file, "pool.size=0\nserver.port=http\ndb.driver.password=x\ndb.circuitOpenMs=-1\n");
+            String message = loadError(file);
+            check("invalid configuration is refused", message != null);
+            check("every problem is listed", message != null && message.contains("pool.size=0")
+                    && message.contains("server.port=http") && message.contains("db.driver.password")
+                    && message.contains("db.circuitOpenMs=-1"));
+            check("the message names the file", message != null && message.contains(file.getPath()));
+            write(file, "");
+            Properties badSystem = new Properties();
+            badSystem.setProperty("healthcare.client.columnarPatients", "maybe");
+            check("invalid system property is refused", throwsIllegalState(() -> AppConfig.load(file, Map.of(), badSystem)));
+
+            // --- Reloading ---
+            System.out.println("\n--- Testing reload ---");
+            write(file, "config.reloadIntervalMs=0\nserver.port=9100\ndb.deadlockRetries=2\n");
+            System.setProperty("healthcare.config", file.getPath());
+            AppConfig loaded = AppConfig.get();
+            check("get() reads the configured file", loaded.getSource().equals(file) && loaded.get(AppConfig.SERVER_PORT) == 9100);
+
+            AppConfig[] notified = new AppConfig[1];
+            AppConfig.addReloadListener(reloaded -> notified[0] = reloaded);
+            write(file, "config.reloadIntervalMs=0\nserver.port=9200\ndb.deadlockRetries=6\n");
+            check("valid file reloads", AppConfig.reload());
+            AppConfig current = AppConfig.get();
+            check("reloadable setting takes the new value", current.get(AppConfig.DB_DEADLOCK_RETRIES) == 6);
+            check("non-reloadable setting keeps the old value", current.get(AppConfig.SERVER_PORT) == 9100);
+            check("listeners told about the reload", notified[0] == current);
+
+            write(file, "config.reloadIntervalMs=0\nserver.port=9100\ndb.deadlockRetries=many\n");
+            check("invalid file is not reloaded", !AppConfig.reload());
+            check("current configuration kept", AppConfig.get() == current);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+
+        Checks.finish("AppConfig");
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Files.writeString(file.toPath(), text, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String loadError(File file) {
+        try {
+            AppConfig.load(file, Map.of(), new Properties());
+            return null;
+        } catch (IllegalStateException ex) {
+            return ex.getMessage();
+        }
+    }
+
+    private static boolean throwsIllegalState(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalStateException ex) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.healthcare.test;
+
+import com.healthcare.audit.AuditJournal;
+import com.healthcare.audit.AuditLog;
+import com.healthcare.audit.AuditShipper;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks the audit journal and its shipper in temporary directories, no database needed: events appended to
+ * tiny segments come back through {@link AuditJournal.Reader} across rotations, a record cut short is never read,
+ * a shipper resuming mid-segment still names the actors defined before that point, and a progress file that
+ * disagrees with the segments on disk neither ships twice nor loses events. The shipper inserts through a
+ * stand-in JDBC driver that keeps the rows.
+ */
+public class AuditJournalTester {
+
+    private static final String URL = "jdbc:mysql://stand-in/healthcare_system_db";
+    private static final int TINY_SEGMENT = 128; // Header, two actors and three events
+    private static final byte READ = (byte) AuditLog.Action.READ.ordinal();
+    private static final byte PATIENT = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting Audit Journal Tests ---");
+        System.setProperty("healthcare.db.url", URL);
+        System.setProperty("healthcare.db.password", "");
+        // Take the MySQL driver out of the way, or it would try to reach the stand-in URL itself
+        for (Driver driver : Collections.list(DriverManager.getDrivers())) {
+            DriverManager.deregisterDriver(driver);
+        }
+        StandInAuditLog table = new StandInAuditLog();
+        DriverManager.registerDriver(table);
+
+        List<Path> directories = new ArrayList<>();
+        try {
+            // --- Round trip ---
+            System.out.println("\n--- Testing append, commit and rotation ---");
+            Path directory = temporaryDirectory(directories);
+            AuditJournal journal = new AuditJournal(directory, TINY_SEGMENT);
+            List<String> appended = new ArrayList<>();
+            for (int rowId = 1; rowId <= 20; rowId++) {
+                String actor = rowId % 2 == 0 ? "alice" : "bob";
+                journal.append(READ, PATIENT, actor, 1_000L * rowId, rowId, 1);
+                appended.add(actor + ":" + rowId);
+            }
+            check("appends are not handed over before a commit",
+                    journal.getCommittedPosition() == AuditJournal.HEADER_BYTES);
+            journal.commit();
+            List<Long> segments = journal.segments();
+            check("full segments rotate (" + segments.size() + " segments)", segments.size() > 5
+                    && segments.get(0) == 1 && segments.get(segments.size() - 1) == segments.size()
+                    && journal.getCommittedSegment() == segments.size());
+            List<String> read = new ArrayList<>();
+            boolean headersMatch = true;
+            for (long number : segments) {
+                boolean current = number == journal.getCommittedSegment();
+                AuditJournal.Reader reader = reader(journal.segmentPath(number), current ? journal.getCommittedPosition() : -1,
+                        new HashMap<>(), AuditJournal.HEADER_BYTES);
+                headersMatch &= reader.getJournalId() == journal.getJournalId() && reader.getSegment() == number;
+                read.addAll(events(reader));
+            }
+            check("every event reads back in order, with its actor", read.equals(appended));
+            check("segment headers carry the journal and segment number", headersMatch);
+            journal.close();
+            check("appending after close fails", appendFails(journal));
+            AuditJournal reopened = new AuditJournal(directory, TINY_SEGMENT);
+            check("a restart keeps the journal ID and starts a new segment",
+                    reopened.getJournalId() == journal.getJournalId() && reopened.getCommittedSegment() == segments.size() + 1);
+            reopened.close();
+
+            // --- Torn records ---
+            System.out.println("\n--- Testing records cut short ---");
+            Path first = journal.segmentPath(1);
+            List<Integer> positions = eventPositions(first);
+            int last = positions.get(positions.size() - 1);
+            check("a segment holds three events", positions.size() == 3);
+            check("a trailing event cut short is not read",
+                    events(reader(first, last + AuditJournal.EVENT_BYTES - 1, new HashMap<>(), 0)).size() == 2);
+            ByteBuffer unfinished = ByteBuffer.wrap(Files.readAllBytes(first));
+            unfinished.put(positions.get(1), (byte) 0); // Type byte not written yet: the crash came before it
+            check("nothing is read from an event whose type is not written",
+                    events(new AuditJournal.Reader(unfinished, new HashMap<>(), 0)).size() == 1);
+            check("an actor record cut short stops the read", events(reader(first, AuditJournal.HEADER_BYTES
+                    + AuditJournal.ACTOR_HEADER_BYTES + 2, new HashMap<>(), 0)).isEmpty());
+            ByteBuffer foreign = ByteBuffer.wrap(Files.readAllBytes(first));
+            foreign.putInt(0, 0);
+            check("a file without the magic number is refused", refused(foreign));
+
+            // --- Resuming mid-segment ---
+            System.out.println("\n--- Testing a shipper resuming mid-segment ---");
+            directory = temporaryDirectory(directories);
+            journal = new AuditJournal(directory, 4_096);
+            String[] actors = {"alice", "bob", "alice", "carol", "bob"};
+            for (int i = 0; i < actors.length; i++) {
+                journal.append(READ, PATIENT, actors[i], 1_000L, i + 1, 1);
+            }
+            journal.close();
+            int resumeAt = eventPositions(journal.segmentPath(1)).get(2);
+            Files.writeString(directory.resolve("shipped"), "1 " + resumeAt);
+            journal = new AuditJournal(directory, 4_096);
+            AuditShipper shipper = new AuditShipper(journal);
+            table.clear();
+            check("ships the events after the saved position", shipper.ship() == 3
+                    && table.rowIds().equals(List.of(3, 4, 5)));
+            check("actors defined before the resume point are named",
+                    table.actors().equals(List.of("alice", "carol", "bob")));
+            check("a shipped segment is deleted", !Files.exists(journal.segmentPath(1)));
+            check("progress moves to the segment being written", progress(directory).equals("2 " + AuditJournal.HEADER_BYTES));
+            check("nothing ships twice", shipper.ship() == 0);
+            journal.append(READ, PATIENT, "dave", 2_000L, 6, 1);
+            check("uncommitted events wait", shipper.ship() == 0);
+            journal.commit();
+            check("committed events of the segment being written ship", shipper.ship() == 1
+                    && table.rowIds().equals(List.of(3, 4, 5, 6)) && table.segments().get(3) == 2L);
+            journal.close();
+
+            // --- Progress ahead of the segments on disk ---
+            System.out.println("\n--- Testing progress that disagrees with the segments ---");
+            directory = temporaryDirectory(directories);
+            Files.writeString(directory.resolve("shipped"), "9 500");
+            journal = new AuditJournal(directory, 4_096);
+            check("after segments are removed by hand the journal numbers from 1", journal.getCommittedSegment() == 1);
+            shipper = new AuditShipper(journal);
+            check("it then continues after the last segment shipped", journal.getCommittedSegment() == 10
+                    && journal.segments().equals(List.of(10L)) && progress(directory).equals("10 " + AuditJournal.HEADER_BYTES));
+            table.clear();
+            journal.append(READ, PATIENT, "erin", 3_000L, 7, 1);
+            journal.commit();
+            check("its events ship from the start of the segment", shipper.ship() == 1 && table.segments().equals(List.of(10L))
+                    && table.positions().equals(List.of(AuditJournal.HEADER_BYTES + AuditJournal.ACTOR_HEADER_BYTES + 4)));
+            journal.close();
+
+            directory = temporaryDirectory(directories);
+            journal = new AuditJournal(directory, TINY_SEGMENT);
+            for (int rowId = 1; rowId <= 12; rowId++) {
+                journal.append(READ, PATIENT, "frank", 1_000L, rowId, 1);
+            }
+            journal.close(); // Segments 1 to 4, three events each
+            Files.writeString(directory.resolve("shipped"), "3 " + AuditJournal.HEADER_BYTES);
+            journal = new AuditJournal(directory, TINY_SEGMENT);
+            table.clear();
+            check("segments before the saved one are deleted, not shipped again", new AuditShipper(journal).ship() == 6
+                    && table.segments().stream().allMatch(number -> number == 3 || number == 4)
+                    && !Files.exists(journal.segmentPath(1)) && !Files.exists(journal.segmentPath(2)));
+            journal.close();
+
+            directory = temporaryDirectory(directories);
+            journal = new AuditJournal(directory, TINY_SEGMENT);
+            for (int rowId = 1; rowId <= 12; rowId++) {
+                journal.append(READ, PATIENT, "grace", 1_000L, rowId, 1);
+            }
+            journal.close();
+            Files.delete(journal.segmentPath(1));
+            Files.delete(journal.segmentPath(2));
+            Files.writeString(directory.resolve("shipped"), "2 100");
+            journal = new AuditJournal(directory, TINY_SEGMENT);
+            table.clear();
+            check("a saved segment that is gone resumes at the start of the next",
+                    new AuditShipper(journal).ship() == 6 && table.rowIds().equals(List.of(7, 8, 9, 10, 11, 12)));
+            journal.close();
+        } finally {
+            for (Path directory : directories) {
+                deleteRecursively(directory);
+            }
+            DriverManager.deregisterDriver(table);
+        }
+
+        Checks.finish("Audit Journal");
+    }
+
+    private static Path temporaryDirectory(List<Path> directories) throws IOException {
+        Path directory = Files.createTempDirectory("audit-journal");
+        directories.add(directory);
+        return directory;
+    }
+
+    /**
+     * @param limit How far the segment may be read, or -1 for all of it.
+     */
+    private static AuditJournal.Reader reader(Path segment, int limit, Map<Integer, String> actors, int position)
+            throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        if (limit >= 0) {
+            bytes.limit(limit);
+        }
+        return new AuditJournal.Reader(bytes, actors, position);
+    }
+
+    private static List<String> events(AuditJournal.Reader reader) {
+        List<String> events = new ArrayList<>();
+        AuditJournal.AuditRecord record = new AuditJournal.AuditRecord();
+        while (reader.next(record)) {
+            events.add(record.actor + ":" + record.rowId);
+        }
+        return events;
+    }
+
+    private static List<Integer> eventPositions(Path segment) throws IOException {
+        AuditJournal.Reader reader = reader(segment, -1, new HashMap<>(), 0);
+        List<Integer> positions = new ArrayList<>();
+        AuditJournal.AuditRecord record = new AuditJournal.AuditRecord();
+        while (reader.next(record)) {
+            positions.add(record.position);
+        }
+        return positions;
+    }
+
+    private static String progress(Path directory) throws IOException {
+        return Files.readString(directory.resolve("shipped")).trim();
+    }
+
+    private static boolean appendFails(AuditJournal journal) {
+        try {
+            journal.append(READ, PATIENT, "late", 0L, 1, 1);
+            return false;
+        } catch (IOException ex) {
+            return true;
+        }
+    }
+
+    private static boolean refused(ByteBuffer bytes) {
+        try {
+            new AuditJournal.Reader(bytes, new HashMap<>(), 0);
+            return false;
+        } catch (IOException ex) {
+            return true;
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * A JDBC driver that keeps the rows of every executed batch, in the order of the shipper's INSERT columns.
+     */
+    private static final class StandInAuditLog implements Driver {
+        private final List<Object[]> rows = new ArrayList<>();
+
+        synchronized void clear() {
+            rows.clear();
+        }
+
+        synchronized List<Integer> rowIds() {
+            return column(7);
+        }
+
+        synchronized List<String> actors() {
+            return column(4);
+        }
+
+        synchronized List<Long> segments() {
+            return column(1);
+        }
+
+        synchronized List<Integer> positions() {
+            return column(2);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> List<T> column(int index) {
+            List<T> values = new ArrayList<>();
+            for (Object[] row : rows) {
+                values.add((T) row[index]);
+            }
+            return values;
+        }
+
+        private synchronized void insert(List<Object[]> batch) {
+            rows.addAll(batch);
+        }
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            return proxy(Connection.class, (proxy, method, args) -> {
+                if (!method.getName().equals("prepareStatement")) {
+                    return method.getReturnType() == boolean.class ? false : null;
+                }
+                Object[] row = new Object[9];
+                List<Object[]> batch = new ArrayList<>();
+                return proxy(PreparedStatement.class, (statement, m, a) -> {
+                    String name = m.getName();
+                    if (name.startsWith("set") && a != null && a.length == 2 && a[0] instanceof Integer) {
+                        row[(Integer) a[0] - 1] = a[1];
+                    } else if (name.equals("addBatch")) {
+                        batch.add(row.clone());
+                    } else if (name.equals("executeBatch")) {
+                        insert(batch);
+                        int[] counts = new int[batch.size()];
+                        batch.clear();
+                        return counts;
+                    }
+                    return m.getReturnType() == boolean.class ? false : null;
+                });
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(AuditJournalTester.class.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return URL.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
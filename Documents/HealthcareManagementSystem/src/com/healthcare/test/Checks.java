@@ -0,0 +1,31 @@
+package com.healthcare.test;
+
+/**
+ * The pass/fail bookkeeping the testers in this package share: each check prints one line, and
+ * {@link #finish(String)} prints the summary and exits with status 1 if any check failed.
+ */
+final class Checks {
+
+    private static int failures = 0;
+
+    private Checks() {
+    }
+
+    static void check(String description, boolean passed) {
+        System.out.println((passed ? "  PASS " : "  FAIL ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    /**
+     * @param suite The name in the summary line, e.g. "Remote DAO".
+     */
+    static void finish(String suite) {
+        System.out.println("\n--- " + suite + " Tests Complete: "
+                + (failures == 0 ? "all passed" : failures + " failed") + " ---");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.healthcare.test;
+
+import com.healthcare.util.CircuitBreaker;
+import com.healthcare.util.CircuitOpenException;
+import com.healthcare.util.ConnectionGate;
+import com.healthcare.util.DatabaseBusyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks what protects the database from too many callers, no database needed: the {@link CircuitBreaker}
+ * opening after repeated connection failures, letting exactly one probe through once half-open, and not
+ * counting abandoned attempts; and the {@link ConnectionGate} queueing callers up to its limit, turning them
+ * away when the queue is full and giving up after its timeout.
+ */
+public class CircuitBreakerTester {
+
+    private static final long OPEN_MILLIS = 200;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting Circuit Breaker and Connection Gate Tests ---");
+
+        // --- Opening ---
+        System.out.println("\n--- Testing CLOSED -> OPEN ---");
+        CircuitBreaker breaker = new CircuitBreaker("test database", 3, OPEN_MILLIS);
+        fail(breaker);
+        fail(breaker);
+        check("below the threshold it stays closed", breaker.getState() == CircuitBreaker.State.CLOSED);
+        breaker.beforeAttempt();
+        breaker.onSuccess();
+        fail(breaker);
+        fail(breaker);
+        check("a success resets the count", breaker.getState() == CircuitBreaker.State.CLOSED);
+        fail(breaker);
+        check("the third failure in a row opens it", breaker.getState() == CircuitBreaker.State.OPEN
+                && breaker.getTripCount() == 1);
+        CircuitOpenException refused = refusal(breaker);
+        check("while open, attempts fail at once", refused != null && breaker.getRejectedCount() == 1);
+        check("the refusal says when to retry", refused != null && refused.getRetryAfterMillis() > 0
+                && refused.getRetryAfterMillis() <= OPEN_MILLIS);
+
+        // --- Half-open ---
+        System.out.println("\n--- Testing OPEN -> HALF_OPEN and the single probe ---");
+        Thread.sleep(OPEN_MILLIS + 50);
+        breaker.beforeAttempt(); // The probe
+        check("after openMillis one probe goes through", breaker.getState() == CircuitBreaker.State.HALF_OPEN);
+        check("a second attempt during the probe is refused", refusal(breaker) != null);
+        check("concurrent attempts get exactly one probe", probesAdmitted(openedBreaker(), 20) == 1);
+        breaker.onFailure();
+        check("a failed probe opens it again without a new trip", breaker.getState() == CircuitBreaker.State.OPEN
+                && breaker.getTripCount() == 1);
+        Thread.sleep(OPEN_MILLIS + 50);
+        breaker.beforeAttempt();
+        breaker.onSuccess();
+        check("a successful probe closes it", breaker.getState() == CircuitBreaker.State.CLOSED);
+        breaker.beforeAttempt();
+        breaker.onSuccess();
+        check("closed again, attempts go through", breaker.getState() == CircuitBreaker.State.CLOSED);
+
+        // --- Abandoned ---
+        System.out.println("\n--- Testing abandoned attempts ---");
+        CircuitBreaker waiting = new CircuitBreaker("test database", 2, OPEN_MILLIS);
+        for (int i = 0; i < 5; i++) {
+            waiting.beforeAttempt();
+            waiting.onAbandoned();
+        }
+        check("abandoned attempts never open it", waiting.getState() == CircuitBreaker.State.CLOSED);
+        CircuitBreaker probing = openedBreaker();
+        probing.beforeAttempt();
+        probing.onAbandoned();
+        check("an abandoned probe frees the way for the next", probing.getState() == CircuitBreaker.State.HALF_OPEN
+                && refusal(probing) == null);
+
+        // --- Connection gate ---
+        System.out.println("\n--- Testing the connection gate ---");
+        ConnectionGate gate = new ConnectionGate(2, 5_000, 1);
+        gate.acquire("a test connection");
+        gate.acquire("a test connection");
+        check("slots up to the limit are taken at once", gate.getInUseCount() == 2 && gate.getWaitCount() == 0);
+        ExecutorService callers = Executors.newCachedThreadPool();
+        CountDownLatch admitted = new CountDownLatch(1);
+        Future<?> queued = callers.submit(() -> {
+            gate.acquire("a test connection");
+            admitted.countDown();
+            return null;
+        });
+        while (gate.getWaitingCount() == 0) {
+            Thread.sleep(5);
+        }
+        check("the next caller queues", gate.getWaitCount() == 1 && !admitted.await(50, TimeUnit.MILLISECONDS));
+        check("a full queue turns callers away at once", busy(gate) && gate.getRejectedCount() == 1);
+        gate.release();
+        queued.get(5, TimeUnit.SECONDS);
+        check("a released slot goes to the queued caller", admitted.getCount() == 0 && gate.getInUseCount() == 2);
+
+        gate.setMaxWaiting(5);
+        gate.setWaitTimeoutMs(100);
+        long startNanos = System.nanoTime();
+        boolean timedOut = busy(gate);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        check("a waiting caller gives up after the timeout (" + waitedMs + " ms)", timedOut && waitedMs >= 90
+                && gate.getTimeoutCount() == 1);
+        gate.release();
+        gate.release();
+        check("all slots free again", gate.getInUseCount() == 0 && gate.getWaitingCount() == 0);
+
+        List<Future<Boolean>> crowd = new ArrayList<>();
+        ConnectionGate narrow = new ConnectionGate(1, 2_000, 50);
+        for (int i = 0; i < 20; i++) {
+            crowd.add(callers.submit(() -> {
+                narrow.acquire("a test connection");
+                try {
+                    Thread.sleep(2);
+                    return narrow.getInUseCount() == 1;
+                } finally {
+                    narrow.release();
+                }
+            }));
+        }
+        boolean neverOver = true;
+        for (Future<Boolean> caller : crowd) {
+            neverOver &= caller.get(10, TimeUnit.SECONDS);
+        }
+        check("20 callers share one slot without exceeding it", neverOver && narrow.getAcquiredCount() == 20);
+        callers.shutdown();
+
+        Checks.finish("Circuit Breaker and Connection Gate");
+    }
+
+    private static void fail(CircuitBreaker breaker) throws CircuitOpenException {
+        breaker.beforeAttempt();
+        breaker.onFailure();
+    }
+
+    // Opened and past openMillis, so the next attempt is the probe
+    private static CircuitBreaker openedBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test database", 1, 1);
+        fail(breaker);
+        Thread.sleep(10);
+        return breaker;
+    }
+
+    private static int probesAdmitted(CircuitBreaker breaker, int callers) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            attempts.add(pool.submit(() -> {
+                start.await();
+                try {
+                    breaker.beforeAttempt();
+                    return true;
+                } catch (CircuitOpenException ex) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int admitted = 0;
+        for (Future<Boolean> attempt : attempts) {
+            admitted += attempt.get() ? 1 : 0;
+        }
+        pool.shutdown();
+        return admitted;
+    }
+
+    private static CircuitOpenException refusal(CircuitBreaker breaker) {
+        try {
+            breaker.beforeAttempt();
+            return null;
+        } catch (CircuitOpenException ex) {
+            return ex;
+        }
+    }
+
+    private static boolean busy(ConnectionGate gate) {
+        try {
+            gate.acquire("a test connection");
+            gate.release();
+            return false;
+        } catch (DatabaseBusyException ex) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.healthcare.test;
+
+import com.healthcare.model.Patient;
+import com.healthcare.store.CohortQuery;
+import com.healthcare.store.ColumnarPatientStore;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks the columnar patient store and its cohort scans, no database needed: random cohorts counted and listed
+ * by the store's bitmask kernels match a plain filter over the same patients, for stores whose size falls on and
+ * either side of the 64-row mask words; date bounds are inclusive, open ends and unknown dates are kept apart
+ * (the NULL_TIME and NULL_DAY sentinels never match a range), and upserts and removals keep rows and IDs in step.
+ */
+public class ColumnarPatientStoreTester {
+
+    private static final String[] GENDERS = {"Male", "female ", " MALE", "Other", null};
+    private static final String[] CITIES = {"Boston", "boston", "Springfield", "New York", null};
+    private static final String[] STATES = {"MA", "ma ", "NY", "IL", null};
+    private static final String[] ZIP_CODES = {"02139", "02110", "0211", "10001", "0", "", null};
+    private static final LocalDate AS_OF = LocalDate.of(2025, 6, 15);
+
+    public static void main(String[] args) {
+        System.out.println("--- Starting Columnar Patient Store Tests ---");
+        Random random = new Random(49);
+
+        // --- Against a plain filter ---
+        System.out.println("\n--- Testing random cohorts against a plain filter ---");
+        for (int size : new int[]{0, 1, 63, 64, 65, 128, 1_000}) {
+            List<Patient> patients = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                patients.add(randomPatient(random, 1 + i * 3));
+            }
+            ColumnarPatientStore store = ColumnarPatientStore.of(patients);
+            boolean sameCounts = true;
+            boolean sameIds = true;
+            for (int round = 0; round < 200; round++) {
+                CohortQuery query = randomQuery(random);
+                int[] expected = expectedIds(patients, query);
+                sameCounts &= store.count(query) == expected.length;
+                sameIds &= Arrays.equals(pagedIds(store, query, 1 + random.nextInt(40)), expected);
+            }
+            check(size + " patients: counts match", sameCounts);
+            check(size + " patients: IDs match, page by page", sameIds);
+        }
+
+        // --- Bounds and unknown dates ---
+        System.out.println("\n--- Testing date bounds and unknown dates ---");
+        ColumnarPatientStore store = ColumnarPatientStore.of(List.of(
+                patient(1, AS_OF.minusYears(60), LocalDateTime.of(2025, 1, 1, 0, 0)),
+                patient(2, AS_OF.minusYears(76).plusDays(1), LocalDateTime.of(2024, 12, 31, 23, 59, 59)),
+                patient(3, AS_OF.minusYears(76), null),
+                patient(4, AS_OF.minusYears(60).plusDays(1), LocalDateTime.of(1970, 1, 1, 0, 0)),
+                patient(5, null, LocalDateTime.of(1969, 12, 31, 23, 59, 59))));
+        check("age bounds are inclusive to the day " + ids(store, new CohortQuery().ageBetween(60, 75, AS_OF)),
+                ids(store, new CohortQuery().ageBetween(60, 75, AS_OF)).equals(List.of(1, 2)));
+        check("an open birth range leaves out unknown dates",
+                ids(store, new CohortQuery().bornBetween(null, AS_OF)).equals(List.of(1, 2, 3, 4))
+                        && ids(store, new CohortQuery().bornBetween(LocalDate.of(1, 1, 1), null)).equals(List.of(1, 2, 3, 4)));
+        check("registration bounds are inclusive to the second",
+                ids(store, new CohortQuery().registeredBetween(LocalDateTime.of(2025, 1, 1, 0, 0), null)).equals(List.of(1))
+                        && ids(store, new CohortQuery().registeredBetween(null, LocalDateTime.of(2024, 12, 31, 23, 59, 59)))
+                        .equals(List.of(2, 4, 5)));
+        check("dates either side of the epoch compare in order",
+                ids(store, new CohortQuery().registeredBetween(null, LocalDateTime.of(1970, 1, 1, 0, 0))).equals(List.of(4, 5))
+                        && ids(store, new CohortQuery().registeredBetween(LocalDateTime.of(1970, 1, 1, 0, 0), null))
+                        .equals(List.of(1, 2, 4)));
+        check("an open registration range leaves out unknown dates",
+                ids(store, new CohortQuery().registeredBetween(LocalDateTime.of(1, 1, 1, 0, 0), null)).equals(List.of(1, 2, 4, 5))
+                        && ids(store, new CohortQuery().registeredBetween(null, LocalDateTime.of(9999, 1, 1, 0, 0)))
+                        .equals(List.of(1, 2, 4, 5)));
+        check("an unknown date reads back as null", store.getRegistrationDate(store.rowOf(3)) == null
+                && store.getDateOfBirth(store.rowOf(5)) == null && store.getBirthEpochDay(store.rowOf(5)) == Integer.MIN_VALUE);
+        check("no criteria selects everyone", store.count(new CohortQuery()) == 5);
+
+        // --- Upserts and removals ---
+        System.out.println("\n--- Testing upserts and removals ---");
+        Patient edited = patient(2, AS_OF.minusYears(30), null);
+        edited.setState("NY");
+        check("an update overwrites the row in place", store.upsert(edited) == 1 && store.size() == 5
+                && store.getState(1).equals("NY") && ids(store, new CohortQuery().ageBetween(60, 75, AS_OF)).equals(List.of(1)));
+        check("an update without a registration date keeps the stored one",
+                LocalDateTime.of(2024, 12, 31, 23, 59, 59).equals(store.getRegistrationDate(1)));
+        Patient registered = patient(3, AS_OF.minusYears(76), LocalDateTime.of(2020, 5, 1, 8, 30));
+        store.upsert(registered);
+        check("an update with a registration date replaces an unknown one",
+                LocalDateTime.of(2020, 5, 1, 8, 30).equals(store.getRegistrationDate(store.rowOf(3))));
+        check("a removal moves the later rows up", store.remove(2) == 1 && store.size() == 4
+                && store.rowOf(2) == ColumnarPatientStore.NO_ROW && store.rowOf(3) == 1 && store.getPatientId(1) == 3
+                && store.rowOf(5) == 3 && store.toPatient(3).getPatientId() == 5);
+        check("removing an unknown patient does nothing", store.remove(42) == ColumnarPatientStore.NO_ROW
+                && store.size() == 4);
+        check("scans see the removal " + ids(store, new CohortQuery().state("ny", "MA")),
+                ids(store, new CohortQuery().state("ny", "MA")).equals(List.of(1, 3, 4, 5)));
+        store.upsert(patient(0, AS_OF.minusYears(70), null));
+        check("a patient added out of order is listed in ID order",
+                ids(store, new CohortQuery().ageBetween(60, 80, AS_OF)).equals(List.of(0, 1, 3)));
+
+        Checks.finish("Columnar Patient Store");
+    }
+
+    private static Patient randomPatient(Random random, int patientId) {
+        LocalDate dateOfBirth = random.nextInt(10) == 0 ? null : LocalDate.of(1930, 1, 1).plusDays(random.nextInt(33_000));
+        LocalDateTime registered = random.nextInt(10) == 0 ? null
+                : LocalDateTime.of(2015, 1, 1, 0, 0).plusSeconds(random.nextInt(330_000_000));
+        Patient patient = patient(patientId, dateOfBirth, registered);
+        patient.setGender(pick(random, GENDERS));
+        patient.setCity(pick(random, CITIES));
+        patient.setState(pick(random, STATES));
+        patient.setZipCode(pick(random, ZIP_CODES));
+        return patient;
+    }
+
+    private static CohortQuery randomQuery(Random random) {
+        CohortQuery query = new CohortQuery();
+        if (random.nextBoolean()) {
+            int minAge = random.nextInt(90);
+            query.ageBetween(minAge, minAge + random.nextInt(30), AS_OF);
+        } else if (random.nextInt(4) == 0) {
+            query.bornBetween(random.nextBoolean() ? null : LocalDate.of(1960, 1, 1).plusDays(random.nextInt(10_000)),
+                    random.nextBoolean() ? null : LocalDate.of(1980, 1, 1).plusDays(random.nextInt(10_000)));
+        }
+        if (random.nextInt(3) == 0) {
+            LocalDateTime from = LocalDateTime.of(2016, 1, 1, 0, 0).plusSeconds(random.nextInt(200_000_000));
+            query.registeredBetween(random.nextBoolean() ? null : from,
+                    random.nextBoolean() ? null : from.plusSeconds(random.nextInt(100_000_000)));
+        }
+        if (random.nextInt(3) == 0) {
+            query.gender(pick(random, GENDERS), pick(random, GENDERS));
+        }
+        if (random.nextInt(3) == 0) {
+            query.city(pick(random, CITIES));
+        }
+        if (random.nextInt(3) == 0) {
+            query.state(pick(random, STATES), "  ");
+        }
+        if (random.nextInt(3) == 0) {
+            query.zipPrefix(pick(random, ZIP_CODES));
+        }
+        return query;
+    }
+
+    // What the cohort means, written out plainly
+    private static int[] expectedIds(List<Patient> patients, CohortQuery query) {
+        return patients.stream().filter(patient -> matches(patient, query)).mapToInt(Patient::getPatientId).sorted().toArray();
+    }
+
+    private static boolean matches(Patient patient, CohortQuery query) {
+        if (query.getBornFrom() != null || query.getBornTo() != null) {
+            LocalDate born = patient.getDateOfBirth();
+            if (born == null || query.getBornFrom() != null && born.isBefore(query.getBornFrom())
+                    || query.getBornTo() != null && born.isAfter(query.getBornTo())) {
+                return false;
+            }
+        }
+        if (query.getRegisteredFrom() != null || query.getRegisteredTo() != null) {
+            LocalDateTime registered = patient.getRegistrationDate();
+            if (registered == null || query.getRegisteredFrom() != null && registered.isBefore(query.getRegisteredFrom())
+                    || query.getRegisteredTo() != null && registered.isAfter(query.getRegisteredTo())) {
+                return false;
+            }
+        }
+        return anyOf(patient.getGender(), query.getGenders()) && anyOf(patient.getCity(), query.getCities())
+                && anyOf(patient.getState(), query.getStates())
+                && (query.getZipPrefix() == null || patient.getZipCode() != null && patient.getZipCode().startsWith(query.getZipPrefix()));
+    }
+
+    private static boolean anyOf(String value, List<String> wanted) {
+        if (wanted.isEmpty()) {
+            return true;
+        }
+        for (String candidate : wanted) {
+            if (value != null && value.trim().equalsIgnoreCase(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] pagedIds(ColumnarPatientStore store, CohortQuery query, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        int[] page;
+        int afterId = 0;
+        while ((page = store.findPatientIds(query, afterId, limit)).length > 0) {
+            for (int patientId : page) {
+                ids.add(patientId);
+            }
+            afterId = page[page.length - 1];
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static List<Integer> ids(ColumnarPatientStore store, CohortQuery query) {
+        return Arrays.stream(store.findPatientIds(query, -1, Integer.MAX_VALUE)).boxed().toList();
+    }
+
+    private static Patient patient(int patientId, LocalDate dateOfBirth, LocalDateTime registered) {
+        return new Patient(patientId, "First" + patientId, "Last" + patientId, dateOfBirth, "Female", null, "Boston", "MA",
+                "02139", null, null, registered);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,323 @@
+package com.healthcare.test;
+
+import com.healthcare.dao.PatientDAO;
+import com.healthcare.dao.UpdateResult;
+import com.healthcare.model.Patient;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks the optimistic, partial patient updates, no database needed: only the changed columns are written,
+ * guarded by the loaded version; a missed version is told apart from a deleted row; and after a conflict the
+ * user's changes are merged onto the other save. {@link PatientDAO} talks to a stand-in JDBC driver that
+ * keeps one Patients table in memory and records every statement.
+ */
+public class ConditionalUpdateTester {
+
+    private static final String URL = "jdbc:mysql://stand-in/healthcare_system_db";
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting Conditional Update Tests ---");
+        System.setProperty("healthcare.db.url", URL);
+        System.setProperty("healthcare.db.password", "");
+        // Take the MySQL driver out of the way, or it would try to reach the stand-in URL itself
+        for (Driver driver : Collections.list(DriverManager.getDrivers())) {
+            DriverManager.deregisterDriver(driver);
+        }
+        StandInTable table = new StandInTable();
+        DriverManager.registerDriver(table);
+        PatientDAO patientDAO = new PatientDAO();
+
+        // --- Partial SET ---
+        System.out.println("\n--- Testing partial updates ---");
+        Patient original = patient(5, 3);
+        table.store(original);
+        Patient edited = patient(5, 3);
+        edited.setLastName("Leigh");
+        edited.setPhoneNumber("555-0199");
+        UpdateResult<Patient> updated = patientDAO.updatePatientOrThrow(original, edited);
+        check("only the changed columns are set", table.lastUpdate().equals("UPDATE Patients SET last_name = ?, "
+                + "phone_number = ?, version = version + 1 WHERE patient_id = ? AND version = ?"));
+        check("values bound in column order, then ID and version",
+                table.lastParameters().equals(List.of("Leigh", "555-0199", 5, 3)));
+        check("update succeeds at the loaded version", updated.isUpdated());
+        Patient saved = updated.getRow();
+        check("saved row has the edits and the next version", saved != original && saved.getVersion() == 4
+                && saved.getLastName().equals("Leigh") && saved.getPhoneNumber().equals("555-0199"));
+        check("untouched fields come from the original", saved.getFirstName().equals("Ann")
+                && saved.getCity().equals("Springfield") && saved.getEmail().equals("ann@example.com"));
+        check("the original is left alone", original.getVersion() == 3 && original.getLastName().equals("Lee"));
+
+        int statements = table.statementCount();
+        Patient unchanged = patient(5, 4);
+        UpdateResult<Patient> nothing = patientDAO.updatePatientOrThrow(unchanged, patient(5, 4));
+        check("nothing changed writes nothing", nothing.isUpdated() && nothing.getRow() == unchanged
+                && table.statementCount() == statements);
+
+        Patient birthday = patient(5, 4);
+        birthday.setDateOfBirth(LocalDate.of(1981, 3, 4));
+        patientDAO.updatePatientOrThrow(patient(5, 4), birthday);
+        check("dates bound as java.sql.Date", table.lastParameters().get(0).equals(Date.valueOf("1981-03-04")));
+
+        // --- Conflicts ---
+        System.out.println("\n--- Testing conflicts ---");
+        Patient theirs = patient(5, 9);
+        theirs.setAddress("2 Low St");
+        table.store(theirs);
+        Patient stale = patient(5, 4);
+        Patient mine = patient(5, 4);
+        mine.setEmail("ann.lee@example.com");
+        UpdateResult<Patient> conflict = patientDAO.updatePatientOrThrow(stale, mine);
+        check("a newer version is a conflict", conflict.getStatus() == UpdateResult.Status.CONFLICT);
+        check("the conflict carries the stored row", conflict.getRow() != null && conflict.getRow().getVersion() == 9
+                && conflict.getRow().getAddress().equals("2 Low St"));
+        check("the stored row is not overwritten", table.stored(5).getEmail().equals("ann@example.com"));
+
+        UpdateResult<Patient> missing = patientDAO.updatePatientOrThrow(patient(77, 1), patient(77, 1, "Bob"));
+        check("a deleted row is not found", missing.getStatus() == UpdateResult.Status.NOT_FOUND && missing.getRow() == null);
+
+        // --- Merge ---
+        System.out.println("\n--- Testing merge after a conflict ---");
+        Patient merged = PatientDAO.mergeEdits(stale, mine, conflict.getRow());
+        check("merge keeps the other save's changes", merged.getAddress().equals("2 Low St"));
+        check("merge applies the user's changes", merged.getEmail().equals("ann.lee@example.com"));
+        check("merge carries the other save's version", merged.getVersion() == 9);
+        check("merge copies rather than edits the stored row", conflict.getRow().getEmail().equals("ann@example.com"));
+
+        Patient bothChanged = patient(5, 4);
+        bothChanged.setAddress("3 Mid St");
+        check("the user's value wins a field both changed",
+                PatientDAO.mergeEdits(stale, bothChanged, conflict.getRow()).getAddress().equals("3 Mid St"));
+
+        UpdateResult<Patient> retried = patientDAO.updatePatientOrThrow(conflict.getRow(), merged);
+        check("saving the merge writes only the user's change", retried.isUpdated()
+                && table.lastParameters().equals(List.of("ann.lee@example.com", 5, 9)));
+
+        DriverManager.deregisterDriver(table);
+        Checks.finish("Conditional Update");
+    }
+
+    private static Patient patient(int id, int version) {
+        return patient(id, version, "Ann");
+    }
+
+    private static Patient patient(int id, int version, String firstName) {
+        Patient patient = new Patient(id, firstName, "Lee", LocalDate.of(1980, 1, 2), "Female", "1 High St",
+                "Springfield", "IL", "62701", "555-0100", "ann@example.com", null);
+        patient.setVersion(version);
+        return patient;
+    }
+
+    /**
+     * A JDBC driver over one in-memory Patients table. It understands the two statements a conditional update
+     * sends, {@code UPDATE Patients SET ... WHERE patient_id = ? AND version = ?} and
+     * {@code SELECT * FROM Patients WHERE patient_id = ?}; anything else is accepted and does nothing.
+     */
+    private static final class StandInTable implements Driver {
+        private final Map<Integer, Patient> rows = new HashMap<>();
+        private final List<String> statements = new ArrayList<>();
+        private List<Object> lastParameters = List.of();
+
+        synchronized void store(Patient patient) {
+            rows.put(patient.getPatientId(), copy(patient));
+        }
+
+        synchronized Patient stored(int id) {
+            return rows.get(id);
+        }
+
+        synchronized int statementCount() {
+            return statements.size();
+        }
+
+        synchronized String lastUpdate() {
+            for (int i = statements.size() - 1; i >= 0; i--) {
+                if (statements.get(i).startsWith("UPDATE")) {
+                    return statements.get(i);
+                }
+            }
+            return "";
+        }
+
+        synchronized List<Object> lastParameters() {
+            return lastParameters;
+        }
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            return proxy(Connection.class, (proxy, method, args) -> {
+                if (method.getName().equals("prepareStatement")) {
+                    return statement((String) args[0]);
+                }
+                return defaultValue(method.getReturnType());
+            });
+        }
+
+        private synchronized PreparedStatement statement(String sql) {
+            statements.add(sql);
+            Map<Integer, Object> parameters = new HashMap<>();
+            return proxy(PreparedStatement.class, (proxy, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length == 2 && args[0] instanceof Integer) {
+                    parameters.put((Integer) args[0], args[1]);
+                    return null;
+                }
+                if (name.equals("executeUpdate")) {
+                    return executeUpdate(sql, parameters);
+                }
+                if (name.equals("executeQuery")) {
+                    return resultSet(stored((Integer) parameters.get(1)));
+                }
+                return defaultValue(method.getReturnType());
+            });
+        }
+
+        private synchronized int executeUpdate(String sql, Map<Integer, Object> parameters) {
+            List<Object> values = new ArrayList<>();
+            for (int i = 1; i <= parameters.size(); i++) {
+                values.add(parameters.get(i));
+            }
+            lastParameters = values;
+            if (!sql.startsWith("UPDATE Patients SET")) {
+                return 0;
+            }
+            Patient row = rows.get((Integer) values.get(values.size() - 2));
+            if (row == null || row.getVersion() != (Integer) values.get(values.size() - 1)) {
+                return 0;
+            }
+            String[] columns = sql.substring("UPDATE Patients SET ".length(), sql.indexOf(", version = version + 1")).split(", ");
+            for (int i = 0; i < columns.length; i++) {
+                Object value = values.get(i);
+                switch (columns[i].replace(" = ?", "")) {
+                    case "first_name" -> row.setFirstName((String) value);
+                    case "last_name" -> row.setLastName((String) value);
+                    case "date_of_birth" -> row.setDateOfBirth(((Date) value).toLocalDate());
+                    case "gender" -> row.setGender((String) value);
+                    case "address" -> row.setAddress((String) value);
+                    case "city" -> row.setCity((String) value);
+                    case "state" -> row.setState((String) value);
+                    case "zip_code" -> row.setZipCode((String) value);
+                    case "phone_number" -> row.setPhoneNumber((String) value);
+                    case "email" -> row.setEmail((String) value);
+                    default -> throw new IllegalArgumentException("Unknown column " + columns[i]);
+                }
+            }
+            row.setVersion(row.getVersion() + 1);
+            return 1;
+        }
+
+        private static ResultSet resultSet(Patient row) {
+            boolean[] read = {false};
+            return proxy(ResultSet.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "next":
+                        boolean hasRow = row != null && !read[0];
+                        read[0] = true;
+                        return hasRow;
+                    case "getInt":
+                        return args[0].equals("version") ? row.getVersion() : row.getPatientId();
+                    case "getDate":
+                        return Date.valueOf(row.getDateOfBirth());
+                    case "getString":
+                        return column(row, (String) args[0]);
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        private static String column(Patient row, String column) {
+            return switch (column) {
+                case "first_name" -> row.getFirstName();
+                case "last_name" -> row.getLastName();
+                case "gender" -> row.getGender();
+                case "address" -> row.getAddress();
+                case "city" -> row.getCity();
+                case "state" -> row.getState();
+                case "zip_code" -> row.getZipCode();
+                case "phone_number" -> row.getPhoneNumber();
+                case "email" -> row.getEmail();
+                default -> null;
+            };
+        }
+
+        private static Patient copy(Patient patient) {
+            Patient copy = new Patient(patient.getPatientId(), patient.getFirstName(), patient.getLastName(),
+                    patient.getDateOfBirth(), patient.getGender(), patient.getAddress(), patient.getCity(),
+                    patient.getState(), patient.getZipCode(), patient.getPhoneNumber(), patient.getEmail(), null);
+            copy.setVersion(patient.getVersion());
+            return copy;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(ConditionalUpdateTester.class.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == int.class) {
+                return 0;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            return null; // JDBC methods the DAO calls return nothing else primitive
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return URL.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
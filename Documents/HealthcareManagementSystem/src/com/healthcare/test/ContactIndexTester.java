@@ -0,0 +1,319 @@
+package com.healthcare.test;
+
+import com.healthcare.dao.ContactIndex;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.model.Patient;
+import com.healthcare.util.BloomFilter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks the duplicate email and phone checks, no database needed: how values are normalized, that a value
+ * on file is always found however it is typed (Bloom filters have no false negatives), that most new values
+ * are answered without a lookup, and that phone numbers are looked up through {@code phone_digits}, or the
+ * same expression when a database lacks the column. {@link ContactIndex} reads from a stand-in JDBC driver
+ * that keeps the Patients and Doctors columns in memory.
+ */
+public class ContactIndexTester {
+
+    private static final String URL = "jdbc:mysql://stand-in/healthcare_system_db";
+    private static final int PATIENT_COUNT = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting Contact Index Tests ---");
+
+        // --- Normalization ---
+        System.out.println("\n--- Testing normalization ---");
+        check("phone punctuation dropped", "5551234567".equals(ContactIndex.normalizePhone("(555) 123-4567")));
+        check("country prefix dropped", "5551234567".equals(ContactIndex.normalizePhone("+1 555 123 4567")));
+        check("last 10 digits kept", "2079460958".equals(ContactIndex.normalizePhone("+44 20 7946 0958")));
+        check("7 digits still identify a number", "5551234".equals(ContactIndex.normalizePhone("555-1234")));
+        check("fewer than 7 digits ignored", ContactIndex.normalizePhone("ext. 12345") == null
+                && ContactIndex.normalizePhone(null) == null);
+        check("email trimmed and lower case", "ann@example.com".equals(ContactIndex.normalizeEmail("  Ann@Example.COM ")));
+        check("text without a mailbox ignored", ContactIndex.normalizeEmail("ann.example.com") == null
+                && ContactIndex.normalizeEmail("@example.com") == null && ContactIndex.normalizeEmail(null) == null);
+        check("fields normalize by kind", "5551234567".equals(ContactIndex.Field.PATIENT_PHONE.normalize("555.123.4567"))
+                && "ann@example.com".equals(ContactIndex.Field.DOCTOR_EMAIL.normalize("ANN@example.com")));
+
+        // --- Bloom filter ---
+        System.out.println("\n--- Testing the Bloom filter ---");
+        BloomFilter filter = new BloomFilter(50_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.put("value" + i);
+        }
+        boolean allSeen = true;
+        for (int i = 0; i < 50_000; i++) {
+            allSeen &= filter.mightContain("value" + i);
+        }
+        check("every value put is reported as seen", allSeen);
+        int falsePositives = 0;
+        for (int i = 0; i < 50_000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        check("false positives near the 1% asked for (" + falsePositives + " of 50000)", falsePositives < 1_000);
+        check("not over capacity at its expected size", !filter.isOverCapacity());
+
+        // --- Lookups ---
+        System.out.println("\n--- Testing duplicate checks ---");
+        System.setProperty("healthcare.db.url", URL);
+        System.setProperty("healthcare.db.password", "");
+        // Take the MySQL driver out of the way, or it would try to reach the stand-in URL itself
+        for (Driver driver : Collections.list(DriverManager.getDrivers())) {
+            DriverManager.deregisterDriver(driver);
+        }
+        StandInTables tables = new StandInTables();
+        Random random = new Random(46);
+        for (int id = 1; id <= PATIENT_COUNT; id++) {
+            tables.addPatient(id, "Patient" + id + "@Example.com", phone(random, 5_550_000_000L + id * 7L));
+        }
+        tables.addDoctor(1, "house@example.com");
+        DriverManager.registerDriver(tables);
+
+        ContactIndex index = ContactIndex.getInstance();
+        check("loads from the database", index.load() && index.isLoaded());
+
+        boolean allFound = true;
+        for (int id = 1; id <= PATIENT_COUNT; id++) {
+            allFound &= index.findIdOrThrow(ContactIndex.Field.PATIENT_EMAIL, " patient" + id + "@EXAMPLE.com") == id;
+            allFound &= index.findIdOrThrow(ContactIndex.Field.PATIENT_PHONE, "+1 " + (5_550_000_000L + id * 7L)) == id;
+        }
+        check("every email and phone on file is found, however typed", allFound);
+        check("phone numbers looked up through phone_digits", tables.lastLookup().contains("WHERE phone_digits = ?"));
+        check("doctor email found", index.findIdOrThrow(ContactIndex.Field.DOCTOR_EMAIL, "House@example.com") == 1);
+
+        long checksBefore = index.getCheckCount();
+        long skippedBefore = index.getLookupsSkippedCount();
+        boolean noneFound = true;
+        for (int i = 0; i < 10_000; i++) {
+            noneFound &= index.findIdOrThrow(ContactIndex.Field.PATIENT_EMAIL, "new" + i + "@example.org") == -1;
+            noneFound &= index.findIdOrThrow(ContactIndex.Field.PATIENT_PHONE, String.valueOf(4_440_000_000L + i)) == -1;
+        }
+        long newChecks = index.getCheckCount() - checksBefore;
+        long skipped = index.getLookupsSkippedCount() - skippedBefore;
+        check("new values are not found", noneFound);
+        check("most new values need no lookup (" + skipped + " of " + newChecks + " skipped)", skipped > newChecks * 0.97);
+        check("too short to compare is never looked up", index.findIdOrThrow(ContactIndex.Field.PATIENT_PHONE, "12-34") == -1
+                && index.getCheckCount() - checksBefore == newChecks);
+
+        Patient registered = new Patient(PATIENT_COUNT + 1, "Ann", "Lee", LocalDate.of(1980, 1, 2), "Female",
+                "1 High St", "Springfield", "IL", "62701", "(444) 999-0000", "ann.lee@example.com", null);
+        tables.addPatient(registered.getPatientId(), registered.getEmail(), registered.getPhoneNumber());
+        ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.PATIENT, registered.getPatientId(), registered));
+        check("a patient registered here is found at once",
+                index.findIdOrThrow(ContactIndex.Field.PATIENT_PHONE, "444.999.0000") == registered.getPatientId()
+                        && index.findIdOrThrow(ContactIndex.Field.PATIENT_EMAIL, "Ann.Lee@example.com") == registered.getPatientId());
+
+        // --- Without phone_digits ---
+        System.out.println("\n--- Testing a database without phone_digits ---");
+        tables.dropPhoneDigits();
+        check("phone still found by computing the digits", index.findIdOrThrow(ContactIndex.Field.PATIENT_PHONE, "+1 555 000 0007") == 1);
+        check("lookup computes the same 10 digits",
+                tables.lastLookup().contains("RIGHT(REGEXP_REPLACE(phone_number, '[^0-9]', ''), 10) = ?"));
+        int lookups = tables.lookupCount();
+        index.findIdOrThrow(ContactIndex.Field.PATIENT_PHONE, "555 000 0014");
+        check("the missing column is asked about only once", tables.lookupCount() == lookups + 1
+                && !tables.lastLookup().contains("phone_digits"));
+
+        DriverManager.deregisterDriver(tables);
+        Checks.finish("Contact Index");
+    }
+
+    // The number as a user might have typed it
+    private static String phone(Random random, long digits) {
+        String text = String.valueOf(digits);
+        switch (random.nextInt(4)) {
+            case 0:
+                return text;
+            case 1:
+                return "(" + text.substring(0, 3) + ") " + text.substring(3, 6) + "-" + text.substring(6);
+            case 2:
+                return "+1 " + text.substring(0, 3) + " " + text.substring(3, 6) + " " + text.substring(6);
+            default:
+                return text.substring(0, 3) + "." + text.substring(3, 6) + "." + text.substring(6);
+        }
+    }
+
+    /**
+     * A JDBC driver over the email and phone columns of Patients and Doctors. It answers the row counts, the
+     * streamed column reads and the {@code SELECT id ... WHERE column = ? LIMIT 1} lookups {@link ContactIndex}
+     * sends, comparing emails without case as MySQL's collation does and computing {@code phone_digits} the
+     * way the README's column definition does.
+     */
+    private static final class StandInTables implements Driver {
+        private final List<Object[]> patients = new ArrayList<>(); // id, email, phone
+        private final List<Object[]> doctors = new ArrayList<>(); // id, email
+        private final List<String> lookups = new ArrayList<>();
+        private boolean phoneDigitsDropped = false;
+
+        synchronized void addPatient(int id, String email, String phone) {
+            patients.add(new Object[]{id, email, phone});
+        }
+
+        synchronized void addDoctor(int id, String email) {
+            doctors.add(new Object[]{id, email});
+        }
+
+        synchronized void dropPhoneDigits() {
+            phoneDigitsDropped = true;
+        }
+
+        synchronized String lastLookup() {
+            return lookups.isEmpty() ? "" : lookups.get(lookups.size() - 1);
+        }
+
+        synchronized int lookupCount() {
+            return lookups.size();
+        }
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            return proxy(Connection.class, (proxy, method, args) -> {
+                if (method.getName().equals("createStatement")) {
+                    return proxy(Statement.class, (statement, m, a) ->
+                            m.getName().equals("executeQuery") ? query((String) a[0], null) : defaultValue(m.getReturnType()));
+                }
+                if (method.getName().equals("prepareStatement")) {
+                    String sql = (String) args[0];
+                    String[] parameter = new String[1];
+                    return proxy(PreparedStatement.class, (statement, m, a) -> {
+                        if (m.getName().equals("setString")) {
+                            parameter[0] = (String) a[1];
+                            return null;
+                        }
+                        return m.getName().equals("executeQuery") ? query(sql, parameter[0]) : defaultValue(m.getReturnType());
+                    });
+                }
+                return defaultValue(method.getReturnType());
+            });
+        }
+
+        private synchronized ResultSet query(String sql, String parameter) throws SQLException {
+            List<Object[]> table = sql.contains("FROM Doctors") ? doctors : patients;
+            if (sql.startsWith("SELECT COUNT(*)")) {
+                return resultSet(List.<Object[]>of(new Object[]{(long) table.size()}));
+            }
+            if (!sql.contains(" WHERE ")) {
+                List<Object[]> rows = new ArrayList<>();
+                for (Object[] row : table) {
+                    rows.add(table == patients ? new Object[]{row[1], row[2]} : new Object[]{row[1]});
+                }
+                return resultSet(rows);
+            }
+            lookups.add(sql);
+            if (sql.contains("phone_digits") && phoneDigitsDropped) {
+                throw new SQLException("Unknown column 'phone_digits' in 'where clause'", "42S22", 1054);
+            }
+            boolean byPhone = sql.contains("phone");
+            for (Object[] row : table) {
+                boolean match = byPhone ? parameter.equals(phoneDigits((String) row[2]))
+                        : row[1] != null && parameter.equals(((String) row[1]).trim().toLowerCase(Locale.ROOT));
+                if (match) {
+                    return resultSet(List.<Object[]>of(new Object[]{row[0]}));
+                }
+            }
+            return resultSet(List.of());
+        }
+
+        // RIGHT(REGEXP_REPLACE(phone_number, '[^0-9]', ''), 10)
+        private static String phoneDigits(String phone) {
+            if (phone == null) {
+                return null;
+            }
+            String digits = phone.replaceAll("[^0-9]", "");
+            return digits.length() > 10 ? digits.substring(digits.length() - 10) : digits;
+        }
+
+        private static ResultSet resultSet(List<Object[]> rows) {
+            int[] position = {-1};
+            return proxy(ResultSet.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "next":
+                        return ++position[0] < rows.size();
+                    case "getString":
+                        return (String) rows.get(position[0])[(Integer) args[0] - 1];
+                    case "getInt":
+                        return ((Number) rows.get(position[0])[(Integer) args[0] - 1]).intValue();
+                    case "getLong":
+                        return ((Number) rows.get(position[0])[(Integer) args[0] - 1]).longValue();
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(ContactIndexTester.class.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == int.class) {
+                return 0;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            return null; // JDBC methods ContactIndex calls return nothing else primitive
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return URL.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.healthcare.test;
+
+import com.healthcare.report.DuplicateCandidate;
+import com.healthcare.report.DuplicatePatientFinder;
+import com.healthcare.report.DuplicatePatientReport;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks the duplicate patient scan, no database needed: exact, swapped-name, sound-alike, mistyped-birthday and
+ * renamed duplicates are found through their blocks and scored with the right matched fields; each pair is scored
+ * once however many keys it shares; a phone number shared by too many patients is skipped; and the candidates
+ * come highest score first with the lower ID as patient A. {@link DuplicatePatientFinder} reads the patients from a
+ * {@link StandInDatabase}.
+ */
+public class DuplicatePatientFinderTester {
+
+    private static final LocalDate BIRTHDAY = LocalDate.of(1980, 3, 12);
+    private static final String CLINIC_PHONE = "555-000-1111";
+    private static final int CLINIC_PATIENTS = 101; // One more than a block may hold
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting Duplicate Patient Finder Tests ---");
+        List<Object[]> patients = new ArrayList<>();
+        // Listed out of ID order, so patient A must be picked by ID and not by row
+        add(patients, 2, "John", "Smith", BIRTHDAY, "(555) 123-4567", "JOHN@example.com ");
+        add(patients, 1, "John", "Smith", BIRTHDAY, "555-123-4567", "john@example.com");
+        add(patients, 3, "Smith", "John", BIRTHDAY, null, null);
+        add(patients, 4, "Jon", "Smyth", BIRTHDAY, null, null);
+        add(patients, 5, "Mary", "Jones", LocalDate.of(1975, 7, 4), "555 999 0000", null);
+        add(patients, 6, "Mary", "Jones", LocalDate.of(1975, 4, 7), "+1 555 999 0000", null);
+        add(patients, 7, "Anna", "Brown", LocalDate.of(1990, 1, 1), null, "anna@example.com");
+        add(patients, 8, "Anna", "Green", LocalDate.of(1990, 1, 1), null, "Anna@Example.com");
+        add(patients, 9, "Peter", "Parker", null, null, null);
+        for (int i = 0; i < CLINIC_PATIENTS; i++) {
+            add(patients, 100 + i, "Visitor", "Number" + i, null, CLINIC_PHONE, null);
+        }
+        StandInDatabase database = StandInDatabase.install((sql, parameters) -> new StandInDatabase.Rows(
+                List.of("patient_id", "first_name", "last_name", "date_of_birth", "phone_number", "email"), patients));
+
+        DuplicatePatientFinder finder = new DuplicatePatientFinder();
+        DuplicatePatientReport report = finder.find(0.5);
+        check("the scan reads every patient", report != null && report.getPatientsScanned() == patients.size());
+
+        // --- Blocking ---
+        System.out.println("\n--- Testing blocks ---");
+        // The four 1980 Smiths meet by birthday and name sound (6 pairs), the Joneses by phone, the Annas by email
+        check("only patients sharing a key are compared (" + report.getPairsCompared() + " pairs)",
+                report.getPairsCompared() == 8);
+        check("the clinic's shared phone is skipped", report.getBlocksSkipped() == 1
+                && report.getCandidates().stream().noneMatch(candidate -> candidate.getPatientIdB() >= 100));
+        check("a pair sharing four keys is listed once", count(report, 1, 2) == 1);
+        check("patient A has the lower ID", report.getCandidates().stream()
+                .allMatch(candidate -> candidate.getPatientIdA() < candidate.getPatientIdB()));
+
+        // --- Scores ---
+        System.out.println("\n--- Testing scores and matched fields ---");
+        DuplicateCandidate exact = find(report, 1, 2);
+        check("an exact duplicate scores 1 " + exact, exact != null && exact.getScore() == 1.0
+                && exact.getMatchedOn().equals("name, date of birth, phone, email")
+                && exact.getNameA().equals("John Smith"));
+        DuplicateCandidate swapped = find(report, 1, 3);
+        check("swapped first and last names " + swapped, swapped != null
+                && swapped.getMatchedOn().equals("name (first and last swapped), date of birth")
+                && Math.abs(swapped.getScore() - (0.95 * 0.55 + 0.25)) < 1e-9);
+        DuplicateCandidate alike = find(report, 1, 4);
+        check("a sound-alike name " + alike, alike != null && alike.getMatchedOn().equals("similar name, date of birth")
+                && alike.getScore() > 0.5 && alike.getScore() < 0.8); // Below same name and birthday
+        DuplicateCandidate birthday = find(report, 5, 6);
+        check("day and month swapped in the birthday " + birthday, birthday != null
+                && birthday.getMatchedOn().equals("name, date of birth (one part differs), phone")
+                && Math.abs(birthday.getScore() - (0.55 + 0.125 + 0.1)) < 1e-9);
+        DuplicateCandidate renamed = find(report, 7, 8);
+        check("a changed last name with the same email " + renamed, renamed != null
+                && renamed.getMatchedOn().startsWith("similar name, date of birth") && renamed.getMatchedOn().endsWith("email")
+                && renamed.getScore() >= 0.6 && renamed.getScore() < 0.9);
+
+        // --- Ranking ---
+        System.out.println("\n--- Testing ranking and the minimum score ---");
+        boolean ranked = true;
+        List<DuplicateCandidate> candidates = report.getCandidates();
+        for (int i = 1; i < candidates.size(); i++) {
+            DuplicateCandidate before = candidates.get(i - 1);
+            DuplicateCandidate after = candidates.get(i);
+            ranked &= before.getScore() > after.getScore() || before.getScore() == after.getScore()
+                    && (before.getPatientIdA() < after.getPatientIdA() || before.getPatientIdA() == after.getPatientIdA()
+                    && before.getPatientIdB() < after.getPatientIdB());
+        }
+        check("highest score first, then by IDs " + ids(report), ranked && candidates.get(0) == exact
+                && find(report, 2, 3) != null && find(report, 2, 3).getScore() == swapped.getScore());
+        DuplicatePatientReport strict = finder.find(0.9);
+        check("the minimum score drops weaker pairs but not the comparisons " + ids(strict),
+                ids(strict).equals(List.of("1-2")) && strict.getPairsCompared() == report.getPairsCompared()
+                        && strict.getMinScore() == 0.9);
+        check("a score of 0 lists every pair compared", finder.find(0).getCandidates().size() == 8);
+
+        database.uninstall();
+        Checks.finish("Duplicate Patient Finder");
+    }
+
+    private static void add(List<Object[]> patients, int patientId, String firstName, String lastName,
+                            LocalDate dateOfBirth, String phone, String email) {
+        patients.add(new Object[]{patientId, firstName, lastName, dateOfBirth != null ? Date.valueOf(dateOfBirth) : null,
+                phone, email});
+    }
+
+    private static DuplicateCandidate find(DuplicatePatientReport report, int patientIdA, int patientIdB) {
+        for (DuplicateCandidate candidate : report.getCandidates()) {
+            if (candidate.getPatientIdA() == patientIdA && candidate.getPatientIdB() == patientIdB) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static long count(DuplicatePatientReport report, int patientIdA, int patientIdB) {
+        return report.getCandidates().stream().filter(candidate -> candidate.getPatientIdA() == patientIdA
+                && candidate.getPatientIdB() == patientIdB).count();
+    }
+
+    private static List<String> ids(DuplicatePatientReport report) {
+        List<String> pairs = new ArrayList<>();
+        for (DuplicateCandidate candidate : report.getCandidates()) {
+            pairs.add(candidate.getPatientIdA() + "-" + candidate.getPatientIdB());
+        }
+        return pairs;
+    }
+}
@@ -8,7 +8,9 @@ import com.healthcare.model.MedicalRecord;
 import com.healthcare.model.Patient;
 import com.healthcare.model.Doctor;
 import com.healthcare.model.Appointment;
+import com.healthcare.util.TransactionScope;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
@@ -147,6 +149,41 @@ public class HealthcareAppTester {
         }
 
 
+        // --- Test Transactions ---
+        System.out.println("\n--- Testing TransactionScope ---");
+
+        if (patientId != -1 && doctorId != -1) {
+            // 1. Book a follow-up and write its record in one transaction
+            try {
+                int followUpId = TransactionScope.run(tx -> {
+                    medicalRecordDAO.addMedicalRecordOrThrow(new MedicalRecord(
+                            patientId, doctorId, "Follow-up booked", null, "Booked with the appointment."));
+                    return appointmentDAO.addAppointmentOrThrow(new Appointment(
+                            patientId, doctorId, LocalDate.now().plusDays(14), LocalTime.of(9, 0), "Follow-up"));
+                });
+                System.out.println("Follow-up committed with appointment ID: " + followUpId);
+            } catch (SQLException e) {
+                System.err.println("Transaction failed: " + e.getMessage());
+            }
+
+            // 2. A failure part-way rolls back the statements before it
+            int recordsBefore = medicalRecordDAO.getMedicalRecordsByPatientId(patientId).size();
+            try {
+                TransactionScope.run(tx -> {
+                    medicalRecordDAO.addMedicalRecordOrThrow(new MedicalRecord(
+                            patientId, doctorId, "Rolled back", null, null));
+                    throw new SQLException("Simulated failure");
+                });
+            } catch (SQLException e) {
+                System.out.println("Transaction rolled back: " + e.getMessage());
+            }
+            int recordsAfter = medicalRecordDAO.getMedicalRecordsByPatientId(patientId).size();
+            System.out.println("Medical records unchanged after rollback: " + (recordsBefore == recordsAfter));
+        } else {
+            System.out.println("Skipping TransactionScope tests: Patient or Doctor ID not available.");
+        }
+
+
         // --- Clean Up (Optional: Delete records after testing) ---
         System.out.println("\n--- Cleaning Up Test Data (Optional) ---");
         if (patientId != -1) {
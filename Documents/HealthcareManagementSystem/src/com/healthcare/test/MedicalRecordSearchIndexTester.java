@@ -0,0 +1,184 @@
+package com.healthcare.test;
+
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.model.MedicalRecord;
+import com.healthcare.search.MedicalRecordSearchIndex;
+import com.healthcare.search.SearchHit;
+import com.healthcare.search.SearchIndexFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks the medical record search index, no database needed: records fed in as change events are found by
+ * BM25 rank, quoted phrases match only words in order within one field, the patient and doctor filters narrow
+ * the hits, and the index survives a save to and load from its file, which refuses damaged contents.
+ */
+public class MedicalRecordSearchIndexTester {
+
+    private static final String DATABASE = "jdbc:mysql://stand-in/healthcare_system_db";
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting Medical Record Search Index Tests ---");
+        MedicalRecordSearchIndex index = new MedicalRecordSearchIndex(DATABASE);
+        put(index, 1, 10, 100, "Asthma", "Inhaled steroids", "Shortness of breath at night");
+        put(index, 2, 10, null, "Asthma, asthma exacerbation", "Salbutamol", null);
+        put(index, 3, 11, 100, "Chest pain", "ECG", "No shortness; breath sounds normal");
+        put(index, 4, 12, 101, "Ménière's disease", "Betahistine", "Vertigo and tinnitus");
+        put(index, 5, 12, 101, "Common cold", "Rest",
+                "Asthma in childhood, noted here among a great many other words about the patient's general history");
+        put(index, 6, 13, 102, "Gout", "Colchicine", null);
+        put(index, 7, 14, 102, "Gout", "Colchicine", null);
+
+        // --- Parsing ---
+        System.out.println("\n--- Testing query parsing ---");
+        check("stop words outside phrases are dropped", ids(index, "the Asthma of steroids").equals(List.of(1)));
+        check("stop words at the ends of a phrase are dropped", ids(index, "\"the chest pain of\"").equals(List.of(3)));
+        check("an unterminated quote still makes a phrase", ids(index, "ecg \"chest pain").equals(List.of(3))
+                && ids(index, "ecg \"pain chest").isEmpty());
+        check("null and blank queries find nothing", index.search(null, null, null, 10).isEmpty()
+                && ids(index, "  \"\" ").isEmpty());
+
+        // --- Ranking ---
+        System.out.println("\n--- Testing BM25 ranking ---");
+        check("more occurrences in a shorter record rank first, a long record last " + ids(index, "asthma"),
+                ids(index, "asthma").equals(List.of(2, 1, 5)));
+        List<SearchHit> hits = index.search("asthma", null, null, 10);
+        check("scores fall with the rank", hits.get(0).getScore() > hits.get(1).getScore()
+                && hits.get(1).getScore() > hits.get(2).getScore());
+        check("equal scores put the newer record first", ids(index, "gout").equals(List.of(7, 6)));
+        check("every word must match", ids(index, "asthma steroids").equals(List.of(1))
+                && ids(index, "asthma zzz").isEmpty());
+        check("the limit keeps the best hits", ids(index, "asthma", 1).equals(List.of(2)));
+        check("a query of stop words finds nothing", ids(index, "the of and").isEmpty());
+        check("accents and case are folded", ids(index, "MENIERE").equals(List.of(4))
+                && ids(index, "meniere's").equals(List.of(4)) && ids(index, "menieres").isEmpty());
+
+        // --- Phrases ---
+        System.out.println("\n--- Testing quoted phrases ---");
+        check("a phrase with a stop word inside matches", ids(index, "\"shortness of breath\"").equals(List.of(1)));
+        check("the stop word keeps its place, so leaving it out matches other records",
+                ids(index, "\"shortness breath\"").equals(List.of(3)));
+        check("a phrase never spans two fields", ids(index, "\"steroids shortness\"").isEmpty()
+                && ids(index, "\"asthma inhaled\"").isEmpty());
+        check("a phrase plus a word", ids(index, "\"chest pain\" ecg").equals(List.of(3)));
+
+        // --- Filters ---
+        System.out.println("\n--- Testing patient and doctor filters ---");
+        check("patient filter", ids(index, "asthma", 10, null).equals(List.of(2, 1))
+                && ids(index, "asthma", 12, null).equals(List.of(5)));
+        check("doctor filter", ids(index, "asthma", null, 100).equals(List.of(1))
+                && ids(index, "asthma", null, 101).equals(List.of(5)));
+        check("both filters", ids(index, "asthma", 10, 100).equals(List.of(1))
+                && ids(index, "asthma", 11, 100).isEmpty());
+
+        // --- Changes ---
+        System.out.println("\n--- Testing updates and deletes ---");
+        index.onChange(ChangeEvent.updated(ChangeEvent.Entity.MEDICAL_RECORD, 1, record(1, 10, 100, "Bronchitis",
+                "Antibiotics", null)));
+        check("an update takes out the old words", ids(index, "asthma").equals(List.of(2, 5))
+                && ids(index, "bronchitis").equals(List.of(1)));
+        index.onChange(ChangeEvent.deleted(ChangeEvent.Entity.MEDICAL_RECORD, 2));
+        check("a delete takes the record out", ids(index, "asthma").equals(List.of(5))
+                && ids(index, "salbutamol").isEmpty() && index.size() == 6);
+        index.onChange(ChangeEvent.deleted(ChangeEvent.Entity.PATIENT, 5));
+        check("other entities are ignored", ids(index, "asthma").equals(List.of(5)));
+
+        // --- Saved index ---
+        System.out.println("\n--- Testing the saved index ---");
+        Path directory = Files.createTempDirectory("search-index-test");
+        try {
+            SearchIndexFile file = new SearchIndexFile(directory.resolve("medical-records.index"));
+            check("no file loads as nothing", file.load() == null);
+            byte[] payload = index.encode();
+            file.save(payload);
+            byte[] loaded = file.load();
+            check("the file gives back the payload", Arrays.equals(loaded, payload));
+
+            MedicalRecordSearchIndex copy = new MedicalRecordSearchIndex(DATABASE);
+            check("the payload decodes", copy.decode(loaded) && copy.size() == index.size());
+            boolean sameHits = true;
+            for (String query : List.of("asthma", "bronchitis antibiotics", "\"shortness of breath\"", "meniere",
+                    "\"vertigo and tinnitus\"", "gout")) {
+                sameHits &= copy.search(query, null, null, 10).toString()
+                        .equals(index.search(query, null, null, 10).toString());
+            }
+            check("the loaded index ranks like the saved one", sameHits);
+            check("the loaded index keeps the filters", ids(copy, "gout", 13, 102).equals(List.of(6)));
+            check("a payload for another database is refused",
+                    !new MedicalRecordSearchIndex("jdbc:mysql://elsewhere/healthcare_system_db").decode(loaded));
+
+            byte[] bytes = Files.readAllBytes(file.getPath());
+            bytes[bytes.length - 1] ^= 1;
+            Files.write(file.getPath(), bytes);
+            check("a damaged file fails its checksum", loadFailure(file).contains("checksum"));
+            Files.write(file.getPath(), Arrays.copyOf(bytes, bytes.length - 10));
+            check("a truncated file is refused", loadFailure(file).contains("truncated"));
+            Files.write(file.getPath(), "not an index".getBytes());
+            check("another file is refused", loadFailure(file).contains("not an index"));
+        } finally {
+            deleteRecursively(directory);
+        }
+
+        Checks.finish("Medical Record Search Index");
+    }
+
+    private static void put(MedicalRecordSearchIndex index, int recordId, int patientId, Integer doctorId,
+                            String diagnosis, String treatment, String notes) {
+        index.onChange(ChangeEvent.inserted(ChangeEvent.Entity.MEDICAL_RECORD, recordId,
+                record(recordId, patientId, doctorId, diagnosis, treatment, notes)));
+    }
+
+    private static MedicalRecord record(int recordId, int patientId, Integer doctorId, String diagnosis,
+                                        String treatment, String notes) {
+        MedicalRecord record = new MedicalRecord(recordId, patientId, doctorId, null, diagnosis, treatment, notes);
+        record.setVersion(1);
+        return record;
+    }
+
+    private static List<Integer> ids(MedicalRecordSearchIndex index, String query) {
+        return ids(index, query, null, null, 10);
+    }
+
+    private static List<Integer> ids(MedicalRecordSearchIndex index, String query, int limit) {
+        return ids(index, query, null, null, limit);
+    }
+
+    private static List<Integer> ids(MedicalRecordSearchIndex index, String query, Integer patientId, Integer doctorId) {
+        return ids(index, query, patientId, doctorId, 10);
+    }
+
+    private static List<Integer> ids(MedicalRecordSearchIndex index, String query, Integer patientId, Integer doctorId,
+                                     int limit) {
+        List<Integer> recordIds = new ArrayList<>();
+        for (SearchHit hit : index.search(query, patientId, doctorId, limit)) {
+            recordIds.add(hit.getRecordId());
+        }
+        return recordIds;
+    }
+
+    private static String loadFailure(SearchIndexFile file) {
+        try {
+            file.load();
+            return "";
+        } catch (IOException ex) {
+            return ex.getMessage();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
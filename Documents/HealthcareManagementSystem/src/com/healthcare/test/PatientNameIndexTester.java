@@ -0,0 +1,130 @@
+package com.healthcare.test;
+
+import com.healthcare.model.Patient;
+import com.healthcare.search.NameMatch;
+import com.healthcare.search.PatientNameIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks fuzzy patient name matching, no database needed: the Double Metaphone keys of
+ * {@link PatientNameIndex#phoneticKeys(String)} are the primary and alternate keys of the original algorithm for
+ * names that exercise its special cases, and {@link PatientNameIndex} ranks misspelled and differently spelled
+ * queries ("Jon Smyth", "Smiht", "Smith, John") with the closest name first.
+ */
+public class PatientNameIndexTester {
+
+    // Name, primary key, alternate key, as given by Philips' reference implementation
+    private static final String[][] KEYS = {
+            {"SMITH", "SM0", "XMT"},
+            {"SMYTH", "SM0", "XMT"},
+            {"SCHMIDT", "XMT", "SMT"},
+            {"SCHENKER", "XNKR", "SKNK"},
+            {"XAVIER", "SF", "SFR"},
+            {"CAESAR", "SSR", "SSR"},
+            {"JANKELOWICZ", "JNKL", "ANKL"},
+            {"FILIPOWICZ", "FLPT", "FLPF"},
+            {"WASSERMAN", "ASRM", "FSRM"},
+            {"MICHAEL", "MKL", "MXL"},
+            {"CATHERINE", "K0RN", "KTRN"},
+            {"THOMAS", "TMS", "TMS"},
+            {"JOSE", "HS", "HS"},
+            {"SUGAR", "XKR", "SKR"},
+            {"ZHAO", "J", "J"},
+            {"DUMB", "TM", "TM"},
+            {"ACCIDENT", "AKST", "AKST"},
+    };
+
+    public static void main(String[] args) {
+        System.out.println("--- Starting Patient Name Index Tests ---");
+
+        // --- Double Metaphone ---
+        System.out.println("\n--- Testing Double Metaphone keys ---");
+        for (String[] expected : KEYS) {
+            List<String> keys = PatientNameIndex.phoneticKeys(expected[0]);
+            check(expected[0] + " is " + expected[1] + " / " + expected[2] + " (got " + keys + ")",
+                    keys.equals(expected[1].equals(expected[2]) ? List.of(expected[1]) : List.of(expected[1], expected[2])));
+        }
+        boolean shortKeys = true;
+        for (String key : PatientNameIndex.phoneticKeys("WOLFESCHLEGELSTEINHAUSEN")) {
+            shortKeys &= key.length() <= 4;
+        }
+        check("keys are at most 4 characters", shortKeys);
+        check("an empty name has no keys", PatientNameIndex.phoneticKeys("").isEmpty());
+        check("the name is folded first", PatientNameIndex.phoneticKeys("smith").equals(List.of("SM0", "XMT"))
+                && PatientNameIndex.phoneticKeys("José").equals(List.of("HS"))
+                && PatientNameIndex.phoneticKeys("'-").isEmpty());
+
+        // --- Similarity ---
+        System.out.println("\n--- Testing name similarity ---");
+        check("the same name ignoring case, accents and punctuation is 1",
+                PatientNameIndex.nameSimilarity("Zoë O'Brien", "ZOE OBRIEN") == 1.0);
+        double alike = PatientNameIndex.nameSimilarity("Smith", "Smyth");
+        double typo = PatientNameIndex.nameSimilarity("Smith", "Snith");
+        check("a sound-alike spelling gets the phonetic bonus (" + alike + " > " + typo + ")",
+                alike > typo && alike < 1.0);
+        check("unrelated names score low", PatientNameIndex.nameSimilarity("Smith", "Nakamura") < 0.5);
+        check("a name without letters scores 0", PatientNameIndex.nameSimilarity("Smith", "--") == 0.0);
+
+        // --- Ranked matches ---
+        System.out.println("\n--- Testing ranked matches ---");
+        PatientNameIndex index = new PatientNameIndex();
+        index.rebuild(List.of(
+                patient(1, "John", "Smith"),
+                patient(2, "Jane", "Smith"),
+                patient(3, "Jon", "Schmidt"),
+                patient(4, "Katherine", "Jones"),
+                patient(5, "Zoë", "O'Brien"),
+                patient(6, "Smith", "Walker")));
+        check("six patients indexed", index.size() == 6);
+        check("\"Jon Smyth\" finds John Smith first, then Jane Smith and Jon Schmidt "
+                + ids(index, "Jon Smyth"), ids(index, "Jon Smyth").subList(0, 3).equals(List.of(1, 2, 3)));
+        List<NameMatch> matches = index.search("Jon Smyth", 10);
+        check("scores fall with the rank and stay below an exact match", matches.get(0).getScore() < 1.0
+                && matches.get(0).getScore() > matches.get(1).getScore()
+                && matches.get(1).getScore() > matches.get(2).getScore());
+        check("the exact full name scores 1", index.search("John Smith", 1).get(0).getScore() == 1.0);
+        check("a typo finds the Smiths, last names above a first name " + ids(index, "Smiht"),
+                ids(index, "Smiht").subList(0, 3).equals(List.of(1, 2, 6)));
+        check("\"Smith, John\" still puts John Smith first", ids(index, "Smith, John").get(0) == 1);
+        check("\"kathryn\" finds Katherine", ids(index, "kathryn").equals(List.of(4)));
+        check("\"zoe obrian\" finds Zoe O'Brien", ids(index, "zoe obrian").equals(List.of(5)));
+        check("the limit keeps the best", ids(index, "Jon Smyth", 1).equals(List.of(1)));
+        check("a query without letters finds nothing", index.search(" , ", 10).isEmpty()
+                && index.search(null, 10).isEmpty() && index.search("Smith", 0).isEmpty());
+
+        // --- Changes ---
+        System.out.println("\n--- Testing updates and removals ---");
+        index.remove(1);
+        index.put(patient(2, "Jane", "Doe"));
+        check("removed and renamed patients no longer match " + ids(index, "smith"),
+                ids(index, "smith").get(0) == 6 && !ids(index, "smith").contains(1) && !ids(index, "smith").contains(2));
+        check("a renamed patient matches the new name", ids(index, "jane doe").get(0) == 2);
+        check("the size follows", index.size() == 5);
+
+        Checks.finish("Patient Name Index");
+    }
+
+    private static Patient patient(int patientId, String firstName, String lastName) {
+        Patient patient = new Patient();
+        patient.setPatientId(patientId);
+        patient.setFirstName(firstName);
+        patient.setLastName(lastName);
+        return patient;
+    }
+
+    private static List<Integer> ids(PatientNameIndex index, String query) {
+        return ids(index, query, 10);
+    }
+
+    private static List<Integer> ids(PatientNameIndex index, String query, int limit) {
+        List<Integer> patientIds = new ArrayList<>();
+        for (NameMatch match : index.search(query, limit)) {
+            patientIds.add(match.getPatientId());
+        }
+        return patientIds;
+    }
+}
@@ -0,0 +1,356 @@
+package com.healthcare.test;
+
+import com.healthcare.client.RemoteClient;
+import com.healthcare.client.RemoteDoctorDAO;
+import com.healthcare.client.RemotePatientDAO;
+import com.healthcare.client.HttpResult;
+import com.healthcare.dao.UpdateResult;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.json.JsonWriter;
+import com.healthcare.json.ModelJson;
+import com.healthcare.model.Doctor;
+import com.healthcare.model.MedicalRecord;
+import com.healthcare.model.Patient;
+import com.healthcare.server.HealthcareServer;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks the remote DAOs against a local stand-in server, no database needed:
+ * concurrent single-row lookups must collapse into a few {@code ?ids=} batches, independent
+ * GETs must share one pipelined connection, and responses must decode into the right rows.
+ * Conditional GETs are checked against a real {@link HealthcareServer} and are skipped when it has no database.
+ */
+public class RemoteDaoTester {
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting Remote DAO Tests ---");
+
+        try (StandInServer server = new StandInServer()) {
+            String baseUrl = "http://127.0.0.1:" + server.getPort();
+
+            // --- Batching ---
+            System.out.println("\n--- Testing batched lookups ---");
+            try (RemoteClient client = new RemoteClient(baseUrl, 1)) {
+                RemotePatientDAO patientDAO = new RemotePatientDAO(client);
+                ExecutorService workers = Executors.newFixedThreadPool(50);
+                List<Future<Patient>> lookups = new ArrayList<>();
+                for (int i = 1; i <= 50; i++) {
+                    int id = i;
+                    lookups.add(workers.submit(() -> patientDAO.getPatientById(id)));
+                }
+                boolean allMatch = true;
+                for (int i = 0; i < lookups.size(); i++) {
+                    Patient patient = lookups.get(i).get();
+                    allMatch &= patient != null && patient.getPatientId() == i + 1
+                            && ("Patient" + (i + 1)).equals(patient.getFirstName());
+                }
+                workers.shutdown();
+                check("50 concurrent lookups decode to the right patients", allMatch);
+                check("50 lookups sent as at most 5 batch requests (sent " + server.batchRequests.get() + ")",
+                        server.batchRequests.get() <= 5);
+                check("unknown patient returns null", patientDAO.getPatientById(StandInServer.MISSING_ID) == null);
+
+                RemoteDoctorDAO doctorDAO = new RemoteDoctorDAO(client);
+                List<Doctor> doctors = doctorDAO.getDoctorsByIds(List.of(3, 1, 2, 3));
+                check("getDoctorsByIds returns the distinct doctors", doctors.size() == 3);
+            }
+
+            // --- Pipelining ---
+            System.out.println("\n--- Testing pipelined reads ---");
+            server.reset();
+            try (RemoteClient client = new RemoteClient(baseUrl, 1)) {
+                List<CompletableFuture<HttpResult>> pages = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    pages.add(client.getAsync("/api/patients?after=" + (i * 10) + "&limit=10"));
+                }
+                boolean ordered = true;
+                for (int i = 0; i < pages.size(); i++) {
+                    List<Map<String, Object>> items = client.await(pages.get(i)).items();
+                    ordered &= ModelJson.readPatient(items.get(0)).getPatientId() == i * 10 + 1;
+                }
+                check("10 pipelined pages matched to their requests", ordered);
+                check("10 GETs shared one connection (opened " + server.connections.get() + ")", server.connections.get() == 1);
+
+                RemotePatientDAO patientDAO = new RemotePatientDAO(client);
+                check("getAllPatients follows nextAfter across pages",
+                        patientDAO.getAllPatients().size() == StandInServer.PATIENT_COUNT);
+
+                Patient patient = new Patient("Ann", "Lee", LocalDate.of(1980, 1, 2), "Female",
+                        "1 High St", "Springfield", "IL", "62701", "555-0100", "ann@example.com");
+                check("addPatient reads the generated ID", patientDAO.addPatient(patient) == 42 && patient.getPatientId() == 42);
+
+                Patient original = StandInServer.patient(StandInServer.CONFLICT_ID);
+                original.setVersion(StandInServer.CURRENT_VERSION - 1);
+                Patient edited = StandInServer.patient(StandInServer.CONFLICT_ID);
+                edited.setPhoneNumber("555-0199");
+                UpdateResult<Patient> conflict = patientDAO.updatePatient(original, edited);
+                check("a 409 update carries the current row", conflict.getStatus() == UpdateResult.Status.CONFLICT
+                        && conflict.getRow().getVersion() == StandInServer.CURRENT_VERSION);
+                original = StandInServer.patient(8);
+                original.setVersion(StandInServer.CURRENT_VERSION);
+                UpdateResult<Patient> updated = patientDAO.updatePatient(original, StandInServer.patient(8));
+                check("a 200 update reads the new version", updated.isUpdated()
+                        && updated.getRow().getVersion() == StandInServer.CURRENT_VERSION + 1);
+                check("a 404 update is not found", patientDAO.updatePatient(StandInServer.patient(StandInServer.MISSING_ID),
+                        StandInServer.patient(StandInServer.MISSING_ID)).getStatus() == UpdateResult.Status.NOT_FOUND);
+            }
+        }
+
+        // --- The real server accepts pipelined requests ---
+        System.out.println("\n--- Testing pipelining against HealthcareServer ---");
+        HealthcareServer healthcareServer = new HealthcareServer(0, 2);
+        healthcareServer.start();
+        try (RemoteClient client = new RemoteClient("http://127.0.0.1:" + healthcareServer.getPort(), 1)) {
+            List<CompletableFuture<HttpResult>> checks = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                checks.add(client.getAsync("/api/health"));
+            }
+            boolean allAnswered = true;
+            for (CompletableFuture<HttpResult> check : checks) {
+                allAnswered &= client.await(check).getStatus() > 0;
+            }
+            check("5 pipelined health checks answered", allAnswered);
+
+            // --- Conditional GETs: versions are bumped by DAO change events ---
+            System.out.println("\n--- Testing ETags and 304 Not Modified ---");
+            HttpResult first = client.get("/api/doctors");
+            if (first.getStatus() != 200) {
+                System.out.println("  SKIP the server has no database to list from (" + first.errorMessage() + ")");
+            } else {
+                check("list response carries an ETag", first.getHeader("ETag") != null);
+                client.get("/api/doctors");
+                check("unchanged list revalidates with 304", client.getNotModifiedCount() == 1);
+
+                Doctor doctor = new Doctor(1, "Greg", "House", "Diagnostics", "555-0199", null);
+                ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.DOCTOR, 1, doctor));
+                HttpResult afterWrite = client.get("/api/doctors");
+                check("a doctor write changes the list's ETag",
+                        client.getNotModifiedCount() == 1 && !first.getHeader("ETag").equals(afterWrite.getHeader("ETag")));
+
+                client.get("/api/medical-records?patientId=5");
+                MedicalRecord otherPatient = new MedicalRecord();
+                otherPatient.setRecordId(100);
+                otherPatient.setPatientId(6);
+                ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.MEDICAL_RECORD, 100, otherPatient));
+                client.get("/api/medical-records?patientId=5");
+                check("another patient's new record leaves the history unchanged", client.getNotModifiedCount() == 2);
+
+                MedicalRecord samePatient = new MedicalRecord();
+                samePatient.setRecordId(101);
+                samePatient.setPatientId(5);
+                ChangeEventBus.getInstance().publish(ChangeEvent.inserted(ChangeEvent.Entity.MEDICAL_RECORD, 101, samePatient));
+                client.get("/api/medical-records?patientId=5");
+                check("the patient's own new record changes the history", client.getNotModifiedCount() == 2);
+
+                String bySpecialization = "/api/appointments?specialization=Diagnostics";
+                HttpResult filtered = client.get(bySpecialization);
+                client.get(bySpecialization);
+                check("unchanged filtered appointments revalidate with 304", client.getNotModifiedCount() == 3);
+                ChangeEventBus.getInstance().publish(ChangeEvent.updated(ChangeEvent.Entity.DOCTOR, 1,
+                        new Doctor(1, "Greg", "House", "Nephrology", "555-0199", null)));
+                HttpResult afterDoctorWrite = client.get(bySpecialization);
+                check("a doctor's new specialization changes the filtered appointments' ETag",
+                        afterDoctorWrite.getStatus() == 200 && client.getNotModifiedCount() == 3
+                                && !filtered.getHeader("ETag").equals(afterDoctorWrite.getHeader("ETag")));
+            }
+        } finally {
+            healthcareServer.stop();
+        }
+
+        Checks.finish("Remote DAO");
+    }
+
+    /**
+     * Minimal HTTP/1.1 server answering from generated data. Requests on one connection are
+     * answered strictly in order, as pipelining requires.
+     */
+    private static class StandInServer implements AutoCloseable {
+        static final int PATIENT_COUNT = 1200;
+        static final int MISSING_ID = 999_999;
+        static final int CONFLICT_ID = 7; // PUT answers 409 with the row at CURRENT_VERSION
+        static final int CURRENT_VERSION = 5;
+        static final int RESPONSE_DELAY_MS = 20;
+
+        final ServerSocket serverSocket;
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger batchRequests = new AtomicInteger();
+
+        StandInServer() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread.ofVirtual().start(this::acceptLoop);
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        void reset() {
+            connections.set(0);
+            batchRequests.set(0);
+        }
+
+        private void acceptLoop() {
+            try {
+                while (true) {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread.ofVirtual().start(() -> serve(socket));
+                }
+            } catch (IOException ex) {
+                // Server closed
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket) {
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                String requestLine;
+                while ((requestLine = readLine(in)) != null) {
+                    int contentLength = 0;
+                    String header;
+                    while ((header = readLine(in)) != null && !header.isEmpty()) {
+                        if (header.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(header.substring(15).trim());
+                        }
+                    }
+                    in.readNBytes(contentLength);
+
+                    String[] parts = requestLine.split(" ");
+                    Thread.sleep(RESPONSE_DELAY_MS);
+                    respond(out, parts[0], parts[1]);
+                }
+            } catch (IOException | InterruptedException ex) {
+                // Client went away
+            }
+        }
+
+        private void respond(OutputStream out, String method, String target) throws IOException {
+            int status = 200;
+            String body;
+            if (method.equals("POST")) {
+                status = 201;
+                body = "{\"id\":42}";
+            } else if (method.equals("PUT")) {
+                int id = Integer.parseInt(target.substring(target.lastIndexOf('/') + 1));
+                Patient patient = patient(id);
+                patient.setVersion(id == CONFLICT_ID ? CURRENT_VERSION : CURRENT_VERSION + 1);
+                JsonWriter json = new JsonWriter();
+                if (id == MISSING_ID) {
+                    status = 404;
+                    json.beginObject().name("error").value("Not found").endObject();
+                } else if (id == CONFLICT_ID) {
+                    status = 409;
+                    json.beginObject().name("error").value("Changed by someone else").name("current");
+                    ModelJson.write(json, patient);
+                    json.endObject();
+                } else {
+                    ModelJson.write(json, patient);
+                }
+                body = json.toString();
+            } else if (target.contains("?ids=")) {
+                batchRequests.incrementAndGet();
+                body = idsResponse(target.startsWith("/api/doctors"), target.substring(target.indexOf("?ids=") + 5));
+            } else if (target.startsWith("/api/patients?after=")) {
+                body = pageResponse(target);
+            } else {
+                status = 404;
+                body = "{\"error\":\"Not found\"}";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            String head = "HTTP/1.1 " + status + " X\r\nContent-Type: application/json\r\nContent-Length: " + bytes.length + "\r\n\r\n";
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            out.write(bytes);
+            out.flush();
+        }
+
+        private static String idsResponse(boolean doctors, String ids) {
+            JsonWriter json = new JsonWriter();
+            json.beginObject().name("items").beginArray();
+            for (String id : ids.split(",")) {
+                int value = Integer.parseInt(id);
+                if (value == MISSING_ID) {
+                    continue;
+                }
+                if (doctors) {
+                    ModelJson.write(json, new Doctor(value, "Doctor" + value, "Smith", "General", "555-0000", null));
+                } else {
+                    ModelJson.write(json, patient(value));
+                }
+            }
+            return json.endArray().name("nextAfter").nullValue().endObject().toString();
+        }
+
+        private static String pageResponse(String target) {
+            String query = target.substring(target.indexOf('?') + 1);
+            int after = 0;
+            int limit = 100;
+            for (String pair : query.split("&")) {
+                String[] kv = pair.split("=");
+                if (kv[0].equals("after")) {
+                    after = Integer.parseInt(kv[1]);
+                } else if (kv[0].equals("limit")) {
+                    limit = Integer.parseInt(kv[1]);
+                }
+            }
+            int last = Math.min(PATIENT_COUNT, after + limit);
+            JsonWriter json = new JsonWriter();
+            json.beginObject().name("items").beginArray();
+            for (int id = after + 1; id <= last; id++) {
+                ModelJson.write(json, patient(id));
+            }
+            json.endArray().name("nextAfter");
+            if (last - after == limit) {
+                json.value(last);
+            } else {
+                json.nullValue();
+            }
+            return json.endObject().toString();
+        }
+
+        static Patient patient(int id) {
+            Patient patient = new Patient("Patient" + id, "Test", LocalDate.of(1990, 1, 1), "Other",
+                    null, null, null, null, "555-0000", null);
+            patient.setPatientId(id);
+            return patient;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    int length = sb.length();
+                    return length > 0 && sb.charAt(length - 1) == '\r' ? sb.substring(0, length - 1) : sb.toString();
+                }
+                sb.append((char) b);
+            }
+            return sb.length() == 0 ? null : sb.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.healthcare.test;
+
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.util.DatabaseConnection;
+import com.healthcare.util.ReplicaRouter;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks read-replica routing against two local MySQL instances: the primary on 3306 and a second
+ * instance (a replica, or just a copy of the schema) whose URL is passed as the first argument, e.g.
+ * {@code jdbc:mysql://localhost:3307/healthcare_system_db}.
+ * <p>
+ * Reads must reach the second instance, writes the primary, and reads right after a write must go to
+ * the primary until the stickiness window has passed.
+ */
+public class ReplicaRoutingTester {
+
+    private static final long STICKY_MS = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: ReplicaRoutingTester <replica JDBC URL>");
+            return;
+        }
+        System.out.println("--- Starting Replica Routing Tests ---");
+
+        int primaryPort;
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            primaryPort = serverPort(conn);
+        }
+        DatabaseConnection.useReplicas(List.of(args[0]), STICKY_MS);
+        ReplicaRouter router = DatabaseConnection.getReplicaRouter();
+
+        try {
+            System.out.println("\n--- Testing read routing ---");
+            int readPort;
+            try (Connection conn = DatabaseConnection.requireReadConnection()) {
+                readPort = serverPort(conn);
+                check("Read connection is read-only", conn.isReadOnly());
+            }
+            check("Read goes to the replica (primary " + primaryPort + ", read " + readPort + ")", readPort != primaryPort);
+            try (Connection conn = DatabaseConnection.requireConnection()) {
+                check("Write connection goes to the primary", serverPort(conn) == primaryPort);
+            }
+
+            System.out.println("\n--- Testing read-your-writes ---");
+            // What the DAOs publish after a successful write
+            ChangeEventBus.getInstance().publish(ChangeEvent.deleted(ChangeEvent.Entity.PATIENT, -1));
+            try (Connection conn = DatabaseConnection.requireReadConnection()) {
+                check("Read right after a write goes to the primary", serverPort(conn) == primaryPort);
+            }
+            ReplicaRouter.bindSession("another-client");
+            try (Connection conn = DatabaseConnection.requireReadConnection()) {
+                check("Another session still reads from the replica", serverPort(conn) == readPort);
+            } finally {
+                ReplicaRouter.clearSession();
+            }
+            Thread.sleep(STICKY_MS + 100);
+            try (Connection conn = DatabaseConnection.requireReadConnection()) {
+                check("Reads return to the replica after the window", serverPort(conn) == readPort);
+            }
+
+            System.out.println("\nReplica reads: " + router.getReplicaReadCount()
+                    + ", sticky reads: " + router.getStickyReadCount()
+                    + ", fallback reads: " + router.getFallbackReadCount());
+        } finally {
+            DatabaseConnection.useReplicas(List.of(), STICKY_MS);
+        }
+
+        Checks.finish("Replica Routing");
+    }
+
+    private static int serverPort(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT @@port")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.healthcare.test;
+
+import com.healthcare.util.RoaringBitmap;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks {@link RoaringBitmap} against {@link TreeSet}, no database needed: random sparse and dense sets are
+ * combined with and/or/andNot and paged with toArray(after, limit), and each group of 65536 values is checked to
+ * switch between its sorted-array and bitmap forms at 4096 values, in both directions and in combined results.
+ */
+public class RoaringBitmapTester {
+
+    private static final int ARRAY_MAX = 4096;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting Roaring Bitmap Tests ---");
+        Random random = new Random(48);
+
+        // --- Against TreeSet ---
+        System.out.println("\n--- Testing random sets against TreeSet ---");
+        boolean sameValues = true;
+        boolean sameAnd = true;
+        boolean sameOr = true;
+        boolean sameAndNot = true;
+        boolean samePages = true;
+        for (int round = 0; round < 40; round++) {
+            // Alternate dense ranges (bitmap groups) and sparse ones (array groups), sometimes over several groups
+            TreeSet<Integer> expectedA = randomSet(random, round % 2 == 0 ? 70_000 : 400_000, random.nextInt(20_000));
+            TreeSet<Integer> expectedB = randomSet(random, round % 3 == 0 ? 70_000 : 300_000, random.nextInt(20_000));
+            RoaringBitmap a = bitmapOf(expectedA);
+            RoaringBitmap b = bitmapOf(expectedB);
+
+            List<Integer> removals = new ArrayList<>(expectedA);
+            for (int i = 0; i < removals.size() / 3; i++) {
+                int value = removals.get(random.nextInt(removals.size()));
+                a.remove(value);
+                expectedA.remove(value);
+            }
+            sameValues &= same(a, expectedA) && same(b, expectedB);
+
+            TreeSet<Integer> and = new TreeSet<>(expectedA);
+            and.retainAll(expectedB);
+            sameAnd &= same(RoaringBitmap.and(a, b), and);
+
+            TreeSet<Integer> or = new TreeSet<>(expectedA);
+            or.addAll(expectedB);
+            sameOr &= same(RoaringBitmap.or(a, b), or);
+            RoaringBitmap extra = RoaringBitmap.of(5, 65_535, 65_536, Integer.MAX_VALUE);
+            or.addAll(List.of(5, 65_535, 65_536, Integer.MAX_VALUE));
+            sameOr &= same(RoaringBitmap.or(List.of(a, b, extra)), or);
+
+            TreeSet<Integer> andNot = new TreeSet<>(expectedA);
+            andNot.removeAll(expectedB);
+            sameAndNot &= same(RoaringBitmap.andNot(a, b), andNot);
+
+            for (int page = 0; page < 5; page++) {
+                int after = random.nextInt(450_000) - 1;
+                int limit = 1 + random.nextInt(200);
+                int[] expected = expectedA.tailSet(after, false).stream().limit(limit).mapToInt(Integer::intValue).toArray();
+                samePages &= Arrays.equals(a.toArray(after, limit), expected);
+            }
+        }
+        check("add and remove match TreeSet", sameValues);
+        check("and matches retainAll", sameAnd);
+        check("or matches addAll, also for several bitmaps", sameOr);
+        check("andNot matches removeAll", sameAndNot);
+        check("toArray(after, limit) matches tailSet pages", samePages);
+
+        // --- Paging edges ---
+        System.out.println("\n--- Testing paging edges ---");
+        RoaringBitmap edges = RoaringBitmap.of(0, 65_535, 65_536, 131_072, Integer.MAX_VALUE);
+        check("after -1 starts at 0", Arrays.equals(edges.toArray(-1, 2), new int[]{0, 65_535}));
+        check("a page crosses into the next group", Arrays.equals(edges.toArray(65_535, 2), new int[]{65_536, 131_072}));
+        check("after a missing group's values", Arrays.equals(edges.toArray(70_000, 10), new int[]{131_072, Integer.MAX_VALUE}));
+        check("after the largest value is empty", edges.toArray(Integer.MAX_VALUE, 10).length == 0);
+        check("limit 0 is empty", edges.toArray(-1, 0).length == 0);
+        check("negative values are refused", refusesNegative());
+        check("empty bitmap", new RoaringBitmap().isEmpty() && new RoaringBitmap().toArray(-1, 10).length == 0
+                && RoaringBitmap.and(edges, new RoaringBitmap()).isEmpty());
+
+        // --- Container switch ---
+        System.out.println("\n--- Testing the array/bitmap switch at " + ARRAY_MAX + " ---");
+        RoaringBitmap group = new RoaringBitmap();
+        for (int value = 0; value < ARRAY_MAX * 2; value += 2) {
+            group.add(value);
+        }
+        check(ARRAY_MAX + " values stay a sorted array", containerKinds(group).equals(List.of("ArrayContainer")));
+        group.add(ARRAY_MAX * 2); // The 4097th value
+        check("the " + (ARRAY_MAX + 1) + "th value turns it into a bitmap", containerKinds(group).equals(List.of("BitmapContainer"))
+                && group.getCardinality() == ARRAY_MAX + 1);
+        group.add(ARRAY_MAX * 2);
+        check("adding a value already there changes nothing", group.getCardinality() == ARRAY_MAX + 1);
+        group.remove(0);
+        check("back to " + ARRAY_MAX + " values it is an array again", containerKinds(group).equals(List.of("ArrayContainer")));
+        TreeSet<Integer> expectedGroup = new TreeSet<>();
+        for (int value = 2; value <= ARRAY_MAX * 2; value += 2) {
+            expectedGroup.add(value);
+        }
+        check("values survive both switches", same(group, expectedGroup));
+
+        RoaringBitmap evens = bitmapOf(range(0, 20_000, 2)); // 10000 values: a bitmap
+        RoaringBitmap sixths = bitmapOf(range(0, 20_000, 6)); // 3334 values: an array
+        RoaringBitmap odds = bitmapOf(range(1, 20_000, 2));
+        check("dense sets are bitmaps", containerKinds(evens).equals(List.of("BitmapContainer")));
+        check("a small and of two bitmaps is an array",
+                containerKinds(RoaringBitmap.and(evens, bitmapOf(range(0, 20_000, 3)))).equals(List.of("ArrayContainer")));
+        check("an andNot leaving few values is an array",
+                containerKinds(RoaringBitmap.andNot(evens, bitmapOf(range(0, 18_000, 2)))).equals(List.of("ArrayContainer")));
+        check("an or of two arrays past " + ARRAY_MAX + " is a bitmap", containerKinds(RoaringBitmap.or(sixths,
+                bitmapOf(range(1, 20_000, 6)))).equals(List.of("BitmapContainer")));
+        check("and of disjoint bitmaps drops the group", RoaringBitmap.and(evens, odds).isEmpty());
+        check("size follows the form: about 2 bytes a value as an array, 8 KB as a bitmap",
+                bitmapOf(range(0, 20_000, 20)).getSizeInBytes() < 4_096 && evens.getSizeInBytes() > 8_192);
+
+        Checks.finish("Roaring Bitmap");
+    }
+
+    private static TreeSet<Integer> randomSet(Random random, int bound, int count) {
+        TreeSet<Integer> values = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            values.add(random.nextInt(bound));
+        }
+        return values;
+    }
+
+    private static TreeSet<Integer> range(int from, int to, int step) {
+        TreeSet<Integer> values = new TreeSet<>();
+        for (int value = from; value < to; value += step) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    private static RoaringBitmap bitmapOf(TreeSet<Integer> values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        values.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    private static boolean same(RoaringBitmap bitmap, TreeSet<Integer> expected) {
+        int[] values = expected.stream().mapToInt(Integer::intValue).toArray();
+        if (!Arrays.equals(bitmap.toArray(), values) || bitmap.getCardinality() != values.length
+                || bitmap.isEmpty() != expected.isEmpty()) {
+            return false;
+        }
+        for (int value : values) {
+            if (!bitmap.contains(value) || bitmap.contains(value + 1) != expected.contains(value + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean refusesNegative() {
+        try {
+            new RoaringBitmap().add(-1);
+            return false;
+        } catch (IllegalArgumentException ex) {
+            return !RoaringBitmap.of(1).contains(-1);
+        }
+    }
+
+    // The containers are private; their class names tell the two forms apart
+    private static List<String> containerKinds(RoaringBitmap bitmap) throws ReflectiveOperationException {
+        Field containersField = RoaringBitmap.class.getDeclaredField("containers");
+        Field sizeField = RoaringBitmap.class.getDeclaredField("size");
+        containersField.setAccessible(true);
+        sizeField.setAccessible(true);
+        Object[] containers = (Object[]) containersField.get(bitmap);
+        List<String> kinds = new ArrayList<>();
+        for (int i = 0; i < sizeField.getInt(bitmap); i++) {
+            kinds.add(containers[i].getClass().getSimpleName());
+        }
+        return kinds;
+    }
+}
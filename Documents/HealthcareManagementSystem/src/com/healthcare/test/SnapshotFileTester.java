@@ -0,0 +1,179 @@
+package com.healthcare.test;
+
+import com.healthcare.model.Doctor;
+import com.healthcare.model.Patient;
+import com.healthcare.snapshot.ReferenceSnapshot;
+import com.healthcare.snapshot.SnapshotFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks the reference data snapshot file, no database needed: a snapshot reads back field for field, nulls,
+ * dates before 1970 and non-ASCII text included; saves alternate between the two slots and loading picks the
+ * newer; a damaged newer slot falls back to the older one, and a save after that still wins the next load;
+ * a file that is not a snapshot counts as missing, while damage in every slot is reported.
+ */
+public class SnapshotFileTester {
+
+    private static final String DATABASE = "jdbc:mysql://localhost:3306/healthcare_system_db";
+    private static final LocalDateTime CHANGED_UP_TO = LocalDateTime.of(2025, 6, 15, 9, 30, 12, 345_000_000);
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("--- Starting Snapshot File Tests ---");
+        Path directory = Files.createTempDirectory("snapshot-test");
+        try {
+            run(directory);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        Checks.finish("Snapshot File");
+    }
+
+    private static void run(Path directory) throws IOException {
+        Path path = directory.resolve("cache").resolve("reference.snapshot");
+        Path alternate = path.resolveSibling("reference.snapshot.alt");
+
+        // --- Round trip ---
+        System.out.println("\n--- Testing the round trip ---");
+        check("no file loads as no snapshot", new SnapshotFile(path).load() == null);
+        ReferenceSnapshot first = snapshot(3);
+        SnapshotFile writer = new SnapshotFile(path);
+        writer.save(first);
+        check("the first save creates the directories and the main slot", Files.exists(path) && !Files.exists(alternate));
+        ReferenceSnapshot loaded = new SnapshotFile(path).load();
+        check("the database URL and change times read back", loaded != null && DATABASE.equals(loaded.getDatabase())
+                && CHANGED_UP_TO.equals(loaded.getPatientsChangedUpTo()) && loaded.getDoctorsChangedUpTo() == null);
+        check("every patient reads back field for field", describePatients(loaded).equals(describePatients(first)));
+        check("every doctor reads back field for field", describeDoctors(loaded).equals(describeDoctors(first)));
+        ReferenceSnapshot empty = new ReferenceSnapshot(null, List.of(), null, List.of(), null);
+        SnapshotFile emptyFile = new SnapshotFile(directory.resolve("empty.snapshot"));
+        emptyFile.save(empty);
+        ReferenceSnapshot loadedEmpty = new SnapshotFile(emptyFile.getPath()).load();
+        check("an empty snapshot reads back empty", loadedEmpty != null && loadedEmpty.getDatabase() == null
+                && loadedEmpty.getPatients().isEmpty() && loadedEmpty.getDoctors().isEmpty()
+                && loadedEmpty.getPatientsChangedUpTo() == null);
+
+        // --- Slots ---
+        System.out.println("\n--- Testing the two slots ---");
+        ReferenceSnapshot second = snapshot(5);
+        writer.save(second);
+        check("the next save goes to the other slot", Files.exists(alternate));
+        check("loading picks the newer slot", patientCount(new SnapshotFile(path).load()) == 5);
+        SnapshotFile reader = new SnapshotFile(path);
+        reader.load();
+        reader.save(snapshot(7));
+        check("a save after loading replaces the slot that was not loaded",
+                patientCount(load(path)) == 7 && patientCount(load(alternate)) == 5);
+
+        // --- Damage ---
+        System.out.println("\n--- Testing damaged files ---");
+        flipLastByte(path); // The main slot holds the newest snapshot, 7 patients
+        SnapshotFile recovering = new SnapshotFile(path);
+        check("a checksum mismatch in the newer slot falls back to the older", patientCount(recovering.load()) == 5);
+        recovering.save(snapshot(9));
+        check("the save after a fallback overwrites the damaged slot and wins the next load",
+                patientCount(new SnapshotFile(path).load()) == 9);
+
+        flipLastByte(path);
+        flipLastByte(alternate);
+        check("damage in both slots is reported", fails(new SnapshotFile(path)));
+
+        Files.write(path, new byte[]{1, 2, 3});
+        Files.write(alternate, new byte[64]);
+        check("files too short or without the snapshot header count as missing", new SnapshotFile(path).load() == null);
+
+        new SnapshotFile(path).save(second);
+        byte[] whole = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(whole, whole.length - 10));
+        check("a truncated file is reported", fails(new SnapshotFile(path)));
+        byte[] longer = whole.clone();
+        ByteBuffer.wrap(longer).putInt(12, Integer.MAX_VALUE);
+        Files.write(path, longer);
+        check("a payload length past the end is reported", fails(new SnapshotFile(path)));
+    }
+
+    private static ReferenceSnapshot snapshot(int patients) {
+        List<Patient> patientList = new ArrayList<>();
+        for (int i = 1; i <= patients; i++) {
+            Patient patient = new Patient(i, "First" + i, "Last" + i, LocalDate.of(1950, 1, 1).plusYears(i * 7L),
+                    "Female", i + " Main St", "Boston", "MA", "02139", "555-000-" + i, "p" + i + "@example.com",
+                    LocalDateTime.of(2020, 1, 1, 8, 0).plusDays(i));
+            patient.setVersion(i * 2);
+            patientList.add(patient);
+        }
+        // Nulls, the epoch's edges and text beyond ASCII
+        Patient unknown = new Patient(patients + 100, "Zoë", "Müller-Łukasik", null, null, null, null, null, null, null,
+                null, null);
+        Patient beforeEpoch = new Patient(patients + 101, "", "O'Brien", LocalDate.of(1969, 12, 31), "Male", "", "東京",
+                null, "0", null, null, LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_999));
+        patientList.add(unknown);
+        patientList.add(beforeEpoch);
+        List<Doctor> doctors = List.of(new Doctor(1, "Ana", "Pérez", "Cardiology", "555-111-2222", "ana@example.com"),
+                new Doctor(2, "Ben", "Ode", null, null, null));
+        return new ReferenceSnapshot(DATABASE, patientList, CHANGED_UP_TO, doctors, null);
+    }
+
+    private static List<String> describePatients(ReferenceSnapshot snapshot) {
+        List<String> rows = new ArrayList<>();
+        for (Patient p : snapshot.getPatients()) {
+            rows.add(p.getPatientId() + "|" + p.getFirstName() + "|" + p.getLastName() + "|" + p.getDateOfBirth() + "|"
+                    + p.getGender() + "|" + p.getAddress() + "|" + p.getCity() + "|" + p.getState() + "|" + p.getZipCode()
+                    + "|" + p.getPhoneNumber() + "|" + p.getEmail() + "|" + p.getRegistrationDate() + "|" + p.getVersion());
+        }
+        return rows;
+    }
+
+    private static List<String> describeDoctors(ReferenceSnapshot snapshot) {
+        List<String> rows = new ArrayList<>();
+        for (Doctor d : snapshot.getDoctors()) {
+            rows.add(d.getDoctorId() + "|" + d.getFirstName() + "|" + d.getLastName() + "|" + d.getSpecialization() + "|"
+                    + d.getPhoneNumber() + "|" + d.getEmail());
+        }
+        return rows;
+    }
+
+    // The test snapshots carry two extra patients besides the numbered ones
+    private static int patientCount(ReferenceSnapshot snapshot) {
+        return snapshot != null ? snapshot.getPatients().size() - 2 : -1;
+    }
+
+    // Reads one slot alone, by copying it where a fresh SnapshotFile finds nothing else
+    private static ReferenceSnapshot load(Path slot) throws IOException {
+        Path copy = slot.resolveSibling("single").resolve("copy.snapshot");
+        Files.createDirectories(copy.getParent());
+        Files.copy(slot, copy, StandardCopyOption.REPLACE_EXISTING);
+        return new SnapshotFile(copy).load();
+    }
+
+    private static void flipLastByte(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+    }
+
+    private static boolean fails(SnapshotFile file) {
+        try {
+            file.load();
+            return false;
+        } catch (IOException ex) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.healthcare.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC driver for the testers in this package that answers every query from a handler, so the DAOs run
+ * unchanged without a database. {@link #install} points the connection settings at it.
+ */
+final class StandInDatabase implements Driver {
+
+    static final String URL = "jdbc:mysql://stand-in/healthcare_system_db";
+
+    /**
+     * Answers one query.
+     */
+    interface Handler {
+        /**
+         * @param parameters The bound values in placeholder order, as JDBC types (e.g. {@link java.sql.Timestamp}).
+         */
+        Rows query(String sql, List<Object> parameters) throws SQLException;
+    }
+
+    /**
+     * A query's result: the column labels, and the rows with their values in the same order.
+     */
+    static final class Rows {
+        private final List<String> columns;
+        private final List<Object[]> values;
+
+        Rows(List<String> columns, List<Object[]> values) {
+            this.columns = columns;
+            this.values = values;
+        }
+    }
+
+    private final Handler handler;
+
+    private StandInDatabase(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Makes the application connect to a stand-in answering through the handler.
+     */
+    static StandInDatabase install(Handler handler) throws SQLException {
+        System.setProperty("healthcare.db.url", URL);
+        System.setProperty("healthcare.db.password", "");
+        // Take the MySQL driver out of the way, or it would try to reach the stand-in URL itself
+        for (Driver driver : Collections.list(DriverManager.getDrivers())) {
+            DriverManager.deregisterDriver(driver);
+        }
+        StandInDatabase database = new StandInDatabase(handler);
+        DriverManager.registerDriver(database);
+        return database;
+    }
+
+    void uninstall() throws SQLException {
+        DriverManager.deregisterDriver(this);
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) {
+        if (!acceptsURL(url)) {
+            return null;
+        }
+        return proxy(Connection.class, (connection, method, args) -> {
+            if (method.getName().equals("createStatement")) {
+                return proxy(Statement.class, (statement, m, a) -> m.getName().equals("executeQuery")
+                        ? resultSet(handler.query((String) a[0], List.of())) : defaultValue(m.getReturnType()));
+            }
+            if (method.getName().equals("prepareStatement")) {
+                String sql = (String) args[0];
+                Map<Integer, Object> parameters = new TreeMap<>();
+                return proxy(PreparedStatement.class, (statement, m, a) -> {
+                    if (m.getName().startsWith("set") && a != null && a.length >= 2 && a[0] instanceof Integer) {
+                        parameters.put((Integer) a[0], m.getName().equals("setNull") ? null : a[1]);
+                        return null;
+                    }
+                    return m.getName().equals("executeQuery")
+                            ? resultSet(handler.query(sql, new ArrayList<>(parameters.values()))) : defaultValue(m.getReturnType());
+                });
+            }
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    private static ResultSet resultSet(Rows rows) {
+        int[] position = {-1};
+        boolean[] wasNull = {false};
+        return proxy(ResultSet.class, (resultSet, method, args) -> {
+            String name = method.getName();
+            if (name.equals("next")) {
+                return ++position[0] < rows.values.size();
+            }
+            if (name.equals("wasNull")) {
+                return wasNull[0];
+            }
+            if (!name.startsWith("get") || args == null || args.length != 1) {
+                return defaultValue(method.getReturnType());
+            }
+            int column = args[0] instanceof Integer ? (Integer) args[0] - 1 : rows.columns.indexOf(args[0]);
+            if (column < 0) {
+                throw new SQLException("Column '" + args[0] + "' not found");
+            }
+            Object value = rows.values.get(position[0])[column];
+            wasNull[0] = value == null;
+            if (value == null) {
+                return defaultValue(method.getReturnType());
+            }
+            if (method.getReturnType() == int.class) {
+                return ((Number) value).intValue();
+            }
+            if (method.getReturnType() == long.class) {
+                return ((Number) value).longValue();
+            }
+            if (method.getReturnType() == double.class) {
+                return ((Number) value).doubleValue();
+            }
+            return value;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StandInDatabase.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        return null; // The DAOs call nothing else that returns a primitive
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return URL.equals(url);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
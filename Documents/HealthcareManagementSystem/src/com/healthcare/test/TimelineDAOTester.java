@@ -0,0 +1,190 @@
+package com.healthcare.test;
+
+import com.healthcare.dao.TimelineDAO;
+import com.healthcare.model.TimelineEntry;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.healthcare.test.Checks.check;
+
+/**
+ * Checks the keyset paging of {@link TimelineDAO}, no database needed: paging through a patient's timeline with
+ * any page size gives every appointment and medical record once, newest first, with entries at the same time
+ * ordered medical record before appointment and then by descending ID, however the page boundaries fall.
+ * The UNION ALL query runs on a {@link StandInDatabase} that evaluates each branch's keyset condition, ORDER BY
+ * and LIMIT the way MySQL would.
+ */
+public class TimelineDAOTester {
+
+    private static final int PATIENT = 7;
+    private static final LocalDateTime NOON = LocalDateTime.of(2025, 3, 10, 12, 0);
+
+    // One branch of the UNION: its table, the keyset condition after "patient_id = ?", and its LIMIT
+    private static final Pattern BRANCH = Pattern.compile("FROM (Appointments|Medical_History) WHERE patient_id = \\?(.*?) ORDER BY");
+
+    // Rows of both tables as the query's columns: kind, id, patient, doctor, event time, title, detail
+    private static final List<Object[]> rows = new ArrayList<>();
+    private static final List<String> queries = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("--- Starting Timeline DAO Tests ---");
+        // Ties on purpose: a record and an appointment at noon, two appointments and two records at the same times
+        add(TimelineEntry.TYPE_APPOINTMENT, 10, PATIENT, 1, NOON, "Scheduled", "Check-up");
+        add(TimelineEntry.TYPE_MEDICAL_RECORD, 20, PATIENT, null, NOON, "Flu", "Rest");
+        add(TimelineEntry.TYPE_APPOINTMENT, 11, PATIENT, 2, NOON.minusDays(1), "Completed", "Cough");
+        add(TimelineEntry.TYPE_APPOINTMENT, 12, PATIENT, 2, NOON.minusDays(1), "Cancelled", "Cough");
+        add(TimelineEntry.TYPE_MEDICAL_RECORD, 21, PATIENT, 1, NOON.minusDays(2), "Asthma", "Inhaler");
+        add(TimelineEntry.TYPE_MEDICAL_RECORD, 22, PATIENT, 1, NOON.minusDays(2), "Asthma", "Steroids");
+        add(TimelineEntry.TYPE_APPOINTMENT, 13, PATIENT, 1, NOON.minusDays(2), "Completed", "Asthma");
+        add(TimelineEntry.TYPE_APPOINTMENT, 14, PATIENT + 1, 1, NOON, "Scheduled", "Another patient");
+        add(TimelineEntry.TYPE_MEDICAL_RECORD, 23, PATIENT + 1, 1, NOON, "Another patient", null);
+        Random random = new Random(29);
+        for (int id = 100; id < 160; id++) {
+            add(random.nextBoolean() ? TimelineEntry.TYPE_APPOINTMENT : TimelineEntry.TYPE_MEDICAL_RECORD, id, PATIENT, 3,
+                    NOON.minusDays(3 + random.nextInt(10)).withHour(8 + random.nextInt(3)), "Random", null);
+        }
+        StandInDatabase database = StandInDatabase.install(TimelineDAOTester::query);
+        TimelineDAO timelineDAO = new TimelineDAO();
+        List<String> expected = expectedOrder(PATIENT);
+
+        // --- First page ---
+        System.out.println("\n--- Testing the first page ---");
+        List<TimelineEntry> first = timelineDAO.getTimelinePage(PATIENT, null, 5);
+        check("newest first, a record before an appointment at the same time, then by descending ID " + keys(first),
+                keys(first).equals(List.of("R20", "A10", "A12", "A11", "R22")));
+        check("entries carry the patient, doctor, time, title and detail", first.get(0).getDoctorId() == null
+                && first.get(0).getPatientId() == PATIENT && first.get(0).getEventTime().equals(NOON)
+                && first.get(0).getTitle().equals("Flu") && first.get(0).getDetail().equals("Rest")
+                && first.get(1).getDoctorId() == 1 && first.get(1).isAppointment());
+        check("the first page has no keyset condition", !queries.get(queries.size() - 1).contains(" < ?")
+                && !queries.get(queries.size() - 1).contains(" <= ?"));
+
+        // --- Paging ---
+        System.out.println("\n--- Testing paging across the UNION ---");
+        for (int pageSize : new int[]{1, 2, 3, 4, 7, 50, 100}) {
+            List<String> paged = new ArrayList<>();
+            TimelineEntry after = null;
+            int pages = 0;
+            List<TimelineEntry> page;
+            do {
+                page = timelineDAO.getTimelinePage(PATIENT, after, pageSize);
+                for (TimelineEntry entry : page) {
+                    paged.add(key(entry));
+                    after = entry;
+                }
+                pages++;
+            } while (page.size() == pageSize && pages <= expected.size() + 1);
+            check("pages of " + pageSize + " give every entry once, in order", paged.equals(expected));
+        }
+        check("a cursor on an appointment leaves out the records at its time, which come before it",
+                keys(timelineDAO.getTimelinePage(PATIENT, entry(TimelineEntry.TYPE_APPOINTMENT, 13, NOON.minusDays(2)), 3))
+                        .equals(expected.subList(expected.indexOf("A13") + 1, expected.indexOf("A13") + 4)));
+        check("a cursor on a record still reads the appointments at its time", keys(timelineDAO.getTimelinePage(PATIENT,
+                entry(TimelineEntry.TYPE_MEDICAL_RECORD, 20, NOON), 2)).equals(List.of("A10", "A12")));
+        check("past the oldest entry the page is empty", timelineDAO.getTimelinePage(PATIENT,
+                entry(TimelineEntry.TYPE_APPOINTMENT, 1, NOON.minusYears(1)), 10).isEmpty());
+        check("other patients' entries never appear", timelineDAO.getTimelinePage(PATIENT + 1, null, 10).size() == 2
+                && !expected.contains("A14") && !expected.contains("R23"));
+
+        database.uninstall();
+        Checks.finish("Timeline DAO");
+    }
+
+    private static void add(String kind, int id, int patientId, Integer doctorId, LocalDateTime time, String title,
+                            String detail) {
+        rows.add(new Object[]{kind, id, patientId, doctorId, Timestamp.valueOf(time), title, detail});
+    }
+
+    private static TimelineEntry entry(String type, int id, LocalDateTime time) {
+        return new TimelineEntry(type, id, PATIENT, null, time, null, null);
+    }
+
+    // The order the timeline is defined by: event time, kind, ID, all descending
+    private static List<String> expectedOrder(int patientId) {
+        List<String> keys = new ArrayList<>();
+        rows.stream().filter(row -> (int) row[2] == patientId).sorted(ORDER)
+                .forEach(row -> keys.add((String) row[0] + row[1]));
+        return keys;
+    }
+
+    private static final Comparator<Object[]> ORDER = Comparator.<Object[], Timestamp>comparing(row -> (Timestamp) row[4])
+            .thenComparing(row -> (String) row[0]).thenComparingInt(row -> (int) row[1]).reversed();
+
+    /**
+     * Evaluates the timeline query: each branch filters its table by patient and keyset condition, sorts and
+     * limits, then the union is sorted and limited again.
+     */
+    private static synchronized StandInDatabase.Rows query(String sql, List<Object> parameters) throws SQLException {
+        queries.add(sql);
+        String[] branches = sql.split(" UNION ALL ");
+        if (branches.length != 2) {
+            throw new SQLException("Not the timeline query: " + sql);
+        }
+        List<Object[]> union = new ArrayList<>();
+        int next = 0;
+        for (String branch : branches) {
+            Matcher matcher = BRANCH.matcher(branch);
+            if (!matcher.find()) {
+                throw new SQLException("Unexpected branch: " + branch);
+            }
+            String kind = matcher.group(1).equals("Appointments") ? TimelineEntry.TYPE_APPOINTMENT : TimelineEntry.TYPE_MEDICAL_RECORD;
+            String condition = matcher.group(2);
+            int patientId = (Integer) parameters.get(next++);
+            Timestamp before = null;
+            Timestamp equal = null;
+            Integer idBelow = null;
+            boolean inclusive = false;
+            if (condition.contains(" OR (")) {
+                before = (Timestamp) parameters.get(next++);
+                equal = (Timestamp) parameters.get(next++);
+                idBelow = (Integer) parameters.get(next++);
+            } else if (condition.contains(" <= ?")) {
+                before = (Timestamp) parameters.get(next++);
+                inclusive = true;
+            } else if (condition.contains(" < ?")) {
+                before = (Timestamp) parameters.get(next++);
+            } else if (!condition.isEmpty()) {
+                throw new SQLException("Unexpected keyset condition: " + condition);
+            }
+            int limit = (Integer) parameters.get(next++);
+            List<Object[]> selected = new ArrayList<>();
+            for (Object[] row : rows) {
+                Timestamp time = (Timestamp) row[4];
+                boolean passes = before == null || time.before(before) || inclusive && time.equals(before)
+                        || equal != null && time.equals(equal) && (int) row[1] < idBelow;
+                if (row[0].equals(kind) && (int) row[2] == patientId && passes) {
+                    selected.add(row);
+                }
+            }
+            selected.sort(ORDER);
+            union.addAll(selected.subList(0, Math.min(limit, selected.size())));
+        }
+        union.sort(ORDER);
+        int limit = (Integer) parameters.get(next);
+        List<Object[]> page = new ArrayList<>();
+        for (Object[] row : union.subList(0, Math.min(limit, union.size()))) {
+            page.add(new Object[]{row[0], row[1], row[3], row[4], row[5], row[6]});
+        }
+        return new StandInDatabase.Rows(List.of("kind", "id", "doctor_id", "event_time", "title", "detail"), page);
+    }
+
+    private static String key(TimelineEntry entry) {
+        return entry.getType() + entry.getId();
+    }
+
+    private static List<String> keys(List<TimelineEntry> entries) {
+        List<String> keys = new ArrayList<>();
+        for (TimelineEntry entry : entries) {
+            keys.add(key(entry));
+        }
+        return keys;
+    }
+}
@@ -1,8 +1,12 @@
 package com.healthcare.ui;
 
 import com.healthcare.dao.AppointmentDAO;
+import com.healthcare.dao.DaoFactory;
 import com.healthcare.dao.DoctorDAO;
 import com.healthcare.dao.PatientDAO;
+import com.healthcare.dao.UpdateResult;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
 import com.healthcare.model.Appointment;
 import com.healthcare.model.Doctor;
 import com.healthcare.model.Patient;
@@ -43,16 +47,24 @@ public class AppointmentPanel extends JPanel {
     private JComboBox<String> statusComboBox;
 
     // Maps to quickly get ID from selected name in ComboBox
-    private Map<String, Integer> patientMap;
-    private Map<String, Integer> doctorMap; // Can store null for "No Doctor" option
+    private Map<String, Integer> patientMap = new HashMap<>();
+    private Map<String, Integer> doctorMap = new HashMap<>(); // Can store null for "No Doctor" option
+    private EntityComboBinder patientBinder;
+    private EntityComboBinder doctorBinder;
+
+    // Names shown in the table, by ID, so rows are built without a lookup per appointment
+    private Map<Integer, String> patientNames = new HashMap<>();
+    private Map<Integer, String> doctorNames = new HashMap<>();
+    private Map<Integer, Appointment> shownAppointments = new HashMap<>(); // To relabel rows when a name changes
 
     // For update functionality - store selected appointment ID
     private int selectedAppointmentId = -1;
+    private Appointment selectedAppointment; // As shown when selected; the update only writes what differs from it
 
     public AppointmentPanel() {
-        appointmentDAO = new AppointmentDAO();
-        patientDAO = new PatientDAO(); // Initialize PatientDAO
-        doctorDAO = new DoctorDAO();   // Initialize DoctorDAO
+        appointmentDAO = DaoFactory.createAppointmentDAO();
+        patientDAO = DaoFactory.createPatientDAO(); // Initialize PatientDAO
+        doctorDAO = DaoFactory.createDoctorDAO();   // Initialize DoctorDAO
 
         setLayout(new BorderLayout(10, 10));
 
@@ -80,6 +92,8 @@ public class AppointmentPanel extends JPanel {
         reasonArea = new JTextArea(3, 20);
         JScrollPane reasonScrollPane = new JScrollPane(reasonArea);
         statusComboBox = new JComboBox<>(new String[]{"Scheduled", "Completed", "Cancelled"});
+        patientBinder = new EntityComboBinder(patientComboBox, patientMap, "No Patients Available");
+        doctorBinder = new EntityComboBinder(doctorComboBox, doctorMap, "No Doctors Available");
 
         // Populate Patient and Doctor ComboBoxes
         populateComboBoxes();
@@ -139,6 +153,9 @@ public class AppointmentPanel extends JPanel {
 
         // Populate table on load
         loadAppointmentsIntoTable();
+
+        // Keep the table and dropdowns in sync with changes made here or in other tabs
+        ChangeEventBus.getInstance().subscribeBatches(this::applyChanges, true);
     }
 
     private int addFormField(JPanel panel, GridBagConstraints gbc, String labelText, JComponent field, int row) {
@@ -157,35 +174,19 @@ public class AppointmentPanel extends JPanel {
     }
 
     private void populateComboBoxes() {
-        patientComboBox.removeAllItems();
-        doctorComboBox.removeAllItems();
-        patientMap = new HashMap<>();
-        doctorMap = new HashMap<>();
-
-        List<Patient> patients = patientDAO.getAllPatients();
-        if (patients.isEmpty()) {
-            patientComboBox.addItem("No Patients Available");
-            patientComboBox.setEnabled(false);
-        } else {
-            patientComboBox.setEnabled(true);
-            for (Patient p : patients) {
-                String fullName = p.getFirstName() + " " + p.getLastName() + " (ID: " + p.getPatientId() + ")";
-                patientComboBox.addItem(fullName);
-                patientMap.put(fullName, p.getPatientId());
-            }
+        patientBinder.clear();
+        doctorBinder.clear();
+        patientNames.clear();
+        doctorNames.clear();
+
+        List<Patient> patients = StartupLoader.patientsOr(patientDAO::getAllPatients);
+        for (Patient p : patients) {
+            putPatient(p);
         }
 
-        List<Doctor> doctors = doctorDAO.getAllDoctors();
-        if (doctors.isEmpty()) {
-            doctorComboBox.addItem("No Doctors Available");
-            doctorComboBox.setEnabled(false);
-        } else {
-            doctorComboBox.setEnabled(true);
-            for (Doctor d : doctors) {
-                String fullName = d.getFirstName() + " " + d.getLastName() + " (" + d.getSpecialization() + ")";
-                doctorComboBox.addItem(fullName);
-                doctorMap.put(fullName, d.getDoctorId());
-            }
+        List<Doctor> doctors = StartupLoader.doctorsOr(doctorDAO::getAllDoctors);
+        for (Doctor d : doctors) {
+            putDoctor(d);
         }
 
         if (patients.isEmpty() || doctors.isEmpty()) {
@@ -220,7 +221,6 @@ public class AppointmentPanel extends JPanel {
 
             if (appointmentId != -1) {
                 JOptionPane.showMessageDialog(this, "Appointment scheduled successfully! ID: " + appointmentId, "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadAppointmentsIntoTable();
                 clearForm();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to schedule appointment. Check logs for details.", "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -256,15 +256,27 @@ public class AppointmentPanel extends JPanel {
                 return;
             }
 
-            Appointment appointmentToUpdate = new Appointment(selectedAppointmentId, patientId, doctorId, apptDate, apptTime, reason, status);
-            boolean updated = appointmentDAO.updateAppointment(appointmentToUpdate);
-
-            if (updated) {
-                JOptionPane.showMessageDialog(this, "Appointment updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadAppointmentsIntoTable();
-                clearForm();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to update appointment.", "Database Error", JOptionPane.ERROR_MESSAGE);
+            Appointment original = selectedAppointment;
+            Appointment edited = new Appointment(selectedAppointmentId, patientId, doctorId, apptDate, apptTime, reason, status);
+            UpdateResult<Appointment> result = appointmentDAO.updateAppointment(original, edited);
+
+            switch (result.getStatus()) {
+                case UPDATED:
+                    JOptionPane.showMessageDialog(this, "Appointment updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    clearForm();
+                    break;
+                case CONFLICT:
+                    Appointment current = result.getRow();
+                    fillForm(AppointmentDAO.mergeEdits(original, edited, current));
+                    selectedAppointment = current;
+                    EditConflicts.showConflict(this, "appointment");
+                    break;
+                case NOT_FOUND:
+                    EditConflicts.showDeleted(this, "appointment");
+                    clearForm();
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(this, "Failed to update appointment.", "Database Error", JOptionPane.ERROR_MESSAGE);
             }
 
         } catch (Exception ex) {
@@ -290,7 +302,6 @@ public class AppointmentPanel extends JPanel {
             boolean deleted = appointmentDAO.deleteAppointment(appointmentIdToDelete);
             if (deleted) {
                 JOptionPane.showMessageDialog(this, "Appointment deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadAppointmentsIntoTable();
                 clearForm();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete appointment.", "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -300,37 +311,93 @@ public class AppointmentPanel extends JPanel {
 
     private void loadAppointmentsIntoTable() {
         tableModel.setRowCount(0); // Clear existing data
-        List<Appointment> appointments = appointmentDAO.getAllAppointments();
+        shownAppointments.clear();
+        List<Appointment> appointments = StartupLoader.appointmentsOr(appointmentDAO::getAllAppointments);
 
         for (Appointment appt : appointments) {
-            // To display patient and doctor names instead of just IDs in the table
-            String patientName = "N/A";
-            Patient patient = patientDAO.getPatientById(appt.getPatientId());
-            if (patient != null) {
-                patientName = patient.getFirstName() + " " + patient.getLastName();
-            }
-
-            String doctorName = "N/A";
-            Doctor doctor = doctorDAO.getDoctorById(appt.getDoctorId());
-            if (doctor != null) {
-                doctorName = doctor.getFirstName() + " " + doctor.getLastName() + " (" + doctor.getSpecialization() + ")";
-            }
-
-            tableModel.addRow(new Object[]{
-                    appt.getAppointmentId(),
-                    patientName,
-                    doctorName,
-                    appt.getAppointmentDate(),
-                    appt.getAppointmentTime(),
-                    appt.getReason(),
-                    appt.getStatus()
-            });
+            tableModel.addRow(toRow(appt));
+            shownAppointments.put(appt.getAppointmentId(), appt);
         }
         if (appointments.isEmpty()) {
             System.out.println("No appointments found.");
         }
     }
 
+    private Object[] toRow(Appointment appt) {
+        // To display patient and doctor names instead of just IDs in the table
+        return new Object[]{
+                appt.getAppointmentId(),
+                patientNames.getOrDefault(appt.getPatientId(), "N/A"),
+                doctorNames.getOrDefault(appt.getDoctorId(), "N/A"),
+                appt.getAppointmentDate(),
+                appt.getAppointmentTime(),
+                appt.getReason(),
+                appt.getStatus()
+        };
+    }
+
+    private void putPatient(Patient p) {
+        patientBinder.put(p.getPatientId(), p.getFirstName() + " " + p.getLastName() + " (ID: " + p.getPatientId() + ")");
+        patientNames.put(p.getPatientId(), p.getFirstName() + " " + p.getLastName());
+    }
+
+    private void putDoctor(Doctor d) {
+        String fullName = d.getFirstName() + " " + d.getLastName() + " (" + d.getSpecialization() + ")";
+        doctorBinder.put(d.getDoctorId(), fullName);
+        doctorNames.put(d.getDoctorId(), fullName);
+    }
+
+    /**
+     * Applies a batch of change events: appointment rows are updated in place, and
+     * patient/doctor changes from other tabs update the dropdowns and the names shown in the table.
+     */
+    private void applyChanges(List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            boolean deleted = event.getOperation() == ChangeEvent.Operation.DELETE;
+            switch (event.getEntity()) {
+                case APPOINTMENT:
+                    if (deleted) {
+                        TableRows.remove(tableModel, event.getId());
+                        shownAppointments.remove(event.getId());
+                    } else if (event.getPayload(Appointment.class) != null) {
+                        Appointment appt = event.getPayload(Appointment.class);
+                        TableRows.upsert(tableModel, toRow(appt));
+                        shownAppointments.put(appt.getAppointmentId(), appt);
+                    }
+                    break;
+                case PATIENT:
+                    if (deleted) {
+                        patientBinder.remove(event.getId());
+                    } else if (event.getPayload(Patient.class) != null) {
+                        putPatient(event.getPayload(Patient.class));
+                        refreshRowsFor(event.getId(), true);
+                    }
+                    break;
+                case DOCTOR:
+                    if (deleted) {
+                        doctorBinder.remove(event.getId());
+                    } else if (event.getPayload(Doctor.class) != null) {
+                        putDoctor(event.getPayload(Doctor.class));
+                        refreshRowsFor(event.getId(), false);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the rows of appointments that reference a patient (or doctor) whose name may have changed.
+     */
+    private void refreshRowsFor(int id, boolean patient) {
+        for (Appointment appt : shownAppointments.values()) {
+            if ((patient ? appt.getPatientId() : appt.getDoctorId()) == id) {
+                TableRows.updateIfPresent(tableModel, toRow(appt));
+            }
+        }
+    }
+
     private void clearForm() {
         if (patientComboBox.getItemCount() > 0) patientComboBox.setSelectedIndex(0);
         if (doctorComboBox.getItemCount() > 0) doctorComboBox.setSelectedIndex(0);
@@ -339,12 +406,14 @@ public class AppointmentPanel extends JPanel {
         reasonArea.setText("");
         statusComboBox.setSelectedItem("Scheduled");
         selectedAppointmentId = -1; // Reset selected ID
+        selectedAppointment = null;
     }
 
     private void populateFormFromTable() {
         int selectedRow = appointmentTable.getSelectedRow();
         if (selectedRow != -1) {
             selectedAppointmentId = (int) tableModel.getValueAt(selectedRow, 0); // Appointment ID
+            selectedAppointment = shownAppointments.get(selectedAppointmentId);
 
             // Populate patient and doctor dropdowns by their names
             String patientFullName = (String) tableModel.getValueAt(selectedRow, 1);
@@ -365,4 +434,13 @@ public class AppointmentPanel extends JPanel {
             statusComboBox.setSelectedItem((String) tableModel.getValueAt(selectedRow, 6));
         }
     }
+
+    private void fillForm(Appointment appointment) {
+        patientComboBox.setSelectedItem(patientNames.get(appointment.getPatientId()));
+        doctorComboBox.setSelectedItem(doctorNames.get(appointment.getDoctorId()));
+        appointmentDatePicker.setDate(appointment.getAppointmentDate());
+        appointmentTimePicker.setTime(appointment.getAppointmentTime());
+        reasonArea.setText(appointment.getReason());
+        statusComboBox.setSelectedItem(appointment.getStatus());
+    }
 }
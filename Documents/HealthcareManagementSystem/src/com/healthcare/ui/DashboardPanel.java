@@ -0,0 +1,238 @@
+package com.healthcare.ui;
+
+import com.healthcare.dao.StatsDAO;
+import com.healthcare.stats.AggregateStore;
+import com.healthcare.util.DaoMetrics;
+import com.healthcare.util.DatabaseConnection;
+import com.healthcare.util.LatencyHistogram;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Dashboard tab showing live operational numbers.
+ * The numbers are refreshed on a background timer from the incrementally maintained
+ * {@link AggregateStore} (falling back to aggregate queries if it cannot be seeded)
+ * and in-memory metrics, never by loading whole tables.
+ */
+public class DashboardPanel extends JPanel {
+
+    private static final int REFRESH_INTERVAL_MS = 5000;
+    // Re-seed the counters periodically to pick up writes made by other workstations
+    private static final long RESEED_INTERVAL_MS = 5 * 60 * 1000;
+    private static final String[] STATUSES = {"Scheduled", "Completed", "Cancelled"};
+
+    private final StatsDAO statsDAO;
+    private final Timer refreshTimer;
+    private boolean refreshInProgress = false;
+
+    // Today's appointments
+    private final JLabel[] statusValueLabels = new JLabel[STATUSES.length];
+    private JLabel totalTodayLabel;
+
+    // Patients and database
+    private JLabel patientsThisWeekLabel;
+    private JLabel inFlightLabel;
+    private JLabel connectionsOpenedLabel;
+
+    private DefaultTableModel latencyTableModel;
+    private JLabel lastRefreshedLabel;
+
+    public DashboardPanel() {
+        statsDAO = new StatsDAO();
+        setLayout(new BorderLayout(10, 10));
+        setBackground(new Color(240, 248, 255)); // Light blue background
+
+        JLabel welcomeLabel = new JLabel("Welcome to Healthcare Management System!", SwingConstants.CENTER);
+        welcomeLabel.setFont(new Font("Arial", Font.BOLD, 30));
+        welcomeLabel.setForeground(new Color(25, 25, 112)); // Dark blue text
+        welcomeLabel.setBorder(BorderFactory.createEmptyBorder(15, 0, 0, 0));
+        add(welcomeLabel, BorderLayout.NORTH);
+
+        // --- Stat cards and latency table (Center) ---
+        JPanel centerPanel = new JPanel(new BorderLayout(10, 10));
+        centerPanel.setOpaque(false);
+        centerPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 10));
+
+        JPanel cardsPanel = new JPanel(new GridLayout(1, 3, 10, 10));
+        cardsPanel.setOpaque(false);
+        cardsPanel.add(createAppointmentsCard());
+        cardsPanel.add(createPatientsCard());
+        cardsPanel.add(createDatabaseCard());
+        centerPanel.add(cardsPanel, BorderLayout.NORTH);
+
+        String[] columnNames = {"DAO Operation", "Calls", "Mean (ms)", "p50 (ms)", "p95 (ms)", "p99 (ms)"};
+        latencyTableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable latencyTable = new JTable(latencyTableModel);
+        JScrollPane scrollPane = new JScrollPane(latencyTable);
+        scrollPane.setBorder(BorderFactory.createTitledBorder("DAO Latency"));
+        centerPanel.add(scrollPane, BorderLayout.CENTER);
+
+        add(centerPanel, BorderLayout.CENTER);
+
+        lastRefreshedLabel = new JLabel("Use the tabs above to navigate through different modules.", SwingConstants.CENTER);
+        lastRefreshedLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        lastRefreshedLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+        add(lastRefreshedLabel, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+        refreshTimer.setInitialDelay(0);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start(); // Only poll while the dashboard is part of a visible window
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+
+    private JPanel createAppointmentsCard() {
+        JPanel card = createCard("Today's Appointments");
+        for (int i = 0; i < STATUSES.length; i++) {
+            statusValueLabels[i] = addCardRow(card, STATUSES[i] + ":");
+        }
+        totalTodayLabel = addCardRow(card, "Total:");
+        return card;
+    }
+
+    private JPanel createPatientsCard() {
+        JPanel card = createCard("Patients");
+        patientsThisWeekLabel = addCardRow(card, "Registered this week:");
+        return card;
+    }
+
+    private JPanel createDatabaseCard() {
+        JPanel card = createCard("Database");
+        inFlightLabel = addCardRow(card, "Active DAO calls:");
+        connectionsOpenedLabel = addCardRow(card, "Connections opened:");
+        return card;
+    }
+
+    private JPanel createCard(String title) {
+        JPanel card = new JPanel(new GridLayout(0, 2, 5, 5));
+        card.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createTitledBorder(title),
+                BorderFactory.createEmptyBorder(5, 10, 5, 10)));
+        return card;
+    }
+
+    private JLabel addCardRow(JPanel card, String labelText) {
+        JLabel valueLabel = new JLabel("-");
+        valueLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        card.add(new JLabel(labelText));
+        card.add(valueLabel);
+        return valueLabel;
+    }
+
+    /**
+     * Runs the aggregate queries on a background thread and updates the labels on the EDT.
+     * A refresh is skipped if the previous one has not finished yet.
+     */
+    private void refresh() {
+        if (refreshInProgress) {
+            return;
+        }
+        refreshInProgress = true;
+
+        new SwingWorker<Object[], Void>() {
+            @Override
+            protected Object[] doInBackground() {
+                LocalDate today = LocalDate.now();
+                LocalDate weekStart = today.with(DayOfWeek.MONDAY);
+
+                AggregateStore store = AggregateStore.getInstance();
+                if (!store.seedIfStale(RESEED_INTERVAL_MS)) {
+                    Map<String, Integer> todayByStatus = statsDAO.countAppointmentsByStatus(today);
+                    int registeredThisWeek = statsDAO.countPatientsRegisteredSince(weekStart.atStartOfDay());
+                    return new Object[]{todayByStatus, registeredThisWeek};
+                }
+
+                Map<String, Integer> todayByStatus = new LinkedHashMap<>();
+                long knownStatuses = 0;
+                for (String status : STATUSES) {
+                    long count = store.getAppointmentCount(today, status);
+                    todayByStatus.put(status, (int) count);
+                    knownStatuses += count;
+                }
+                long other = store.getAppointmentCount(today) - knownStatuses;
+                if (other > 0) {
+                    todayByStatus.put("Other", (int) other);
+                }
+                int registeredThisWeek = (int) store.getRegistrationCount(weekStart, today);
+                return new Object[]{todayByStatus, registeredThisWeek};
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected void done() {
+                try {
+                    Object[] result = get();
+                    showAppointmentCounts((Map<String, Integer>) result[0]);
+                    int registered = (Integer) result[1];
+                    patientsThisWeekLabel.setText(registered < 0 ? "n/a" : String.valueOf(registered));
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                } finally {
+                    showDatabaseMetrics();
+                    lastRefreshedLabel.setText("Last refreshed: "
+                            + LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+                    refreshInProgress = false;
+                }
+            }
+        }.execute();
+    }
+
+    private void showAppointmentCounts(Map<String, Integer> todayByStatus) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            statusValueLabels[i].setText(String.valueOf(todayByStatus.getOrDefault(STATUSES[i], 0)));
+        }
+        int total = 0;
+        for (int count : todayByStatus.values()) {
+            total += count; // Includes any custom statuses beyond the three shown
+        }
+        totalTodayLabel.setText(String.valueOf(total));
+    }
+
+    private void showDatabaseMetrics() {
+        inFlightLabel.setText(String.valueOf(DaoMetrics.getInFlight()));
+        connectionsOpenedLabel.setText(String.valueOf(DatabaseConnection.getConnectionsOpened()));
+
+        latencyTableModel.setRowCount(0);
+        latencyTableModel.addRow(latencyRow("All operations", DaoMetrics.getOverall()));
+        for (Map.Entry<String, LatencyHistogram> entry : DaoMetrics.getByOperation().entrySet()) {
+            latencyTableModel.addRow(latencyRow(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private Object[] latencyRow(String name, LatencyHistogram histogram) {
+        return new Object[]{
+                name,
+                histogram.getCount(),
+                formatMillis(histogram.getMeanMicros()),
+                formatMillis(histogram.getPercentileMicros(50)),
+                formatMillis(histogram.getPercentileMicros(95)),
+                formatMillis(histogram.getPercentileMicros(99))
+        };
+    }
+
+    private static String formatMillis(double micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+}
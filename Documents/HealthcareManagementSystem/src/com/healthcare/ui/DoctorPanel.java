@@ -1,6 +1,9 @@
 package com.healthcare.ui;
 
+import com.healthcare.dao.DaoFactory;
 import com.healthcare.dao.DoctorDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
 import com.healthcare.model.Doctor;
 
 import javax.swing.*;
@@ -26,7 +29,7 @@ public class DoctorPanel extends JPanel {
     private int selectedDoctorId = -1;
 
     public DoctorPanel() {
-        doctorDAO = new DoctorDAO();
+        doctorDAO = DaoFactory.createDoctorDAO();
         setLayout(new BorderLayout(10, 10)); // Add some spacing
 
         // --- Form Panel (North) ---
@@ -120,6 +123,9 @@ public class DoctorPanel extends JPanel {
 
         // Populate table on load
         loadDoctorsIntoTable();
+
+        // Keep the table in sync with changes made here or in other tabs
+        ChangeEventBus.getInstance().subscribeBatches(this::applyChanges, true);
     }
 
     private int addFormField(JPanel panel, GridBagConstraints gbc, String labelText, JComponent field, int row) {
@@ -150,12 +156,17 @@ public class DoctorPanel extends JPanel {
                 return;
             }
 
+            int existingId = doctorDAO.findDoctorIdByEmail(email);
+            if (existingId != -1) {
+                JOptionPane.showMessageDialog(this, "Doctor ID " + existingId + " already has the email " + email + ".", "Duplicate Email", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
             Doctor newDoctor = new Doctor(firstName, lastName, specialization, phone, email);
             int doctorId = doctorDAO.addDoctor(newDoctor);
 
             if (doctorId != -1) {
                 JOptionPane.showMessageDialog(this, "Doctor added successfully! ID: " + doctorId, "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadDoctorsIntoTable(); // Refresh table
                 clearForm(); // Clear form after successful addition
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to add doctor. Check logs for details.", "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -190,7 +201,6 @@ public class DoctorPanel extends JPanel {
 
             if (updated) {
                 JOptionPane.showMessageDialog(this, "Doctor updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadDoctorsIntoTable(); // Refresh table
                 clearForm(); // Clear form after successful update
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to update doctor.", "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -219,7 +229,6 @@ public class DoctorPanel extends JPanel {
             boolean deleted = doctorDAO.deleteDoctor(doctorIdToDelete);
             if (deleted) {
                 JOptionPane.showMessageDialog(this, "Doctor deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadDoctorsIntoTable(); // Refresh table
                 clearForm(); // Clear form
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete doctor. Ensure no related appointments or medical records exist.", "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -229,16 +238,39 @@ public class DoctorPanel extends JPanel {
 
     private void loadDoctorsIntoTable() {
         tableModel.setRowCount(0); // Clear existing data
-        List<Doctor> doctors = doctorDAO.getAllDoctors();
+        List<Doctor> doctors = StartupLoader.doctorsOr(doctorDAO::getAllDoctors);
         for (Doctor doctor : doctors) {
-            tableModel.addRow(new Object[]{
-                    doctor.getDoctorId(),
-                    doctor.getFirstName(),
-                    doctor.getLastName(),
-                    doctor.getSpecialization(),
-                    doctor.getEmail(),
-                    doctor.getPhoneNumber()
-            });
+            tableModel.addRow(toRow(doctor));
+        }
+    }
+
+    private Object[] toRow(Doctor doctor) {
+        return new Object[]{
+                doctor.getDoctorId(),
+                doctor.getFirstName(),
+                doctor.getLastName(),
+                doctor.getSpecialization(),
+                doctor.getEmail(),
+                doctor.getPhoneNumber()
+        };
+    }
+
+    /**
+     * Applies a batch of change events to the table row by row instead of reloading it.
+     */
+    private void applyChanges(List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            if (event.getEntity() != ChangeEvent.Entity.DOCTOR) {
+                continue;
+            }
+            if (event.getOperation() == ChangeEvent.Operation.DELETE) {
+                TableRows.remove(tableModel, event.getId());
+                continue;
+            }
+            Doctor doctor = event.getPayload(Doctor.class);
+            if (doctor != null) {
+                TableRows.upsert(tableModel, toRow(doctor));
+            }
         }
     }
 
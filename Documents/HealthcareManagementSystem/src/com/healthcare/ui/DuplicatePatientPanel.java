@@ -0,0 +1,138 @@
+package com.healthcare.ui;
+
+import com.healthcare.report.DuplicateCandidate;
+import com.healthcare.report.DuplicatePatientFinder;
+import com.healthcare.report.DuplicatePatientReport;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+public class DuplicatePatientPanel extends JPanel {
+
+    private DuplicatePatientFinder finder;
+    private DefaultTableModel tableModel;
+
+    private JSpinner minScoreSpinner;
+    private JButton scanButton;
+    private JButton exportButton;
+    private JLabel statusLabel;
+
+    // The last scan, kept for CSV export
+    private DuplicatePatientReport currentReport;
+
+    public DuplicatePatientPanel() {
+        finder = new DuplicatePatientFinder();
+        setLayout(new BorderLayout(10, 10));
+
+        // --- Options Panel (North) ---
+        JPanel optionsPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        optionsPanel.setBorder(BorderFactory.createTitledBorder("Duplicate Patients"));
+
+        minScoreSpinner = new JSpinner(new SpinnerNumberModel(DuplicatePatientFinder.DEFAULT_MIN_SCORE, 0.5, 1.0, 0.05));
+        scanButton = new JButton("Find Duplicates");
+        exportButton = new JButton("Export CSV");
+        exportButton.setEnabled(false);
+
+        optionsPanel.add(new JLabel("Minimum score:"));
+        optionsPanel.add(minScoreSpinner);
+        optionsPanel.add(scanButton);
+        optionsPanel.add(exportButton);
+        add(optionsPanel, BorderLayout.NORTH);
+
+        // --- Table Panel (Center) ---
+        String[] columnNames = {"Patient ID", "Name", "Possible Duplicate ID", "Duplicate Name", "Score", "Matched On"};
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable candidateTable = new JTable(tableModel);
+        candidateTable.setAutoCreateRowSorter(true);
+        add(new JScrollPane(candidateTable), BorderLayout.CENTER);
+
+        statusLabel = new JLabel("Scan all patients for records that may be the same person.");
+        add(statusLabel, BorderLayout.SOUTH);
+
+        // --- Action Listeners ---
+        scanButton.addActionListener(e -> scan());
+        exportButton.addActionListener(e -> exportCsv());
+    }
+
+    private void scan() {
+        double minScore = ((Number) minScoreSpinner.getValue()).doubleValue();
+        scanButton.setEnabled(false);
+        statusLabel.setText("Scanning patients...");
+
+        // A scan reads every patient, so keep it off the EDT
+        new SwingWorker<DuplicatePatientReport, Void>() {
+            @Override
+            protected DuplicatePatientReport doInBackground() {
+                return finder.find(minScore);
+            }
+
+            @Override
+            protected void done() {
+                scanButton.setEnabled(true);
+                try {
+                    DuplicatePatientReport report = get();
+                    if (report == null) {
+                        statusLabel.setText("Scan failed.");
+                        JOptionPane.showMessageDialog(DuplicatePatientPanel.this, "Failed to scan patients. Check logs for details.", "Database Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    showReport(report);
+                } catch (Exception ex) {
+                    statusLabel.setText("Scan failed.");
+                    ex.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    private void showReport(DuplicatePatientReport report) {
+        currentReport = report;
+        tableModel.setRowCount(0);
+        for (DuplicateCandidate candidate : report.getCandidates()) {
+            tableModel.addRow(new Object[]{
+                    candidate.getPatientIdA(),
+                    candidate.getNameA(),
+                    candidate.getPatientIdB(),
+                    candidate.getNameB(),
+                    String.format("%.2f", candidate.getScore()),
+                    candidate.getMatchedOn()
+            });
+        }
+        exportButton.setEnabled(true);
+        statusLabel.setText(report.getCandidates().size() + " merge candidates among " + report.getPatientsScanned()
+                + " patients (" + report.getPairsCompared() + " pairs compared), found in "
+                + report.getElapsedMillis() + " ms.");
+    }
+
+    private void exportCsv() {
+        if (currentReport == null) {
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setSelectedFile(new File("duplicate-patients-" + LocalDate.now() + ".csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = fileChooser.getSelectedFile();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            currentReport.writeCsv(writer);
+            JOptionPane.showMessageDialog(this, "Candidates exported to " + file.getAbsolutePath(), "Success", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Failed to export candidates: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        }
+    }
+}
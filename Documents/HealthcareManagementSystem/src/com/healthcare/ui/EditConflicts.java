@@ -0,0 +1,38 @@
+package com.healthcare.ui;
+
+import javax.swing.JOptionPane;
+import java.awt.Component;
+
+/**
+ * Shared by the forms that save with a conditional update (see {@link com.healthcare.dao.UpdateResult}).
+ */
+final class EditConflicts {
+
+    private EditConflicts() {
+    }
+
+    /**
+     * The forms show a null value as an empty field; leaving it empty keeps the null,
+     * so the untouched field is not taken for a change the user made.
+     */
+    static String formValue(String text, String original) {
+        return text.isEmpty() && original == null ? null : text;
+    }
+
+    /**
+     * Tells the user their save lost to someone else's; the caller has put the merged values in the form.
+     *
+     * @param noun E.g. "patient".
+     */
+    static void showConflict(Component parent, String noun) {
+        JOptionPane.showMessageDialog(parent,
+                "Someone else saved this " + noun + " while you were editing it.\n"
+                        + "The form now shows their version with your changes applied. Review it and press Update again.",
+                "Update Conflict", JOptionPane.WARNING_MESSAGE);
+    }
+
+    static void showDeleted(Component parent, String noun) {
+        JOptionPane.showMessageDialog(parent, "This " + noun + " has been deleted by someone else.",
+                "Not Updated", JOptionPane.WARNING_MESSAGE);
+    }
+}
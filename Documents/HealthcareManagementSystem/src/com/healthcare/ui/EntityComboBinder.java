@@ -0,0 +1,110 @@
+package com.healthcare.ui;
+
+import javax.swing.JComboBox;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps a combo box of entity labels (e.g. patient names) and its label-to-ID map in sync,
+ * so panels can add, rename and remove single entries when change events arrive
+ * instead of reloading the whole list.
+ */
+final class EntityComboBinder {
+
+    private final JComboBox<String> comboBox;
+    private final Map<String, Integer> labelToId;
+    private final Map<Integer, String> idToLabel = new HashMap<>();
+    private final String emptyPlaceholder; // Shown (disabled) when there are no entries, may be null
+
+    /**
+     * @param comboBox         The combo box to manage.
+     * @param labelToId        The panel's label-to-ID map, kept up to date by this binder.
+     * @param emptyPlaceholder The item shown when there are no entries, or null for none.
+     */
+    EntityComboBinder(JComboBox<String> comboBox, Map<String, Integer> labelToId, String emptyPlaceholder) {
+        this.comboBox = comboBox;
+        this.labelToId = labelToId;
+        this.emptyPlaceholder = emptyPlaceholder;
+    }
+
+    /**
+     * Removes every entry managed by this binder. Other items (such as a "no selection" item) are kept.
+     */
+    void clear() {
+        for (String label : idToLabel.values()) {
+            comboBox.removeItem(label);
+            labelToId.remove(label);
+        }
+        idToLabel.clear();
+        showPlaceholderIfEmpty();
+    }
+
+    /**
+     * Adds an entry, or renames it in place if the ID is already present.
+     */
+    void put(int id, String label) {
+        String oldLabel = idToLabel.get(id);
+        if (label.equals(oldLabel)) {
+            return;
+        }
+        removePlaceholder();
+
+        if (oldLabel == null) {
+            comboBox.addItem(label);
+        } else {
+            int index = indexOf(oldLabel);
+            boolean wasSelected = oldLabel.equals(comboBox.getSelectedItem());
+            comboBox.removeItemAt(index);
+            comboBox.insertItemAt(label, index);
+            if (wasSelected) {
+                comboBox.setSelectedIndex(index);
+            }
+            labelToId.remove(oldLabel);
+        }
+        idToLabel.put(id, label);
+        labelToId.put(label, id);
+    }
+
+    /**
+     * Removes the entry for an ID, if present.
+     */
+    void remove(int id) {
+        String label = idToLabel.remove(id);
+        if (label == null) {
+            return;
+        }
+        comboBox.removeItem(label);
+        labelToId.remove(label);
+        showPlaceholderIfEmpty();
+    }
+
+    /**
+     * @return true if the binder currently has no entries.
+     */
+    boolean isEmpty() {
+        return idToLabel.isEmpty();
+    }
+
+    private void removePlaceholder() {
+        if (emptyPlaceholder != null && indexOf(emptyPlaceholder) != -1) {
+            comboBox.removeItem(emptyPlaceholder);
+            comboBox.setEnabled(true);
+        }
+    }
+
+    private void showPlaceholderIfEmpty() {
+        if (emptyPlaceholder != null && idToLabel.isEmpty() && indexOf(emptyPlaceholder) == -1) {
+            comboBox.addItem(emptyPlaceholder);
+            comboBox.setEnabled(false);
+        }
+    }
+
+    private int indexOf(String label) {
+        for (int i = 0; i < comboBox.getItemCount(); i++) {
+            if (label.equals(comboBox.getItemAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
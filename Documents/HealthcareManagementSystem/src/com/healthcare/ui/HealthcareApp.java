@@ -1,5 +1,7 @@
 package com.healthcare.ui;
 
+import com.healthcare.config.AppConfig;
+import com.healthcare.dao.DaoFactory;
 import com.healthcare.ui.PatientPanel;
 import com.healthcare.ui.DoctorPanel;
 import com.healthcare.ui.AppointmentPanel;
@@ -8,10 +10,15 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 
 public class HealthcareApp extends JFrame{
     private JTabbedPane mainTabbedPane; // A tabbed pane for different modules
+    // Tabs whose panel is built on first selection, by tab title
+    private final Map<String, Supplier<JComponent>> pendingTabs = new HashMap<>();
 
     public HealthcareApp() {
         // Frame Setup
@@ -39,12 +46,15 @@ public class HealthcareApp extends JFrame{
         JPanel dashboardPanel = createDashboardPanel();
         mainTabbedPane.addTab("Dashboard", dashboardPanel);
 
-        // TODO: Add actual module panels later (Patients, Doctors, Appointments, Medical History)
-        // For now, let's add placeholder panels.
-        mainTabbedPane.addTab("Patients", new PatientPanel()); // Add our new PatientPanel here
-        mainTabbedPane.addTab("Doctors", new DoctorPanel()); // Add our new DoctorPanel here
-        mainTabbedPane.addTab("Appointments", new AppointmentPanel()); // Add our new AppointmentPanel here
-        mainTabbedPane.addTab("Medical History", new MedicalRecordPanel()); // Add our new MedicalRecordPanel here
+        // Module panels are built when their tab is first opened, so the window shows without waiting on their loads
+        addLazyTab("Patients", PatientPanel::new);
+        addLazyTab("Doctors", DoctorPanel::new);
+        addLazyTab("Appointments", AppointmentPanel::new);
+        addLazyTab("Medical History", MedicalRecordPanel::new);
+        addLazyTab("Patient Timeline", PatientTimelinePanel::new);
+        addLazyTab("Reports", ReportPanel::new);
+        addLazyTab("Duplicates", DuplicatePatientPanel::new);
+        mainTabbedPane.addChangeListener(e -> buildSelectedTab());
 
 
         add(mainTabbedPane, BorderLayout.CENTER); // Add tabbed pane to the frame
@@ -53,24 +63,61 @@ public class HealthcareApp extends JFrame{
     }
 
     private JPanel createDashboardPanel() {
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setBackground(new Color(240, 248, 255)); // Light blue background
+        return new DashboardPanel(); // Live counters refreshed on a background timer
+    }
 
-        JLabel welcomeLabel = new JLabel("Welcome to Healthcare Management System!", SwingConstants.CENTER);
-        welcomeLabel.setFont(new Font("Arial", Font.BOLD, 30));
-        welcomeLabel.setForeground(new Color(25, 25, 112)); // Dark blue text
-        panel.add(welcomeLabel, BorderLayout.CENTER);
+    private void addLazyTab(String title, Supplier<JComponent> factory) {
+        JPanel placeholder = new JPanel(new BorderLayout());
+        placeholder.add(new JLabel("Loading " + title + "...", SwingConstants.CENTER), BorderLayout.CENTER);
+        mainTabbedPane.addTab(title, placeholder);
+        pendingTabs.put(title, factory);
+    }
 
-        JLabel instructionLabel = new JLabel("Use the tabs above to navigate through different modules.", SwingConstants.CENTER);
-        instructionLabel.setFont(new Font("Arial", Font.PLAIN, 16));
-        instructionLabel.setBorder(BorderFactory.createEmptyBorder(20, 0, 0, 0)); // Add some padding
-        panel.add(instructionLabel, BorderLayout.SOUTH);
+    private void buildSelectedTab() {
+        int index = mainTabbedPane.getSelectedIndex();
+        if (index == -1) {
+            return;
+        }
+        String title = mainTabbedPane.getTitleAt(index);
+        Supplier<JComponent> factory = pendingTabs.remove(title);
+        if (factory != null) {
+            long buildStart = System.nanoTime();
+            mainTabbedPane.setComponentAt(index, factory.get());
+            StartupLoader.tabBuilt(title, buildStart);
+        }
+    }
 
-        return panel;
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        StartupLoader.firstPaint();
     }
 
 
     public static void main(String[] args) {
+        // -Dhealthcare.server=http://host:8080 runs the panels against a HealthcareServer instead of MySQL
+        String server = System.getProperty("healthcare.server");
+        boolean useServer = server != null && !server.isEmpty();
+
+        // Stop here with a readable message rather than failing on the first database call
+        try {
+            AppConfig config = AppConfig.get();
+            if (!useServer) {
+                config.requireDatabasePassword();
+            }
+        } catch (IllegalStateException ex) {
+            System.err.println(ex.getMessage());
+            JOptionPane.showMessageDialog(null, ex.getMessage(), "Configuration Error", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+
+        if (useServer) {
+            DaoFactory.useServer(server);
+        }
+
+        // Warm up connections and load the shared lists while the frame is being built
+        StartupLoader.start(!useServer);
+
         // Ensure Swing operations are performed on the Event Dispatch Thread (EDT)
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
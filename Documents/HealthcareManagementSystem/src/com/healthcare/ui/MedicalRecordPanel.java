@@ -1,8 +1,12 @@
 package com.healthcare.ui;
 
+import com.healthcare.dao.DaoFactory;
 import com.healthcare.dao.MedicalRecordDAO;
 import com.healthcare.dao.PatientDAO;
 import com.healthcare.dao.DoctorDAO;
+import com.healthcare.dao.UpdateResult;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
 import com.healthcare.model.MedicalRecord;
 import com.healthcare.model.Patient;
 import com.healthcare.model.Doctor;
@@ -15,10 +19,15 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.time.LocalDate;
+import java.sql.SQLException;
 import java.time.LocalDateTime; // Used for displaying the timestamp from DB
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 public class MedicalRecordPanel extends JPanel {
 
@@ -38,16 +47,40 @@ public class MedicalRecordPanel extends JPanel {
     private JTextArea notesArea;
 
     // Maps to quickly get ID from selected name in ComboBox
-    private Map<String, Integer> patientMap;
-    private Map<String, Integer> doctorMap; // Can store null for "No Doctor" option
+    private Map<String, Integer> patientMap = new HashMap<>();
+    private Map<String, Integer> doctorMap = new HashMap<>(); // Can store null for "No Doctor" option
+    private EntityComboBinder patientBinder;
+    private EntityComboBinder doctorBinder;
+
+    // Names shown in the table, by ID, so rows are built without a lookup per record
+    private Map<Integer, String> patientNames = new HashMap<>();
+    private Map<Integer, String> doctorNames = new HashMap<>();
+    private Map<Integer, MedicalRecord> shownRecords = new HashMap<>(); // To relabel rows when a name changes
+    private Set<Integer> pendingDates = new HashSet<>(); // Records being read for their date; EDT only
+
+    // Search components; the patient and doctor boxes narrow the search and start with an "Any" item
+    private static final String ANY_PATIENT = "-- Any Patient --";
+    private static final String ANY_DOCTOR = "-- Any Doctor --";
+    private static final int SEARCH_LIMIT = 200;
+    private JTextField searchField;
+    private JComboBox<String> searchPatientComboBox;
+    private JComboBox<String> searchDoctorComboBox;
+    private Map<String, Integer> searchPatientMap = new HashMap<>();
+    private Map<String, Integer> searchDoctorMap = new HashMap<>();
+    private EntityComboBinder searchPatientBinder;
+    private EntityComboBinder searchDoctorBinder;
+    private boolean showingSearchResults = false; // New records are not added to a search's results
+    private static final int LOAD_PAGE_SIZE = 500;
+    private volatile int loadGeneration = 0; // Bumped on the EDT when the table is refilled, so an older load stops
 
     // For update functionality - store selected record ID
     private int selectedRecordId = -1;
+    private MedicalRecord selectedRecord; // As shown when selected; the update only writes what differs from it
 
     public MedicalRecordPanel() {
-        medicalRecordDAO = new MedicalRecordDAO();
-        patientDAO = new PatientDAO();
-        doctorDAO = new DoctorDAO();
+        medicalRecordDAO = DaoFactory.createMedicalRecordDAO();
+        patientDAO = DaoFactory.createPatientDAO();
+        doctorDAO = DaoFactory.createDoctorDAO();
 
         setLayout(new BorderLayout(10, 10));
 
@@ -73,6 +106,12 @@ public class MedicalRecordPanel extends JPanel {
         JScrollPane treatmentScrollPane = new JScrollPane(treatmentArea);
         notesArea = new JTextArea(4, 25);
         JScrollPane notesScrollPane = new JScrollPane(notesArea);
+        patientBinder = new EntityComboBinder(patientComboBox, patientMap, "No Patients Available");
+        doctorBinder = new EntityComboBinder(doctorComboBox, doctorMap, null); // The optional item stays when empty
+        searchPatientComboBox = new JComboBox<>(new String[]{ANY_PATIENT});
+        searchDoctorComboBox = new JComboBox<>(new String[]{ANY_DOCTOR});
+        searchPatientBinder = new EntityComboBinder(searchPatientComboBox, searchPatientMap, null);
+        searchDoctorBinder = new EntityComboBinder(searchDoctorComboBox, searchDoctorMap, null);
 
         // Populate Patient and Doctor ComboBoxes
         populateComboBoxes();
@@ -103,7 +142,24 @@ public class MedicalRecordPanel extends JPanel {
         gbc.gridwidth = 2;
         formPanel.add(buttonPanel, gbc);
 
-        add(formPanel, BorderLayout.NORTH);
+        // --- Search Panel (below form in NORTH region) ---
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        searchPanel.setBorder(BorderFactory.createTitledBorder("Search Diagnosis, Treatment and Notes"));
+        searchField = new JTextField(25);
+        searchField.setToolTipText("Every word must appear; put words in double quotes to find them together, e.g. \"chest pain\"");
+        JButton searchButton = new JButton("Search");
+        JButton resetButton = new JButton("Reset Search");
+        searchPanel.add(new JLabel("Words:"));
+        searchPanel.add(searchField);
+        searchPanel.add(searchPatientComboBox);
+        searchPanel.add(searchDoctorComboBox);
+        searchPanel.add(searchButton);
+        searchPanel.add(resetButton);
+
+        JPanel topPanel = new JPanel(new BorderLayout(5, 5));
+        topPanel.add(formPanel, BorderLayout.CENTER);
+        topPanel.add(searchPanel, BorderLayout.SOUTH);
+        add(topPanel, BorderLayout.NORTH);
 
         // --- Table Panel (Center) ---
         String[] columnNames = {"ID", "Patient", "Doctor", "Date", "Diagnosis", "Treatment", "Notes"};
@@ -122,6 +178,14 @@ public class MedicalRecordPanel extends JPanel {
         updateButton.addActionListener(e -> updateMedicalRecord());
         deleteButton.addActionListener(e -> deleteSelectedMedicalRecord());
         clearButton.addActionListener(e -> clearForm());
+        searchButton.addActionListener(e -> performSearch());
+        searchField.addActionListener(e -> performSearch());
+        resetButton.addActionListener(e -> {
+            searchField.setText("");
+            searchPatientComboBox.setSelectedIndex(0);
+            searchDoctorComboBox.setSelectedIndex(0);
+            loadMedicalRecordsIntoTable();
+        });
 
         // Listener for table row selection to populate form for update
         medicalRecordTable.getSelectionModel().addListSelectionListener(e -> {
@@ -132,6 +196,9 @@ public class MedicalRecordPanel extends JPanel {
 
         // Populate table on load
         loadMedicalRecordsIntoTable();
+
+        // Keep the table and dropdowns in sync with changes made here or in other tabs
+        ChangeEventBus.getInstance().subscribeBatches(this::applyChanges, true);
     }
 
     private int addFormField(JPanel panel, GridBagConstraints gbc, String labelText, JComponent field, int row) {
@@ -150,32 +217,26 @@ public class MedicalRecordPanel extends JPanel {
     }
 
     private void populateComboBoxes() {
-        patientComboBox.removeAllItems();
-        doctorComboBox.removeAllItems();
-        patientMap = new HashMap<>();
-        doctorMap = new HashMap<>();
-
-        List<Patient> patients = patientDAO.getAllPatients();
-        if (patients.isEmpty()) {
-            patientComboBox.addItem("No Patients Available");
-            patientComboBox.setEnabled(false);
-        } else {
-            patientComboBox.setEnabled(true);
-            for (Patient p : patients) {
-                String fullName = p.getFirstName() + " " + p.getLastName() + " (ID: " + p.getPatientId() + ")";
-                patientComboBox.addItem(fullName);
-                patientMap.put(fullName, p.getPatientId());
-            }
+        patientBinder.clear();
+        doctorBinder.clear();
+        searchPatientBinder.clear();
+        searchDoctorBinder.clear();
+        patientNames.clear();
+        doctorNames.clear();
+
+        List<Patient> patients = StartupLoader.patientsOr(patientDAO::getAllPatients);
+        for (Patient p : patients) {
+            putPatient(p);
         }
 
         // Doctor is optional, so we add a "No Doctor" option
-        doctorComboBox.addItem("-- Select Doctor (Optional) --");
-        doctorMap.put("-- Select Doctor (Optional) --", null); // Map this to null
-        List<Doctor> doctors = doctorDAO.getAllDoctors();
+        if (doctorComboBox.getItemCount() == 0) {
+            doctorComboBox.addItem("-- Select Doctor (Optional) --");
+            doctorMap.put("-- Select Doctor (Optional) --", null); // Map this to null
+        }
+        List<Doctor> doctors = StartupLoader.doctorsOr(doctorDAO::getAllDoctors);
         for (Doctor d : doctors) {
-            String fullName = d.getFirstName() + " " + d.getLastName() + " (" + d.getSpecialization() + ")";
-            doctorComboBox.addItem(fullName);
-            doctorMap.put(fullName, d.getDoctorId());
+            putDoctor(d);
         }
 
         if (patients.isEmpty()) {
@@ -224,7 +285,6 @@ public class MedicalRecordPanel extends JPanel {
 
             if (recordId != -1) {
                 JOptionPane.showMessageDialog(this, "Medical record added successfully! ID: " + recordId, "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadMedicalRecordsIntoTable();
                 clearForm();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to add medical record. Check logs for details.", "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -259,18 +319,6 @@ public class MedicalRecordPanel extends JPanel {
                 JOptionPane.showMessageDialog(this, "Record Date is required.", "Input Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            // When updating, we need to pass the full LocalDateTime to the DAO
-            // For simplicity, we'll fetch the existing record's LocalDateTime if available,
-            // otherwise use the selected date at start of day.
-            LocalDateTime currentRecordDateTime = null;
-            MedicalRecord existingRecord = medicalRecordDAO.getMedicalRecordById(selectedRecordId);
-            if (existingRecord != null && existingRecord.getRecordDate() != null) {
-                currentRecordDateTime = existingRecord.getRecordDate();
-            } else {
-                currentRecordDateTime = recordDate.atStartOfDay(); // Use start of day if no existing time
-            }
-
-
             String diagnosis = diagnosisArea.getText().trim();
             String treatment = treatmentArea.getText().trim();
             String notes = notesArea.getText().trim();
@@ -280,16 +328,29 @@ public class MedicalRecordPanel extends JPanel {
                 return;
             }
 
-            // Pass the existing LocalDateTime or a new one based on the selected date
-            MedicalRecord recordToUpdate = new MedicalRecord(selectedRecordId, patientId, doctorId, currentRecordDateTime, diagnosis, treatment, notes);
-            boolean updated = medicalRecordDAO.updateMedicalRecord(recordToUpdate);
-
-            if (updated) {
-                JOptionPane.showMessageDialog(this, "Medical record updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadMedicalRecordsIntoTable();
-                clearForm();
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to update medical record.", "Database Error", JOptionPane.ERROR_MESSAGE);
+            // The record date is when the record was written; it is shown but not changed here
+            MedicalRecord original = selectedRecord;
+            MedicalRecord edited = new MedicalRecord(selectedRecordId, patientId, doctorId, original.getRecordDate(), diagnosis,
+                    EditConflicts.formValue(treatment, original.getTreatment()), EditConflicts.formValue(notes, original.getNotes()));
+            UpdateResult<MedicalRecord> result = medicalRecordDAO.updateMedicalRecord(original, edited);
+
+            switch (result.getStatus()) {
+                case UPDATED:
+                    JOptionPane.showMessageDialog(this, "Medical record updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    clearForm();
+                    break;
+                case CONFLICT:
+                    MedicalRecord current = result.getRow();
+                    fillForm(MedicalRecordDAO.mergeEdits(original, edited, current));
+                    selectedRecord = current;
+                    EditConflicts.showConflict(this, "medical record");
+                    break;
+                case NOT_FOUND:
+                    EditConflicts.showDeleted(this, "medical record");
+                    clearForm();
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(this, "Failed to update medical record.", "Database Error", JOptionPane.ERROR_MESSAGE);
             }
 
         } catch (Exception ex) {
@@ -315,7 +376,6 @@ public class MedicalRecordPanel extends JPanel {
             boolean deleted = medicalRecordDAO.deleteMedicalRecord(recordIdToDelete);
             if (deleted) {
                 JOptionPane.showMessageDialog(this, "Medical record deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadMedicalRecordsIntoTable();
                 clearForm();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete medical record.", "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -323,63 +383,244 @@ public class MedicalRecordPanel extends JPanel {
         }
     }
 
+    private void performSearch() {
+        String words = searchField.getText().trim();
+        if (words.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please enter the words to search for.", "Search Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        Integer patientId = searchPatientMap.get(String.valueOf(searchPatientComboBox.getSelectedItem()));
+        Integer doctorId = searchDoctorMap.get(String.valueOf(searchDoctorComboBox.getSelectedItem()));
+
+        List<MedicalRecord> results = medicalRecordDAO.searchMedicalRecords(words, patientId, doctorId, SEARCH_LIMIT);
+        loadGeneration++; // A full load still running must not add to the results
+        tableModel.setRowCount(0);
+        shownRecords.clear();
+        for (MedicalRecord record : results) { // Best matches first
+            populateTableRow(record);
+        }
+        showingSearchResults = true;
+        if (results.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No medical records found matching the search.", "Search Results", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
     private void loadMedicalRecordsIntoTable() {
         tableModel.setRowCount(0); // Clear existing data
+        shownRecords.clear();
+        showingSearchResults = false;
+        final int requestGeneration = ++loadGeneration;
 
-        // This part needs to be adjusted based on your MedicalRecordDAO
-        // If MedicalRecordDAO has getAllMedicalRecords(), use that.
-        // Otherwise, iterate through patients to get their records.
-        // For demonstration, assuming we want to display all records regardless of patient.
-        // If your MedicalRecordDAO only has getMedicalRecordsByPatientId, you'd need to loop through all patients.
-        // Let's add a simple getAllMedicalRecords() to MedicalRecordDAO for better loading here.
-
-        // TEMPORARY: If MedicalRecordDAO does NOT have getAllMedicalRecords(), use this:
-        List<Patient> allPatients = patientDAO.getAllPatients();
-        for(Patient p : allPatients) {
-            List<MedicalRecord> patientRecords = medicalRecordDAO.getMedicalRecordsByPatientId(p.getPatientId());
-            for (MedicalRecord record : patientRecords) {
-                populateTableRow(record);
+        // Keyset pages of the whole table in the background, one query per page rather than one per patient,
+        // added to the table on the EDT as each page arrives
+        new SwingWorker<Void, List<MedicalRecord>>() {
+            @Override
+            protected Void doInBackground() throws SQLException {
+                int afterId = 0;
+                while (requestGeneration == loadGeneration) {
+                    List<MedicalRecord> page = medicalRecordDAO.getMedicalRecordsPageOrThrow(afterId, LOAD_PAGE_SIZE);
+                    if (!page.isEmpty()) {
+                        publish(page);
+                    }
+                    if (page.size() < LOAD_PAGE_SIZE) {
+                        break;
+                    }
+                    afterId = page.get(page.size() - 1).getRecordId();
+                }
+                return null;
             }
-        }
-        // END TEMPORARY
-
-        // If you add MedicalRecordDAO.getAllMedicalRecords(), you'd use:
-        // List<MedicalRecord> records = medicalRecordDAO.getAllMedicalRecords();
-        // for (MedicalRecord record : records) {
-        //     populateTableRow(record);
-        // }
 
+            @Override
+            protected void process(List<List<MedicalRecord>> pages) {
+                if (requestGeneration != loadGeneration) {
+                    return; // Reloaded or replaced by search results meanwhile
+                }
+                for (List<MedicalRecord> page : pages) {
+                    for (MedicalRecord record : page) {
+                        if (shownRecords.containsKey(record.getRecordId())) {
+                            continue; // Already added by a change event while loading
+                        }
+                        populateTableRow(record);
+                    }
+                }
+            }
 
-        if (tableModel.getRowCount() == 0) {
-            System.out.println("No medical records found.");
-        }
+            @Override
+            protected void done() {
+                if (requestGeneration != loadGeneration) {
+                    return;
+                }
+                try {
+                    get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    System.err.println("Error loading medical records: " + ex.getCause());
+                    JOptionPane.showMessageDialog(MedicalRecordPanel.this,
+                            "Could not load all medical records: " + ex.getCause().getMessage(),
+                            "Database Error", JOptionPane.ERROR_MESSAGE);
+                }
+                if (tableModel.getRowCount() == 0) {
+                    System.out.println("No medical records found.");
+                }
+            }
+        }.execute();
     }
 
     // Helper method to populate a single row in the table
     private void populateTableRow(MedicalRecord record) {
-        String patientName = "N/A";
-        Patient patient = patientDAO.getPatientById(record.getPatientId());
-        if (patient != null) {
-            patientName = patient.getFirstName() + " " + patient.getLastName();
-        }
+        tableModel.addRow(toRow(record));
+        shownRecords.put(record.getRecordId(), record);
+    }
 
+    private Object[] toRow(MedicalRecord record) {
         String doctorName = "N/A";
         if (record.getDoctorId() != null) {
-            Doctor doctor = doctorDAO.getDoctorById(record.getDoctorId());
-            if (doctor != null) {
-                doctorName = doctor.getFirstName() + " " + doctor.getLastName() + " (" + doctor.getSpecialization() + ")";
-            }
+            doctorName = doctorNames.getOrDefault(record.getDoctorId(), "N/A");
         }
 
-        tableModel.addRow(new Object[]{
+        return new Object[]{
                 record.getRecordId(),
-                patientName,
+                patientNames.getOrDefault(record.getPatientId(), "N/A"),
                 doctorName,
                 record.getRecordDate(), // LocalDateTime will print nicely
                 record.getDiagnosis(),
                 record.getTreatment(),
                 record.getNotes()
-        });
+        };
+    }
+
+    private void putPatient(Patient p) {
+        patientBinder.put(p.getPatientId(), p.getFirstName() + " " + p.getLastName() + " (ID: " + p.getPatientId() + ")");
+        searchPatientBinder.put(p.getPatientId(), p.getFirstName() + " " + p.getLastName() + " (ID: " + p.getPatientId() + ")");
+        patientNames.put(p.getPatientId(), p.getFirstName() + " " + p.getLastName());
+    }
+
+    private void putDoctor(Doctor d) {
+        String fullName = d.getFirstName() + " " + d.getLastName() + " (" + d.getSpecialization() + ")";
+        doctorBinder.put(d.getDoctorId(), fullName);
+        searchDoctorBinder.put(d.getDoctorId(), fullName);
+        doctorNames.put(d.getDoctorId(), fullName);
+    }
+
+    /**
+     * Applies a batch of change events: record rows are updated in place, and
+     * patient/doctor changes from other tabs update the dropdowns and the names shown in the table.
+     */
+    private void applyChanges(List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            boolean deleted = event.getOperation() == ChangeEvent.Operation.DELETE;
+            switch (event.getEntity()) {
+                case MEDICAL_RECORD:
+                    if (deleted) {
+                        TableRows.remove(tableModel, event.getId());
+                        shownRecords.remove(event.getId());
+                        pendingDates.remove(event.getId());
+                        break;
+                    }
+                    MedicalRecord record = event.getPayload(MedicalRecord.class);
+                    if (record != null && record.getRecordDate() == null) {
+                        MedicalRecord shown = shownRecords.get(event.getId());
+                        if (shown != null && shown.getRecordDate() != null) {
+                            // record_date is never edited, so the row's own date still holds
+                            record = withRecordDate(record, shown.getRecordDate());
+                        } else {
+                            // New records get their timestamp from the database default; read it off the EDT
+                            readRecordDate(event.getId());
+                            break;
+                        }
+                    }
+                    if (record != null) {
+                        showRecord(record);
+                    }
+                    break;
+                case PATIENT:
+                    if (deleted) {
+                        patientBinder.remove(event.getId());
+                        searchPatientBinder.remove(event.getId());
+                    } else if (event.getPayload(Patient.class) != null) {
+                        putPatient(event.getPayload(Patient.class));
+                        refreshRowsFor(event.getId(), true);
+                    }
+                    break;
+                case DOCTOR:
+                    if (deleted) {
+                        doctorBinder.remove(event.getId());
+                        searchDoctorBinder.remove(event.getId());
+                    } else if (event.getPayload(Doctor.class) != null) {
+                        putDoctor(event.getPayload(Doctor.class));
+                        refreshRowsFor(event.getId(), false);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void showRecord(MedicalRecord record) {
+        if (showingSearchResults) {
+            // Only refresh rows that matched the search
+            if (shownRecords.containsKey(record.getRecordId())) {
+                TableRows.updateIfPresent(tableModel, toRow(record));
+                shownRecords.put(record.getRecordId(), record);
+            }
+        } else {
+            TableRows.upsert(tableModel, toRow(record));
+            shownRecords.put(record.getRecordId(), record);
+        }
+    }
+
+    /**
+     * Reads a record whose change event had no date in the background, then shows it unless it was deleted meanwhile.
+     */
+    private void readRecordDate(int recordId) {
+        if (!pendingDates.add(recordId)) {
+            return; // Already being read; that read sees this change too
+        }
+        new SwingWorker<MedicalRecord, Void>() {
+            @Override
+            protected MedicalRecord doInBackground() {
+                return medicalRecordDAO.getMedicalRecordById(recordId);
+            }
+
+            @Override
+            protected void done() {
+                if (!pendingDates.remove(recordId)) {
+                    return; // Deleted while it was being read
+                }
+                try {
+                    MedicalRecord record = get();
+                    if (record != null) {
+                        showRecord(record);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    System.err.println("Error reading medical record " + recordId + ": " + ex.getCause());
+                }
+            }
+        }.execute();
+    }
+
+    // A copy, since the event's payload is shared with the other listeners
+    private static MedicalRecord withRecordDate(MedicalRecord record, LocalDateTime recordDate) {
+        MedicalRecord copy = new MedicalRecord(record.getRecordId(), record.getPatientId(), record.getDoctorId(),
+                recordDate, record.getDiagnosis(), record.getTreatment(), record.getNotes());
+        copy.setVersion(record.getVersion());
+        return copy;
+    }
+
+    /**
+     * Rebuilds the rows of records that reference a patient (or doctor) whose name may have changed.
+     */
+    private void refreshRowsFor(int id, boolean patient) {
+        for (MedicalRecord record : shownRecords.values()) {
+            Integer referencedId = patient ? Integer.valueOf(record.getPatientId()) : record.getDoctorId();
+            if (referencedId != null && referencedId == id) {
+                TableRows.updateIfPresent(tableModel, toRow(record));
+            }
+        }
     }
 
 
@@ -391,12 +632,14 @@ public class MedicalRecordPanel extends JPanel {
         treatmentArea.setText("");
         notesArea.setText("");
         selectedRecordId = -1; // Reset selected ID
+        selectedRecord = null;
     }
 
     private void populateFormFromTable() {
         int selectedRow = medicalRecordTable.getSelectedRow();
         if (selectedRow != -1) {
             selectedRecordId = (int) tableModel.getValueAt(selectedRow, 0); // Record ID
+            selectedRecord = shownRecords.get(selectedRecordId);
 
             // Populate patient and doctor dropdowns by their names
             String patientFullName = (String) tableModel.getValueAt(selectedRow, 1);
@@ -423,4 +666,17 @@ public class MedicalRecordPanel extends JPanel {
             notesArea.setText((String) tableModel.getValueAt(selectedRow, 6));
         }
     }
+
+    private void fillForm(MedicalRecord record) {
+        patientComboBox.setSelectedItem(patientNames.get(record.getPatientId()));
+        if (record.getDoctorId() != null && doctorNames.containsKey(record.getDoctorId())) {
+            doctorComboBox.setSelectedItem(doctorNames.get(record.getDoctorId()));
+        } else {
+            doctorComboBox.setSelectedItem("-- Select Doctor (Optional) --");
+        }
+        recordDatePicker.setDate(record.getRecordDate() != null ? record.getRecordDate().toLocalDate() : null);
+        diagnosisArea.setText(record.getDiagnosis());
+        treatmentArea.setText(record.getTreatment());
+        notesArea.setText(record.getNotes());
+    }
 }
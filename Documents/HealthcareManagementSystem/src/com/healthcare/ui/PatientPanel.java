@@ -1,23 +1,39 @@
 package com.healthcare.ui;
 
+import com.healthcare.audit.AuditLog;
+import com.healthcare.config.AppConfig;
+import com.healthcare.dao.DaoFactory;
 import com.healthcare.dao.PatientDAO;
+import com.healthcare.dao.UpdateResult;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
 import com.healthcare.model.Patient;
+import com.healthcare.search.NameMatch;
+import com.healthcare.search.PatientNameIndex;
+import com.healthcare.store.ColumnarPatientStore;
 import com.github.lgooddatepicker.components.DatePicker; // Import LGoodDatePicker's DatePicker
 import com.github.lgooddatepicker.components.DatePickerSettings; // Import DatePickerSettings
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class PatientPanel extends JPanel {
 
     private PatientDAO patientDAO;
     private DefaultTableModel tableModel;
+    private PatientStoreTableModel storeModel; // Used instead of tableModel when client.columnarPatients is on
     private JTable patientTable;
 
     // Form components
@@ -34,13 +50,17 @@ public class PatientPanel extends JPanel {
 
     // For update functionality - store selected patient ID
     private int selectedPatientId = -1; // Corrected variable name for clarity
+    private Patient selectedPatient; // As loaded, with its version; the update only writes what differs from it
 
     // Search components
     private JTextField searchField;
     private JButton searchButton;
+    private boolean showingSearchResults = false; // New patients are not added to a filtered view
+    private static final int FUZZY_SEARCH_LIMIT = 50;
+    private final PatientNameIndex nameIndex = new PatientNameIndex(); // Misspelled and sound-alike names
 
     public PatientPanel() {
-        patientDAO = new PatientDAO();
+        patientDAO = DaoFactory.createPatientDAO();
         setLayout(new BorderLayout(10, 10)); // Add some spacing
 
         // --- Form Panel (North) ---
@@ -120,14 +140,18 @@ public class PatientPanel extends JPanel {
 
 
         // --- Table Panel (Center) ---
-        String[] columnNames = {"ID", "First Name", "Last Name", "DOB", "Gender", "Email", "Phone"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make cells non-editable
-            }
-        };
-        patientTable = new JTable(tableModel);
+        if (AppConfig.get().get(AppConfig.CLIENT_COLUMNAR_PATIENTS)) {
+            storeModel = new PatientStoreTableModel();
+            patientTable = new JTable(storeModel);
+        } else {
+            tableModel = new DefaultTableModel(PatientStoreTableModel.COLUMN_NAMES, 0) {
+                @Override
+                public boolean isCellEditable(int row, int column) {
+                    return false; // Make cells non-editable
+                }
+            };
+            patientTable = new JTable(tableModel);
+        }
         JScrollPane scrollPane = new JScrollPane(patientTable);
         add(scrollPane, BorderLayout.CENTER);
 
@@ -191,6 +215,9 @@ public class PatientPanel extends JPanel {
 
         // Populate table on load
         loadPatientsIntoTable(null); // Initial load of all patients
+
+        // Keep the table in sync with changes made here or in other tabs
+        ChangeEventBus.getInstance().subscribeBatches(this::applyChanges, true);
     }
 
     private int addFormField(JPanel panel, GridBagConstraints gbc, String labelText, JComponent field, int row) {
@@ -226,12 +253,24 @@ public class PatientPanel extends JPanel {
                 return;
             }
 
+            // Usually answered by the contact index without asking the database
+            int existingId = patientDAO.findPatientIdByEmail(email);
+            if (existingId != -1) {
+                JOptionPane.showMessageDialog(this, "Patient ID " + existingId + " already has the email " + email + ".", "Duplicate Email", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            int samePhoneId = patientDAO.findPatientIdByPhone(phone);
+            if (samePhoneId != -1 && JOptionPane.showConfirmDialog(this,
+                    "Patient ID " + samePhoneId + " has the same phone number. Add this patient anyway?",
+                    "Possible Duplicate", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                return;
+            }
+
             Patient newPatient = new Patient(firstName, lastName, dob, gender, address, city, state, zipCode, phone, email);
             int patientId = patientDAO.addPatient(newPatient);
 
             if (patientId != -1) {
                 JOptionPane.showMessageDialog(this, "Patient added successfully! ID: " + patientId, "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadPatientsIntoTable(null); // Refresh table with all patients
                 clearForm(); // Clear form after successful addition
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to add patient. Check logs for details.", "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -266,15 +305,35 @@ public class PatientPanel extends JPanel {
                 return;
             }
 
-            Patient patientToUpdate = new Patient(selectedPatientId, firstName, lastName, dob, gender, address, city, state, zipCode, phone, email, null);
-            boolean updated = patientDAO.updatePatient(patientToUpdate);
-
-            if (updated) {
-                JOptionPane.showMessageDialog(this, "Patient updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadPatientsIntoTable(null); // Refresh table with all patients
-                clearForm(); // Clear form after successful update
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to update patient.", "Database Error", JOptionPane.ERROR_MESSAGE);
+            Patient original = selectedPatient;
+            if (original == null) {
+                JOptionPane.showMessageDialog(this, "Could not load this patient. Please select it again.", "Database Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            Patient edited = new Patient(selectedPatientId, firstName, lastName, dob, gender,
+                    EditConflicts.formValue(address, original.getAddress()), EditConflicts.formValue(city, original.getCity()),
+                    EditConflicts.formValue(state, original.getState()), EditConflicts.formValue(zipCode, original.getZipCode()),
+                    EditConflicts.formValue(phone, original.getPhoneNumber()), email, original.getRegistrationDate());
+            UpdateResult<Patient> result = patientDAO.updatePatient(original, edited);
+
+            switch (result.getStatus()) {
+                case UPDATED:
+                    JOptionPane.showMessageDialog(this, "Patient updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    clearForm(); // Clear form after successful update
+                    break;
+                case CONFLICT:
+                    // Their version becomes the one this edit is checked against
+                    Patient current = result.getRow();
+                    fillForm(PatientDAO.mergeEdits(original, edited, current));
+                    selectedPatient = current;
+                    EditConflicts.showConflict(this, "patient");
+                    break;
+                case NOT_FOUND:
+                    EditConflicts.showDeleted(this, "patient");
+                    clearForm();
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(this, "Failed to update patient.", "Database Error", JOptionPane.ERROR_MESSAGE);
             }
 
         } catch (Exception ex) {
@@ -291,7 +350,7 @@ public class PatientPanel extends JPanel {
             return;
         }
 
-        int patientId = (int) tableModel.getValueAt(selectedRow, 0); // Assuming ID is in the first column
+        int patientId = (int) model().getValueAt(selectedRow, 0); // Assuming ID is in the first column
 
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to delete patient ID: " + patientId + "? This action cannot be undone.",
@@ -301,7 +360,6 @@ public class PatientPanel extends JPanel {
             boolean deleted = patientDAO.deletePatient(patientId);
             if (deleted) {
                 JOptionPane.showMessageDialog(this, "Patient deleted successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                loadPatientsIntoTable(null); // Refresh table
                 clearForm(); // Clear form
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to delete patient. Ensure no related appointments or medical records exist.", "Database Error", JOptionPane.ERROR_MESSAGE);
@@ -312,25 +370,83 @@ public class PatientPanel extends JPanel {
 
     // Modified loadPatientsIntoTable to accept an optional list for search results
     private void loadPatientsIntoTable(List<Patient> patientsToDisplay) {
+        if (storeModel != null) {
+            loadPatientsIntoStore(patientsToDisplay);
+            return;
+        }
         tableModel.setRowCount(0); // Clear existing data
         List<Patient> patients;
 
         if (patientsToDisplay != null) {
             patients = patientsToDisplay;
         } else {
-            patients = patientDAO.getAllPatients(); // Default: load all if no specific list is provided
+            patients = StartupLoader.patientsOr(patientDAO::getAllPatients); // Default: load all if no specific list is provided
+            nameIndex.rebuild(patients);
         }
+        showingSearchResults = patientsToDisplay != null;
 
         for (Patient patient : patients) {
-            tableModel.addRow(new Object[]{
-                    patient.getPatientId(),
-                    patient.getFirstName(),
-                    patient.getLastName(),
-                    patient.getDateOfBirth(), // LocalDate will print nicely
-                    patient.getGender(),
-                    patient.getEmail(),
-                    patient.getPhoneNumber()
-            });
+            tableModel.addRow(toRow(patient));
+        }
+    }
+
+    private void loadPatientsIntoStore(List<Patient> patientsToDisplay) {
+        if (patientsToDisplay != null) {
+            storeModel.showOnly(patientsToDisplay);
+        } else {
+            // The Patient objects are dropped once copied into the store
+            List<Patient> patients = StartupLoader.patientsOr(patientDAO::getAllPatients);
+            nameIndex.rebuild(patients);
+            storeModel.showAll(patients);
+        }
+        showingSearchResults = patientsToDisplay != null;
+    }
+
+    private TableModel model() {
+        return storeModel != null ? storeModel : tableModel;
+    }
+
+    private Object[] toRow(Patient patient) {
+        return new Object[]{
+                patient.getPatientId(),
+                patient.getFirstName(),
+                patient.getLastName(),
+                patient.getDateOfBirth(), // LocalDate will print nicely
+                patient.getGender(),
+                patient.getEmail(),
+                patient.getPhoneNumber()
+        };
+    }
+
+    /**
+     * Applies a batch of change events to the table row by row instead of reloading it.
+     */
+    private void applyChanges(List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            if (event.getEntity() != ChangeEvent.Entity.PATIENT) {
+                continue;
+            }
+            if (event.getOperation() == ChangeEvent.Operation.DELETE) {
+                nameIndex.remove(event.getId());
+                if (storeModel != null) {
+                    storeModel.remove(event.getId());
+                } else {
+                    TableRows.remove(tableModel, event.getId());
+                }
+                continue;
+            }
+            Patient patient = event.getPayload(Patient.class);
+            if (patient == null) {
+                continue;
+            }
+            nameIndex.put(patient);
+            if (storeModel != null) {
+                storeModel.upsert(patient); // Hidden while a search is shown unless it matched
+            } else if (showingSearchResults) {
+                TableRows.updateIfPresent(tableModel, toRow(patient)); // Only refresh rows that matched the search
+            } else {
+                TableRows.upsert(tableModel, toRow(patient));
+            }
         }
     }
 
@@ -343,13 +459,46 @@ public class PatientPanel extends JPanel {
             return;
         }
 
-        List<Patient> searchResults = patientDAO.searchPatients(searchTerm);
+        List<Patient> searchResults = new ArrayList<>(patientDAO.searchPatients(searchTerm));
+        searchResults.addAll(findSimilarNames(searchTerm, searchResults)); // Exact matches first, then near misses
         if (searchResults.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No patients found matching the search term.", "Search Results", JOptionPane.INFORMATION_MESSAGE);
         }
         loadPatientsIntoTable(searchResults); // Load search results into the table
     }
 
+    /**
+     * @return Patients whose names sound like or are near misspellings of the search term, best first, leaving out
+     * those already found.
+     */
+    private List<Patient> findSimilarNames(String searchTerm, List<Patient> alreadyFound) {
+        Set<Integer> found = new HashSet<>();
+        for (Patient patient : alreadyFound) {
+            found.add(patient.getPatientId());
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (NameMatch match : nameIndex.search(searchTerm, FUZZY_SEARCH_LIMIT)) {
+            if (!found.contains(match.getPatientId())) {
+                ids.add(match.getPatientId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Patient> byId = new HashMap<>();
+        for (Patient patient : patientDAO.getPatientsByIds(ids)) {
+            byId.put(patient.getPatientId(), patient);
+        }
+        List<Patient> similar = new ArrayList<>();
+        for (Integer id : ids) {
+            Patient patient = byId.get(id);
+            if (patient != null) {
+                similar.add(patient);
+            }
+        }
+        return similar;
+    }
+
     private void clearForm() {
         firstNameField.setText("");
         lastNameField.setText("");
@@ -362,26 +511,37 @@ public class PatientPanel extends JPanel {
         phoneField.setText("");
         emailField.setText("");
         selectedPatientId = -1; // Reset selected ID
+        selectedPatient = null;
     }
 
     private void populateFormFromTable() {
         int selectedRow = patientTable.getSelectedRow();
         if (selectedRow != -1) {
-            selectedPatientId = (int) tableModel.getValueAt(selectedRow, 0); // Get patient ID from table
+            TableModel model = model();
+            selectedPatientId = (int) model.getValueAt(selectedRow, 0); // Get patient ID from table
 
-            firstNameField.setText((String) tableModel.getValueAt(selectedRow, 1));
-            lastNameField.setText((String) tableModel.getValueAt(selectedRow, 2));
+            firstNameField.setText((String) model.getValueAt(selectedRow, 1));
+            lastNameField.setText((String) model.getValueAt(selectedRow, 2));
 
             // Set LocalDate directly to DatePicker
-            LocalDate dob = (LocalDate) tableModel.getValueAt(selectedRow, 3);
+            LocalDate dob = (LocalDate) model.getValueAt(selectedRow, 3);
             dobPicker.setDate(dob); // Set LocalDate directly
 
-            genderComboBox.setSelectedItem((String) tableModel.getValueAt(selectedRow, 4));
-            emailField.setText((String) tableModel.getValueAt(selectedRow, 5));
-            phoneField.setText((String) tableModel.getValueAt(selectedRow, 6));
-
-            // Retrieve full address, city, state, zip from DAO if not in table model
-            Patient fullPatient = patientDAO.getPatientById(selectedPatientId);
+            genderComboBox.setSelectedItem((String) model.getValueAt(selectedRow, 4));
+            emailField.setText((String) model.getValueAt(selectedRow, 5));
+            phoneField.setText((String) model.getValueAt(selectedRow, 6));
+
+            // Retrieve full address, city, state, zip from the store, or the DAO if not in the table model
+            int storeRow = storeModel != null ? storeModel.storeRowAt(selectedRow) : ColumnarPatientStore.NO_ROW;
+            Patient fullPatient;
+            if (storeRow != ColumnarPatientStore.NO_ROW) {
+                fullPatient = storeModel.getStore().toPatient(storeRow);
+                // Opening a patient is a read even though no DAO sees it
+                AuditLog.read(ChangeEvent.Entity.PATIENT, selectedPatientId);
+            } else {
+                fullPatient = patientDAO.getPatientById(selectedPatientId);
+            }
+            selectedPatient = fullPatient;
             if (fullPatient != null) {
                 addressField.setText(fullPatient.getAddress());
                 cityField.setText(fullPatient.getCity());
@@ -390,4 +550,17 @@ public class PatientPanel extends JPanel {
             }
         }
     }
+
+    private void fillForm(Patient patient) {
+        firstNameField.setText(patient.getFirstName());
+        lastNameField.setText(patient.getLastName());
+        dobPicker.setDate(patient.getDateOfBirth());
+        genderComboBox.setSelectedItem(patient.getGender());
+        addressField.setText(patient.getAddress());
+        cityField.setText(patient.getCity());
+        stateField.setText(patient.getState());
+        zipCodeField.setText(patient.getZipCode());
+        phoneField.setText(patient.getPhoneNumber());
+        emailField.setText(patient.getEmail());
+    }
 }
@@ -0,0 +1,143 @@
+package com.healthcare.ui;
+
+import com.healthcare.model.Patient;
+import com.healthcare.store.ColumnarPatientStore;
+import com.healthcare.util.IntList;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * The Patients table read straight from a {@link ColumnarPatientStore}, so the table holds no copy of its own.
+ * Shows either every patient in the store or just the ones from a search, by ID. Used on the event dispatch thread only.
+ */
+final class PatientStoreTableModel extends AbstractTableModel {
+
+    static final String[] COLUMN_NAMES = {"ID", "First Name", "Last Name", "DOB", "Gender", "Email", "Phone"};
+
+    private ColumnarPatientStore store;
+    private IntList shownIds; // null while showing the whole store
+
+    PatientStoreTableModel() {
+        this.store = new ColumnarPatientStore(0);
+    }
+
+    ColumnarPatientStore getStore() {
+        return store;
+    }
+
+    /**
+     * Replaces the store's contents with the given patients and shows them all.
+     */
+    void showAll(List<Patient> patients) {
+        store = ColumnarPatientStore.of(patients);
+        shownIds = null;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Shows only the given patients, e.g. search results, adding any the store doesn't have yet.
+     */
+    void showOnly(List<Patient> patients) {
+        IntList ids = new IntList(patients.size());
+        for (Patient patient : patients) {
+            store.upsert(patient);
+            ids.add(patient.getPatientId());
+        }
+        shownIds = ids;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Stores an added or changed patient. While a subset is shown, a patient outside it stays hidden.
+     */
+    void upsert(Patient patient) {
+        boolean existed = store.contains(patient.getPatientId());
+        int storeRow = store.upsert(patient);
+        if (shownIds != null) {
+            int shownRow = indexOfShown(patient.getPatientId());
+            if (shownRow != -1) {
+                fireTableRowsUpdated(shownRow, shownRow);
+            }
+        } else if (existed) {
+            fireTableRowsUpdated(storeRow, storeRow);
+        } else {
+            fireTableRowsInserted(storeRow, storeRow);
+        }
+    }
+
+    void remove(int patientId) {
+        int shownRow = shownIds != null ? indexOfShown(patientId) : store.rowOf(patientId);
+        store.remove(patientId);
+        if (shownRow == -1) {
+            return;
+        }
+        if (shownIds != null) {
+            IntList remaining = new IntList(shownIds.size());
+            for (int i = 0; i < shownIds.size(); i++) {
+                if (i != shownRow) {
+                    remaining.add(shownIds.get(i));
+                }
+            }
+            shownIds = remaining;
+        }
+        fireTableRowsDeleted(shownRow, shownRow);
+    }
+
+    /**
+     * @return The store row behind a table row, or {@link ColumnarPatientStore#NO_ROW}.
+     */
+    int storeRowAt(int tableRow) {
+        return shownIds == null ? tableRow : store.rowOf(shownIds.get(tableRow));
+    }
+
+    @Override
+    public int getRowCount() {
+        return shownIds == null ? store.size() : shownIds.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int tableRow, int column) {
+        int row = storeRowAt(tableRow);
+        if (row == ColumnarPatientStore.NO_ROW) {
+            return column == 0 ? shownIds.get(tableRow) : null;
+        }
+        switch (column) {
+            case 0:
+                return store.getPatientId(row);
+            case 1:
+                return store.getFirstName(row);
+            case 2:
+                return store.getLastName(row);
+            case 3:
+                return store.getDateOfBirth(row);
+            case 4:
+                return store.getGender(row);
+            case 5:
+                return store.getEmail(row);
+            case 6:
+                return store.getPhoneNumber(row);
+            default:
+                return null;
+        }
+    }
+
+    private int indexOfShown(int patientId) {
+        for (int i = 0; i < shownIds.size(); i++) {
+            if (shownIds.get(i) == patientId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
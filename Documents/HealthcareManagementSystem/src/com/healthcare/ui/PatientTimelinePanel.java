@@ -0,0 +1,220 @@
+package com.healthcare.ui;
+
+import com.healthcare.dao.DaoFactory;
+import com.healthcare.dao.DoctorDAO;
+import com.healthcare.dao.PatientDAO;
+import com.healthcare.dao.TimelineDAO;
+import com.healthcare.model.Doctor;
+import com.healthcare.model.Patient;
+import com.healthcare.model.TimelineEntry;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shows a single patient's appointments and medical records as one chronological timeline.
+ * Pages are loaded lazily from {@link TimelineDAO} as the clinician scrolls back in time.
+ * The timeline reads the database directly, so it is not available when the application uses a server.
+ */
+public class PatientTimelinePanel extends JPanel {
+
+    private static final int PAGE_SIZE = 50;
+    // Start loading the next page when the view is this close (in pixels) to the bottom
+    private static final int PREFETCH_MARGIN_PX = 200;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private TimelineDAO timelineDAO;
+    private PatientDAO patientDAO;
+    private DoctorDAO doctorDAO;
+
+    private DefaultTableModel tableModel;
+    private JTable timelineTable;
+    private JScrollPane scrollPane;
+
+    private JTextField searchField;
+    private JComboBox<String> patientComboBox;
+    private Map<String, Integer> patientMap = new HashMap<>();
+    private volatile Map<Integer, String> doctorNames; // Loaded once off the EDT, doctors are a small table
+    private JLabel statusLabel;
+
+    // Paging state for the currently shown patient
+    private int currentPatientId = -1;
+    private TimelineEntry lastEntry;
+    private boolean loading = false;
+    private boolean endReached = false;
+    private int generation = 0; // Discards pages that arrive after the patient was changed
+
+    public PatientTimelinePanel() {
+        timelineDAO = DaoFactory.createTimelineDAO();
+        patientDAO = DaoFactory.createPatientDAO();
+        doctorDAO = DaoFactory.createDoctorDAO();
+        setLayout(new BorderLayout(10, 10));
+
+        // --- Patient Selection Panel (North) ---
+        JPanel selectionPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        selectionPanel.setBorder(BorderFactory.createTitledBorder("Find Patient"));
+        searchField = new JTextField(20);
+        JButton searchButton = new JButton("Search");
+        patientComboBox = new JComboBox<>();
+        patientComboBox.setPrototypeDisplayValue("Firstname Lastname (ID: 000000)");
+        JButton showButton = new JButton("Show Timeline");
+
+        selectionPanel.add(new JLabel("Name, email or phone:"));
+        selectionPanel.add(searchField);
+        selectionPanel.add(searchButton);
+        selectionPanel.add(patientComboBox);
+        selectionPanel.add(showButton);
+        add(selectionPanel, BorderLayout.NORTH);
+
+        // --- Timeline Table (Center) ---
+        String[] columnNames = {"Date/Time", "Type", "Doctor", "Status / Diagnosis", "Reason / Treatment"};
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        timelineTable = new JTable(tableModel);
+        scrollPane = new JScrollPane(timelineTable);
+        add(scrollPane, BorderLayout.CENTER);
+
+        statusLabel = new JLabel("Search for a patient to show their timeline.");
+        add(statusLabel, BorderLayout.SOUTH);
+
+        if (timelineDAO == null) {
+            statusLabel.setText("The timeline needs a direct database connection; it is not available through the server.");
+            searchField.setEnabled(false);
+            searchButton.setEnabled(false);
+            patientComboBox.setEnabled(false);
+            showButton.setEnabled(false);
+            return;
+        }
+
+        // --- Action Listeners ---
+        searchButton.addActionListener(e -> searchPatients());
+        searchField.addActionListener(e -> searchPatients());
+        showButton.addActionListener(e -> showSelectedPatient());
+
+        // Load older entries as the clinician scrolls towards the bottom
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            JScrollBar bar = scrollPane.getVerticalScrollBar();
+            if (bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - PREFETCH_MARGIN_PX) {
+                loadNextPage();
+            }
+        });
+    }
+
+    private void searchPatients() {
+        String searchTerm = searchField.getText().trim();
+        if (searchTerm.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Please enter a search term.", "Search Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        patientComboBox.removeAllItems();
+        patientMap.clear();
+        List<Patient> patients = patientDAO.searchPatients(searchTerm);
+        for (Patient p : patients) {
+            String fullName = p.getFirstName() + " " + p.getLastName() + " (ID: " + p.getPatientId() + ")";
+            patientComboBox.addItem(fullName);
+            patientMap.put(fullName, p.getPatientId());
+        }
+        if (patients.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No patients found matching the search term.", "Search Results", JOptionPane.INFORMATION_MESSAGE);
+        } else if (patients.size() == 1) {
+            showSelectedPatient(); // Skip the extra click when the search is unambiguous
+        }
+    }
+
+    private void showSelectedPatient() {
+        Object selected = patientComboBox.getSelectedItem();
+        if (selected == null) {
+            JOptionPane.showMessageDialog(this, "Please search for and select a patient.", "No Selection", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        currentPatientId = patientMap.get(selected.toString());
+        generation++;
+        lastEntry = null;
+        endReached = false;
+        loading = false;
+        tableModel.setRowCount(0);
+        loadNextPage();
+    }
+
+    /**
+     * Loads the next (older) page of the timeline in the background and appends it to the table.
+     */
+    private void loadNextPage() {
+        if (currentPatientId == -1 || loading || endReached) {
+            return;
+        }
+        loading = true;
+        statusLabel.setText("Loading...");
+
+        final int patientId = currentPatientId;
+        final TimelineEntry after = lastEntry;
+        final int requestGeneration = generation;
+
+        new SwingWorker<List<TimelineEntry>, Void>() {
+            @Override
+            protected List<TimelineEntry> doInBackground() {
+                if (doctorNames == null) {
+                    Map<Integer, String> names = new HashMap<>();
+                    for (Doctor d : StartupLoader.doctorsOr(doctorDAO::getAllDoctors)) {
+                        names.put(d.getDoctorId(), d.getFirstName() + " " + d.getLastName() + " (" + d.getSpecialization() + ")");
+                    }
+                    doctorNames = names;
+                }
+                return timelineDAO.getTimelinePage(patientId, after, PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return; // A different patient was selected while this page was loading
+                }
+                loading = false;
+                try {
+                    List<TimelineEntry> page = get();
+                    appendPage(page);
+                    if (page.size() < PAGE_SIZE) {
+                        endReached = true;
+                    }
+                    statusLabel.setText(tableModel.getRowCount() + " entries loaded"
+                            + (endReached ? " (start of history reached)." : ", scroll down for older entries."));
+
+                    // If the first page does not fill the view there is no scrollbar to trigger the next load
+                    if (!endReached && scrollPane.getVerticalScrollBar().getMaximum() <= scrollPane.getViewport().getHeight()) {
+                        SwingUtilities.invokeLater(PatientTimelinePanel.this::loadNextPage);
+                    }
+                } catch (Exception ex) {
+                    statusLabel.setText("Failed to load timeline.");
+                    ex.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    private void appendPage(List<TimelineEntry> page) {
+        for (TimelineEntry entry : page) {
+            String doctorName = "N/A";
+            if (entry.getDoctorId() != null) {
+                doctorName = doctorNames.getOrDefault(entry.getDoctorId(), "Doctor ID " + entry.getDoctorId());
+            }
+            tableModel.addRow(new Object[]{
+                    entry.getEventTime() != null ? entry.getEventTime().format(TIME_FORMAT) : "",
+                    entry.isAppointment() ? "Appointment" : "Medical Record",
+                    doctorName,
+                    entry.getTitle(),
+                    entry.getDetail()
+            });
+            lastEntry = entry;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.healthcare.ui;
+
+import com.healthcare.report.DoctorActivity;
+import com.healthcare.report.DoctorActivityReport;
+import com.healthcare.report.DoctorActivityReportEngine;
+import com.github.lgooddatepicker.components.DatePicker;
+import com.github.lgooddatepicker.components.DatePickerSettings;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+public class ReportPanel extends JPanel {
+
+    private DoctorActivityReportEngine reportEngine;
+    private DefaultTableModel tableModel;
+
+    private DatePicker fromDatePicker;
+    private DatePicker toDatePicker;
+    private JButton generateButton;
+    private JButton exportButton;
+    private JLabel statusLabel;
+
+    // The last generated report, kept for CSV export
+    private DoctorActivityReport currentReport;
+
+    public ReportPanel() {
+        reportEngine = new DoctorActivityReportEngine();
+        setLayout(new BorderLayout(10, 10));
+
+        // --- Options Panel (North) ---
+        JPanel optionsPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        optionsPanel.setBorder(BorderFactory.createTitledBorder("Doctor Activity Report"));
+
+        DatePickerSettings fromSettings = new DatePickerSettings();
+        fromSettings.setFormatForDatesCommonEra("yyyy-MM-dd");
+        fromDatePicker = new DatePicker(fromSettings);
+        fromDatePicker.setDate(LocalDate.now().withDayOfMonth(1)); // Default to the current month
+
+        DatePickerSettings toSettings = new DatePickerSettings();
+        toSettings.setFormatForDatesCommonEra("yyyy-MM-dd");
+        toDatePicker = new DatePicker(toSettings);
+        toDatePicker.setDate(LocalDate.now());
+
+        generateButton = new JButton("Generate Report");
+        exportButton = new JButton("Export CSV");
+        exportButton.setEnabled(false);
+
+        optionsPanel.add(new JLabel("From:"));
+        optionsPanel.add(fromDatePicker);
+        optionsPanel.add(new JLabel("To:"));
+        optionsPanel.add(toDatePicker);
+        optionsPanel.add(generateButton);
+        optionsPanel.add(exportButton);
+        add(optionsPanel, BorderLayout.NORTH);
+
+        // --- Table Panel (Center) ---
+        String[] columnNames = {"Doctor ID", "Doctor", "Specialization", "Appointments", "Completed",
+                "Cancelled", "Completion %", "Cancellation %", "Distinct Patients", "Records Authored"};
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable reportTable = new JTable(tableModel);
+        reportTable.setAutoCreateRowSorter(true);
+        add(new JScrollPane(reportTable), BorderLayout.CENTER);
+
+        statusLabel = new JLabel("Select a date range and generate the report.");
+        add(statusLabel, BorderLayout.SOUTH);
+
+        // --- Action Listeners ---
+        generateButton.addActionListener(e -> generateReport());
+        exportButton.addActionListener(e -> exportCsv());
+    }
+
+    private void generateReport() {
+        LocalDate from = fromDatePicker.getDate();
+        LocalDate to = toDatePicker.getDate();
+        if (from == null || to == null || to.isBefore(from)) {
+            JOptionPane.showMessageDialog(this, "Please select a valid date range.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        generateButton.setEnabled(false);
+        statusLabel.setText("Generating report...");
+
+        // The report can scan years of data, so keep it off the EDT
+        new SwingWorker<DoctorActivityReport, Void>() {
+            @Override
+            protected DoctorActivityReport doInBackground() {
+                return reportEngine.generate(from, to);
+            }
+
+            @Override
+            protected void done() {
+                generateButton.setEnabled(true);
+                try {
+                    DoctorActivityReport report = get();
+                    if (report == null) {
+                        statusLabel.setText("Report failed.");
+                        JOptionPane.showMessageDialog(ReportPanel.this, "Failed to generate report. Check logs for details.", "Database Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    showReport(report);
+                } catch (Exception ex) {
+                    statusLabel.setText("Report failed.");
+                    ex.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    private void showReport(DoctorActivityReport report) {
+        currentReport = report;
+        tableModel.setRowCount(0);
+        for (DoctorActivity row : report.getRows()) {
+            tableModel.addRow(new Object[]{
+                    row.getDoctorId(),
+                    row.getDoctorName(),
+                    row.getSpecialization(),
+                    row.getAppointments(),
+                    row.getCompleted(),
+                    row.getCancelled(),
+                    String.format("%.1f", row.getCompletionRate() * 100),
+                    String.format("%.1f", row.getCancellationRate() * 100),
+                    row.getDistinctPatients(),
+                    row.getRecordsAuthored()
+            });
+        }
+        exportButton.setEnabled(true);
+        statusLabel.setText("Report for " + report.getFrom() + " to " + report.getTo() + ": "
+                + report.getRows().size() + " doctors, generated in " + report.getElapsedMillis() + " ms.");
+    }
+
+    private void exportCsv() {
+        if (currentReport == null) {
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setSelectedFile(new File("doctor-activity-" + currentReport.getFrom() + "-to-" + currentReport.getTo() + ".csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = fileChooser.getSelectedFile();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            currentReport.writeCsv(writer);
+            JOptionPane.showMessageDialog(this, "Report exported to " + file.getAbsolutePath(), "Success", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Failed to export report: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.healthcare.ui;
+
+import com.healthcare.audit.AuditLog;
+import com.healthcare.config.AppConfig;
+import com.healthcare.dao.AsyncDao;
+import com.healthcare.dao.ContactIndex;
+import com.healthcare.dao.DaoFactory;
+import com.healthcare.dao.DoctorDAO;
+import com.healthcare.dao.PatientDAO;
+import com.healthcare.event.ChangeEvent;
+import com.healthcare.event.ChangeEventBus;
+import com.healthcare.model.Appointment;
+import com.healthcare.model.Doctor;
+import com.healthcare.model.Patient;
+import com.healthcare.search.MedicalRecordSearchIndex;
+import com.healthcare.snapshot.ReferenceDataSync;
+import com.healthcare.snapshot.ReferenceSnapshot;
+import com.healthcare.snapshot.SnapshotFile;
+import com.healthcare.util.ConnectionPool;
+import com.healthcare.util.DatabaseConnection;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Startup pipeline for the desktop app. While the frame is being shown, it warms the connection pool
+ * and loads the patient, doctor and appointment lists concurrently, once, for all the panels that need them.
+ * Patients and doctors come from the local reference snapshot when connected to MySQL directly,
+ * and the medical history search index is brought up to date.
+ * <p>
+ * A panel built shortly after launch takes its list from here instead of querying again; once the list
+ * is older than {@link #MAX_AGE_MS} or the entity has changed since, panels load their own as before.
+ */
+final class StartupLoader {
+
+    // Long enough for a user to open the first few tabs; after that the panels' own reloads are fresher
+    static final long MAX_AGE_MS = 30_000;
+    private static final int WARM_CONNECTIONS = 4;
+
+    private static final long startNanos = System.nanoTime();
+    private static volatile Preload<Patient> patients;
+    private static volatile Preload<Doctor> doctors;
+    private static volatile Preload<Appointment> appointments;
+    private static volatile boolean firstPaintReported = false;
+
+    private StartupLoader() {
+    }
+
+    /**
+     * Starts warm-up and the preloads in the background; returns at once.
+     */
+    static void start(boolean directDatabase) {
+        if (directDatabase) {
+            // Before the preloads read anything; through the API the server records instead
+            AuditLog.getInstance().start();
+            // Pool the desktop app's connections too, so the ones warmed here are the ones the panels use
+            AppConfig config = AppConfig.get();
+            DatabaseConnection.enablePooling(config.get(AppConfig.DB_MAX_CONNECTIONS), config.get(AppConfig.POOL_BORROW_TIMEOUT_MS));
+            ConnectionPool pool = DatabaseConnection.getPool();
+            Thread.ofVirtual().name("pool-warm-up").start(() -> {
+                long warmStart = System.nanoTime();
+                int opened = pool.prefill(Math.min(WARM_CONNECTIONS, pool.getMaxSize()));
+                report("Connection pool warmed (" + opened + " connections)", warmStart);
+            });
+            // Medical history search catches up with the database before the first search needs it
+            Thread.ofVirtual().name("search-index").start(() -> {
+                long syncStart = System.nanoTime();
+                if (MedicalRecordSearchIndex.getInstance().sync()) {
+                    report("Search index synced", syncStart);
+                }
+            });
+            // Email and phone duplicate checks answer locally once this is loaded
+            Thread.ofVirtual().name("contact-index").start(() -> {
+                long loadStart = System.nanoTime();
+                if (ContactIndex.getInstance().load()) {
+                    report("Contact index loaded", loadStart);
+                }
+            });
+        }
+
+        patients = new Preload<>(ChangeEvent.Entity.PATIENT);
+        doctors = new Preload<>(ChangeEvent.Entity.DOCTOR);
+        appointments = new Preload<>(ChangeEvent.Entity.APPOINTMENT);
+
+        AsyncDao asyncDao = DaoFactory.getAsyncDao();
+        String snapshotFile = AppConfig.get().get(AppConfig.CLIENT_SNAPSHOT_FILE);
+        if (directDatabase && !snapshotFile.isEmpty()) {
+            // Patients and doctors come from the local snapshot plus what changed since, not the whole tables
+            CompletableFuture<ReferenceSnapshot> reference = syncReferenceData(Paths.get(snapshotFile));
+            patients.track(reference.thenApply(ReferenceSnapshot::getPatients), "Patients");
+            doctors.track(reference.thenApply(ReferenceSnapshot::getDoctors), "Doctors");
+        } else {
+            patients.track(asyncDao.getAllPatients(), "Patients");
+            doctors.track(asyncDao.getAllDoctors(), "Doctors");
+        }
+        appointments.track(asyncDao.getAllAppointments(), "Appointments");
+    }
+
+    private static CompletableFuture<ReferenceSnapshot> syncReferenceData(Path file) {
+        ReferenceDataSync sync = new ReferenceDataSync(new SnapshotFile(file), AppConfig.get().get(AppConfig.DB_URL),
+                new PatientDAO(), new DoctorDAO());
+        CompletableFuture<ReferenceSnapshot> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("reference-data").start(() -> {
+            try {
+                result.complete(sync.sync());
+            } catch (SQLException | RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return The preloaded patients if still current, otherwise what {@code load} returns.
+     */
+    static List<Patient> patientsOr(Supplier<List<Patient>> load) {
+        return take(patients, load);
+    }
+
+    static List<Doctor> doctorsOr(Supplier<List<Doctor>> load) {
+        return take(doctors, load);
+    }
+
+    static List<Appointment> appointmentsOr(Supplier<List<Appointment>> load) {
+        return take(appointments, load);
+    }
+
+    /**
+     * Reports time from launch to the frame's first paint. Called on every paint; only the first counts.
+     */
+    static void firstPaint() {
+        if (!firstPaintReported) {
+            firstPaintReported = true;
+            report("First paint", startNanos);
+        }
+    }
+
+    /**
+     * Reports how long building a tab's panel took.
+     */
+    static void tabBuilt(String title, long buildStartNanos) {
+        report("Tab '" + title + "' built", buildStartNanos);
+    }
+
+    private static <T> List<T> take(Preload<T> preload, Supplier<List<T>> load) {
+        List<T> preloaded = preload != null ? preload.getIfCurrent() : null;
+        return preloaded != null ? preloaded : load.get();
+    }
+
+    private static void report(String what, long sinceNanos) {
+        System.out.println("Startup: " + what + " after "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sinceNanos) + " ms");
+    }
+
+    /**
+     * One preloaded list, valid until its entity changes or it gets too old.
+     */
+    private static final class Preload<T> {
+        private final ChangeEvent.Entity entity;
+        private final long loadStartNanos = System.nanoTime();
+        private volatile boolean stale = false;
+        private final ChangeEventBus.ChangeListener invalidator;
+        private volatile CompletableFuture<List<T>> future;
+
+        Preload(ChangeEvent.Entity entity) {
+            this.entity = entity;
+            this.invalidator = event -> {
+                if (event.getEntity() == this.entity) {
+                    markStale();
+                }
+            };
+            ChangeEventBus.getInstance().subscribe(invalidator);
+        }
+
+        void track(CompletableFuture<List<T>> load, String name) {
+            future = load;
+            load.whenComplete((list, error) -> {
+                if (error != null) {
+                    System.err.println("Startup: preloading " + name + " failed: " + error.getMessage());
+                    markStale();
+                } else {
+                    report(name + " preloaded (" + list.size() + ")", startNanos);
+                }
+            });
+        }
+
+        /**
+         * Waits for the load if it is still running (it started at launch, so the wait is the remainder).
+         */
+        List<T> getIfCurrent() {
+            if (stale || System.nanoTime() - loadStartNanos > TimeUnit.MILLISECONDS.toNanos(MAX_AGE_MS)) {
+                markStale();
+                return null;
+            }
+            CompletableFuture<List<T>> load = future;
+            if (load == null) {
+                return null;
+            }
+            try {
+                List<T> list = load.join();
+                return stale ? null : Collections.unmodifiableList(list);
+            } catch (CompletionException ex) {
+                return null;
+            }
+        }
+
+        private void markStale() {
+            if (!stale) {
+                stale = true;
+                future = null; // Let the list be collected once the panels have their own copies
+                ChangeEventBus.getInstance().unsubscribe(invalidator);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.healthcare.ui;
+
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * Row-level helpers for the panels' table models, which all keep the entity ID in column 0.
+ */
+final class TableRows {
+
+    private TableRows() {
+    }
+
+    /**
+     * @return The model index of the row with the given ID, or -1 if it is not shown.
+     */
+    static int indexOfId(DefaultTableModel model, int id) {
+        for (int row = 0; row < model.getRowCount(); row++) {
+            Object value = model.getValueAt(row, 0);
+            if (value instanceof Integer && (Integer) value == id) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces the row with the same ID in place, or appends it if it is not shown.
+     *
+     * @param values The row values, with the ID in column 0.
+     */
+    static void upsert(DefaultTableModel model, Object[] values) {
+        int row = indexOfId(model, (Integer) values[0]);
+        if (row == -1) {
+            model.addRow(values);
+            return;
+        }
+        for (int column = 0; column < values.length; column++) {
+            model.setValueAt(values[column], row, column);
+        }
+    }
+
+    /**
+     * Replaces the row with the same ID in place if it is shown, otherwise does nothing.
+     */
+    static void updateIfPresent(DefaultTableModel model, Object[] values) {
+        if (indexOfId(model, (Integer) values[0]) != -1) {
+            upsert(model, values);
+        }
+    }
+
+    /**
+     * Removes the row with the given ID if it is shown.
+     */
+    static void remove(DefaultTableModel model, int id) {
+        int row = indexOfId(model, id);
+        if (row != -1) {
+            model.removeRow(row);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.healthcare.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Bloom filter over strings: says for certain that a value was never added, or that it may have been.
+ * <p>
+ * Sized for an expected number of values and a false-positive rate; past that many values the rate climbs, which
+ * {@link #isOverCapacity()} reports so the owner can rebuild it larger. Values cannot be removed. Thread-safe:
+ * bits are set with compare-and-set, so adds and lookups may run concurrently without a lock.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final LongAdder added = new LongAdder();
+
+    /**
+     * @param expectedValues    How many values the filter is sized for.
+     * @param falsePositiveRate The wanted chance that {@link #mightContain} is true for a value never added.
+     */
+    public BloomFilter(long expectedValues, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long n = Math.max(1, expectedValues);
+        // m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 hashes minimise the false-positive rate
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.capacity = n;
+    }
+
+    public void put(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            setBit(index(h1 + i * h2));
+        }
+        added.increment();
+    }
+
+    /**
+     * @return false if the value was certainly never added; true if it may have been.
+     */
+    public boolean mightContain(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return How many values were added, counting repeats.
+     */
+    public long getAddedCount() {
+        return added.sum();
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Whether more values were added than the filter was sized for.
+     */
+    public boolean isOverCapacity() {
+        return added.sum() > capacity;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    // Kirsch-Mitzenmacher: hash i is h1 + i*h2, which is as good as k independent hashes
+    private long index(int combinedHash) {
+        return (combinedHash & 0x7FFFFFFFL) % bitCount;
+    }
+
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer to spread the high bits
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
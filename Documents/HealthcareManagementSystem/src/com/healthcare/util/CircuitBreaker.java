@@ -0,0 +1,119 @@
+package com.healthcare.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops callers from hammering a database that is down.
+ * <p>
+ * After {@code failureThreshold} connection attempts in a row fail, the breaker opens and every
+ * attempt fails at once with a {@link CircuitOpenException} for {@code openMillis}. Then it lets a
+ * single probe through (half-open): if the probe connects the breaker closes, otherwise it opens again.
+ * Only failures to connect count; a query that fails on a good connection says nothing about the database being down.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private volatile int failureThreshold;
+    private volatile long openMillis;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt;
+    private boolean probeInFlight = false;
+
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name             Used in messages, e.g. "primary database".
+     * @param failureThreshold Consecutive failures that open the breaker.
+     * @param openMillis       How long the breaker stays open before probing.
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Call before a connection attempt; each successful call must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onAbandoned()}.
+     *
+     * @throws CircuitOpenException if the breaker is open, or half-open with a probe already running.
+     */
+    public synchronized void beforeAttempt() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            long remaining = openedAt + openMillis - System.currentTimeMillis();
+            if (remaining > 0) {
+                rejected.incrementAndGet();
+                throw new CircuitOpenException("The " + name + " is unavailable; not retrying for another " + remaining + " ms", remaining);
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejected.incrementAndGet();
+                throw new CircuitOpenException("The " + name + " is unavailable; checking whether it is back", openMillis);
+            }
+            probeInFlight = true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            System.out.println("The " + name + " is reachable again.");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            if (state == State.CLOSED) {
+                trips.incrementAndGet();
+                System.err.println("The " + name + " failed " + consecutiveFailures + " times in a row; failing fast for " + openMillis + " ms.");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The attempt ended without telling whether the database is up, e.g. it timed out waiting for a pooled connection.
+     */
+    public synchronized void onAbandoned() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * @return How many times the breaker has opened from closed.
+     */
+    public long getTripCount() {
+        return trips.get();
+    }
+
+    /**
+     * @return Attempts refused without trying the database.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+}
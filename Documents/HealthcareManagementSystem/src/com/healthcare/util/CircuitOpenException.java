@@ -0,0 +1,12 @@
+package com.healthcare.util;
+
+/**
+ * Thrown without trying the database while the {@link CircuitBreaker} is open after repeated
+ * connection failures.
+ */
+public class CircuitOpenException extends DatabaseUnavailableException {
+
+    public CircuitOpenException(String message, long retryAfterMillis) {
+        super(message, "08001", retryAfterMillis, null);
+    }
+}
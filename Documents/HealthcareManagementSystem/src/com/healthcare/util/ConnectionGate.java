@@ -0,0 +1,126 @@
+package com.healthcare.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds how many connections are in use at once. Callers beyond the limit queue in arrival order
+ * until a deadline; when the queue itself is full they are turned away at once, so a slow database
+ * makes callers fail quickly instead of piling up threads.
+ */
+public class ConnectionGate {
+
+    private final int limit;
+    private final Semaphore permits;
+    private volatile long waitTimeoutMs;
+    private volatile int maxWaiting;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * @param limit         The maximum number of connections in use at once.
+     * @param waitTimeoutMs How long a caller waits for a free slot.
+     * @param maxWaiting    How many callers may wait; further callers fail at once.
+     */
+    public ConnectionGate(int limit, long waitTimeoutMs, int maxWaiting) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Connection limit must be at least 1");
+        }
+        this.limit = limit;
+        this.permits = new Semaphore(limit, true);
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.maxWaiting = maxWaiting;
+    }
+
+    /**
+     * Takes a slot, waiting if all are in use. Every successful call must be paired with {@link #release()}.
+     *
+     * @param what Used in the message, e.g. "a pooled connection".
+     * @throws DatabaseBusyException if too many callers are waiting or the wait timed out.
+     */
+    public void acquire(String what) throws DatabaseBusyException {
+        if (permits.tryAcquire()) {
+            acquired.incrementAndGet();
+            return;
+        }
+        if (permits.getQueueLength() >= maxWaiting) {
+            rejections.incrementAndGet();
+            throw new DatabaseBusyException("Database busy: " + limit + " connections in use and "
+                    + maxWaiting + " callers already waiting for " + what);
+        }
+        waits.incrementAndGet();
+        long timeoutMs = waitTimeoutMs;
+        try {
+            if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new DatabaseBusyException("Database busy: timed out after " + timeoutMs + " ms waiting for " + what);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            DatabaseBusyException busy = new DatabaseBusyException("Interrupted while waiting for " + what);
+            busy.initCause(ex);
+            throw busy;
+        }
+        acquired.incrementAndGet();
+    }
+
+    /**
+     * Takes a slot only if one is free right now, without counting it as a caller.
+     */
+    boolean tryAcquireQuietly() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInUseCount() {
+        return limit - permits.availablePermits();
+    }
+
+    /**
+     * @return The number of callers currently waiting for a slot.
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public void setWaitTimeoutMs(long waitTimeoutMs) {
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    public void setMaxWaiting(int maxWaiting) {
+        this.maxWaiting = maxWaiting;
+    }
+
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+
+    /**
+     * @return How many callers had to wait because every slot was in use.
+     */
+    public long getWaitCount() {
+        return waits.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return How many callers were turned away without waiting because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejections.get();
+    }
+}
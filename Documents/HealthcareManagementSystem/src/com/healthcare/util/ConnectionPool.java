@@ -0,0 +1,284 @@
+package com.healthcare.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A small fixed-size JDBC connection pool.
+ * <p>
+ * Callers get a proxy {@link Connection}; closing it returns the physical connection to the pool
+ * instead of closing it, so the DAOs' existing try-with-resources blocks work unchanged.
+ * At most {@code maxSize} connections are handed out at once, further callers wait up to the borrow timeout
+ * (see {@link ConnectionGate}).
+ */
+public class ConnectionPool {
+
+    // Connections idle longer than this are validated before being handed out again
+    private static final long VALIDATE_AFTER_IDLE_MS = 30_000;
+
+    /**
+     * Opens a new physical connection for the pool.
+     */
+    @FunctionalInterface
+    public interface ConnectionOpener {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionOpener opener;
+    private final ConnectionGate gate;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param maxSize         The maximum number of physical connections.
+     * @param borrowTimeoutMs How long {@link #borrow()} waits for a free connection.
+     */
+    public ConnectionPool(int maxSize, long borrowTimeoutMs) {
+        this(maxSize, borrowTimeoutMs, Integer.MAX_VALUE, DatabaseConnection::openPhysicalConnection);
+    }
+
+    /**
+     * @param maxSize         The maximum number of physical connections.
+     * @param borrowTimeoutMs How long {@link #borrow()} waits for a free connection.
+     * @param maxWaiting      How many callers may wait for a connection; further callers fail at once.
+     * @param opener          Opens physical connections, e.g. to a read replica instead of the primary.
+     */
+    public ConnectionPool(int maxSize, long borrowTimeoutMs, int maxWaiting, ConnectionOpener opener) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.gate = new ConnectionGate(maxSize, borrowTimeoutMs, maxWaiting);
+        this.opener = opener;
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout if all are in use.
+     *
+     * @return A pooled connection; close it to give it back.
+     * @throws DatabaseBusyException if all connections stayed in use until the timeout, or too many callers are waiting.
+     * @throws SQLException if the pool is closed or a new connection could not be opened.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new DatabaseUnavailableException("Connection pool is closed", null);
+        }
+        gate.acquire("a pooled connection");
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    return pooled.lease();
+                }
+                closeQuietly(pooled.physical);
+            }
+            return new PooledConnection(opener.open()).lease();
+        } catch (SQLException | RuntimeException ex) {
+            gate.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Opens connections ahead of demand until {@code count} are idle, so the first callers don't pay for
+     * connecting. Stops early if connections are in use or opening one fails.
+     *
+     * @return The number of connections opened.
+     */
+    public int prefill(int count) {
+        int opened = 0;
+        while (!closed && idle.size() < count && gate.tryAcquireQuietly()) {
+            try {
+                PooledConnection pooled = new PooledConnection(opener.open());
+                if (closed) {
+                    closeQuietly(pooled.physical); // Closed while this one was opening
+                    break;
+                }
+                idle.offerLast(pooled);
+                opened++;
+            } catch (SQLException ex) {
+                System.err.println("Could not warm up the connection pool: " + ex.getMessage());
+                break;
+            } finally {
+                gate.release();
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * Closes all idle connections and rejects further borrows. Connections in use are closed when returned.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled.physical);
+        }
+    }
+
+    public int getMaxSize() {
+        return gate.getLimit();
+    }
+
+    /**
+     * Changes how long later calls to {@link #borrow()} wait; callers already waiting keep their deadline.
+     */
+    public void setBorrowTimeoutMs(long borrowTimeoutMs) {
+        gate.setWaitTimeoutMs(borrowTimeoutMs);
+    }
+
+    public void setMaxWaiting(int maxWaiting) {
+        gate.setMaxWaiting(maxWaiting);
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getInUseCount() {
+        return gate.getInUseCount();
+    }
+
+    /**
+     * @return The number of callers currently waiting for a connection.
+     */
+    public int getWaitingCount() {
+        return gate.getWaitingCount();
+    }
+
+    public long getBorrowCount() {
+        return gate.getAcquiredCount();
+    }
+
+    /**
+     * @return How many borrows had to wait because all connections were in use.
+     */
+    public long getWaitCount() {
+        return gate.getWaitCount();
+    }
+
+    public long getTimeoutCount() {
+        return gate.getTimeoutCount();
+    }
+
+    /**
+     * @return How many borrows failed at once because too many callers were already waiting.
+     */
+    public long getRejectedCount() {
+        return gate.getRejectedCount();
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.returnedAt > VALIDATE_AFTER_IDLE_MS) {
+                return pooled.physical.isValid(2);
+            }
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        try {
+            boolean reusable = !closed && !pooled.physical.isClosed();
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                // Don't leak a half-finished transaction into the next borrower
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.returnedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled); // Most recently used first, so surplus connections can go stale and be dropped
+            } else {
+                closeQuietly(pooled.physical);
+            }
+        } catch (SQLException ex) {
+            System.err.println("Discarding pooled connection: " + ex.getMessage());
+            closeQuietly(pooled.physical);
+        } finally {
+            gate.release();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ex) {
+            // Already broken, nothing more to do
+        }
+    }
+
+    /**
+     * A physical connection plus the bookkeeping for handing it out.
+     */
+    private class PooledConnection {
+        final Connection physical;
+        long returnedAt = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection until the borrower closes it.
+     * Each borrow gets its own lease, so a late close() on an old proxy cannot return the connection twice.
+     * <p>
+     * Not synchronized: a lease has one borrower, and holding a monitor during the driver's socket I/O would pin a
+     * virtual thread to its carrier, capping concurrent queries at the core count.
+     */
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (released.compareAndSet(false, true)) {
+                        giveBack(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (released.get() ? ", released]" : "]");
+                default:
+                    if (released.get()) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.healthcare.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects per-operation latency statistics for DAO calls.
+ * DAO methods call {@link #start()} before touching the database and
+ * {@link #record(String, long)} once they are done (usually in a finally block).
+ */
+public class DaoMetrics {
+
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final LatencyHistogram overall = new LatencyHistogram();
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    private DaoMetrics() {
+    }
+
+    /**
+     * Marks the start of a DAO call.
+     *
+     * @return The start timestamp to pass to {@link #record(String, long)}.
+     */
+    public static long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the completion of a DAO call started with {@link #start()}.
+     *
+     * @param operation  A stable operation name, e.g. "PatientDAO.getPatientById".
+     * @param startNanos The value returned by {@link #start()}.
+     */
+    public static void record(String operation, long startNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        inFlight.decrementAndGet();
+        overall.record(micros);
+        histograms.computeIfAbsent(operation, k -> new LatencyHistogram()).record(micros);
+    }
+
+    /**
+     * @return The number of DAO calls currently executing.
+     */
+    public static int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return The histogram across all DAO operations.
+     */
+    public static LatencyHistogram getOverall() {
+        return overall;
+    }
+
+    /**
+     * @return A sorted, read-only view of the per-operation histograms.
+     */
+    public static Map<String, LatencyHistogram> getByOperation() {
+        return Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+}
@@ -0,0 +1,12 @@
+package com.healthcare.util;
+
+/**
+ * The database is reachable but every allowed connection is in use, and either the wait for one
+ * timed out or too many callers were already waiting.
+ */
+public class DatabaseBusyException extends DatabaseUnavailableException {
+
+    public DatabaseBusyException(String message) {
+        super(message, "08004", 1_000, null);
+    }
+}
@@ -1,44 +1,328 @@
 package com.healthcare.util;
 
+import com.healthcare.config.AppConfig;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 
+/**
+ * Hands out database connections. The URL, credentials and Connector/J properties come from
+ * {@link AppConfig} (see healthcare.properties).
+ * <p>
+ * Connections to the primary are rationed: at most {@code db.maxConnections} are open at once without
+ * a pool ({@code pool.size} with one), callers beyond that wait in line until {@code pool.borrowTimeoutMs},
+ * and when {@code pool.maxWaiting} are already waiting the next caller gets a {@link DatabaseBusyException}
+ * straight away. After repeated failures to connect, a {@link CircuitBreaker} fails calls at once with a
+ * {@link CircuitOpenException} until a probe gets through again.
+ * <p>
+ * Inside a {@link TransactionScope}, both methods return the scope's connection instead.
+ */
 public class DatabaseConnection {
 
-//    DB Credeital
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/healthcare_system_db";
-    private static final String USER = "root";
-    private static final String PASS = "nith@ite";
+    // Number of physical connections opened since startup (shown on the dashboard)
+    private static final AtomicLong connectionsOpened = new AtomicLong();
+
+    // Shared pool used in server mode; null means every call opens its own connection
+    private static volatile ConnectionPool pool;
+    private static int poolSize;
+    private static long poolTimeoutMs;
+
+    // Read replicas for read-only DAO calls; null means reads go to the primary too
+    private static volatile ReplicaRouter replicas;
+
+    // Limits connections opened without a pool (the desktop app)
+    private static final ConnectionGate gate;
+    private static final CircuitBreaker breaker;
 
+    static {
+        AppConfig config = AppConfig.get();
+        gate = new ConnectionGate(config.get(AppConfig.DB_MAX_CONNECTIONS), config.get(AppConfig.POOL_BORROW_TIMEOUT_MS),
+                config.get(AppConfig.POOL_MAX_WAITING));
+        breaker = new CircuitBreaker("primary database", config.get(AppConfig.DB_CIRCUIT_FAILURE_THRESHOLD),
+                config.get(AppConfig.DB_CIRCUIT_OPEN_MS));
+        List<String> replicaUrls = config.get(AppConfig.DB_REPLICAS);
+        if (!replicaUrls.isEmpty()) {
+            useReplicas(replicaUrls, config.get(AppConfig.DB_STICKY_MS));
+        }
+        AppConfig.addReloadListener(DatabaseConnection::applyReloadedConfig);
+    }
 
 
     /**
      * Establishes and returns a database connection.
+     * When pooling is enabled the connection comes from the shared pool and closing it returns it there.
      *
      * @return Connection object if successful, null otherwise.
      */
     public static Connection getConnection() {
-        Connection conn = null;
         try {
-            // Register JDBC driver (optional for newer JDBC versions, but good practice)
-            Class.forName("com.mysql.cj.jdbc.Driver");
+            return requireConnection();
+        } catch (SQLException se) {
+            logFailure(se);
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #getConnection()}, but throws instead of returning null.
+     *
+     * @throws DatabaseBusyException if every allowed connection stayed in use, or too many callers are waiting.
+     * @throws CircuitOpenException if recent attempts failed and the database is not being tried for now.
+     * @throws DatabaseUnavailableException if the database could not be reached.
+     * @throws SQLException for other failures, e.g. a missing driver.
+     */
+    public static Connection requireConnection() throws SQLException {
+        Connection bound = TransactionScope.boundConnection();
+        if (bound != null) {
+            return bound; // Inside a TransactionScope: the DAO call joins its transaction
+        }
+        return requireUnboundConnection();
+    }
 
-            // Open a connection
+    /**
+     * Like {@link #requireConnection()}, but never joins this thread's {@link TransactionScope}: the statements
+     * run on a connection of their own and commit at once, even if the surrounding transaction rolls back.
+     *
+     * @throws SQLException what {@link #requireConnection()} throws.
+     */
+    public static Connection requireUnboundConnection() throws SQLException {
+        breaker.beforeAttempt();
+        Connection conn;
+        try {
+            ConnectionPool currentPool = pool;
+            conn = currentPool != null ? currentPool.borrow() : openGatedConnection();
+        } catch (DatabaseBusyException ex) {
+            breaker.onAbandoned(); // Says nothing about whether the database is up
+            throw ex;
+        } catch (SQLException ex) {
+            breaker.onFailure();
+            if (ex instanceof DatabaseUnavailableException || ex.getSQLState() == null || !ex.getSQLState().startsWith("08")) {
+                throw ex;
+            }
+            throw new DatabaseUnavailableException("Cannot reach the database: " + ex.getMessage(), ex.getSQLState(), 0, ex);
+        } catch (RuntimeException ex) {
+            breaker.onAbandoned();
+            throw ex;
+        }
+        breaker.onSuccess();
+        return conn;
+    }
+
+    /**
+     * Opens a physical connection within the {@code db.maxConnections} limit; closing it frees the slot.
+     */
+    private static Connection openGatedConnection() throws SQLException {
+        gate.acquire("a database connection");
+        Connection conn;
+        try {
             System.out.println("Connecting to database...");
-            conn = DriverManager.getConnection(DB_URL, USER, PASS);
+            conn = openPhysicalConnection();
             System.out.println("Database connected successfully!");
-        } catch (SQLException se) {
-            // Handle errors for JDBC
+        } catch (SQLException | RuntimeException ex) {
+            gate.release();
+            throw ex;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new GatedConnection(conn));
+    }
+
+    private static void logFailure(SQLException se) {
+        System.err.println("Could not get a database connection: " + se.getMessage());
+        if (!(se instanceof DatabaseUnavailableException)) {
+            // Expected while the database is down or overloaded; a stack trace per call would bury everything else
             se.printStackTrace();
-        } catch (Exception e) {
-            // Handle errors for Class.forName
-            e.printStackTrace();
         }
+    }
+
+    /**
+     * Returns a connection for a read-only DAO call: a read replica when replicas are configured
+     * and healthy, otherwise the primary (see {@link ReplicaRouter}).
+     *
+     * @return Connection object if successful, null otherwise.
+     */
+    public static Connection getReadConnection() {
+        try {
+            return requireReadConnection();
+        } catch (SQLException se) {
+            logFailure(se);
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #getReadConnection()}, but throws instead of returning null.
+     * Replicas fall back to the primary, so this throws what {@link #requireConnection()} throws.
+     *
+     * @throws SQLException if no connection could be opened or borrowed.
+     */
+    public static Connection requireReadConnection() throws SQLException {
+        Connection bound = TransactionScope.boundConnection();
+        if (bound != null) {
+            return bound; // Reads inside a transaction must see its own writes
+        }
+        ReplicaRouter router = replicas;
+        if (router != null) {
+            Connection conn = router.tryReadConnection();
+            if (conn != null) {
+                return conn;
+            }
+        }
+        return requireConnection();
+    }
+
+    /**
+     * Opens a new physical connection to the primary, bypassing the pool.
+     */
+    static Connection openPhysicalConnection() throws SQLException {
+        return openPhysicalConnection(AppConfig.get().get(AppConfig.DB_URL));
+    }
+
+    /**
+     * Opens a new physical connection to the given database (the primary or a replica), bypassing the pool.
+     */
+    static Connection openPhysicalConnection(String url) throws SQLException {
+        try {
+            // Register JDBC driver (optional for newer JDBC versions, but good practice)
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("MySQL JDBC driver not found on the classpath", e);
+        }
+        AppConfig config = AppConfig.get();
+        try {
+            config.requireDatabasePassword();
+        } catch (IllegalStateException ex) {
+            // 28000: invalid authorization; unavailable until configured, so callers back off instead of retrying
+            throw new DatabaseUnavailableException(ex.getMessage(), "28000", 0, null);
+        }
+        Properties properties = config.getDriverProperties();
+        properties.setProperty("user", config.get(AppConfig.DB_USER));
+        properties.setProperty("password", config.get(AppConfig.DB_PASSWORD));
+        Connection conn = DriverManager.getConnection(url, properties);
+        connectionsOpened.incrementAndGet();
         return conn;
     }
 
+    /**
+     * Switches getConnection() over to a shared pool. Used by the server, where many requests
+     * run concurrently and opening a connection per DAO call would overwhelm MySQL.
+     *
+     * @param maxSize         The maximum number of pooled connections.
+     * @param borrowTimeoutMs How long a caller waits for a free connection before giving up.
+     */
+    public static synchronized void enablePooling(int maxSize, long borrowTimeoutMs) {
+        if (pool != null) {
+            pool.close();
+        }
+        pool = new ConnectionPool(maxSize, borrowTimeoutMs, AppConfig.get().get(AppConfig.POOL_MAX_WAITING),
+                DatabaseConnection::openPhysicalConnection);
+        poolSize = maxSize;
+        poolTimeoutMs = borrowTimeoutMs;
+        if (replicas != null) {
+            replicas.enablePooling(maxSize, borrowTimeoutMs);
+        }
+    }
+
+    /**
+     * Closes the shared pool (if any) and goes back to one connection per call.
+     */
+    public static synchronized void disablePooling() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+        if (replicas != null) {
+            replicas.disablePooling();
+        }
+    }
+
+    /**
+     * Sends read-only DAO calls to the given replicas from now on. Each replica gets its own pool
+     * (same size as the primary's) while pooling is enabled.
+     *
+     * @param replicaUrls  JDBC URLs of the replicas; an empty list goes back to reading from the primary.
+     * @param stickyMillis How long a session keeps reading from the primary after it writes.
+     */
+    public static synchronized void useReplicas(List<String> replicaUrls, long stickyMillis) {
+        if (replicas != null) {
+            replicas.close();
+            replicas = null;
+        }
+        if (replicaUrls.isEmpty()) {
+            return;
+        }
+        ReplicaRouter router = new ReplicaRouter(replicaUrls, stickyMillis, AppConfig.get().get(AppConfig.DB_MAX_REPLICA_LAG_SECONDS));
+        if (pool != null) {
+            router.enablePooling(poolSize, poolTimeoutMs);
+        }
+        replicas = router;
+    }
+
+    /**
+     * Applies the settings that can change while running: pool wait and replica stickiness and lag.
+     */
+    private static synchronized void applyReloadedConfig(AppConfig config) {
+        poolTimeoutMs = config.get(AppConfig.POOL_BORROW_TIMEOUT_MS);
+        int maxWaiting = config.get(AppConfig.POOL_MAX_WAITING);
+        gate.setWaitTimeoutMs(poolTimeoutMs);
+        gate.setMaxWaiting(maxWaiting);
+        breaker.setFailureThreshold(config.get(AppConfig.DB_CIRCUIT_FAILURE_THRESHOLD));
+        breaker.setOpenMillis(config.get(AppConfig.DB_CIRCUIT_OPEN_MS));
+        if (pool != null) {
+            pool.setBorrowTimeoutMs(poolTimeoutMs);
+            pool.setMaxWaiting(maxWaiting);
+        }
+        if (replicas != null) {
+            replicas.setBorrowTimeoutMs(poolTimeoutMs);
+            replicas.setStickyMillis(config.get(AppConfig.DB_STICKY_MS));
+            replicas.setMaxLagSeconds(config.get(AppConfig.DB_MAX_REPLICA_LAG_SECONDS));
+        }
+    }
+
+    /**
+     * @return The replica router, or null if no replicas are configured.
+     */
+    public static ReplicaRouter getReplicaRouter() {
+        return replicas;
+    }
+
+    /**
+     * @return The shared pool, or null if pooling is not enabled.
+     */
+    public static ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return The limit on connections opened without a pool.
+     */
+    public static ConnectionGate getGate() {
+        return gate;
+    }
+
+    /**
+     * @return The circuit breaker guarding connections to the primary.
+     */
+    public static CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    /**
+     * @return The number of connections opened since the application started.
+     */
+    public static long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
     /**
      * Closes the provided database connection.
      *
@@ -55,6 +339,46 @@ public class DatabaseConnection {
         }
     }
 
+    /**
+     * Forwards to an unpooled connection and frees its {@link ConnectionGate} slot when closed.
+     * Not synchronized, like the pool's leases, so driver I/O never runs inside a monitor.
+     */
+    private static class GatedConnection implements InvocationHandler {
+        private final Connection physical;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        GatedConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        try {
+                            physical.close();
+                        } finally {
+                            gate.release();
+                        }
+                    }
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return physical.toString();
+                default:
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+            }
+        }
+    }
+
     public static void main(String[] args) {
         // Simple test to ensure the connection works
         Connection testConn = getConnection();
@@ -0,0 +1,28 @@
+package com.healthcare.util;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * No connection to the database could be had right now. Worth retrying later, not immediately:
+ * {@link #getRetryAfterMillis()} says how long to wait, when known.
+ */
+public class DatabaseUnavailableException extends SQLTransientConnectionException {
+
+    private final long retryAfterMillis;
+
+    public DatabaseUnavailableException(String message, String sqlState, long retryAfterMillis, Throwable cause) {
+        super(message, sqlState, cause);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public DatabaseUnavailableException(String message, Throwable cause) {
+        this(message, "08001", 0, cause);
+    }
+
+    /**
+     * @return How long to wait before trying again, or 0 if unknown.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,200 @@
+package com.healthcare.util;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from int keys to int values, without boxing.
+ * Used by the report and index code where a HashMap&lt;Integer, Integer&gt; would
+ * allocate one or two objects per entry. Not thread-safe.
+ */
+public class IntIntHashMap {
+
+    private static final int FREE_KEY = 0; // Key 0 is stored separately
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int threshold;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    private final int missingValue;
+
+    public IntIntHashMap() {
+        this(16, 0);
+    }
+
+    /**
+     * @param expectedSize The number of entries expected, used to size the table.
+     * @param missingValue The value returned by {@link #get(int)} for absent keys.
+     */
+    public IntIntHashMap(int expectedSize, int missingValue) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+        this.missingValue = missingValue;
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasZeroKey;
+        }
+        return keys[indexOf(key)] == key;
+    }
+
+    /**
+     * @return The value for the key, or the missing value given at construction.
+     */
+    public int get(int key) {
+        if (key == FREE_KEY) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        int index = indexOf(key);
+        return keys[index] == key ? values[index] : missingValue;
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value.
+     */
+    public void put(int key, int value) {
+        if (key == FREE_KEY) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int index = indexOf(key);
+        if (keys[index] != key) {
+            keys[index] = key;
+            if (++size > threshold) {
+                values[index] = value;
+                rehash(keys.length << 1);
+                return;
+            }
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Adds a delta to the value of a key, treating an absent key as 0.
+     *
+     * @return The new value.
+     */
+    public int addTo(int key, int delta) {
+        if (key == FREE_KEY) {
+            zeroValue = (hasZeroKey ? zeroValue : 0) + delta;
+            hasZeroKey = true;
+            return zeroValue;
+        }
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            return values[index] += delta;
+        }
+        put(key, delta);
+        return delta;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @return The removed value, or the missing value if the key was absent.
+     */
+    public int remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasZeroKey) {
+                return missingValue;
+            }
+            hasZeroKey = false;
+            return zeroValue;
+        }
+        int index = indexOf(key);
+        if (keys[index] != key) {
+            return missingValue;
+        }
+        int removed = values[index];
+        keys[index] = FREE_KEY;
+        size--;
+
+        // Shift following entries back so lookups never stop at the hole
+        int mask = keys.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (keys[next] != FREE_KEY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                keys[next] = FREE_KEY;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * Calls the visitor once per entry, in no particular order.
+     */
+    public void forEach(IntIntVisitor visitor) {
+        if (hasZeroKey) {
+            visitor.visit(FREE_KEY, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds every entry of another map into this one.
+     */
+    public void addAll(IntIntHashMap other) {
+        other.forEach(this::addTo);
+    }
+
+    public interface IntIntVisitor {
+        void visit(int key, int value);
+    }
+
+    private int indexOf(int key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != FREE_KEY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[newCapacity];
+        values = new int[newCapacity];
+        threshold = (int) (newCapacity * LOAD_FACTOR);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
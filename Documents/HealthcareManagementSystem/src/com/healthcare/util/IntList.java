@@ -0,0 +1,79 @@
+package com.healthcare.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of primitive ints. Not thread-safe.
+ */
+public class IntList {
+
+    private int[] elements;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int initialCapacity) {
+        elements = new int[Math.max(1, initialCapacity)];
+    }
+
+    public void add(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length << 1);
+        }
+        elements[size++] = value;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return elements[index];
+    }
+
+    public void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        elements[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Removes the last element.
+     *
+     * @return The removed element.
+     */
+    public int removeLast() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("List is empty");
+        }
+        return elements[--size];
+    }
+
+    /**
+     * @return A trimmed copy of the elements.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Returns the backing array without copying. Only the first {@link #size()} elements are valid.
+     */
+    public int[] rawArray() {
+        return elements;
+    }
+}
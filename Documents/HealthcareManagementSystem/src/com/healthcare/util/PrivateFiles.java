@@ -0,0 +1,63 @@
+package com.healthcare.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Creates local files that hold patient data (snapshots, indexes) readable by their owner only.
+ * <p>
+ * On POSIX systems new directories get rwx------ and files rw-------, whatever the umask. Elsewhere the defaults
+ * apply; on Windows, files under the user's profile already inherit an owner-only ACL. Directories that already
+ * exist are left alone, since the configured path may point into a shared one.
+ */
+public final class PrivateFiles {
+
+    private static final Set<PosixFilePermission> OWNER_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private PrivateFiles() {
+    }
+
+    /**
+     * Like {@link Files#createDirectories}, with every directory it creates owner-only.
+     */
+    public static void createDirectories(Path directory) throws IOException {
+        if (isPosix(directory)) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_DIRECTORY));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Opens a file for writing with owner-only permissions, also when the file already existed.
+     *
+     * @param options The open options, e.g. CREATE, WRITE and TRUNCATE_EXISTING.
+     */
+    public static FileChannel open(Path file, OpenOption... options) throws IOException {
+        if (!isPosix(file)) {
+            return FileChannel.open(file, options);
+        }
+        FileAttribute<Set<PosixFilePermission>> ownerOnly = PosixFilePermissions.asFileAttribute(OWNER_FILE);
+        FileChannel channel = FileChannel.open(file, Set.of(options), ownerOnly);
+        try {
+            // The attribute only applies to a file this call created
+            Files.setPosixFilePermissions(file, OWNER_FILE);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+        return channel;
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
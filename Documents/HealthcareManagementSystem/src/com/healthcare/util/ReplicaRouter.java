@@ -0,0 +1,320 @@
+package com.healthcare.util;
+
+import com.healthcare.config.AppConfig;
+import com.healthcare.event.ChangeEventBus;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends read-only DAO calls to MySQL read replicas so reporting and search traffic does not compete
+ * with front-desk writes on the primary.
+ * <p>
+ * Reads are spread round-robin over the replicas that passed their last health check. A replica that
+ * fails to connect, or lags further behind the primary than allowed, is skipped until a later check
+ * succeeds; with no healthy replica, reads go to the primary.
+ * <p>
+ * Read-your-writes: after a session writes (any DAO write that publishes a change event), its reads
+ * go to the primary for {@code stickyMillis}, long enough for the replicas to catch up. In the desktop
+ * app the whole process is one session; the server binds one per client with {@link #bindSession(String)}.
+ */
+public class ReplicaRouter {
+
+    public static final long HEALTH_CHECK_INTERVAL_MS = 5_000;
+
+    private static final String DEFAULT_SESSION = "local";
+    private static final int MAX_TRACKED_SESSIONS = 10_000;
+
+    private static final ThreadLocal<String> session = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> primaryOnly = new ThreadLocal<>();
+
+    private final List<Replica> replicas;
+    private volatile long stickyMillis;
+    private volatile int maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    // Session key -> System.nanoTime() of its last write
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final ChangeEventBus.ChangeListener writeTracker = event -> markWrite();
+    private final ScheduledExecutorService healthChecker;
+
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong stickyReads = new AtomicLong();
+    private final AtomicLong fallbackReads = new AtomicLong();
+
+    /**
+     * @param replicaUrls   JDBC URLs of the replicas, e.g. "jdbc:mysql://localhost:3307/healthcare_system_db".
+     * @param stickyMillis  How long a session reads from the primary after writing.
+     * @param maxLagSeconds Replicas further behind the primary than this are not used.
+     */
+    public ReplicaRouter(List<String> replicaUrls, long stickyMillis, int maxLagSeconds) {
+        List<Replica> list = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (!url.isBlank()) {
+                list.add(new Replica(url.trim()));
+            }
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        this.stickyMillis = stickyMillis;
+        this.maxLagSeconds = maxLagSeconds;
+
+        ChangeEventBus.getInstance().subscribe(writeTracker);
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, HEALTH_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Makes the calling thread act for the given session until {@link #clearSession()}.
+     */
+    public static void bindSession(String key) {
+        session.set(key);
+    }
+
+    /**
+     * Sends the calling thread's reads to the primary until {@link #clearSession()}, whatever its
+     * session did. For reads whose result is shared, e.g. the server's response cache.
+     */
+    public static void usePrimaryForReads() {
+        primaryOnly.set(Boolean.TRUE);
+    }
+
+    public static void clearSession() {
+        session.remove();
+        primaryOnly.remove();
+    }
+
+    /**
+     * Returns a connection to a healthy replica, or null if the read should go to the primary
+     * (the session wrote recently, or no replica is available).
+     */
+    Connection tryReadConnection() {
+        Long lastWrite = lastWrites.get(currentSession());
+        if (primaryOnly.get() != null
+                || lastWrite != null && System.nanoTime() - lastWrite < TimeUnit.MILLISECONDS.toNanos(stickyMillis)) {
+            stickyReads.incrementAndGet();
+            return null;
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.size()));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection conn = replica.open();
+                replica.reads.incrementAndGet();
+                replicaReads.incrementAndGet();
+                return conn;
+            } catch (DatabaseBusyException ex) {
+                // Healthy, just saturated: try the next replica
+                System.err.println("Read replica " + replica.url + " busy: " + ex.getMessage());
+            } catch (SQLException ex) {
+                // Skip it until the next health check says otherwise
+                replica.healthy = false;
+                System.err.println("Read replica " + replica.url + " unavailable: " + ex.getMessage());
+            }
+        }
+        fallbackReads.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Records that the current session wrote, so its next reads see the write.
+     */
+    void markWrite() {
+        long now = System.nanoTime();
+        if (lastWrites.size() > MAX_TRACKED_SESSIONS) {
+            long expired = TimeUnit.MILLISECONDS.toNanos(stickyMillis);
+            lastWrites.values().removeIf(time -> now - time >= expired);
+        }
+        lastWrites.put(currentSession(), now);
+    }
+
+    void enablePooling(int maxSize, long borrowTimeoutMs) {
+        for (Replica replica : replicas) {
+            replica.setPool(new ConnectionPool(maxSize, borrowTimeoutMs, AppConfig.get().get(AppConfig.POOL_MAX_WAITING),
+                    replica::openPhysical));
+        }
+    }
+
+    void setBorrowTimeoutMs(long borrowTimeoutMs) {
+        for (Replica replica : replicas) {
+            ConnectionPool replicaPool = replica.pool;
+            if (replicaPool != null) {
+                replicaPool.setBorrowTimeoutMs(borrowTimeoutMs);
+            }
+        }
+    }
+
+    void disablePooling() {
+        for (Replica replica : replicas) {
+            replica.setPool(null);
+        }
+    }
+
+    /**
+     * Stops health checks and closes the replicas' pools.
+     */
+    void close() {
+        healthChecker.shutdownNow();
+        ChangeEventBus.getInstance().unsubscribe(writeTracker);
+        disablePooling();
+    }
+
+    public long getStickyMillis() {
+        return stickyMillis;
+    }
+
+    public void setStickyMillis(long stickyMillis) {
+        this.stickyMillis = stickyMillis;
+    }
+
+    /**
+     * Takes effect at the next health check.
+     */
+    public void setMaxLagSeconds(int maxLagSeconds) {
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public long getReplicaReadCount() {
+        return replicaReads.get();
+    }
+
+    /**
+     * @return Reads sent to the primary because their session wrote recently (or asked for the primary).
+     */
+    public long getStickyReadCount() {
+        return stickyReads.get();
+    }
+
+    /**
+     * @return Reads sent to the primary because no replica was available.
+     */
+    public long getFallbackReadCount() {
+        return fallbackReads.get();
+    }
+
+    private static String currentSession() {
+        String key = session.get();
+        return key != null ? key : DEFAULT_SESSION;
+    }
+
+    private void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+            try (Connection conn = replica.openPhysical()) {
+                Long lag = replicationLagSeconds(conn);
+                replica.lagSeconds = lag;
+                replica.healthy = lag == null || lag <= maxLagSeconds;
+            } catch (SQLException ex) {
+                replica.healthy = false;
+            }
+            if (replica.healthy != wasHealthy) {
+                System.out.println("Read replica " + replica.url + (replica.healthy ? " is back in rotation." : " taken out of rotation."));
+            }
+        }
+    }
+
+    /**
+     * @return Seconds behind the primary, or null if unknown (not a replica, or no permission to ask).
+     */
+    private static Long replicationLagSeconds(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                return null; // Not replicating, e.g. a second standalone instance used for testing
+            }
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                String column = meta.getColumnLabel(i);
+                if (column.equals("Seconds_Behind_Source") || column.equals("Seconds_Behind_Master")) {
+                    long lag = rs.getLong(i);
+                    // NULL means replication is stopped, which is as bad as being infinitely behind
+                    return rs.wasNull() ? Long.MAX_VALUE : lag;
+                }
+            }
+            return null;
+        } catch (SQLException ex) {
+            return null; // MySQL before 8.0.22, or missing REPLICATION CLIENT privilege
+        }
+    }
+
+    /**
+     * One read replica and its state.
+     */
+    public static class Replica {
+        private final String url;
+        private volatile boolean healthy = true;
+        private volatile Long lagSeconds;
+        private volatile ConnectionPool pool;
+        private final AtomicLong reads = new AtomicLong();
+
+        Replica(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        /**
+         * @return Seconds behind the primary at the last health check, or null if unknown.
+         */
+        public Long getLagSeconds() {
+            return lagSeconds;
+        }
+
+        public long getReadCount() {
+            return reads.get();
+        }
+
+        Connection open() throws SQLException {
+            ConnectionPool currentPool = pool;
+            return currentPool != null ? currentPool.borrow() : openPhysical();
+        }
+
+        Connection openPhysical() throws SQLException {
+            Connection conn = DatabaseConnection.openPhysicalConnection(url);
+            try {
+                conn.setReadOnly(true); // A replica must never take writes, even by mistake
+            } catch (SQLException ex) {
+                conn.close();
+                throw ex;
+            }
+            return conn;
+        }
+
+        void setPool(ConnectionPool newPool) {
+            ConnectionPool old = pool;
+            pool = newPool;
+            if (old != null) {
+                old.close();
+            }
+        }
+    }
+}
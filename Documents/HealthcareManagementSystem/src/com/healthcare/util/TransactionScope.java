@@ -0,0 +1,272 @@
+package com.healthcare.util;
+
+import com.healthcare.config.AppConfig;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs several DAO calls as one database transaction on one connection.
+ * <p>
+ * While {@link #run(Work)} executes, {@link DatabaseConnection#requireConnection()} and
+ * {@link DatabaseConnection#requireReadConnection()} on the same thread return the scope's connection,
+ * and closing it is a no-op, so the DAOs' try-with-resources blocks join the transaction unchanged:
+ * <pre>
+ * int appointmentId = TransactionScope.run(tx -&gt; {
+ *     int patientId = patientDAO.addPatientOrThrow(patient);
+ *     appointment.setPatientId(patientId);
+ *     return appointmentDAO.addAppointmentOrThrow(appointment);
+ * });
+ * </pre>
+ * The work commits once at the end and rolls back if it throws. Anything the DAOs register with
+ * {@link #afterCommit(Runnable)} (change events, aggregate counters) runs only after the commit, so nothing
+ * outside the transaction hears of rows that were rolled back.
+ * <p>
+ * When MySQL picks the transaction as a deadlock victim or a lock wait times out, the whole work is rolled back
+ * and run again, up to {@code db.deadlockRetries} times; the work must therefore be safe to repeat. Calling
+ * {@code run} inside a running scope joins it behind a savepoint instead of starting a new transaction.
+ * Use the throwing DAO methods inside a scope: the lenient ones swallow the error and the work would commit anyway.
+ * Only the local DAOs take part; the remote ones (server mode) make their own HTTP requests.
+ */
+public final class TransactionScope {
+
+    /**
+     * The statements to run in the transaction.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T execute(TransactionScope tx) throws SQLException;
+    }
+
+    private static final String SERIALIZATION_FAILURE = "40001"; // Deadlock victim or lock wait timeout
+    private static final long RETRY_BACKOFF_MS = 20;
+
+    private static final ThreadLocal<TransactionScope> CURRENT = new ThreadLocal<>();
+
+    private static final AtomicLong commits = new AtomicLong();
+    private static final AtomicLong rollbacks = new AtomicLong();
+    private static final AtomicLong retries = new AtomicLong();
+
+    private final Connection connection;
+    private final Connection bound; // What the DAOs get: the same connection, but close() does nothing
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private final Map<Savepoint, Integer> actionsAtSavepoint = new IdentityHashMap<>();
+
+    private TransactionScope(Connection connection) {
+        this.connection = connection;
+        this.bound = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new BoundConnection(connection));
+    }
+
+    /**
+     * Runs the work in a transaction and commits it, or joins the transaction already running on this thread.
+     *
+     * @return What the work returned.
+     * @throws SQLException what the work threw after rolling back, including a deadlock that outlasted the retries.
+     */
+    public static <T> T run(Work<T> work) throws SQLException {
+        TransactionScope outer = CURRENT.get();
+        if (outer != null) {
+            return outer.runNested(work);
+        }
+
+        int maxRetries = AppConfig.get().get(AppConfig.DB_DEADLOCK_RETRIES);
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int attempt = 0; ; attempt++) {
+                    TransactionScope tx = new TransactionScope(conn);
+                    T result;
+                    CURRENT.set(tx);
+                    try {
+                        result = work.execute(tx);
+                        conn.commit();
+                    } catch (SQLException ex) {
+                        rollbackQuietly(conn);
+                        if (attempt < maxRetries && isRetryable(ex)) {
+                            retries.incrementAndGet();
+                            System.out.println("Transaction retried after: " + ex.getMessage());
+                            backOff(attempt);
+                            continue;
+                        }
+                        throw ex;
+                    } catch (RuntimeException | Error ex) {
+                        rollbackQuietly(conn);
+                        throw ex;
+                    } finally {
+                        CURRENT.remove();
+                    }
+                    commits.incrementAndGet();
+                    tx.runAfterCommit();
+                    return result;
+                }
+            } finally {
+                conn.setAutoCommit(true); // A pooled connection goes back in its usual mode
+            }
+        }
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or straight away if this thread has none.
+     * Dropped if the transaction, or the savepoint it was registered after, is rolled back.
+     */
+    public static void afterCommit(Runnable action) {
+        TransactionScope tx = CURRENT.get();
+        if (tx == null) {
+            action.run();
+        } else {
+            tx.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * @return The connection bound to this thread's transaction, or null outside one.
+     */
+    static Connection boundConnection() {
+        TransactionScope tx = CURRENT.get();
+        return tx != null ? tx.bound : null;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Marks a point to roll back to without giving up the whole transaction.
+     */
+    public Savepoint savepoint() throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        actionsAtSavepoint.put(savepoint, afterCommit.size());
+        return savepoint;
+    }
+
+    /**
+     * Undoes the statements run since the savepoint, and forgets the after-commit actions they registered.
+     */
+    public void rollbackTo(Savepoint savepoint) throws SQLException {
+        connection.rollback(savepoint);
+        Integer actions = actionsAtSavepoint.get(savepoint);
+        if (actions != null) {
+            afterCommit.subList(actions, afterCommit.size()).clear();
+        }
+    }
+
+    public void release(Savepoint savepoint) throws SQLException {
+        connection.releaseSavepoint(savepoint);
+        actionsAtSavepoint.remove(savepoint);
+    }
+
+    /**
+     * @return The transaction's connection, for statements of the caller's own. Closing it does nothing.
+     */
+    public Connection getConnection() {
+        return bound;
+    }
+
+    public static long getCommitCount() {
+        return commits.get();
+    }
+
+    public static long getRollbackCount() {
+        return rollbacks.get();
+    }
+
+    public static long getRetryCount() {
+        return retries.get();
+    }
+
+    private <T> T runNested(Work<T> work) throws SQLException {
+        Savepoint savepoint = savepoint();
+        try {
+            T result = work.execute(this);
+            release(savepoint);
+            return result;
+        } catch (SQLException | RuntimeException | Error ex) {
+            // A deadlock already rolled back the whole transaction; the outermost scope retries it
+            if (!isRetryable(ex)) {
+                rollbackTo(savepoint);
+            }
+            throw ex;
+        }
+    }
+
+    private void runAfterCommit() {
+        for (Runnable action : afterCommit) {
+            try {
+                action.run();
+            } catch (RuntimeException ex) {
+                // The transaction is committed; a failing follower must not make it look failed
+                System.err.println("After-commit action failed: " + ex.getMessage());
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static boolean isRetryable(Throwable ex) {
+        return ex instanceof SQLTransactionRollbackException
+                || (ex instanceof SQLException && SERIALIZATION_FAILURE.equals(((SQLException) ex).getSQLState()));
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        rollbacks.incrementAndGet();
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            System.err.println("Rollback failed: " + ex.getMessage());
+        }
+    }
+
+    // Waits a little longer after each failed attempt, with jitter so the deadlocked transactions don't collide again
+    private static void backOff(int attempt) throws SQLException {
+        long maxMillis = RETRY_BACKOFF_MS << Math.min(attempt, 6);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxMillis / 2, maxMillis + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying a transaction", ex);
+        }
+    }
+
+    /**
+     * Forwards to the transaction's connection but ignores close(), which the DAOs call after each statement.
+     */
+    private static class BoundConnection implements InvocationHandler {
+        private final Connection connection;
+
+        BoundConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "TransactionConnection[" + connection + "]";
+                default:
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+            }
+        }
+    }
+}